@@ -18,7 +18,10 @@
  */
 package org.apache.jackrabbit.oak.api;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -95,4 +98,83 @@ public interface Blob {
     default boolean isInlined() {
         return false;
     }
+
+    /**
+     * Reads bytes of this blob starting at the given position into the
+     * given buffer. The buffer is filled unless the end of the blob is
+     * reached. The position of the buffer is advanced by the number of
+     * bytes read.
+     * <p>
+     * The default implementation reads from the {@link #openFileChannel()
+     * file channel} if available and otherwise skips to the position on a
+     * {@link #getNewStream() new stream}. Implementations should override
+     * this method if they can read from a position more efficiently.
+     *
+     * @param position the position in this blob to start reading from
+     * @param dst the buffer to read into
+     * @return the number of bytes read, or -1 if the position is at or
+     *          beyond the end of this blob
+     * @throws IOException if an error occurs while reading
+     */
+    default int read(long position, @NotNull ByteBuffer dst) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position: " + position);
+        }
+        FileChannel channel = openFileChannel();
+        if (channel != null) {
+            try (channel) {
+                int count = 0;
+                while (dst.hasRemaining()) {
+                    int n = channel.read(dst, position + count);
+                    if (n < 0) {
+                        break;
+                    }
+                    count += n;
+                }
+                return count == 0 && dst.hasRemaining() ? -1 : count;
+            }
+        }
+        try (InputStream in = getNewStream()) {
+            long skipped = 0;
+            while (skipped < position) {
+                long n = in.skip(position - skipped);
+                if (n <= 0) {
+                    // skip may return 0 before the end of the stream
+                    if (in.read() < 0) {
+                        return -1;
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            byte[] buffer = new byte[Math.min(dst.remaining(), 8192)];
+            int count = 0;
+            while (dst.hasRemaining()) {
+                int n = in.read(buffer, 0, Math.min(buffer.length, dst.remaining()));
+                if (n < 0) {
+                    break;
+                }
+                dst.put(buffer, 0, n);
+                count += n;
+            }
+            return count == 0 && dst.hasRemaining() ? -1 : count;
+        }
+    }
+
+    /**
+     * Opens a read-only channel over a local file with the content of this
+     * blob, if such a file is available. For example, binaries in a data
+     * store with a local cache are served from the cached file. The channel
+     * supports positioned reads and zero-copy transfers with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     * The caller is responsible for closing the channel.
+     *
+     * @return a channel positioned at the start of the blob, or {@code null}
+     *          if the content of this blob is not available as a local file
+     * @throws IOException if the file cannot be opened
+     */
+    @Nullable
+    default FileChannel openFileChannel() throws IOException {
+        return null;
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.jackrabbit.oak.commons.json.JsonObject;
+import org.apache.jackrabbit.oak.commons.json.JsopReader;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compares two JMH result files in JSON format and reports benchmarks whose
+ * score or normalized allocation rate regressed by more than a threshold.
+ * Benchmarks are matched on their name, mode and parameters. Entries only
+ * present in one of the files are ignored.
+ */
+public class BaselineComparator {
+
+    static final String GC_ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    private final double threshold;
+
+    /**
+     * @param threshold the relative change (e.g. {@code 0.1} for 10%) above
+     *                  which a difference is reported as a regression.
+     */
+    public BaselineComparator(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compares the results against the baseline.
+     *
+     * @param baseline the baseline results.
+     * @param results the current results.
+     * @return the list of regressions, empty if there are none.
+     */
+    @NotNull
+    public List<String> compare(@NotNull Map<String, Result> baseline,
+                                @NotNull Map<String, Result> results) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Result> e : results.entrySet()) {
+            Result base = baseline.get(e.getKey());
+            if (base == null) {
+                continue;
+            }
+            Result current = e.getValue();
+            double change = relativeChange(base.score, current.score);
+            double degradation = current.higherIsBetter() ? -change : change;
+            if (degradation > threshold) {
+                regressions.add(String.format(Locale.ENGLISH,
+                        "%s: score %.3f -> %.3f %s (%+.1f%%)", e.getKey(),
+                        base.score, current.score, current.unit, change * 100));
+            }
+            if (base.allocated != null && current.allocated != null) {
+                double allocChange = relativeChange(base.allocated, current.allocated);
+                // ignore noise on benchmarks that hardly allocate anything
+                if (allocChange > threshold && current.allocated - base.allocated > 8) {
+                    regressions.add(String.format(Locale.ENGLISH,
+                            "%s: allocated %.1f -> %.1f B/op (%+.1f%%)", e.getKey(),
+                            base.allocated, current.allocated, allocChange * 100));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads a JMH result file in JSON format.
+     *
+     * @param file the result file.
+     * @return the results keyed by benchmark name, mode and parameters.
+     * @throws IOException if the file cannot be read.
+     */
+    @NotNull
+    public static Map<String, Result> read(@NotNull File file) throws IOException {
+        return parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @NotNull
+    static Map<String, Result> parse(@NotNull String json) {
+        Map<String, Result> results = new TreeMap<>();
+        JsopTokenizer t = new JsopTokenizer(json);
+        t.read('[');
+        if (!t.matches(']')) {
+            do {
+                t.read('{');
+                JsonObject obj = JsonObject.create(t);
+                Result r = toResult(obj);
+                results.put(r.key, r);
+            } while (t.matches(','));
+            t.read(']');
+        }
+        t.read(JsopReader.END);
+        return results;
+    }
+
+    private static Result toResult(JsonObject obj) {
+        StringBuilder key = new StringBuilder(unquote(obj.getProperties().get("benchmark")));
+        String mode = unquote(obj.getProperties().get("mode"));
+        key.append(" [").append(mode).append(']');
+        JsonObject params = obj.getChildren().get("params");
+        if (params != null) {
+            new TreeMap<>(params.getProperties()).forEach(
+                    (k, v) -> key.append(' ').append(unquote(k)).append('=').append(unquote(v)));
+        }
+        JsonObject primary = obj.getChildren().get("primaryMetric");
+        double score = Double.parseDouble(primary.getProperties().get("score"));
+        String unit = unquote(primary.getProperties().get("scoreUnit"));
+        Double allocated = null;
+        JsonObject secondary = obj.getChildren().get("secondaryMetrics");
+        if (secondary != null) {
+            JsonObject alloc = secondary.getChildren().get(GC_ALLOC_RATE_NORM);
+            if (alloc != null) {
+                allocated = Double.parseDouble(alloc.getProperties().get("score"));
+            }
+        }
+        return new Result(key.toString(), mode, score, unit, allocated);
+    }
+
+    private static String unquote(String value) {
+        if (value != null && value.length() >= 2 && value.startsWith("\"")) {
+            return JsopTokenizer.decodeQuoted(value);
+        }
+        return value;
+    }
+
+    private static double relativeChange(double base, double current) {
+        if (base == 0) {
+            return current == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return (current - base) / base;
+    }
+
+    /**
+     * The result of a single benchmark run.
+     */
+    public static final class Result {
+
+        final String key;
+
+        final String mode;
+
+        final double score;
+
+        final String unit;
+
+        @Nullable
+        final Double allocated;
+
+        Result(String key, String mode, double score, String unit, @Nullable Double allocated) {
+            this.key = key;
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+            this.allocated = allocated;
+        }
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the micro-benchmark jar. Runs the JMH benchmarks selected
+ * by the given JMH command line options with the GC profiler enabled and
+ * writes the results in JSON format. The additional options
+ * {@code --baseline <file>} and {@code --threshold <fraction>} compare the
+ * results against a previous run and exit with status 1 on regressions.
+ * <p>
+ * Example:
+ * <pre>
+ *     java -jar target/oak-benchmarks-jmh.jar SegmentReadBenchmark \
+ *          --baseline baseline/results.json
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private static final String BASELINE = "--baseline";
+
+    private static final String THRESHOLD = "--threshold";
+
+    private static final double DEFAULT_THRESHOLD = 0.1;
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (BASELINE.equals(args[i]) && i + 1 < args.length) {
+                baseline = new File(args[++i]);
+            } else if (THRESHOLD.equals(args[i]) && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions cmd = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (cmd.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName())
+                || p.getKlass().equals("gc"))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        String resultFile = cmd.getResult().orElse("target/jmh-result.json");
+        options.resultFormat(cmd.getResultFormat().orElse(ResultFormatType.JSON)).result(resultFile);
+        new Runner(options.build()).run();
+
+        if (baseline != null) {
+            BaselineComparator comparator = new BaselineComparator(threshold);
+            List<String> regressions = comparator.compare(
+                    BaselineComparator.read(baseline),
+                    BaselineComparator.read(new File(resultFile)));
+            if (regressions.isEmpty()) {
+                System.out.println("No regressions against " + baseline);
+            } else {
+                System.out.println("Regressions against " + baseline + ":");
+                regressions.forEach(r -> System.out.println("  " + r));
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.commons.json.JsopReader;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Micro-benchmarks for JSOP serialization with {@link JsopBuilder} and
+ * parsing with {@link JsopTokenizer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsopBenchmark {
+
+    @Param({"10", "100"})
+    public int properties;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        json = build();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return build();
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole bh) {
+        JsopTokenizer t = new JsopTokenizer(json);
+        int token;
+        while ((token = t.read()) != JsopReader.END) {
+            bh.consume(token);
+            bh.consume(t.getToken());
+        }
+    }
+
+    private String build() {
+        JsopBuilder builder = new JsopBuilder();
+        builder.object();
+        for (int i = 0; i < properties; i++) {
+            builder.key("property-" + i);
+            if (i % 3 == 0) {
+                builder.value(i);
+            } else if (i % 3 == 1) {
+                builder.value(i % 2 == 0);
+            } else {
+                builder.value("value \"" + i + "\" with some\ttext");
+            }
+        }
+        builder.endObject();
+        return builder.toString();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for the string serialization of a {@link NodeDocument}
+ * as used by the persistent cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NodeDocumentBenchmark {
+
+    @Param({"10", "200"})
+    public int revisions;
+
+    private MemoryDocumentStore store;
+
+    private String serialized;
+
+    private NodeDocument document;
+
+    @Setup
+    public void setup() {
+        store = new MemoryDocumentStore();
+        serialized = createDocument(revisions);
+        document = NodeDocument.fromString(store, serialized);
+    }
+
+    @Benchmark
+    public NodeDocument fromString() {
+        return NodeDocument.fromString(store, serialized);
+    }
+
+    @Benchmark
+    public String asString() {
+        return document.asString();
+    }
+
+    private static String createDocument(int revisions) {
+        long now = 1700000000000L;
+        JsopBuilder json = new JsopBuilder();
+        json.key("_id").value("3:/content/site/page");
+        json.key("_modified").value(now / 1000);
+        json.key("_modCount").value(revisions);
+        json.key("_revisions").object();
+        for (int i = 0; i < revisions; i++) {
+            json.key(new Revision(now + i, 0, 1).toString()).value("c");
+        }
+        json.endObject();
+        for (String property : new String[]{"title", "description", "jcr:primaryType"}) {
+            json.key(property).object();
+            for (int i = 0; i < revisions; i++) {
+                json.key(new Revision(now + i, 0, 1).toString()).value("\"" + property + " " + i + "\"");
+            }
+            json.endObject();
+        }
+        return json.toString();
+    }
+}
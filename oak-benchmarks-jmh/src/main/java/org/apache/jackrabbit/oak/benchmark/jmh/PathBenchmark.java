@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.plugins.document.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for the DocumentNodeStore {@link Path} abstraction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathBenchmark {
+
+    @Param({"3", "12"})
+    public int depth;
+
+    private String pathString;
+
+    private Path path;
+
+    private Path sibling;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("/node-").append(i);
+        }
+        pathString = sb.toString();
+        path = Path.fromString(pathString);
+        sibling = new Path(path.getParent(), "other");
+    }
+
+    @Benchmark
+    public Path fromString() {
+        return Path.fromString(pathString);
+    }
+
+    @Benchmark
+    public String asString() {
+        return Path.fromString(pathString).toString();
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return path.compareTo(sibling);
+    }
+
+    @Benchmark
+    public boolean isAncestorOf() {
+        return path.getAncestor(depth / 2).isAncestorOf(path);
+    }
+}
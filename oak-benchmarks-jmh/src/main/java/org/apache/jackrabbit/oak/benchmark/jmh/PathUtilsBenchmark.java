@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Micro-benchmarks for the string based path utilities in {@link PathUtils}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathUtilsBenchmark {
+
+    @Param({"3", "12"})
+    public int depth;
+
+    private String path;
+
+    private String ancestor;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("/node-").append(i);
+        }
+        path = sb.toString();
+        ancestor = PathUtils.getAncestorPath(path, depth / 2);
+    }
+
+    @Benchmark
+    public String getName() {
+        return PathUtils.getName(path);
+    }
+
+    @Benchmark
+    public String getParentPath() {
+        return PathUtils.getParentPath(path);
+    }
+
+    @Benchmark
+    public int getDepth() {
+        return PathUtils.getDepth(path);
+    }
+
+    @Benchmark
+    public boolean isAncestor() {
+        return PathUtils.isAncestor(ancestor, path);
+    }
+
+    @Benchmark
+    public void elements(Blackhole bh) {
+        for (String element : PathUtils.elements(path)) {
+            bh.consume(element);
+        }
+    }
+
+    @Benchmark
+    public String concat() {
+        return PathUtils.concat(ancestor, "child", "grand-child");
+    }
+}
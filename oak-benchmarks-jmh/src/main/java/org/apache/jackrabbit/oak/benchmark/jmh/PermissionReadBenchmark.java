@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.SimpleCredentials;
+import javax.jcr.security.AccessControlManager;
+import javax.jcr.security.Privilege;
+
+import org.apache.jackrabbit.api.security.JackrabbitAccessControlList;
+import org.apache.jackrabbit.commons.jackrabbit.authorization.AccessControlUtils;
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentSession;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Root;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.namepath.NamePathMapper;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.plugins.tree.TreeUtil;
+import org.apache.jackrabbit.oak.plugins.tree.factories.RootFactory;
+import org.apache.jackrabbit.oak.plugins.value.jcr.ValueFactoryImpl;
+import org.apache.jackrabbit.oak.security.internal.SecurityProviderBuilder;
+import org.apache.jackrabbit.oak.spi.nodetype.NodeTypeConstants;
+import org.apache.jackrabbit.oak.spi.security.SecurityProvider;
+import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
+import org.apache.jackrabbit.oak.spi.security.authorization.accesscontrol.AccessControlConstants;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.TreePermission;
+import org.apache.jackrabbit.oak.spi.security.principal.EveryonePrincipal;
+import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeConstants;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for read access evaluation through {@code TreePermission},
+ * the way secured node states evaluate it: the tree permissions are created
+ * along the path of a random node below a single access controlled node,
+ * checking read access on every level, then a property of the node is
+ * checked. With {@code restricted}, the access controlled node also has an
+ * entry with a glob restriction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PermissionReadBenchmark {
+
+    private static final int DEPTH = 4;
+
+    private static final int FAN_OUT = 5;
+
+    private static final String[] NAMES = {"node-0", "node-1", "node-2", "node-3", "node-4"};
+
+    @Param({"false", "true"})
+    public boolean restricted;
+
+    private TreePermission rootPermission;
+
+    private NodeState content;
+
+    @Setup
+    public void setup() throws Exception {
+        NodeStore store = new MemoryNodeStore();
+        SecurityProvider securityProvider = SecurityProviderBuilder.newBuilder().build();
+        Oak oak = new Oak(store).with(new InitialContent()).with(securityProvider);
+        AuthorizationConfiguration config = securityProvider.getConfiguration(AuthorizationConfiguration.class);
+        try (ContentSession session = oak.createContentRepository().login(
+                new SimpleCredentials("admin", "admin".toCharArray()), null)) {
+            Root root = session.getLatestRoot();
+            addChildren(TreeUtil.addChild(root.getTree("/"), "content", NodeTypeConstants.NT_OAK_UNSTRUCTURED), DEPTH);
+
+            AccessControlManager acMgr = config.getAccessControlManager(root, NamePathMapper.DEFAULT);
+            Privilege[] read = AccessControlUtils.privilegesFromNames(acMgr, PrivilegeConstants.JCR_READ);
+            JackrabbitAccessControlList acl = AccessControlUtils.getAccessControlList(acMgr, "/content");
+            acl.addEntry(EveryonePrincipal.getInstance(), read, true);
+            if (restricted) {
+                acl.addEntry(EveryonePrincipal.getInstance(), read, false, Map.of(AccessControlConstants.REP_GLOB,
+                        new ValueFactoryImpl(root, NamePathMapper.DEFAULT).createValue("/*/secret")));
+            }
+            acMgr.setPolicy("/content", acl);
+            root.commit();
+
+            PermissionProvider permissionProvider = config.getPermissionProvider(
+                    session.getLatestRoot(), session.getWorkspaceName(), Set.of(EveryonePrincipal.getInstance()));
+            NodeState rootState = store.getRoot();
+            Tree rootTree = RootFactory.createReadOnlyRoot(rootState).getTree("/");
+            rootPermission = permissionProvider.getTreePermission(rootTree, TreePermission.EMPTY);
+            content = rootState.getChildNode("content");
+        }
+    }
+
+    @Benchmark
+    public boolean canRead() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TreePermission tp = rootPermission.getChildPermission("content", content);
+        NodeState state = content;
+        boolean canRead = tp.canRead();
+        for (int i = 0; i < DEPTH; i++) {
+            String name = NAMES[random.nextInt(FAN_OUT)];
+            state = state.getChildNode(name);
+            tp = tp.getChildPermission(name, state);
+            canRead &= tp.canRead();
+        }
+        PropertyState title = state.getProperty("title");
+        return canRead && tp.canRead(title);
+    }
+
+    private static void addChildren(Tree parent, int depth) throws Exception {
+        for (int i = 0; i < FAN_OUT; i++) {
+            Tree child = TreeUtil.addChild(parent, NAMES[i], NodeTypeConstants.NT_OAK_UNSTRUCTURED);
+            child.setProperty("title", "Title " + i);
+            if (depth > 1) {
+                addChildren(child, depth - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.plugins.document.StableRevisionComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for parsing and comparing {@link Revision}s and
+ * {@link RevisionVector}s of the DocumentNodeStore.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RevisionBenchmark {
+
+    @Param({"1", "8"})
+    public int clusterNodes;
+
+    private String revisionString;
+
+    private Revision r1;
+
+    private Revision r2;
+
+    private Revision otherClusterId;
+
+    private String vectorString;
+
+    private RevisionVector v1;
+
+    private RevisionVector v2;
+
+    @Setup
+    public void setup() {
+        long now = 1700000000000L;
+        Revision[] revs1 = new Revision[clusterNodes];
+        Revision[] revs2 = new Revision[clusterNodes];
+        for (int i = 0; i < clusterNodes; i++) {
+            revs1[i] = new Revision(now + i, i, i + 1);
+            revs2[i] = new Revision(now + i + (i == clusterNodes - 1 ? 1 : 0), i, i + 1);
+        }
+        revisionString = revs1[0].toString();
+        r1 = revs1[0];
+        r2 = new Revision(now + 1, 0, 1);
+        otherClusterId = new Revision(now, 0, 2);
+        v1 = new RevisionVector(revs1);
+        v2 = new RevisionVector(revs2);
+        vectorString = v1.asString();
+    }
+
+    @Benchmark
+    public Revision revisionFromString() {
+        return Revision.fromString(revisionString);
+    }
+
+    @Benchmark
+    public int revisionCompare() {
+        return StableRevisionComparator.INSTANCE.compare(r1, r2);
+    }
+
+    @Benchmark
+    public int revisionCompareClusterId() {
+        // same timestamp and counter, ordered by cluster id
+        return StableRevisionComparator.INSTANCE.compare(r1, otherClusterId);
+    }
+
+    @Benchmark
+    public RevisionVector vectorFromString() {
+        return RevisionVector.fromString(vectorString);
+    }
+
+    @Benchmark
+    public int vectorCompare() {
+        return v1.compareTo(v2);
+    }
+
+    @Benchmark
+    public boolean vectorIsRevisionNewer() {
+        return v2.isRevisionNewer(v1.getRevision(clusterNodes));
+    }
+}
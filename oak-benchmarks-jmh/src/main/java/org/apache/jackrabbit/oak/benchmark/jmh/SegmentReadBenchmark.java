@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for reading segment records: template and property
+ * records through {@code SegmentNodeState} and child node lookups in
+ * {@code MapRecord}s of a node with many children.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SegmentReadBenchmark {
+
+    @Param({"100", "10000"})
+    public int children;
+
+    private NodeState parent;
+
+    private String[] names;
+
+    @Setup
+    public void setup() throws Exception {
+        SegmentNodeStore store = SegmentNodeStoreBuilders.builder(new MemoryStore()).build();
+        NodeBuilder builder = store.getRoot().builder();
+        NodeBuilder parentBuilder = builder.child("content");
+        names = new String[children];
+        for (int i = 0; i < children; i++) {
+            names[i] = "child-" + i;
+            NodeBuilder child = parentBuilder.child(names[i]);
+            child.setProperty("title", "Title " + i);
+            child.setProperty("count", i);
+            child.setProperty("published", i % 2 == 0);
+        }
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        parent = store.getRoot().getChildNode("content");
+    }
+
+    @Benchmark
+    public NodeState childLookup() {
+        return parent.getChildNode(names[ThreadLocalRandom.current().nextInt(children)]);
+    }
+
+    @Benchmark
+    public boolean missingChildLookup() {
+        return parent.hasChildNode("missing");
+    }
+
+    @Benchmark
+    public String readStringProperty() {
+        NodeState child = parent.getChildNode(names[ThreadLocalRandom.current().nextInt(children)]);
+        return child.getString("title");
+    }
+
+    @Benchmark
+    public long readProperties() {
+        NodeState child = parent.getChildNode(names[ThreadLocalRandom.current().nextInt(children)]);
+        long sum = 0;
+        for (PropertyState p : child.getProperties()) {
+            if (p.getType() == Type.LONG) {
+                sum += p.getValue(Type.LONG);
+            } else {
+                sum += p.getName().length();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.jmh;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jackrabbit.oak.benchmark.jmh.BaselineComparator.Result;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BaselineComparatorTest {
+
+    @Test
+    public void parse() {
+        Map<String, Result> results = BaselineComparator.parse(
+                results("avgt", 100.0, 48.0));
+        assertEquals(1, results.size());
+        Result r = results.get("org.example.Bench.run [avgt] size=10");
+        assertEquals(100.0, r.score, 0.0);
+        assertEquals("ns/op", r.unit);
+        assertEquals(48.0, r.allocated, 0.0);
+    }
+
+    @Test
+    public void noRegression() {
+        BaselineComparator comparator = new BaselineComparator(0.1);
+        List<String> regressions = comparator.compare(
+                BaselineComparator.parse(results("avgt", 100.0, 48.0)),
+                BaselineComparator.parse(results("avgt", 105.0, 48.0)));
+        assertTrue(regressions.isEmpty());
+    }
+
+    @Test
+    public void slowerAverageTime() {
+        BaselineComparator comparator = new BaselineComparator(0.1);
+        List<String> regressions = comparator.compare(
+                BaselineComparator.parse(results("avgt", 100.0, 48.0)),
+                BaselineComparator.parse(results("avgt", 120.0, 48.0)));
+        assertEquals(1, regressions.size());
+    }
+
+    @Test
+    public void lowerThroughput() {
+        BaselineComparator comparator = new BaselineComparator(0.1);
+        assertEquals(1, comparator.compare(
+                BaselineComparator.parse(results("thrpt", 100.0, 48.0)),
+                BaselineComparator.parse(results("thrpt", 80.0, 48.0))).size());
+        assertTrue(comparator.compare(
+                BaselineComparator.parse(results("thrpt", 100.0, 48.0)),
+                BaselineComparator.parse(results("thrpt", 120.0, 48.0))).isEmpty());
+    }
+
+    @Test
+    public void moreAllocations() {
+        BaselineComparator comparator = new BaselineComparator(0.1);
+        List<String> regressions = comparator.compare(
+                BaselineComparator.parse(results("avgt", 100.0, 48.0)),
+                BaselineComparator.parse(results("avgt", 100.0, 96.0)));
+        assertEquals(1, regressions.size());
+    }
+
+    private static String results(String mode, double score, double allocated) {
+        return "[ { \"benchmark\" : \"org.example.Bench.run\", \"mode\" : \"" + mode + "\", " +
+                "\"threads\" : 1, \"jvmArgs\" : [ ], " +
+                "\"params\" : { \"size\" : \"10\" }, " +
+                "\"primaryMetric\" : { \"score\" : " + score + ", \"scoreError\" : \"NaN\", " +
+                "\"scoreUnit\" : \"ns/op\", \"rawData\" : [ [ " + score + " ] ] }, " +
+                "\"secondaryMetrics\" : { \"gc.alloc.rate.norm\" : { \"score\" : " + allocated +
+                ", \"scoreUnit\" : \"B/op\" } } } ]";
+    }
+}
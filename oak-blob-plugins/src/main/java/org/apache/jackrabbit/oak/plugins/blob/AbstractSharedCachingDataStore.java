@@ -28,6 +28,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.util.Iterator;
@@ -49,6 +51,8 @@ import org.apache.jackrabbit.oak.plugins.blob.datastore.TypedDataStore;
 import org.apache.jackrabbit.oak.spi.blob.AbstractDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
 import org.apache.jackrabbit.oak.spi.blob.BlobOptions;
+import org.apache.jackrabbit.oak.spi.blob.MultipartSharedBackend;
+import org.apache.jackrabbit.oak.spi.blob.MultipartSharedBackend.MultipartUpload;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.util.LazyFileInputStream;
 import org.apache.jackrabbit.util.TransientFileFactory;
@@ -72,6 +76,9 @@ import org.apache.jackrabbit.guava.common.util.concurrent.ListeningExecutorServi
  *     &lt;param name="{@link #setCacheSize(long) cacheSize}" value="68719476736"/&gt;
  *     &lt;param name="{@link #setStagingSplitPercentage(int) stagingSplitPercentage}" value="10"/&gt;
  *     &lt;param name="{@link #setUploadThreads(int) uploadThreads}" value="10"/&gt;
+ *     &lt;param name="{@link #setLargeUploadThreshold(long) largeUploadThreshold}" value="67108864"/&gt;
+ *     &lt;param name="{@link #setUploadPartSize(long) uploadPartSize}" value="16777216"/&gt;
+ *     &lt;param name="{@link #setMaxPendingUploads(int) maxPendingUploads}" value="10000"/&gt;
  *     &lt;param name="{@link #setStagingPurgeInterval(int) stagingPurgeInterval}" value="300"/&gt;
  *     &lt;param name="{@link #setStagingRetryInterval(int) stagingRetryInterval} " value="600"/&gt;
  * &lt;/DataStore&gt;
@@ -104,6 +111,24 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
      */
     private int uploadThreads = 10;
 
+    /**
+     * The size in bytes from which files are uploaded separately from smaller files and,
+     * if the backend supports it, in parts.
+     */
+    private long largeUploadThreshold = UploadStagingCache.DEFAULT_LARGE_UPLOAD_THRESHOLD;
+
+    /**
+     * The size in bytes of the parts of a multipart upload.
+     */
+    private long uploadPartSize = UploadStagingCache.DEFAULT_UPLOAD_PART_SIZE;
+
+    /**
+     * The maximum number of pending asynchronous uploads. Once reached, records are
+     * written to the backend synchronously, which slows down writers to the pace of the
+     * backend.
+     */
+    private int maxPendingUploads = UploadStagingCache.DEFAULT_MAX_PENDING_UPLOADS;
+
     /**
      * The interval for remove job in seconds.
      */
@@ -173,11 +198,20 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
                         backend.write(new DataIdentifier(id), file);
                     }
 
+                    @Override public MultipartUpload initiateMultipartUpload(String id, long length)
+                        throws DataStoreException {
+                        if (backend instanceof MultipartSharedBackend) {
+                            return ((MultipartSharedBackend) backend)
+                                .initiateMultipartUpload(new DataIdentifier(id), length);
+                        }
+                        return null;
+                    }
+
                 @Override public void adopt(File f, File moved) throws IOException {
                     FileUtils.moveFile(f, moved);
                 }
             }, statisticsProvider, listeningExecutor, schedulerExecutor, executor, stagingPurgeInterval,
-                stagingRetryInterval);
+                stagingRetryInterval, largeUploadThreshold, uploadPartSize, maxPendingUploads);
     }
 
     protected abstract AbstractSharedBackend createBackend();
@@ -217,6 +251,36 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
         return null;
     }
 
+    /**
+     * Opens a read-only channel over the local file of the record with the given
+     * identifier. The file is either still staged for upload or downloaded into the
+     * cache like for {@link DataRecord#getStream()}.
+     *
+     * @param identifier the record identifier
+     * @return a channel over the record or {@code null} if the record cannot be
+     *          cached locally
+     * @throws DataStoreException if the record cannot be retrieved
+     */
+    @Nullable
+    public FileChannel openFileChannel(DataIdentifier identifier) throws DataStoreException {
+        File cached;
+        try {
+            cached = cache.get(identifier.toString());
+        } catch (IOException e) {
+            throw new DataStoreException("Error retrieving from cache " + identifier, e);
+        }
+        // If cache configured to 0 will return null
+        if (cached != null) {
+            try {
+                return FileChannel.open(cached.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                // the file may have been evicted in the meantime
+                LOG.debug("Error opening cached file [{}] of [{}]", cached, identifier, e);
+            }
+        }
+        return null;
+    }
+
     @Override
     public DataRecord addRecord(InputStream inputStream) throws DataStoreException {
         return addRecord(inputStream, new BlobOptions());
@@ -399,6 +463,19 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
         this.uploadThreads = uploadThreads;
     }
 
+    public void setLargeUploadThreshold(long largeUploadThreshold) {
+        this.largeUploadThreshold = largeUploadThreshold;
+    }
+
+    public void setUploadPartSize(long uploadPartSize) {
+        checkArgument(uploadPartSize > 0, "Upload part size should be positive");
+        this.uploadPartSize = uploadPartSize;
+    }
+
+    public void setMaxPendingUploads(int maxPendingUploads) {
+        this.maxPendingUploads = maxPendingUploads;
+    }
+
     public void setStagingPurgeInterval(int stagingPurgeInterval) {
         this.stagingPurgeInterval = stagingPurgeInterval;
     }
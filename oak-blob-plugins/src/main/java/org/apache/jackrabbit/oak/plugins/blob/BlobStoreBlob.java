@@ -20,6 +20,8 @@ package org.apache.jackrabbit.oak.plugins.blob;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.jackrabbit.oak.plugins.blob.datastore.InMemoryDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
@@ -75,6 +77,30 @@ public class BlobStoreBlob implements Blob {
         return blobStore.getReference(blobId);
     }
 
+    @Override
+    public int read(long position, @NotNull ByteBuffer dst) throws IOException {
+        if (!dst.hasArray()) {
+            return Blob.super.read(position, dst);
+        }
+        int count = 0;
+        while (dst.hasRemaining()) {
+            int n = blobStore.readBlob(blobId, position + count, dst.array(),
+                    dst.arrayOffset() + dst.position(), dst.remaining());
+            if (n <= 0) {
+                break;
+            }
+            dst.position(dst.position() + n);
+            count += n;
+        }
+        return count == 0 && dst.hasRemaining() ? -1 : count;
+    }
+
+    @Override
+    @Nullable
+    public FileChannel openFileChannel() throws IOException {
+        return blobStore.openFileChannel(blobId);
+    }
+
     @Override
     public String getContentIdentity() {
         return blobId;
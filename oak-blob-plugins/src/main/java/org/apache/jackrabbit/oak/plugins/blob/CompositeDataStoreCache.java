@@ -67,6 +67,21 @@ public class CompositeDataStoreCache extends AbstractCache<String, File> impleme
         ExecutorService executor /* File cache executor */,
         int purgeInterval /* async purge interval secs */,
         int stagingRetryInterval /* async retry interval secs */) {
+        this(path, home, size, uploadSplitPercentage, uploadThreads, loader, uploader, statsProvider,
+            listeningExecutor, scheduledExecutor, executor, purgeInterval, stagingRetryInterval,
+            UploadStagingCache.DEFAULT_LARGE_UPLOAD_THRESHOLD, UploadStagingCache.DEFAULT_UPLOAD_PART_SIZE,
+            UploadStagingCache.DEFAULT_MAX_PENDING_UPLOADS);
+    }
+
+    CompositeDataStoreCache(String path, File home, long size, int uploadSplitPercentage,
+        int uploadThreads, CacheLoader<String, InputStream> loader, final StagingUploader uploader,
+        StatisticsProvider statsProvider, ListeningExecutorService listeningExecutor,
+        ScheduledExecutorService scheduledExecutor /* purge scheduled executor */,
+        ExecutorService executor /* File cache executor */,
+        int purgeInterval /* async purge interval secs */,
+        int stagingRetryInterval /* async retry interval secs */,
+        long largeUploadThreshold /* bytes */, long uploadPartSize /* bytes */,
+        int maxPendingUploads) {
 
         checkArgument(uploadSplitPercentage >= 0 && uploadSplitPercentage < 100,
             "Upload percentage should be between 0 and 100");
@@ -82,7 +97,8 @@ public class CompositeDataStoreCache extends AbstractCache<String, File> impleme
                 uploadSplitPercentage, uploadThreads);
         this.stagingCache = UploadStagingCache
             .build(directory, home, uploadThreads, uploadSize, uploader, null, statsProvider,
-                listeningExecutor, scheduledExecutor, purgeInterval, stagingRetryInterval);
+                listeningExecutor, scheduledExecutor, purgeInterval, stagingRetryInterval,
+                largeUploadThreshold, uploadPartSize, maxPendingUploads);
         this.downloadCache = FileCache.build(fileCacheSize, directory, loader, executor);
         stagingCache.setDownloadCache(downloadCache);
     }
@@ -29,4 +29,28 @@ public interface DataStoreCacheStatsMBean extends CacheStatsMBean {
      */
     //Computing weight is costly hence its an operation
     long estimateCurrentMemoryWeight();
+
+    /**
+     * Number of uploads which are queued or in progress
+     * @return the number of pending uploads
+     */
+    long getUploadQueueDepth();
+
+    /**
+     * Number of uploads of large files which are queued or in progress
+     * @return the number of pending uploads of large files
+     */
+    long getLargeUploadQueueDepth();
+
+    /**
+     * Total number of bytes uploaded
+     * @return the uploaded bytes
+     */
+    long getUploadedBytes();
+
+    /**
+     * Average throughput of an upload in bytes per second
+     * @return the upload throughput
+     */
+    double getUploadThroughput();
 }
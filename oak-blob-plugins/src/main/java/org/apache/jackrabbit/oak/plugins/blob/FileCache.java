@@ -372,4 +372,25 @@ class FileCacheStats extends CacheStats implements DataStoreCacheStatsMBean {
         }
         return size;
     }
+
+    //~--------------------------------------< upload stats - not applicable for the download cache
+    @Override
+    public long getUploadQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public long getLargeUploadQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public long getUploadedBytes() {
+        return 0;
+    }
+
+    @Override
+    public double getUploadThroughput() {
+        return 0;
+    }
 }
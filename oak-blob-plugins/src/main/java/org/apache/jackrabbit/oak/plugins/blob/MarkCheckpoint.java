@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the sorted references of the partitions completed by a partitioned
+ * mark phase, so that an interrupted mark phase can resume with the
+ * remaining partitions.
+ * <p>
+ * The directory contains one file per completed partition and a properties
+ * file with the start time of the mark phase, the keys of all partitions
+ * and the indexes of the completed partitions. A checkpoint is only resumed
+ * if the partitions did not change and it is not older than the maximum age.
+ * The start time of a resumed mark phase must be used as the reference time
+ * of the sweep, as the references of the completed partitions were
+ * collected from that time on.
+ */
+class MarkCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MarkCheckpoint.class);
+
+    private static final String PROPERTIES = "checkpoint.properties";
+
+    private static final String START = "start";
+
+    private static final String PARTITION_COUNT = "partitions";
+
+    private static final String PARTITION_PREFIX = "partition.";
+
+    private static final String COMPLETED_PREFIX = "completed.";
+
+    private final File dir;
+
+    private final Properties properties;
+
+    private final long start;
+
+    private MarkCheckpoint(File dir, Properties properties, long start) {
+        this.dir = dir;
+        this.properties = properties;
+        this.start = start;
+    }
+
+    /**
+     * Opens the checkpoint in the given directory. A new checkpoint is
+     * created if there is none, or if the existing one does not match the
+     * partitions or is too old.
+     *
+     * @param dir the checkpoint directory.
+     * @param keys the keys of the partitions.
+     * @param now the start time of the current mark phase.
+     * @param maxAge the maximum age of a checkpoint to resume, in millis.
+     * @return the checkpoint.
+     */
+    @NotNull
+    static MarkCheckpoint open(@NotNull File dir, @NotNull List<String> keys,
+                               long now, long maxAge) throws IOException {
+        Properties existing = read(dir);
+        if (existing != null) {
+            long start;
+            try {
+                start = Long.parseLong(existing.getProperty(START, "0"));
+            } catch (NumberFormatException e) {
+                start = 0;
+            }
+            if (matches(existing, keys) && now - start <= maxAge) {
+                MarkCheckpoint checkpoint = new MarkCheckpoint(dir, existing, start);
+                LOG.info("Resuming mark phase started at {} with {} of {} partitions completed",
+                        start, checkpoint.getCompletedCount(), keys.size());
+                return checkpoint;
+            }
+            LOG.info("Discarding mark checkpoint started at {}", start);
+        }
+        FileUtils.deleteQuietly(dir);
+        FileUtils.forceMkdir(dir);
+        Properties properties = new Properties();
+        properties.setProperty(START, String.valueOf(now));
+        properties.setProperty(PARTITION_COUNT, String.valueOf(keys.size()));
+        for (int i = 0; i < keys.size(); i++) {
+            properties.setProperty(PARTITION_PREFIX + i, keys.get(i));
+        }
+        MarkCheckpoint checkpoint = new MarkCheckpoint(dir, properties, now);
+        checkpoint.write();
+        return checkpoint;
+    }
+
+    /**
+     * @return the start time of the mark phase of this checkpoint.
+     */
+    long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the file with the sorted references of the given partition, if
+     * the partition was completed.
+     *
+     * @param index the index of the partition.
+     * @return the file or {@code null} if the partition was not completed.
+     */
+    @Nullable
+    synchronized File getCompleted(int index) {
+        File file = getFile(index);
+        if (properties.containsKey(COMPLETED_PREFIX + index) && file.exists()) {
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Records the given partition as completed and moves the file with its
+     * sorted references into the checkpoint directory.
+     *
+     * @param index the index of the partition.
+     * @param sorted the file with the sorted references.
+     * @return the file in the checkpoint directory.
+     */
+    @NotNull
+    synchronized File completed(int index, @NotNull File sorted) throws IOException {
+        File file = getFile(index);
+        Files.move(sorted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        properties.setProperty(COMPLETED_PREFIX + index, "true");
+        write();
+        return file;
+    }
+
+    /**
+     * Deletes the checkpoint after the mark phase completed.
+     */
+    void delete() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private int getCompletedCount() {
+        int count = 0;
+        for (int i = 0; i < Integer.parseInt(properties.getProperty(PARTITION_COUNT)); i++) {
+            if (getCompleted(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private File getFile(int index) {
+        return new File(dir, "partition-" + index);
+    }
+
+    private void write() throws IOException {
+        // write to a temporary file and rename, so that an interrupted
+        // write does not leave a corrupt checkpoint behind
+        File tmp = new File(dir, PROPERTIES + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            properties.store(out, null);
+        }
+        Files.move(tmp.toPath(), new File(dir, PROPERTIES).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Nullable
+    private static Properties read(File dir) {
+        File file = new File(dir, PROPERTIES);
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+            return properties;
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Unable to read mark checkpoint {}", file, e);
+            return null;
+        }
+    }
+
+    private static boolean matches(Properties properties, List<String> keys) {
+        if (!String.valueOf(keys.size()).equals(properties.getProperty(PARTITION_COUNT))) {
+            return false;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (!keys.get(i).equals(properties.getProperty(PARTITION_PREFIX + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -33,6 +33,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.LineNumberReader;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
@@ -49,6 +50,9 @@ import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -66,6 +70,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.LineIterator;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.oak.api.jmx.CheckpointMBean;
 import org.apache.jackrabbit.oak.commons.FileIOUtils;
 import org.apache.jackrabbit.oak.commons.io.FileLineDifferenceIterator;
@@ -103,6 +108,25 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
 
     public static final String DELIM = ",";
 
+    /**
+     * The default number of threads used to collect the references of the
+     * partitions of a {@link PartitionedBlobReferenceRetriever}.
+     */
+    public static final int DEFAULT_MARK_THREADS = Integer.getInteger("oak.blob.gc.markThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The maximum age of a checkpoint of an interrupted partitioned mark
+     * phase that is resumed, in millis. With a shared data store, the
+     * maximum age is at most the max last modified interval.
+     */
+    static final long MARK_CHECKPOINT_MAX_AGE = Long.getLong("oak.blob.gc.markCheckpointMaxAge",
+            TimeUnit.HOURS.toMillis(24));
+
+    /** Sorts the marked references by the blob id, ignoring the node id if present */
+    private static final Comparator<String> MARKED_REFS_COMPARATOR =
+            (s1, s2) -> s1.split(DELIM)[0].compareTo(s2.split(DELIM)[0]);
+
     private static final java.util.function.Function<String, String> transformer = new java.util.function.Function<String, String>() {
         @Nullable
         @Override
@@ -155,6 +179,12 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
 
     private Clock clock;
 
+    /** The number of threads used to collect the references of partitions */
+    private int markThreads = DEFAULT_MARK_THREADS;
+
+    /** The start time of a mark phase resumed from a checkpoint, 0 if none */
+    private long resumedMarkStart;
+
     /**
      * Creates an instance of MarkSweepGarbageCollector
      *
@@ -345,6 +375,11 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
             long markFinish;
             try {
                 mark(fs);
+                if (resumedMarkStart > 0 && resumedMarkStart < markStart) {
+                    // references of resumed partitions were collected
+                    // since the start of the interrupted mark phase
+                    markStart = resumedMarkStart;
+                }
             } finally {
                 markFinish = sw.elapsed(TimeUnit.MILLISECONDS);
                 statsCollector.updateMarkDuration(markFinish, TimeUnit.MILLISECONDS);
@@ -617,61 +652,164 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
      * @param logPath whether to log path in the file or not
      */
     protected void iterateNodeTree(GarbageCollectorFileState fs, final boolean logPath) throws IOException {
+        resumedMarkStart = 0;
+        if (marker instanceof PartitionedBlobReferenceRetriever && markThreads > 1) {
+            iteratePartitions(fs, (PartitionedBlobReferenceRetriever) marker, logPath);
+            return;
+        }
         final BufferedWriter writer = Files.newWriter(fs.getMarkedRefs(), StandardCharsets.UTF_8);
         final AtomicInteger count = new AtomicInteger();
         try {
-            marker.collectReferences(
-                    new ReferenceCollector() {
-                        private final boolean debugMode = LOG.isTraceEnabled();
-
-                        @Override
-                        public void addReference(String blobId, final String nodeId) {
-                            if (debugMode) {
-                                LOG.trace("BlobId : {}, NodeId : {}", blobId, nodeId);
-                            }
+            marker.collectReferences(newReferenceCollector(writer, count, logPath));
+            LOG.info("Number of valid blob references marked under mark phase of " +
+                    "Blob garbage collection [{}]", count.get());
+            // sort the marked references with the first part of the key
+            sort(fs.getMarkedRefs(), MARKED_REFS_COMPARATOR);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
 
-                            try {
-                                Iterator<String> idIter = blobStore.resolveChunks(blobId);
-                                Iterator<List<String>> partitions = Iterators.partition(idIter, getBatchCount());
-                                while (partitions.hasNext()) {
-                                    List<String> idBatch = Lists.transform(partitions.next(), id -> {
-                                            if (logPath && nodeId != null) {
-                                                return id + DELIM + nodeId;
-                                            } else {
-                                                return id;
-                                            }
-                                        });
-                                    if (debugMode) {
-                                        LOG.trace("chunkIds : {}", idBatch);
-                                    }
-                                    count.getAndAdd(idBatch.size());
-                                    saveBatchToFile(idBatch, writer);
-                                }
+    /**
+     * Collects the references of the partitions of the given retriever
+     * concurrently. Each partition is written to a separate file and sorted
+     * by the thread that collected it. The sorted files are then merged.
+     * Unless the paths are logged, completed partitions are kept in a
+     * checkpoint, from which an interrupted mark phase is resumed.
+     *
+     * @param fs the garbage collector file state
+     * @param retriever the partitioned retriever
+     * @param logPath whether to log path in the file or not
+     */
+    private void iteratePartitions(GarbageCollectorFileState fs, PartitionedBlobReferenceRetriever retriever,
+                                   final boolean logPath) throws IOException {
+        Map<String, BlobReferenceRetriever> partitions = retriever.getPartitions();
+        List<String> keys = new ArrayList<>(partitions.keySet());
+        MarkCheckpoint checkpoint = null;
+        if (!logPath) {
+            checkpoint = MarkCheckpoint.open(getMarkCheckpointDir(), keys,
+                    clock.getTime(), getMarkCheckpointMaxAge());
+            resumedMarkStart = checkpoint.getStart();
+        }
+        File dir = fs.getMarkedRefs().getParentFile();
+        AtomicInteger count = new AtomicInteger();
+        List<File> sorted = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        List<Future<File>> futures = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        ExecutorService pool = Executors.newFixedThreadPool(markThreads,
+                new NamedThreadFactory("oak-blob-gc-mark"));
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                File completed = checkpoint != null ? checkpoint.getCompleted(i) : null;
+                if (completed != null) {
+                    sorted.set(i, completed);
+                    continue;
+                }
+                final int index = i;
+                final BlobReferenceRetriever partition = partitions.get(keys.get(i));
+                final MarkCheckpoint cp = checkpoint;
+                futures.set(i, pool.submit(() -> {
+                    File file = createTempFile("marked-partition-", null, dir);
+                    try (BufferedWriter writer = Files.newWriter(file, StandardCharsets.UTF_8)) {
+                        partition.collectReferences(newReferenceCollector(writer, count, logPath));
+                    }
+                    sort(file, MARKED_REFS_COMPARATOR);
+                    LOG.debug("Collected references of partition {}", keys.get(index));
+                    return cp != null ? cp.completed(index, file) : file;
+                }));
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                if (futures.get(i) != null) {
+                    sorted.set(i, futures.get(i).get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while collecting references");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error collecting references", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        LOG.info("Number of valid blob references marked under mark phase of " +
+                "Blob garbage collection [{}] in {} partitions", count.get(), keys.size());
+        merge(sorted, fs.getMarkedRefs(), MARKED_REFS_COMPARATOR);
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+    }
+
+    private ReferenceCollector newReferenceCollector(final BufferedWriter writer, final AtomicInteger count,
+                                                     final boolean logPath) {
+        return new ReferenceCollector() {
+            private final boolean debugMode = LOG.isTraceEnabled();
+
+            @Override
+            public void addReference(String blobId, final String nodeId) {
+                if (debugMode) {
+                    LOG.trace("BlobId : {}, NodeId : {}", blobId, nodeId);
+                }
 
-                                if (count.get() > 0 && count.get() % getBatchCount() == 0) {
-                                    LOG.info("Collected ({}) blob references", count.get());
+                try {
+                    Iterator<String> idIter = blobStore.resolveChunks(blobId);
+                    Iterator<List<String>> partitions = Iterators.partition(idIter, getBatchCount());
+                    while (partitions.hasNext()) {
+                        List<String> idBatch = Lists.transform(partitions.next(), id -> {
+                                if (logPath && nodeId != null) {
+                                    return id + DELIM + nodeId;
+                                } else {
+                                    return id;
                                 }
-                            } catch (Exception e) {
-                                throw new RuntimeException("Error in retrieving references", e);
-                            }
+                            });
+                        if (debugMode) {
+                            LOG.trace("chunkIds : {}", idBatch);
                         }
+                        count.getAndAdd(idBatch.size());
+                        saveBatchToFile(idBatch, writer);
                     }
-            );
-            LOG.info("Number of valid blob references marked under mark phase of " +
-                    "Blob garbage collection [{}]", count.get());
-            // sort the marked references with the first part of the key
-            sort(fs.getMarkedRefs(),
-                new Comparator<String>() {
-                    @Override
-                    public int compare(String s1, String s2) {
-                        return s1.split(DELIM)[0].compareTo(s2.split(DELIM)[0]);
+
+                    if (count.get() > 0 && count.get() % getBatchCount() == 0) {
+                        LOG.info("Collected ({}) blob references", count.get());
                     }
-                });
-        } finally {
-            closeQuietly(writer);
+                } catch (Exception e) {
+                    throw new RuntimeException("Error in retrieving references", e);
+                }
+            }
+        };
+    }
+
+    private File getMarkCheckpointDir() {
+        return new File(root, repoId != null ? "gcmark-checkpoint-" + repoId : "gcmark-checkpoint");
+    }
+
+    /**
+     * With a shared data store, the other repositories take the start marker
+     * written by the resumed mark phase as the reference time of their sweep,
+     * while the references of the completed partitions were collected since
+     * the start of the checkpoint. Blobs added in between are only protected
+     * if the checkpoint is not older than the max last modified interval.
+     */
+    private long getMarkCheckpointMaxAge() {
+        if (GarbageCollectionType.get(blobStore) != GarbageCollectionType.SHARED) {
+            return MARK_CHECKPOINT_MAX_AGE;
         }
+        return maxLastModifiedInterval > 0 ? Math.min(MARK_CHECKPOINT_MAX_AGE, maxLastModifiedInterval) : -1;
+    }
+
+    /**
+     * Sets the number of threads used to collect the references of the
+     * partitions of a {@link PartitionedBlobReferenceRetriever}. With a
+     * single thread, the references are collected without partitions.
+     *
+     * @param markThreads the number of threads.
+     */
+    public void setMarkThreads(int markThreads) {
+        this.markThreads = Math.max(1, markThreads);
     }
-    
+
     @Override
     public long checkConsistency(boolean markOnly) throws Exception {
         consistencyStatsCollector.start();
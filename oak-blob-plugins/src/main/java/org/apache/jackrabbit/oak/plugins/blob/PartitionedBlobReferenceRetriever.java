@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link BlobReferenceRetriever} that can split the collection of
+ * references into independent partitions, which the
+ * {@link MarkSweepGarbageCollector} collects concurrently.
+ */
+public interface PartitionedBlobReferenceRetriever extends BlobReferenceRetriever {
+
+    /**
+     * Returns the partitions of this retriever. Together, the partitions
+     * collect the same references as {@link #collectReferences(ReferenceCollector)}.
+     * The keys identify the partitions and must be the same for the same
+     * partitions on subsequent calls, as they are used to resume an
+     * interrupted mark phase.
+     *
+     * @return the partitions by key, in a stable order.
+     */
+    @NotNull
+    Map<String, BlobReferenceRetriever> getPartitions();
+}
@@ -34,6 +34,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -51,6 +52,7 @@ import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.oak.commons.StringUtils;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
+import org.apache.jackrabbit.oak.spi.blob.MultipartSharedBackend.MultipartUpload;
 import org.apache.jackrabbit.oak.stats.CounterStats;
 import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
 import org.apache.jackrabbit.oak.stats.MeterStats;
@@ -74,6 +76,13 @@ import static org.apache.jackrabbit.oak.plugins.blob.DataStoreCacheUpgradeUtils
  * The appropriate backend for this cache are wrapped in {@link StagingUploader}
  * implementations.
  * <p>
+ * Files smaller than the large upload threshold are uploaded by one executor and
+ * larger files by a separate executor, so that a few large files do not hold up the
+ * uploads of small ones. If the uploader supports multipart uploads, large files are
+ * split into parts which are uploaded in parallel. Once the number of pending uploads
+ * reaches the configured maximum, no further files are staged and the caller has to
+ * upload synchronously, which throttles writers when the backend cannot keep up.
+ * <p>
  */
 public class UploadStagingCache implements Closeable {
     /**
@@ -83,6 +92,21 @@ public class UploadStagingCache implements Closeable {
 
     protected static final String UPLOAD_STAGING_DIR = "upload";
 
+    /**
+     * Default size in bytes from which files are uploaded by the executor for large files.
+     */
+    static final long DEFAULT_LARGE_UPLOAD_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Default size in bytes of the parts of a multipart upload.
+     */
+    static final long DEFAULT_UPLOAD_PART_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Default maximum number of pending uploads.
+     */
+    static final int DEFAULT_MAX_PENDING_UPLOADS = 10000;
+
     //Rough estimate of the in-memory key, value pair
     private final Weigher<String, File> memWeigher = new Weigher<>() {
         @Override public int weigh(String key, File value) {
@@ -105,6 +129,26 @@ public class UploadStagingCache implements Closeable {
      */
     private ListeningExecutorService executor;
 
+    /**
+     * Executor for async uploads of large files and of the parts of multipart uploads
+     */
+    private ListeningExecutorService largeExecutor;
+
+    /**
+     * Size in bytes from which files are uploaded by the large executor
+     */
+    private long largeUploadThreshold;
+
+    /**
+     * Size in bytes of the parts of a multipart upload
+     */
+    private long partSize;
+
+    /**
+     * Maximum number of pending uploads, further files are not staged
+     */
+    private int maxPendingUploads;
+
     /**
      * Scheduled executor for build and remove
      */
@@ -155,14 +199,22 @@ public class UploadStagingCache implements Closeable {
         StagingUploader uploader, @Nullable FileCache cache, StatisticsProvider statisticsProvider,
         @Nullable ListeningExecutorService executor,
         @Nullable ScheduledExecutorService scheduledExecutor,
-        int purgeInterval /* secs */, int retryInterval /* secs */) {
+        int purgeInterval /* secs */, int retryInterval /* secs */, long largeUploadThreshold,
+        long partSize, int maxPendingUploads) {
 
         this.currentSize = new AtomicLong();
         this.size = size;
+        this.largeUploadThreshold = largeUploadThreshold;
+        this.partSize = partSize;
+        this.maxPendingUploads = maxPendingUploads;
         this.executor = executor;
+        this.largeExecutor = executor;
         if (executor == null) {
             this.executor = MoreExecutors.listeningDecorator(Executors
                 .newFixedThreadPool(uploadThreads, new NamedThreadFactory("oak-ds-async-upload-thread")));
+            this.largeExecutor = MoreExecutors.listeningDecorator(Executors
+                .newFixedThreadPool(Math.max(1, uploadThreads / 2),
+                    new NamedThreadFactory("oak-ds-async-large-upload-thread")));
         }
 
         this.scheduledExecutor = scheduledExecutor;
@@ -199,9 +251,25 @@ public class UploadStagingCache implements Closeable {
         StatisticsProvider statisticsProvider, @Nullable ListeningExecutorService executor,
         @Nullable ScheduledExecutorService scheduledExecutor, int purgeInterval /* secs */,
         int retryInterval /* secs */) {
+        return build(dir, home, uploadThreads, size, uploader, cache, statisticsProvider, executor,
+            scheduledExecutor, purgeInterval, retryInterval, DEFAULT_LARGE_UPLOAD_THRESHOLD,
+            DEFAULT_UPLOAD_PART_SIZE, DEFAULT_MAX_PENDING_UPLOADS);
+    }
+
+    /**
+     * Builds the cache with the given upload pipeline configuration. If an executor is
+     * passed it is used for the uploads of all files.
+     */
+    static UploadStagingCache build(File dir, File home, int uploadThreads, long size
+        /* bytes */, StagingUploader uploader, @Nullable FileCache cache,
+        StatisticsProvider statisticsProvider, @Nullable ListeningExecutorService executor,
+        @Nullable ScheduledExecutorService scheduledExecutor, int purgeInterval /* secs */,
+        int retryInterval /* secs */, long largeUploadThreshold /* bytes */,
+        long partSize /* bytes */, int maxPendingUploads) {
         if (size > 0) {
             return new UploadStagingCache(dir, home, uploadThreads, size, uploader, cache,
-                statisticsProvider, executor, scheduledExecutor, purgeInterval, retryInterval);
+                statisticsProvider, executor, scheduledExecutor, purgeInterval, retryInterval,
+                largeUploadThreshold, partSize, maxPendingUploads);
         }
         return new UploadStagingCache() {
             @Override public Optional<SettableFuture<Integer>> put(String id, File input) {
@@ -292,10 +360,11 @@ public class UploadStagingCache implements Closeable {
         long length = input.length();
         File uploadFile = DataStoreCacheUtils.getFile(id, uploadCacheSpace);
 
-        // if ignoreSize update internal size else size permits
+        // if ignoreSize update internal size else size and pending uploads permit
         // and not upload complete or already scheduled for upload
         if (((ignoreSize && currentSize.addAndGet(length) >= 0)
-                || currentSize.addAndGet(length) <= size)
+                || (currentSize.addAndGet(length) <= size
+                    && cacheStats.getUploadQueueDepth() < maxPendingUploads))
             && !attic.containsKey(id)
             && existsOrNotExistsMoveFile(input, uploadFile, currentSize, length)
             && map.putIfAbsent(id, uploadFile) == null ) {
@@ -358,24 +427,25 @@ public class UploadStagingCache implements Closeable {
         final SettableFuture<Integer> result = SettableFuture.create();
 
         try {
-            // create an async job
-            ListenableFuture<Integer> future = executor.submit(() -> {
-                try (TimerStats.Context uploadContext = cacheStats.startUpLoaderTimer()) {
-
-                    uploader.write(id, upload);
-                    LOG.debug("File added to backend [{}]", upload);
+            final long length = upload.length();
+            final boolean large = length >= largeUploadThreshold;
+            final long start = System.nanoTime();
+            cacheStats.incrementQueueDepth(large);
 
-                    return 1;
-                } catch (Exception e) {
-                    LOG.error("Error adding file to backend", e);
-                    throw e;
-                }
-            });
+            // create an async job
+            ListenableFuture<Integer> future;
+            if (large) {
+                future = stageLarge(id, upload, length);
+            } else {
+                future = executor.submit(() -> upload(id, upload));
+            }
 
             // Add a callback to the returned Future object for handling success and error
             Futures.addCallback(future, new FutureCallback<>() {
                 @Override public void onSuccess(@Nullable Integer r) {
                     LOG.info("Successfully added [{}], [{}]", id, upload);
+                    cacheStats.decrementQueueDepth(large);
+                    cacheStats.markUploaded(length, System.nanoTime() - start);
 
                     try {
                         // move to attic to be deleted and remove from in-memory map
@@ -399,6 +469,7 @@ public class UploadStagingCache implements Closeable {
 
                 @Override public void onFailure(Throwable t) {
                     LOG.error("Error adding [{}] with file [{}] to backend", id, upload, t);
+                    cacheStats.decrementQueueDepth(large);
                     result.setException(t);
                     retryQueue.add(id);
                 }
@@ -410,6 +481,64 @@ public class UploadStagingCache implements Closeable {
         return result;
     }
 
+    /**
+     * Schedules the upload of a large file. The file is uploaded in parts if the
+     * uploader supports it, otherwise as a whole by the executor for large files.
+     */
+    private ListenableFuture<Integer> stageLarge(final String id, final File upload,
+        final long length) throws DataStoreException {
+        if (length <= partSize) {
+            return largeExecutor.submit(() -> upload(id, upload));
+        }
+        final MultipartUpload multipart = uploader.initiateMultipartUpload(id, length);
+        if (multipart == null) {
+            // either not supported or already present in the backend
+            return largeExecutor.submit(() -> upload(id, upload));
+        }
+
+        List<ListenableFuture<Integer>> parts = new ArrayList<>();
+        int partNumber = 1;
+        for (long offset = 0; offset < length; offset += partSize) {
+            final int number = partNumber++;
+            final long partOffset = offset;
+            final long partLength = Math.min(partSize, length - offset);
+            parts.add(largeExecutor.submit(() -> {
+                multipart.uploadPart(number, upload, partOffset, partLength);
+                LOG.trace("Part [{}] of [{}] added to backend", number, upload);
+                return 1;
+            }));
+        }
+        LOG.debug("File [{}] scheduled for upload in [{}] parts", upload, parts.size());
+
+        // complete once all parts are uploaded, abort if any failed
+        return Futures.whenAllComplete(parts).call(() -> {
+            try (TimerStats.Context uploadContext = cacheStats.startUpLoaderTimer()) {
+                for (ListenableFuture<Integer> part : parts) {
+                    Futures.getDone(part);
+                }
+                multipart.complete();
+                LOG.debug("File added to backend in [{}] parts [{}]", parts.size(), upload);
+                return 1;
+            } catch (Exception e) {
+                LOG.error("Error adding file to backend in parts", e);
+                multipart.abort();
+                throw e;
+            }
+        }, largeExecutor);
+    }
+
+    private Integer upload(String id, File upload) throws Exception {
+        try (TimerStats.Context uploadContext = cacheStats.startUpLoaderTimer()) {
+
+            uploader.write(id, upload);
+            LOG.debug("File added to backend [{}]", upload);
+
+            return 1;
+        } catch (Exception e) {
+            LOG.error("Error adding file to backend", e);
+            throw e;
+        }
+    }
 
     /**
      * Invalidate called externally.
@@ -523,6 +652,7 @@ public class UploadStagingCache implements Closeable {
         LOG.info("Uploads completed but not cleared from cache [{}]", attic.size());
         LOG.info("Staging cache stats on close [{}]", cacheStats.cacheInfoAsString());
         new ExecutorCloser(executor).close();
+        new ExecutorCloser(largeExecutor).close();
         new ExecutorCloser(scheduledExecutor).close();
         new ExecutorCloser(statsExecutor).close();
     }
@@ -577,6 +707,7 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
     private static final String CURRENT_SIZE = "CURRENT_SIZE";
     private static final String CURRENT_MEM_SIZE = "CURRENT_MEM_SIZE";
     private static final String COUNT = "COUNT";
+    private static final String UPLOADED_BYTES = "UPLOADED_BYTES";
 
     private final String cacheName;
 
@@ -607,6 +738,18 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
     /** Tracking the cache element count **/
     private final CounterStats countMeter;
 
+    /** Tracking the bytes uploaded **/
+    private final MeterStats uploadedBytesMeter;
+
+    /** Total time in nanoseconds taken by the uploads **/
+    private final AtomicLong uploadNanos = new AtomicLong();
+
+    /** Number of pending uploads of small files **/
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /** Number of pending uploads of large files **/
+    private final AtomicInteger largeQueueDepth = new AtomicInteger();
+
     /** Handle to the cache **/
     private final UploadStagingCache cache;
 
@@ -647,6 +790,9 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
 
         statName = getStatName(COUNT, cacheName);
         countMeter = statisticsProvider.getCounterStats(statName, StatsOptions.METRICS_ONLY);
+
+        statName = getStatName(UPLOADED_BYTES, cacheName);
+        uploadedBytesMeter = statisticsProvider.getMeter(statName, StatsOptions.METRICS_ONLY);
     }
 
     //~--------------------------------------< stats update methods
@@ -696,6 +842,19 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
         currentMemSizeMeter.dec(size);
     }
 
+    void incrementQueueDepth(boolean large) {
+        (large ? largeQueueDepth : queueDepth).incrementAndGet();
+    }
+
+    void decrementQueueDepth(boolean large) {
+        (large ? largeQueueDepth : queueDepth).decrementAndGet();
+    }
+
+    void markUploaded(long bytes, long nanos) {
+        uploadedBytesMeter.mark(bytes);
+        uploadNanos.addAndGet(nanos);
+    }
+
     @Override
     public String getName() {
         return cacheName;
@@ -772,6 +931,27 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
         return currentMemSizeMeter.getCount();
     }
 
+    @Override
+    public long getUploadQueueDepth() {
+        return queueDepth.get() + largeQueueDepth.get();
+    }
+
+    @Override
+    public long getLargeUploadQueueDepth() {
+        return largeQueueDepth.get();
+    }
+
+    @Override
+    public long getUploadedBytes() {
+        return uploadedBytesMeter.getCount();
+    }
+
+    @Override
+    public double getUploadThroughput() {
+        long nanos = uploadNanos.get();
+        return (nanos == 0L ? 0L : (double) getUploadedBytes() * TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+
     @Override
     public String cacheInfoAsString() {
         return toStringHelper("StagingCacheStats")
@@ -786,6 +966,10 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
             .add("currentMemSize", estimateCurrentMemoryWeight())
             .add("totalWeight", humanReadableByteCount(estimateCurrentWeight()))
             .add("maxWeight", humanReadableByteCount(getMaxTotalWeight()))
+            .add("uploadQueueDepth", getUploadQueueDepth())
+            .add("largeUploadQueueDepth", getLargeUploadQueueDepth())
+            .add("uploadedBytes", humanReadableByteCount(getUploadedBytes()))
+            .add("uploadThroughput", humanReadableByteCount((long) getUploadThroughput()) + "/s")
             .toString();
     }
 
@@ -823,4 +1007,15 @@ interface StagingUploader {
     void write(String id, File f) throws DataStoreException;
 
     void adopt(File f, File moved) throws IOException;
+
+    /**
+     * Starts an upload of the file in parts.
+     *
+     * @return the upload or {@code null} if uploads in parts are not supported or
+     *          the record already exists
+     */
+    @Nullable
+    default MultipartUpload initiateMultipartUpload(String id, long length) throws DataStoreException {
+        return null;
+    }
 }
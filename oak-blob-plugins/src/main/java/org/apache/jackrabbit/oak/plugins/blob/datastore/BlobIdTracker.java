@@ -18,11 +18,16 @@
  */
 package org.apache.jackrabbit.oak.plugins.blob.datastore;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,7 +38,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
+import org.apache.commons.io.LineIterator;
 import org.apache.jackrabbit.guava.common.base.Stopwatch;
+import org.apache.jackrabbit.guava.common.collect.Iterators;
+import org.apache.jackrabbit.guava.common.hash.BloomFilter;
+import org.apache.jackrabbit.guava.common.hash.Funnel;
+import org.apache.jackrabbit.guava.common.hash.Funnels;
 import org.apache.jackrabbit.guava.common.io.Files;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.oak.commons.collections.CollectionUtils;
@@ -186,6 +196,10 @@ public class BlobIdTracker implements Closeable, BlobTracker {
                 return new File(path);
             }
 
+            @Override public boolean mightContain(String id) {
+                return false;
+            }
+
             @Override public void close() {
             }
         };
@@ -254,6 +268,20 @@ public class BlobIdTracker implements Closeable, BlobTracker {
         return store.getRecords(path);
     }
 
+    /**
+     * Checks whether the given id might be tracked. This is answered from a
+     * Bloom filter of the ids tracked locally, which includes the ids merged
+     * from the other instances sharing the DataStore at the last global merge.
+     * A return value of {@code false} means the id is certainly not tracked
+     * by this instance, {@code true} means it is likely tracked.
+     *
+     * @param id the blob id
+     * @return whether the id might be tracked
+     */
+    public boolean mightContain(String id) {
+        return store.mightContain(id);
+    }
+
     /**
      * Retrieves and merges all the blob id records available in the DataStore from different
      * instances sharing the DataStore (cluster nodes/different repositories).
@@ -352,6 +380,7 @@ public class BlobIdTracker implements Closeable, BlobTracker {
      */
     @Override public void close() throws IOException {
         store.close();
+        store.saveFilter();
         new ExecutorCloser(scheduler).close();
     }
 
@@ -477,6 +506,18 @@ public class BlobIdTracker implements Closeable, BlobTracker {
         /* Suffix for in process file */
         private static final String workingCopySuffix = ".process";
 
+        /* Suffix for the file with the Bloom filter of tracked ids */
+        private static final String filterFileSuffix = ".refs.bloom";
+
+        /* The minimum number of ids the Bloom filter is sized for */
+        private static final int FILTER_EXPECTED_IDS =
+            Integer.getInteger("oak.datastore.blobIdTracker.filterExpectedIds", 1_000_000);
+
+        /* The false positive probability of the Bloom filter */
+        private static final double FILTER_FPP = 0.01;
+
+        private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
         /* The current writer where all blob ids are being appended */
         private BufferedWriter writer;
 
@@ -496,6 +537,12 @@ public class BlobIdTracker implements Closeable, BlobTracker {
         /* Lock for snapshot */
         private final ReentrantLock snapshotLock;
 
+        /* Bloom filter of the ids in the references, generations and in-process file */
+        private volatile BloomFilter<CharSequence> filter;
+
+        /* Bloom filter being rebuilt, which also receives the ids added meanwhile */
+        private BloomFilter<CharSequence> rebuiltFilter;
+
         BlobIdStore(File rootDir, String prefix) throws IOException {
             this.rootDir = rootDir;
             this.prefix = prefix;
@@ -513,10 +560,22 @@ public class BlobIdTracker implements Closeable, BlobTracker {
                     .filter(file -> GENERATION.filter().test(file))
                     .collect(toList()));
 
+            filter = loadFilter();
+
             // Close/rename any existing in process
             nextGeneration();
         }
 
+        /**
+         * Checks whether the given id might be tracked.
+         *
+         * @param id id to check
+         * @return {@code false} if the id is certainly not tracked
+         */
+        protected boolean mightContain(String id) {
+            return filter.mightContain(id);
+        }
+
         /**
          * Add a blob id to the tracking file.
          *
@@ -527,6 +586,7 @@ public class BlobIdTracker implements Closeable, BlobTracker {
             writer.append(id);
             writer.newLine();
             writer.flush();
+            putFilter(id);
             LOG.debug("Added record {}", id);
         }
 
@@ -590,9 +650,20 @@ public class BlobIdTracker implements Closeable, BlobTracker {
          * @throws IOException
          */
         protected void merge(List<File> refFiles, boolean doSort) throws IOException {
+            merge(refFiles, doSort, true);
+        }
+
+        private void merge(List<File> refFiles, boolean doSort, boolean updateFilter) throws IOException {
             refLock.lock();
             try {
                 if (refFiles != null && !refFiles.isEmpty()) {
+                    // a rebuild holds the references lock as well, so the
+                    // filter can be updated directly
+                    if (updateFilter) {
+                        for (File file : refFiles) {
+                            putAll(filter, file);
+                        }
+                    }
                     File merged = new File(rootDir, prefix + REFS.getFileNameSuffix());
                     append(refFiles, merged, true);
                     LOG.debug("Merged files into references {}", refFiles);
@@ -601,6 +672,10 @@ public class BlobIdTracker implements Closeable, BlobTracker {
                 }
                 if (doSort) {
                     sort(getBlobRecordsFile());
+                    if (filter.expectedFpp() > 2 * FILTER_FPP) {
+                        LOG.info("Bloom filter of tracked ids is saturated, rebuilding");
+                        rebuildFilter();
+                    }
                 }
             } finally {
                 refLock.unlock();
@@ -634,16 +709,32 @@ public class BlobIdTracker implements Closeable, BlobTracker {
             snapshot();
 
             refLock.lock();
+            File tracked = null;
             try {
-                sort(getBlobRecordsFile());
                 sort(recs);
+
+                // Only ids which might be tracked have to be removed
+                tracked = createTempFile("tracked", null);
+                int count;
+                LineIterator recsIterator = lineIterator(recs, StandardCharsets.UTF_8.name());
+                try {
+                    count = writeStrings(Iterators.filter(recsIterator, this::mightContain), tracked, false);
+                } finally {
+                    recsIterator.close();
+                }
+                if (count == 0) {
+                    LOG.debug("None of the records to remove are tracked");
+                    return;
+                }
+
+                sort(getBlobRecordsFile());
                 LOG.trace("Sorted files");
 
                 // Remove and spool the remaining ids into a temp file
                 File temp = createTempFile("sorted", null);
                 FileLineDifferenceIterator iterator = null;
                 try {
-                    iterator = new FileLineDifferenceIterator(recs, getBlobRecordsFile(), null);
+                    iterator = new FileLineDifferenceIterator(tracked, getBlobRecordsFile(), null);
                     writeStrings(iterator, temp, false);
                 } finally {
                     if (iterator != null) {
@@ -654,7 +745,13 @@ public class BlobIdTracker implements Closeable, BlobTracker {
                 File blobRecs = getBlobRecordsFile();
                 move(temp, blobRecs);
                 LOG.trace("removed records");
+
+                // The removed ids cannot be removed from the filter
+                rebuildFilter();
             } finally {
+                if (tracked != null && !tracked.delete()) {
+                    LOG.debug("Failed to delete file {}", tracked);
+                }
                 refLock.unlock();
                 try {
                     forceDelete(recs);
@@ -713,12 +810,124 @@ public class BlobIdTracker implements Closeable, BlobTracker {
             snapshotLock.lock();
             try {
                 nextGeneration();
-                merge(generations, false);
+                merge(generations, false, false);
             } finally {
                 snapshotLock.unlock();
             }
         }
 
+        /**
+         * Writes the Bloom filter next to the references, so that it does not
+         * have to be rebuilt on the next start.
+         */
+        protected void saveFilter() {
+            File file = getFilterFile();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                filter.writeTo(out);
+                LOG.debug("Saved Bloom filter of tracked ids to {}", file);
+            } catch (IOException e) {
+                LOG.warn("Unable to save Bloom filter of tracked ids", e);
+                file.delete();
+            }
+        }
+
+        /**
+         * Loads the Bloom filter saved by the last clean shutdown, or builds it
+         * from the files of the tracked ids. The saved filter is deleted after
+         * loading, so that it is not used after an unclean shutdown.
+         */
+        private BloomFilter<CharSequence> loadFilter() throws IOException {
+            File file = getFilterFile();
+            if (file.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                    BloomFilter<CharSequence> loaded = BloomFilter.readFrom(in, FUNNEL);
+                    LOG.debug("Loaded Bloom filter of tracked ids from {}", file);
+                    return loaded;
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Unable to load Bloom filter of tracked ids, rebuilding", e);
+                } finally {
+                    forceDelete(file);
+                }
+            }
+            List<File> files = new ArrayList<>(generations);
+            if (processFile != null) {
+                files.add(processFile);
+            }
+            File refs = new File(rootDir, prefix + REFS.getFileNameSuffix());
+            if (refs.exists()) {
+                files.add(refs);
+            }
+            long count = 0;
+            for (File f : files) {
+                count += countLines(f);
+            }
+            BloomFilter<CharSequence> built = newFilter(count);
+            for (File f : files) {
+                putAll(built, f);
+            }
+            return built;
+        }
+
+        /**
+         * Rebuilds the Bloom filter from the generations and the references.
+         * Has to be called with the references lock held.
+         */
+        private void rebuildFilter() throws IOException {
+            BloomFilter<CharSequence> rebuilt = newFilter(2 * filter.approximateElementCount());
+            List<File> files;
+            synchronized (this) {
+                // ids added from now on go to the rebuilt filter as well
+                nextGeneration();
+                rebuiltFilter = rebuilt;
+                files = new ArrayList<>(generations);
+            }
+            try {
+                files.add(getBlobRecordsFile());
+                for (File f : files) {
+                    putAll(rebuilt, f);
+                }
+                filter = rebuilt;
+            } finally {
+                synchronized (this) {
+                    rebuiltFilter = null;
+                }
+            }
+        }
+
+        private synchronized void putFilter(String id) {
+            filter.put(id);
+            if (rebuiltFilter != null) {
+                rebuiltFilter.put(id);
+            }
+        }
+
+        private File getFilterFile() {
+            return new File(rootDir, prefix + filterFileSuffix);
+        }
+
+        private static BloomFilter<CharSequence> newFilter(long expected) {
+            return BloomFilter.create(FUNNEL, Math.max(FILTER_EXPECTED_IDS, expected), FILTER_FPP);
+        }
+
+        private static void putAll(BloomFilter<CharSequence> filter, File file) throws IOException {
+            try (LineIterator iter = lineIterator(file, StandardCharsets.UTF_8.name())) {
+                while (iter.hasNext()) {
+                    filter.put(iter.next());
+                }
+            }
+        }
+
+        private static long countLines(File file) throws IOException {
+            long count = 0;
+            try (LineIterator iter = lineIterator(file, StandardCharsets.UTF_8.name())) {
+                while (iter.hasNext()) {
+                    iter.next();
+                    count++;
+                }
+            }
+            return count;
+        }
+
         @Override
         public synchronized void close() {
             closeQuietly(writer);
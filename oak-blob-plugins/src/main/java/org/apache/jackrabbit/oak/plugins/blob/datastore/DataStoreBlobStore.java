@@ -31,6 +31,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -59,6 +61,7 @@ import org.apache.jackrabbit.oak.api.blob.BlobUploadOptions;
 import org.apache.jackrabbit.oak.cache.CacheLIRS;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.commons.StringUtils;
+import org.apache.jackrabbit.oak.plugins.blob.AbstractSharedCachingDataStore;
 import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
 import org.apache.jackrabbit.oak.plugins.blob.BlobTrackingStore;
 import org.apache.jackrabbit.oak.plugins.blob.ExtendedBlobStatsCollector;
@@ -363,6 +366,12 @@ public class DataStoreBlobStore
 
     @Override
     public int readBlob(String encodedBlobId, long pos, byte[] buff, int off, int length) throws IOException {
+        FileChannel channel = openFileChannel(encodedBlobId);
+        if (channel != null) {
+            try (channel) {
+                return channel.read(ByteBuffer.wrap(buff, off, length), pos);
+            }
+        }
         //This is inefficient as repeated calls for same blobId would involve opening new Stream
         //instead clients should directly access the stream from DataRecord by special casing for
         //BlobStore which implements DataStore
@@ -466,6 +475,22 @@ public class DataStoreBlobStore
         }
     }
 
+    @Override
+    @Nullable
+    public FileChannel openFileChannel(String encodedBlobId) throws IOException {
+        String blobId = extractBlobId(encodedBlobId);
+        if (InMemoryDataRecord.isInstance(blobId)
+                || !(delegate instanceof AbstractSharedCachingDataStore)) {
+            return null;
+        }
+        try {
+            return ((AbstractSharedCachingDataStore) delegate).openFileChannel(new DataIdentifier(blobId));
+        } catch (DataStoreException e) {
+            stats.downloadFailed(blobId);
+            throw new IOException(e);
+        }
+    }
+
     //~-------------------------------------------< GarbageCollectableBlobStore >
 
     @Override
@@ -24,8 +24,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -43,6 +45,7 @@ import org.apache.jackrabbit.core.data.LazyFileInputStream;
 import org.apache.jackrabbit.oak.commons.io.FileTreeTraverser;
 import org.apache.jackrabbit.oak.spi.blob.AbstractDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
+import org.apache.jackrabbit.oak.spi.blob.MultipartSharedBackend;
 import org.apache.jackrabbit.util.TransientFileFactory;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -53,7 +56,7 @@ import static org.apache.commons.io.FilenameUtils.normalizeNoEndSeparator;
 
 /**
  */
-public class FSBackend extends AbstractSharedBackend {
+public class FSBackend extends AbstractSharedBackend implements MultipartSharedBackend {
     private static final Logger LOG = LoggerFactory.getLogger(FSBackend.class);
 
     public static final String FS_BACKEND_PATH = "fsBackendPath";
@@ -142,6 +145,29 @@ public class FSBackend extends AbstractSharedBackend {
         }
     }
 
+    @Override
+    public MultipartUpload initiateMultipartUpload(DataIdentifier identifier, long length)
+        throws DataStoreException {
+        File dest = getFile(identifier, fsPathDir);
+        if (dest.exists()) {
+            long now = System.currentTimeMillis();
+            if (getLastModified(dest) < now + ACCESS_TIME_RESOLUTION) {
+                setLastModified(dest, now + ACCESS_TIME_RESOLUTION);
+            }
+            return null;
+        }
+        try {
+            File tmpFile = TransientFileFactory.getInstance()
+                .createTransientFile("fsbackend", null, fsPathDir);
+            try (RandomAccessFile r = new RandomAccessFile(tmpFile, "rw")) {
+                r.setLength(length);
+            }
+            return new FSMultipartUpload(tmpFile, dest);
+        } catch (IOException e) {
+            throw new DataStoreException("Could not start upload of " + identifier, e);
+        }
+    }
+
     @Override
     public DataRecord getRecord(DataIdentifier identifier) throws DataStoreException {
         long start = System.currentTimeMillis();
@@ -331,6 +357,61 @@ public class FSBackend extends AbstractSharedBackend {
 
     /*----------------------------------- Helper Methods-- -------------------------------------**/
 
+    /**
+     * Writes the parts into a temporary file of the final length, which is
+     * renamed to the record file on completion.
+     */
+    private class FSMultipartUpload implements MultipartUpload {
+        private final File tmpFile;
+
+        private final File dest;
+
+        FSMultipartUpload(File tmpFile, File dest) {
+            this.tmpFile = tmpFile;
+            this.dest = dest;
+        }
+
+        @Override
+        public void uploadPart(int partNumber, File file, long offset, long length)
+            throws DataStoreException {
+            try (FileChannel src = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 FileChannel dst = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+                dst.position(offset);
+                long transferred = 0;
+                while (transferred < length) {
+                    long n = src.transferTo(offset + transferred, length - transferred, dst);
+                    if (n <= 0) {
+                        throw new IOException("Unexpected end of file " + file.getAbsolutePath());
+                    }
+                    transferred += n;
+                }
+            } catch (IOException e) {
+                throw new DataStoreException("Could not add part " + partNumber + " of " + dest.getName(), e);
+            }
+        }
+
+        @Override
+        public void complete() throws DataStoreException {
+            dest.getParentFile().mkdirs();
+            synchronized (FSBackend.this) {
+                if (!tmpFile.renameTo(dest)) {
+                    abort();
+                    throw new DataStoreException(
+                        "Can not rename " + tmpFile.getAbsolutePath()
+                        + " to " + dest.getAbsolutePath()
+                        + " (media read only?)");
+                }
+            }
+        }
+
+        @Override
+        public void abort() {
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                LOG.warn("Failed to delete file " + tmpFile.getAbsolutePath());
+            }
+        }
+    }
+
     /**
      * Returns the identified file. This method implements the pattern used to
      * avoid problems with too many files in a single directory.
@@ -159,6 +159,8 @@ public class BlobGCTest {
         protected long startReferenceTime;
         
         protected int blobSize = 100;
+
+        protected int markThreads = MarkSweepGarbageCollector.DEFAULT_MARK_THREADS;
         
         public Cluster(File root, GarbageCollectableBlobStore blobStore, NodeStore nodeStore, int seed) throws Exception {
             this.root = root;
@@ -196,6 +198,7 @@ public class BlobGCTest {
                 new MarkSweepGarbageCollector(referenceRetriever, blobStore, executor, root.getAbsolutePath(), 2048,
                     blobGcMaxAgeInSecs, checkConsistency, sweepIfRefsPastRetention, repoId, wb, statsProvider);
             collector.setClock(clock);
+            collector.setMarkThreads(markThreads);
             return collector;
         }
 
@@ -21,8 +21,12 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -41,7 +45,9 @@ import org.apache.commons.io.output.NullOutputStream;
 import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreBlobStore;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
 import org.apache.jackrabbit.oak.spi.blob.BlobOptions;
 import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
@@ -59,6 +65,7 @@ import org.slf4j.LoggerFactory;
 import static org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.apache.commons.codec.binary.Hex.encodeHexString;
 import static org.apache.jackrabbit.oak.spi.blob.BlobOptions.UploadType.SYNCHRONOUS;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -329,6 +336,55 @@ public class CachingDataStoreTest extends AbstractDataStoreCacheTest {
         LOG.info("Finished syncAddGetLoadCache");
     }
 
+    /**
+     * Add, read ranges through a file channel over the cached file.
+     * @throws Exception
+     */
+    @Test
+    public void syncAddReadFileChannel() throws Exception {
+        LOG.info("Starting syncAddReadFileChannel");
+
+        File f = copyToFile(randomStream(0, 4 * 1024), folder.newFile());
+        byte[] content = Files.toByteArray(f);
+        String id = getIdForInputStream(f);
+        FileInputStream fin = new FileInputStream(f);
+        closer.register(fin);
+
+        dataStore.addRecord(fin, new BlobOptions().setUpload(SYNCHRONOUS));
+
+        // Invalidate from the local cache, the channel loads it again
+        dataStore.getCache().invalidate(id);
+
+        try (FileChannel channel = dataStore.openFileChannel(new DataIdentifier(id))) {
+            assertNotNull(channel);
+            assertEquals(content.length, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(100);
+            assertEquals(100, channel.read(buffer, 1000));
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 1100), buffer.array());
+
+            File target = folder.newFile();
+            try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+                assertEquals(96, channel.transferTo(4000, 1000, out));
+            }
+            assertArrayEquals(Arrays.copyOfRange(content, 4000, 4096), Files.toByteArray(target));
+        }
+
+        // through the blob store
+        Blob blob = new BlobStoreBlob(new DataStoreBlobStore(dataStore), id);
+        ByteBuffer buffer = ByteBuffer.allocate(200);
+        assertEquals(200, blob.read(2000, buffer));
+        assertArrayEquals(Arrays.copyOfRange(content, 2000, 2200), buffer.array());
+        buffer = ByteBuffer.allocateDirect(200);
+        assertEquals(96, blob.read(4000, buffer));
+        assertEquals(-1, blob.read(4096, buffer));
+        try (FileChannel channel = blob.openFileChannel()) {
+            assertNotNull(channel);
+            assertEquals(content.length, channel.size());
+        }
+
+        LOG.info("Finished syncAddReadFileChannel");
+    }
+
     /**
      * Add sync and delete temp
      * @throws Exception
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import static org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreUtils.randomStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.guava.common.collect.Sets;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the blob GC tests with a partitioned mark phase.
+ */
+public class PartitionedMarkBlobGCTest extends BlobGCTest {
+
+    private PartitionedRetriever retriever;
+
+    @Before
+    @Override
+    public void before() throws Exception {
+        super.before();
+        retriever = new PartitionedRetriever(cluster.referenceRetriever, 3);
+        cluster.referenceRetriever = retriever;
+        cluster.markThreads = 2;
+    }
+
+    @Test
+    public void resumeMark() throws Exception {
+        // with a shared data store, a checkpoint is only resumed within
+        // the max last modified interval
+        clock.waitUntil(clock.getTime() + 5);
+        retriever.failing = 1;
+        try {
+            cluster.getCollector(5).collectGarbage(false);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, retriever.calls[0].get());
+        assertEquals(1, retriever.calls[1].get());
+
+        retriever.failing = -1;
+        Set<String> existingAfterGC = executeGarbageCollection(cluster, cluster.getCollector(5), false);
+        assertTrue(Sets.symmetricDifference(cluster.blobStoreState.blobsPresent, existingAfterGC).isEmpty());
+        // the first partition was completed and is not collected again
+        assertEquals(1, retriever.calls[0].get());
+        assertEquals(2, retriever.calls[1].get());
+
+        // the checkpoint is removed after the mark phase completed
+        existingAfterGC = executeGarbageCollection(cluster, cluster.getCollector(5), false);
+        assertTrue(Sets.symmetricDifference(cluster.blobStoreState.blobsPresent, existingAfterGC).isEmpty());
+        assertEquals(2, retriever.calls[0].get());
+        assertEquals(3, retriever.calls[1].get());
+    }
+
+    @Test
+    public void sharedResumeMark() throws Exception {
+        MemoryBlobStoreNodeStore secondClusterNodeStore = new MemoryBlobStoreNodeStore(cluster.blobStore);
+        Cluster secondCluster = new Cluster(folder.newFolder(), cluster.blobStore, secondClusterNodeStore, 100);
+        closer.register(secondCluster);
+
+        clock.waitUntil(clock.getTime() + 5);
+        retriever.failing = 1;
+        try {
+            cluster.getCollector(50).collectGarbage(true);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        // a blob referenced from a completed partition is added after the
+        // start of the checkpoint
+        clock.waitUntil(clock.getTime() + 1);
+        String added = addReferencedBlob(cluster, 0);
+
+        retriever.failing = -1;
+        executeGarbageCollection(cluster, cluster.getCollector(50), true);
+        assertEquals(1, retriever.calls[0].get());
+
+        Set<String> existingAfterGC = executeGarbageCollection(secondCluster, secondCluster.getCollector(50), false);
+        assertTrue(existingAfterGC.contains(added));
+        assertTrue(existingAfterGC.containsAll(cluster.blobStoreState.blobsPresent));
+        assertTrue(existingAfterGC.containsAll(secondCluster.blobStoreState.blobsPresent));
+    }
+
+    @Test
+    public void sharedExpiredMarkCheckpoint() throws Exception {
+        MemoryBlobStoreNodeStore secondClusterNodeStore = new MemoryBlobStoreNodeStore(cluster.blobStore);
+        Cluster secondCluster = new Cluster(folder.newFolder(), cluster.blobStore, secondClusterNodeStore, 100);
+        closer.register(secondCluster);
+
+        clock.waitUntil(clock.getTime() + 5);
+        retriever.failing = 1;
+        try {
+            cluster.getCollector(50).collectGarbage(true);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        clock.waitUntil(clock.getTime() + 1);
+        String added = addReferencedBlob(cluster, 0);
+
+        // the checkpoint is older than the max last modified interval
+        // and is not resumed
+        clock.waitUntil(clock.getTime() + 100);
+        retriever.failing = -1;
+        executeGarbageCollection(cluster, cluster.getCollector(50), true);
+        assertEquals(2, retriever.calls[0].get());
+
+        Set<String> existingAfterGC = executeGarbageCollection(secondCluster, secondCluster.getCollector(50), false);
+        assertTrue(existingAfterGC.contains(added));
+        assertTrue(existingAfterGC.containsAll(cluster.blobStoreState.blobsPresent));
+        assertTrue(existingAfterGC.containsAll(secondCluster.blobStoreState.blobsPresent));
+    }
+
+    @Test
+    public void changedPartitions() throws Exception {
+        retriever.failing = 2;
+        try {
+            cluster.getCollector(0).collectGarbage(true);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        // a checkpoint for other partitions is not resumed
+        PartitionedRetriever other = new PartitionedRetriever(retriever.delegate, 4);
+        cluster.referenceRetriever = other;
+        Set<String> existingAfterGC = executeGarbageCollection(cluster, cluster.getCollector(0), false);
+        assertTrue(Sets.symmetricDifference(cluster.blobStoreState.blobsPresent, existingAfterGC).isEmpty());
+        for (AtomicInteger calls : other.calls) {
+            assertEquals(1, calls.get());
+        }
+    }
+
+    /**
+     * Adds blobs until one is collected by the given partition, and
+     * references that blob.
+     */
+    private String addReferencedBlob(Cluster cluster, int partition) throws Exception {
+        for (int seed = 1000;; seed++) {
+            String id = cluster.blobStore.writeBlob(randomStream(seed, cluster.blobSize));
+            Iterator<String> chunks = cluster.blobStore.resolveChunks(id);
+            String chunk = chunks.next();
+            cluster.blobStoreState.blobsAdded.add(chunk);
+            if (Math.floorMod(chunk.hashCode(), retriever.calls.length) == partition) {
+                cluster.blobStoreState.blobsPresent.add(chunk);
+                return chunk;
+            }
+        }
+    }
+
+    /**
+     * Splits the references of a retriever by the hash code of the blob id.
+     */
+    private static class PartitionedRetriever implements PartitionedBlobReferenceRetriever {
+
+        private final BlobReferenceRetriever delegate;
+
+        private final AtomicInteger[] calls;
+
+        private volatile int failing = -1;
+
+        PartitionedRetriever(BlobReferenceRetriever delegate, int count) {
+            this.delegate = delegate;
+            this.calls = new AtomicInteger[count];
+            for (int i = 0; i < count; i++) {
+                calls[i] = new AtomicInteger();
+            }
+        }
+
+        @Override
+        public void collectReferences(ReferenceCollector collector) throws IOException {
+            delegate.collectReferences(collector);
+        }
+
+        @Override
+        public @NotNull Map<String, BlobReferenceRetriever> getPartitions() {
+            Map<String, BlobReferenceRetriever> partitions = new LinkedHashMap<>();
+            for (int i = 0; i < calls.length; i++) {
+                int index = i;
+                partitions.put(index + "/" + calls.length, collector -> {
+                    calls[index].incrementAndGet();
+                    if (failing == index) {
+                        throw new IOException("Failing partition " + index);
+                    }
+                    delegate.collectReferences((reference, nodeId) -> {
+                        if (Math.floorMod(reference.hashCode(), calls.length) == index) {
+                            collector.addReference(reference, nodeId);
+                        }
+                    });
+                });
+            }
+            return partitions;
+        }
+    }
+}
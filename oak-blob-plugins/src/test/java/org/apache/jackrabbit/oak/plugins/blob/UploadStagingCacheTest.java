@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -49,10 +50,15 @@ import org.apache.jackrabbit.guava.common.util.concurrent.ListeningExecutorServi
 import org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors;
 import org.apache.jackrabbit.guava.common.util.concurrent.SettableFuture;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.oak.commons.FileIOUtils;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.junit.LogCustomizer;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.FSBackend;
+import org.apache.jackrabbit.oak.spi.blob.MultipartSharedBackend.MultipartUpload;
 import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.junit.After;
@@ -775,6 +781,119 @@ public class UploadStagingCacheTest extends AbstractDataStoreCacheTest {
         return future;
     }
 
+    /**
+     * Stage large file uploaded in parts.
+     * @throws Exception
+     */
+    @Test
+    public void testMultipartUpload() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(FSBackend.FS_BACKEND_PATH, folder.newFolder().getAbsolutePath());
+        FSBackend backend = new FSBackend();
+        backend.setProperties(props);
+        backend.init();
+
+        AtomicInteger parts = new AtomicInteger();
+        StagingUploader multipartUploader = new StagingUploader() {
+            @Override public void write(String id, File f) throws DataStoreException {
+                backend.write(new DataIdentifier(id), f);
+            }
+
+            @Override public void adopt(File f, File moved) throws IOException {
+                FileUtils.moveFile(f, moved);
+            }
+
+            @Override public MultipartUpload initiateMultipartUpload(String id, long length)
+                throws DataStoreException {
+                MultipartUpload upload =
+                    backend.initiateMultipartUpload(new DataIdentifier(id), length);
+                return upload == null ? null : new MultipartUpload() {
+                    @Override public void uploadPart(int partNumber, File file, long offset,
+                        long length) throws DataStoreException {
+                        parts.incrementAndGet();
+                        upload.uploadPart(partNumber, file, offset, length);
+                    }
+
+                    @Override public void complete() throws DataStoreException {
+                        upload.complete();
+                    }
+
+                    @Override public void abort() {
+                        upload.abort();
+                    }
+                };
+            }
+        };
+        stagingCache =
+            UploadStagingCache.build(root, null, 2/*threads*/, 64 * 1024 /* bytes */,
+                multipartUploader, null/*cache*/, statsProvider, null, null, 3000, 6000,
+                8 * 1024 /* large threshold */, 4 * 1024 /* part size */, 10);
+        closer.register(stagingCache);
+
+        File large = copyToFile(randomStream(0, 10 * 1024 + 5), folder.newFile());
+        File expected = copyToFile(randomStream(0, 10 * 1024 + 5), folder.newFile());
+        File small = copyToFile(randomStream(1, 4 * 1024), folder.newFile());
+        Optional<SettableFuture<Integer>> largeFuture = stagingCache.put(ID_PREFIX + 0, large);
+        Optional<SettableFuture<Integer>> smallFuture = stagingCache.put(ID_PREFIX + 1, small);
+        assertTrue(largeFuture.isPresent());
+        assertTrue(smallFuture.isPresent());
+        assertEquals(1, largeFuture.get().get().intValue());
+        assertEquals(1, smallFuture.get().get().intValue());
+
+        assertEquals(3, parts.get());
+        DataRecord record = backend.getRecord(new DataIdentifier(ID_PREFIX + 0));
+        assertEquals(expected.length(), record.getLength());
+        try (InputStream in = record.getStream()) {
+            assertTrue(IOUtils.contentEquals(Files.asByteSource(expected).openStream(), in));
+        }
+        assertTrue(backend.exists(new DataIdentifier(ID_PREFIX + 1)));
+
+        // already present
+        assertNull(backend.initiateMultipartUpload(new DataIdentifier(ID_PREFIX + 0), 1));
+
+        assertEquals(0, stagingCache.getStats().getUploadQueueDepth());
+        assertEquals(0, stagingCache.getStats().getLargeUploadQueueDepth());
+        assertEquals(10 * 1024 + 5 + 4 * 1024, stagingCache.getStats().getUploadedBytes());
+        assertTrue(stagingCache.getStats().getUploadThroughput() > 0);
+    }
+
+    /**
+     * Stage file when the maximum number of pending uploads is reached.
+     * @throws Exception
+     */
+    @Test
+    public void testMaxPendingUploads() throws Exception {
+        stagingCache =
+            UploadStagingCache.build(root, null, 1/*threads*/, 64 * 1024 /* bytes */,
+                uploader, null/*cache*/, statsProvider, executor, null, 3000, 6000,
+                UploadStagingCache.DEFAULT_LARGE_UPLOAD_THRESHOLD,
+                UploadStagingCache.DEFAULT_UPLOAD_PART_SIZE, 1);
+        closer.register(stagingCache);
+
+        // add load
+        List<ListenableFuture<Integer>> futures = put(folder);
+        assertEquals(1, stagingCache.getStats().getUploadQueueDepth());
+
+        // no more uploads accepted while the first is pending
+        File f2 = copyToFile(randomStream(1, 4 * 1024), folder.newFile());
+        assertFalse(stagingCache.put(ID_PREFIX + 1, f2).isPresent());
+
+        //start
+        taskLatch.countDown();
+        callbackLatch.countDown();
+        assertFuture(futures, 0);
+        assertEquals(0, stagingCache.getStats().getUploadQueueDepth());
+
+        // Try 2nd upload again
+        Optional<SettableFuture<Integer>> future = stagingCache.put(ID_PREFIX + 1, f2);
+        assertTrue(future.isPresent());
+        futures = new ArrayList<>();
+        futures.add(future.get());
+        assertFuture(futures, 1);
+
+        assertCacheStats(stagingCache, 0, 0, 2, 3);
+    }
+
     private void waitFinish(List<ListenableFuture<Integer>> futures) {
         ListenableFuture<List<Integer>> listListenableFuture = Futures.successfulAsList(futures);
         try {
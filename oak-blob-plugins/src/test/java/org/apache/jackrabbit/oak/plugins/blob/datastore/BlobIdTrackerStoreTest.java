@@ -185,6 +185,57 @@ public class BlobIdTrackerStoreTest {
         assertEquals("Incorrect elements after safe restart", initAdd, retrieved);
     }
 
+    @Test
+    public void mightContain() throws IOException {
+        BlobIdStore store = tracker.store;
+
+        Set<String> initAdd = add(store, range(0, 10000));
+        store.snapshot();
+        initAdd.addAll(add(store, range(10001, 10100)));
+        for (String id : initAdd) {
+            assertTrue("Added element not contained " + id, store.mightContain(id));
+        }
+        assertTrue("Too many false positives", countFalsePositives(store, range(20000, 30000)) < 1000);
+    }
+
+    @Test
+    public void mightContainAfterRemove() throws IOException {
+        BlobIdStore store = tracker.store;
+
+        Set<String> initAdd = add(store, range(0, 10000));
+        store.snapshot();
+        remove(store, folder.newFile(), initAdd, range(5000, 10000));
+        for (String id : initAdd) {
+            assertTrue("Remaining element not contained " + id, store.mightContain(id));
+        }
+        assertTrue("Too many false positives", countFalsePositives(store, range(5000, 10000)) < 500);
+
+        // removing untracked ids does not change the records
+        remove(store, folder.newFile(), initAdd, range(20000, 20010));
+        assertEquals("Incorrect elements after remove", initAdd, retrieve(store));
+    }
+
+    @Test
+    public void mightContainAfterRestart() throws IOException {
+        BlobIdStore store = tracker.store;
+
+        Set<String> initAdd = add(store, range(0, 10000));
+        tracker.close();
+        this.tracker = initTracker();
+        store = tracker.store;
+        for (String id : initAdd) {
+            assertTrue("Added element not contained after restart " + id, store.mightContain(id));
+        }
+
+        // dirty restart without a saved filter
+        initAdd.addAll(add(store, range(10001, 10100)));
+        this.tracker = initTracker();
+        store = tracker.store;
+        for (String id : initAdd) {
+            assertTrue("Added element not contained after dirty restart " + id, store.mightContain(id));
+        }
+    }
+
     @Test
     public void addConcurrentSnapshot() throws IOException, InterruptedException {
         final BlobIdStore store = tracker.store;
@@ -396,6 +447,16 @@ public class BlobIdTrackerStoreTest {
         return s;
     }
 
+    private static int countFalsePositives(BlobIdStore store, List<String> notAdded) {
+        int count = 0;
+        for (String id : notAdded) {
+            if (store.mightContain(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private static Set<String> retrieve(BlobIdStore store) throws IOException {
         Set<String> retrieved = new HashSet<>();
         Iterator<String> iter = store.getRecords();
@@ -18,6 +18,7 @@ package org.apache.jackrabbit.oak.spi.blob;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -79,6 +80,20 @@ public interface BlobStore extends AutoCloseable {
      */
     InputStream getInputStream(String blobId) throws IOException;
 
+    /**
+     * Opens a read-only channel over a local file with the content of the
+     * given blob, if the blob store keeps one. The caller is responsible for
+     * closing the channel.
+     *
+     * @param blobId the blob id
+     * @return a channel over the content of the blob, or {@code null} if
+     *          the blob is not available as a local file
+     */
+    @Nullable
+    default FileChannel openFileChannel(String blobId) throws IOException {
+        return null;
+    }
+
     /**
      * Returns the blobId that referred by the given binary reference.
      * Returns {@code null} if the reference is invalid, for example if it
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.spi.blob;
+
+import java.io.File;
+
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.apache.jackrabbit.core.data.DataStoreException;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Optional extension of a {@link SharedBackend} for backends which can store
+ * a file in parts. The parts of an upload may be written concurrently and in
+ * any order. The record only becomes visible once the upload is completed.
+ */
+public interface MultipartSharedBackend extends SharedBackend {
+
+    /**
+     * Starts the upload of a record in parts. If the record already exists,
+     * its timestamp is updated like with {@link #write(DataIdentifier, File)}
+     * and no upload is started.
+     *
+     * @param identifier key of the record
+     * @param length the length of the record in bytes
+     * @return the upload or {@code null} if the record already exists.
+     * @throws DataStoreException if the upload cannot be started.
+     */
+    @Nullable
+    MultipartUpload initiateMultipartUpload(DataIdentifier identifier, long length)
+        throws DataStoreException;
+
+    /**
+     * An upload of a record in parts.
+     */
+    interface MultipartUpload {
+
+        /**
+         * Uploads a part of the record. This method may be called
+         * concurrently for different parts.
+         *
+         * @param partNumber the number of the part, starting with 1.
+         * @param file the file with the content of the record.
+         * @param offset the offset of the part in the file and the record.
+         * @param length the length of the part in bytes.
+         * @throws DataStoreException if the part cannot be uploaded.
+         */
+        void uploadPart(int partNumber, File file, long offset, long length)
+            throws DataStoreException;
+
+        /**
+         * Completes the upload once all parts are uploaded and makes the
+         * record visible.
+         *
+         * @throws DataStoreException if the upload cannot be completed.
+         */
+        void complete() throws DataStoreException;
+
+        /**
+         * Aborts the upload and releases the parts uploaded so far.
+         */
+        void abort();
+    }
+}
@@ -19,7 +19,11 @@
 
 package org.apache.jackrabbit.oak.plugins.index;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.jackrabbit.oak.api.jmx.IndexStatsMBean;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import static java.util.Objects.requireNonNull;
@@ -30,13 +34,20 @@ public class AsyncIndexInfo {
     private final long leaseExpiryTime;
     private final boolean running;
     private final IndexStatsMBean statsMBean;
+    private final Map<String, Long> partitionsIndexedTo;
 
     public AsyncIndexInfo(String name, long lastIndexedTo, long leaseExpiryTime, boolean running, @Nullable IndexStatsMBean statsMBean) {
+        this(name, lastIndexedTo, leaseExpiryTime, running, statsMBean, Collections.emptyMap());
+    }
+
+    public AsyncIndexInfo(String name, long lastIndexedTo, long leaseExpiryTime, boolean running,
+                          @Nullable IndexStatsMBean statsMBean, @NotNull Map<String, Long> partitionsIndexedTo) {
         this.name = requireNonNull(name);
         this.lastIndexedTo = lastIndexedTo;
         this.leaseExpiryTime = leaseExpiryTime;
         this.running = running;
         this.statsMBean = statsMBean;
+        this.partitionsIndexedTo = Collections.unmodifiableMap(requireNonNull(partitionsIndexedTo));
     }
 
     public String getName() {
@@ -78,6 +89,17 @@ public class AsyncIndexInfo {
         return statsMBean;
     }
 
+    /**
+     * Time in millis upto which each partition of an unfinished
+     * partitioned update of this indexer is indexed. Partitions already
+     * indexed by the update are ahead of {@link #getLastIndexedTo()}.
+     * If no partitioned update is in progress then the map is empty
+     */
+    @NotNull
+    public Map<String, Long> getPartitionsIndexedTo() {
+        return partitionsIndexedTo;
+    }
+
     @Override
     public String toString() {
         return String.format("%s : lastIndexedTo :%tc, leaseExpiryTime :%tc, running :%s",
@@ -23,6 +23,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -90,7 +91,8 @@ public class AsyncIndexInfoServiceImpl implements AsyncIndexInfoService {
                 leaseEnd = async.getLong(AsyncIndexUpdate.leasify(name));
             }
             IndexStatsMBean mbean = statsMBeans.get(name);
-            return new AsyncIndexInfo(name, lastIndexedTo, leaseEnd, running, mbean);
+            return new AsyncIndexInfo(name, lastIndexedTo, leaseEnd, running, mbean,
+                    getPartitionsIndexedTo(name, async, lastIndexedTo));
         }
         return null;
     }
@@ -136,6 +138,19 @@ public class AsyncIndexInfoServiceImpl implements AsyncIndexInfoService {
         return getDateAsMillis(async.getProperty(AsyncIndexUpdate.lastIndexedTo(name)));
     }
 
+    private static Map<String, Long> getPartitionsIndexedTo(String name, NodeState async, long lastIndexedTo) {
+        Map<String, Long> partitions = new LinkedHashMap<>();
+        Set<String> done = new HashSet<>();
+        for (String partition : async.getStrings(AsyncIndexUpdate.partitionsDone(name))) {
+            done.add(partition);
+        }
+        long partitionIndexedTo = getDateAsMillis(async.getProperty(AsyncIndexUpdate.partitionIndexedTo(name)));
+        for (String partition : async.getStrings(AsyncIndexUpdate.partitions(name))) {
+            partitions.put(partition, done.contains(partition) ? partitionIndexedTo : lastIndexedTo);
+        }
+        return partitions;
+    }
+
     private static long getDateAsMillis(PropertyState ps) {
         if (ps == null) {
             return -1;
@@ -80,6 +80,7 @@ import org.apache.jackrabbit.oak.spi.commit.SimpleCommitContext;
 import org.apache.jackrabbit.oak.spi.commit.ValidatorProvider;
 import org.apache.jackrabbit.oak.spi.commit.VisibleEditor;
 import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.DefaultNodeStateDiff;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
@@ -204,6 +205,15 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
     private final boolean traverseNodesIfLaneNotPresentInIndex
             = !Boolean.getBoolean("oak.async.traverseNodesIfLanePresentInIndex");
 
+    /**
+     * Setting this to true splits incremental index updates into partitions,
+     * one for each changed top level node, which are indexed and merged one
+     * after the other. The progress is kept in the {@code :async} state, so
+     * that an interrupted update is resumed from the last merged partition
+     * instead of diffing the checkpoints again. (Default value is false).
+     */
+    private boolean partitioned = Boolean.getBoolean("oak.async.partitioned");
+
     /**
      * The time in minutes since the epoch when the last checkpoint cleanup ran.
      */
@@ -362,7 +372,7 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
             // try to drop temp cps, add 'currentCp' to the temp cps list
             Set<String> temps = new HashSet<>();
             for (String cp : getStrings(async, tempCpName)) {
-                if (cp.equals(checkpoint)) {
+                if (cp.equals(checkpoint) || cp.equals(afterCheckpoint)) {
                     temps.add(cp);
                     continue;
                 }
@@ -565,15 +575,34 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
             before = MISSING_NODE;
         }
 
-        // there are some recent changes, so let's create a new checkpoint
-        String afterTime = now();
         String oldThreadName = Thread.currentThread().getName();
         boolean threadNameChanged = false;
-        String afterCheckpoint = store.checkpoint(lifetime, Map.of(
-                "creator", AsyncIndexUpdate.class.getSimpleName(),
-                "created", afterTime,
-                "thread", oldThreadName,
-                "name", name));
+        String afterTime = null;
+        String afterCheckpoint = null;
+        if (before != MISSING_NODE) {
+            // resume an interrupted partitioned update, if any
+            String partitionCheckpoint = root.getChildNode(ASYNC).getString(partitionCheckpoint(name));
+            if (partitionCheckpoint != null) {
+                afterTime = store.checkpointInfo(partitionCheckpoint).get("created");
+                if (afterTime != null && store.retrieve(partitionCheckpoint) != null) {
+                    log.info("[{}] Resuming partitioned index update to checkpoint {}",
+                            name, partitionCheckpoint);
+                    afterCheckpoint = partitionCheckpoint;
+                } else {
+                    log.warn("[{}] Failed to retrieve checkpoint {} of the interrupted partitioned index update; starting a new update",
+                            name, partitionCheckpoint);
+                }
+            }
+        }
+        if (afterCheckpoint == null) {
+            // there are some recent changes, so let's create a new checkpoint
+            afterTime = now();
+            afterCheckpoint = store.checkpoint(lifetime, Map.of(
+                    "creator", AsyncIndexUpdate.class.getSimpleName(),
+                    "created", afterTime,
+                    "thread", oldThreadName,
+                    "name", name));
+        }
         NodeState after = store.retrieve(afterCheckpoint);
         if (after == null) {
             log.debug(
@@ -583,7 +612,10 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
             return;
         }
 
-        AtomicReference<String> checkpointToReleaseRef = new AtomicReference<>(afterCheckpoint);
+        // keep the checkpoint of a resumed update, it is still needed if this run fails
+        AtomicReference<String> checkpointToReleaseRef = new AtomicReference<>(
+                afterCheckpoint.equals(root.getChildNode(ASYNC).getString(partitionCheckpoint(name)))
+                        ? null : afterCheckpoint);
         boolean updatePostRunStatus = false;
         try {
             String newThreadName = "async-index-update-" + name;
@@ -798,6 +830,20 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
         // sure to not delete the reference checkpoint, as the other index
         // task will take care of it
         taskSplitter.maybeSplit(beforeCheckpoint, callback.lease);
+        if (partitioned && !switchOnSync && before != MISSING_NODE) {
+            List<String> partitions = getPartitions(before, after, afterCheckpoint);
+            if (partitions.size() > 2) {
+                try {
+                    updateIndexPartitioned(before, beforeCheckpoint, after, afterCheckpoint,
+                            afterTime, callback, checkpointToReleaseRef, partitions);
+                } finally {
+                    callback.close();
+                }
+                log.debug("[{}] Partitioned AsyncIndex update run completed in {}. Indexed {} nodes in {} partitions",
+                        name, watch, indexStats.getUpdates(), partitions.size());
+                return true;
+            }
+        }
         IndexUpdate indexUpdate = null;
         boolean indexingFailed = true;
         try {
@@ -819,6 +865,7 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
 
             builder.child(ASYNC).setProperty(name, afterCheckpoint);
             builder.child(ASYNC).setProperty(PropertyStates.createProperty(lastIndexedTo, afterTime, Type.DATE));
+            removePartitionState(builder.child(ASYNC), name);
             if (callback.isDirty() || before == MISSING_NODE) {
                 if (switchOnSync) {
                     reindexedDefinitions.addAll(indexUpdate
@@ -892,6 +939,154 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
         return updatePostRunStatus;
     }
 
+    /**
+     * Returns the partitions of the update from {@code before} to
+     * {@code after}: the root partition {@code "/"} with the changes outside
+     * of the other partitions, followed by the paths of the changed top level
+     * nodes. The partitions of an interrupted update to the same checkpoint
+     * are taken from the {@code :async} state.
+     */
+    private List<String> getPartitions(NodeState before, NodeState after, String afterCheckpoint) {
+        NodeState async = store.getRoot().getChildNode(ASYNC);
+        if (afterCheckpoint.equals(async.getString(partitionCheckpoint(name)))) {
+            PropertyState ps = async.getProperty(partitions(name));
+            if (ps != null) {
+                return CollectionUtils.toList(ps.getValue(Type.STRINGS));
+            }
+        }
+        List<String> partitions = new ArrayList<>();
+        after.compareAgainstBaseState(before, new DefaultNodeStateDiff() {
+            @Override
+            public boolean childNodeAdded(String name, NodeState after) {
+                return addPartition(name);
+            }
+
+            @Override
+            public boolean childNodeChanged(String name, NodeState before, NodeState after) {
+                return addPartition(name);
+            }
+
+            @Override
+            public boolean childNodeDeleted(String name, NodeState before) {
+                return addPartition(name);
+            }
+
+            private boolean addPartition(String name) {
+                // index definitions are updated along with the root partition
+                if (!isHidden(name) && !IndexConstants.INDEX_DEFINITIONS_NAME.equals(name)) {
+                    partitions.add(PathUtils.concat(PathUtils.ROOT_PATH, name));
+                }
+                return true;
+            }
+        });
+        Collections.sort(partitions);
+        partitions.add(0, PathUtils.ROOT_PATH);
+        return partitions;
+    }
+
+    /**
+     * Returns the state between {@code before} and {@code after} in which the
+     * given partitions are indexed. It equals {@code before} until the root
+     * partition is indexed, and {@code after} with the top level nodes of the
+     * other partitions reset to {@code before} afterwards.
+     */
+    private static NodeState getPartitionState(NodeState before, NodeState after,
+                                               List<String> partitions, Set<String> done) {
+        if (!done.contains(PathUtils.ROOT_PATH)) {
+            return before;
+        }
+        NodeBuilder builder = after.builder();
+        for (String partition : partitions) {
+            if (done.contains(partition)) {
+                continue;
+            }
+            String name = PathUtils.getName(partition);
+            NodeState state = before.getChildNode(name);
+            if (state.exists()) {
+                builder.setChildNode(name, state);
+            } else {
+                builder.getChildNode(name).remove();
+            }
+        }
+        return builder.getNodeState();
+    }
+
+    /**
+     * Indexes the changes from {@code before} to {@code after} partition by
+     * partition. Each partition is merged along with its progress, and the
+     * lane is moved to {@code afterCheckpoint} with the last partition.
+     */
+    private void updateIndexPartitioned(NodeState before, String beforeCheckpoint,
+                                        NodeState after, String afterCheckpoint, String afterTime,
+                                        AsyncUpdateCallback callback,
+                                        AtomicReference<String> checkpointToReleaseRef,
+                                        List<String> partitions) throws CommitFailedException {
+        Set<String> done = new HashSet<>();
+        NodeState async = store.getRoot().getChildNode(ASYNC);
+        if (afterCheckpoint.equals(async.getString(partitionCheckpoint(name)))) {
+            for (String partition : async.getStrings(partitionsDone(name))) {
+                done.add(partition);
+            }
+            // the checkpoint is needed for resuming the update, even if this run fails
+            checkpointToReleaseRef.set(null);
+        }
+        for (String partition : partitions) {
+            if (done.contains(partition)) {
+                continue;
+            }
+            NodeState partitionBefore = getPartitionState(before, after, partitions, done);
+            done.add(partition);
+            NodeState partitionAfter = getPartitionState(before, after, partitions, done);
+            log.debug("[{}] Indexing partition {} ({} of {})",
+                    name, partition, done.size(), partitions.size());
+
+            NodeBuilder builder = store.getRoot().builder();
+            markFailingIndexesAsCorrupt(builder);
+
+            CommitInfo info = new CommitInfo(CommitInfo.OAK_UNKNOWN, CommitInfo.OAK_UNKNOWN,
+                    Map.of(IndexConstants.CHECKPOINT_CREATION_TIME, afterTime));
+            IndexUpdate indexUpdate =
+                    new IndexUpdate(provider, name, partitionAfter, builder, callback, callback, info, corruptIndexHandler)
+                            .withMissingProviderStrategy(missingStrategy);
+            configureRateEstimator(indexUpdate);
+            boolean indexingFailed = true;
+            try {
+                CommitFailedException exception =
+                        EditorDiff.process(VisibleEditor.wrap(indexUpdate), partitionBefore, partitionAfter);
+                if (exception != null) {
+                    throw exception;
+                }
+
+                NodeBuilder asyncBuilder = builder.child(ASYNC);
+                if (done.size() < partitions.size()) {
+                    asyncBuilder.setProperty(partitionCheckpoint(name), afterCheckpoint);
+                    asyncBuilder.setProperty(partitions(name), partitions, Type.STRINGS);
+                    asyncBuilder.setProperty(partitionsDone(name), done, Type.STRINGS);
+                    asyncBuilder.setProperty(PropertyStates.createProperty(
+                            partitionIndexedTo(name), afterTime, Type.DATE));
+                } else {
+                    asyncBuilder.setProperty(name, afterCheckpoint);
+                    asyncBuilder.setProperty(PropertyStates.createProperty(lastIndexedTo, afterTime, Type.DATE));
+                    removePartitionState(asyncBuilder, name);
+                }
+                mergeWithConcurrencyCheck(store, validatorProviders, builder, beforeCheckpoint,
+                        callback.lease, name);
+                indexingFailed = false;
+
+                corruptIndexHandler.markWorkingIndexes(indexUpdate.getUpdatedIndexPaths());
+            } finally {
+                indexUpdate.commitProgress(indexingFailed
+                        ? IndexCommitCallback.IndexProgress.COMMIT_FAILED
+                        : IndexCommitCallback.IndexProgress.COMMIT_SUCCEDED);
+            }
+            // partitions indexed so far refer to afterCheckpoint, so it must
+            // not be released if a later partition fails
+            checkpointToReleaseRef.set(null);
+        }
+        // the lane was moved to afterCheckpoint with the last partition
+        checkpointToReleaseRef.set(beforeCheckpoint);
+    }
+
     private void configureRateEstimator(IndexUpdate indexUpdate) {
         //As metrics is an optional library guard the access with the check
         if (statisticsProvider.getClass().getSimpleName().equals("MetricStatisticsProvider")){
@@ -915,6 +1110,45 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
         return name + "-temp";
     }
 
+    /**
+     * Name of the property with the checkpoint an interrupted partitioned
+     * update indexes to.
+     */
+    static String partitionCheckpoint(String name) {
+        return name + "-partitionCheckpoint";
+    }
+
+    /**
+     * Name of the property with the partitions of an interrupted partitioned
+     * update.
+     */
+    static String partitions(String name) {
+        return name + "-partitions";
+    }
+
+    /**
+     * Name of the property with the partitions already indexed by an
+     * interrupted partitioned update.
+     */
+    static String partitionsDone(String name) {
+        return name + "-partitionsDone";
+    }
+
+    /**
+     * Name of the property with the time up to which the indexed partitions
+     * of an interrupted partitioned update are indexed.
+     */
+    static String partitionIndexedTo(String name) {
+        return name + "-partitionIndexedTo";
+    }
+
+    private static void removePartitionState(NodeBuilder async, String name) {
+        async.removeProperty(partitionCheckpoint(name));
+        async.removeProperty(partitions(name));
+        async.removeProperty(partitionsDone(name));
+        async.removeProperty(partitionIndexedTo(name));
+    }
+
     private static boolean isLeaseCheckEnabled(long leaseTimeOut) {
         return leaseTimeOut > 0;
     }
@@ -975,6 +1209,11 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
         return leaseTimeOut;
     }
 
+    protected AsyncIndexUpdate setPartitioned(boolean partitioned) {
+        this.partitioned = partitioned;
+        return this;
+    }
+
     protected AsyncIndexUpdate setCloseTimeOut(int timeOutInSec) {
         this.softTimeOutSecs = timeOutInSec;
         return this;
@@ -1275,6 +1514,7 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
                         " Reindexing is needed to get this content indexed.", name, existingReferenceCheckpoint, newReferenceCheckpoint);
                 NodeBuilder builder = store.getRoot().builder();
                 builder.child(ASYNC).setProperty(name, newReferenceCheckpoint);
+                removePartitionState(builder.child(ASYNC), name);
                 this.referenceCp = newReferenceCheckpoint;
                 mergeWithConcurrencyCheck(store, validatorProviders, builder, existingReferenceCheckpoint, null, name);
                 // Remove the existing reference checkpoint
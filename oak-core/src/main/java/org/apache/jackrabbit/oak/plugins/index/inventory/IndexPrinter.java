@@ -85,6 +85,9 @@ public class IndexPrinter implements InventoryPrinter {
             AsyncIndexInfo info = asyncIndexInfoService.getInfo(lane);
             if (info != null) {
                 po.text("Last indexed to", formatTime(info.getLastIndexedTo()));
+                for (Map.Entry<String, Long> e : info.getPartitionsIndexedTo().entrySet()) {
+                    po.text("Partition " + e.getKey() + " indexed to", formatTime(e.getValue()));
+                }
                 IndexStatsMBean stats = info.getStatsMBean();
                 if (stats != null) {
                     po.text("Status", stats.getStatus());
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.observation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cache of the child level differences of recently observed content changes.
+ * All observers of a content change see the same pair of root node states.
+ * With this cache only the first of them compares the node states at a given
+ * path, while the others replay the recorded differences.
+ * <p>
+ * Content changes are identified by the identity of their before and after
+ * root states. The cache keeps the differences of at most
+ * {@code maxContentChanges} content changes and at most {@code maxDiffs}
+ * differences per content change. Node states beyond that limit, or with
+ * more differences than the remaining limit, are compared directly.
+ */
+public class ContentDiffCache {
+
+    /**
+     * Default maximum number of content changes kept in the cache.
+     */
+    public static final int DEFAULT_MAX_CONTENT_CHANGES = Integer.getInteger(
+            "oak.observation.diffCache.maxContentChanges", 16);
+
+    /**
+     * Default maximum number of differences recorded per content change.
+     */
+    public static final int DEFAULT_MAX_DIFFS = Integer.getInteger(
+            "oak.observation.diffCache.maxDiffs", 100000);
+
+    /**
+     * Marks a path with more changes than could be recorded.
+     */
+    private static final List<Change> NOT_RECORDED = Collections.unmodifiableList(new ArrayList<>());
+
+    private final int maxDiffs;
+
+    private final Map<RootStates, ContentChangeDiff> contentChanges;
+
+    public ContentDiffCache() {
+        this(DEFAULT_MAX_CONTENT_CHANGES, DEFAULT_MAX_DIFFS);
+    }
+
+    public ContentDiffCache(int maxContentChanges, int maxDiffs) {
+        this.maxDiffs = maxDiffs;
+        this.contentChanges = new LinkedHashMap<RootStates, ContentChangeDiff>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RootStates, ContentChangeDiff> eldest) {
+                return size() > maxContentChanges;
+            }
+        };
+    }
+
+    /**
+     * Compares the node states at the given path of a content change and
+     * reports the differences to {@code diff}, like
+     * {@code after.compareAgainstBaseState(before, diff)}.
+     *
+     * @param rootBefore the root state before the content change.
+     * @param rootAfter the root state after the content change.
+     * @param path the path of the node states to compare.
+     * @param before the node state at {@code path} in {@code rootBefore}.
+     * @param after the node state at {@code path} in {@code rootAfter}.
+     * @param diff handler of the differences.
+     * @return {@code true} if the full diff was performed, {@code false}
+     *          if it was aborted by {@code diff}.
+     */
+    public boolean compare(@NotNull NodeState rootBefore, @NotNull NodeState rootAfter,
+                           @NotNull String path, @NotNull NodeState before,
+                           @NotNull NodeState after, @NotNull NodeStateDiff diff) {
+        ContentChangeDiff contentChange = getContentChangeDiff(rootBefore, rootAfter);
+        List<Change> changes = contentChange.diffs.get(path);
+        if (changes == null) {
+            int budget = maxDiffs - contentChange.size.get();
+            if (budget <= 0) {
+                return after.compareAgainstBaseState(before, diff);
+            }
+            Recorder recorder = new Recorder(budget);
+            if (!after.compareAgainstBaseState(before, recorder)) {
+                // too many changes: remember not to record them again, and
+                // stream them to the handler instead of materializing them
+                contentChange.size.incrementAndGet();
+                contentChange.diffs.putIfAbsent(path, NOT_RECORDED);
+                return after.compareAgainstBaseState(before, diff);
+            }
+            contentChange.size.addAndGet(recorder.changes.size() + 1);
+            List<Change> existing = contentChange.diffs.putIfAbsent(path, recorder.changes);
+            changes = (existing != null) ? existing : recorder.changes;
+        }
+        if (changes == NOT_RECORDED) {
+            return after.compareAgainstBaseState(before, diff);
+        }
+        for (Change change : changes) {
+            if (!change.replay(diff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all content changes from the cache, releasing the node states
+     * they reference.
+     */
+    public void clear() {
+        synchronized (contentChanges) {
+            contentChanges.clear();
+        }
+    }
+
+    /**
+     * @return the number of content changes in the cache.
+     */
+    int size() {
+        synchronized (contentChanges) {
+            return contentChanges.size();
+        }
+    }
+
+    @NotNull
+    private ContentChangeDiff getContentChangeDiff(@NotNull NodeState rootBefore,
+                                                   @NotNull NodeState rootAfter) {
+        synchronized (contentChanges) {
+            return contentChanges.computeIfAbsent(
+                    new RootStates(rootBefore, rootAfter), k -> new ContentChangeDiff());
+        }
+    }
+
+    private static final class ContentChangeDiff {
+
+        private final Map<String, List<Change>> diffs = new ConcurrentHashMap<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * The before and after root states of a content change, compared by
+     * identity.
+     */
+    private static final class RootStates {
+
+        private final NodeState before;
+        private final NodeState after;
+
+        private RootStates(NodeState before, NodeState after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof RootStates) {
+                RootStates other = (RootStates) obj;
+                return before == other.before && after == other.after;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(before) + System.identityHashCode(after);
+        }
+    }
+
+    private enum Type {
+        PROPERTY_ADDED, PROPERTY_CHANGED, PROPERTY_DELETED,
+        CHILD_NODE_ADDED, CHILD_NODE_CHANGED, CHILD_NODE_DELETED
+    }
+
+    private static final class Change {
+
+        private final Type type;
+        private final String name;
+        private final Object before;
+        private final Object after;
+
+        private Change(Type type, String name, Object before, Object after) {
+            this.type = type;
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+
+        private boolean replay(NodeStateDiff diff) {
+            switch (type) {
+                case PROPERTY_ADDED:
+                    return diff.propertyAdded((PropertyState) after);
+                case PROPERTY_CHANGED:
+                    return diff.propertyChanged((PropertyState) before, (PropertyState) after);
+                case PROPERTY_DELETED:
+                    return diff.propertyDeleted((PropertyState) before);
+                case CHILD_NODE_ADDED:
+                    return diff.childNodeAdded(name, (NodeState) after);
+                case CHILD_NODE_CHANGED:
+                    return diff.childNodeChanged(name, (NodeState) before, (NodeState) after);
+                default:
+                    return diff.childNodeDeleted(name, (NodeState) before);
+            }
+        }
+    }
+
+    /**
+     * Records the differences, and aborts the comparison once more than
+     * {@code limit} differences were reported.
+     */
+    private static final class Recorder implements NodeStateDiff {
+
+        private final int limit;
+        private final List<Change> changes = new ArrayList<>();
+
+        private Recorder(int limit) {
+            this.limit = limit;
+        }
+
+        private boolean add(Change change) {
+            if (changes.size() >= limit) {
+                return false;
+            }
+            changes.add(change);
+            return true;
+        }
+
+        @Override
+        public boolean propertyAdded(PropertyState after) {
+            return add(new Change(Type.PROPERTY_ADDED, null, null, after));
+        }
+
+        @Override
+        public boolean propertyChanged(PropertyState before, PropertyState after) {
+            return add(new Change(Type.PROPERTY_CHANGED, null, before, after));
+        }
+
+        @Override
+        public boolean propertyDeleted(PropertyState before) {
+            return add(new Change(Type.PROPERTY_DELETED, null, before, null));
+        }
+
+        @Override
+        public boolean childNodeAdded(String name, NodeState after) {
+            return add(new Change(Type.CHILD_NODE_ADDED, name, null, after));
+        }
+
+        @Override
+        public boolean childNodeChanged(String name, NodeState before, NodeState after) {
+            return add(new Change(Type.CHILD_NODE_CHANGED, name, before, after));
+        }
+
+        @Override
+        public boolean childNodeDeleted(String name, NodeState before) {
+            return add(new Change(Type.CHILD_NODE_DELETED, name, before, null));
+        }
+    }
+}
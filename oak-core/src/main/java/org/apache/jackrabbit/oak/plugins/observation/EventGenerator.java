@@ -30,6 +30,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
 import org.apache.jackrabbit.oak.commons.PerfLogger;
@@ -74,11 +75,36 @@ public class EventGenerator {
 
     private final LinkedList<Continuation> continuations = new LinkedList<>();
 
+    private final ContentDiffCache diffCache;
+
+    private final NodeState rootBefore;
+
+    private final NodeState rootAfter;
+
     /**
      * Creates a new generator instance. Changes to process need to be added
      * through {@link #addHandler(NodeState, NodeState, EventHandler)}
      */
-    public EventGenerator() {}
+    public EventGenerator() {
+        this.diffCache = null;
+        this.rootBefore = null;
+        this.rootAfter = null;
+    }
+
+    /**
+     * Creates a new generator instance for the changes between the given
+     * root states. Node states of handlers added through
+     * {@link #addHandler(String, NodeState, NodeState, EventHandler)} are
+     * compared through the given cache, which is shared with other
+     * generators for the same root states.
+     */
+    public EventGenerator(
+            @NotNull ContentDiffCache diffCache,
+            @NotNull NodeState rootBefore, @NotNull NodeState rootAfter) {
+        this.diffCache = diffCache;
+        this.rootBefore = rootBefore;
+        this.rootAfter = rootAfter;
+    }
 
     /**
      * Creates a new generator instance for processing the given changes.
@@ -86,11 +112,20 @@ public class EventGenerator {
     public EventGenerator(
             @NotNull NodeState before, @NotNull NodeState after,
             @NotNull EventHandler handler) {
-        continuations.addFirst(new Continuation(handler, before, after, 0));
+        this();
+        continuations.addFirst(new Continuation(null, handler, before, after, 0));
     }
 
     public void addHandler(NodeState before, NodeState after, EventHandler handler) {
-        continuations.addFirst(new Continuation(handler, before, after, 0));
+        continuations.addFirst(new Continuation(null, handler, before, after, 0));
+    }
+
+    /**
+     * Adds a handler for the changes between the node states at the given
+     * path of the root states of this generator.
+     */
+    public void addHandler(@NotNull String path, NodeState before, NodeState after, EventHandler handler) {
+        continuations.addFirst(new Continuation(path, handler, before, after, 0));
     }
 
     /**
@@ -120,6 +155,11 @@ public class EventGenerator {
 
     private class Continuation implements NodeStateDiff, Runnable {
 
+        /**
+         * Path of the compared node states or {@code null} if unknown.
+         */
+        private final String path;
+
         /**
          * Filtered handler of detected content changes.
          */
@@ -146,8 +186,9 @@ public class EventGenerator {
         private int counter = 0;
 
         private Continuation(
-                EventHandler handler, NodeState before, NodeState after,
+                String path, EventHandler handler, NodeState before, NodeState after,
                 int skip) {
+            this.path = path;
             this.handler = handler;
             this.before = before;
             this.after = after;
@@ -167,7 +208,7 @@ public class EventGenerator {
                 // the MAX_CHANGES_PER_CONTINUATION limit before
                 handler.enter(before, after);
             }
-            if (after.compareAgainstBaseState(before, this)) {
+            if (compare()) {
                 // Only call leave if this continuation exists normally and not
                 // as a result of hitting the MAX_CHANGES_PER_CONTINUATION limit
                 handler.leave(before, after);
@@ -306,6 +347,14 @@ public class EventGenerator {
 
         //-------------------------------------------------------< private >--
 
+        private boolean compare() {
+            if (diffCache != null && path != null) {
+                return diffCache.compare(rootBefore, rootAfter, path, before, after, this);
+            } else {
+                return after.compareAgainstBaseState(before, this);
+            }
+        }
+
         /**
          * Schedules a continuation for processing changes within the given
          * child node, if changes within that subtree should be processed.
@@ -314,7 +363,8 @@ public class EventGenerator {
                 String name, NodeState before, NodeState after) {
             EventHandler h = handler.getChildHandler(name, before, after);
             if (h != null) {
-                continuations.addFirst(new Continuation(h, before, after, 0));
+                String childPath = (path != null) ? PathUtils.concat(path, name) : null;
+                continuations.addFirst(new Continuation(childPath, h, before, after, 0));
             }
         }
 
@@ -338,7 +388,7 @@ public class EventGenerator {
             if (counter > skip // must have processed at least one event
                     && continuations.size() >= MAX_QUEUED_CONTINUATIONS) {
                 continuations.add(new Continuation(
-                        handler, this.before, this.after, counter));
+                        path, handler, this.before, this.after, counter));
                 return true;
             } else {
                 return false;
@@ -354,7 +404,7 @@ public class EventGenerator {
         private boolean afterEvent() {
             if (counter >= skip + MAX_CHANGES_PER_CONTINUATION) {
                 continuations.addFirst(
-                        new Continuation(handler, before, after, counter));
+                        new Continuation(path, handler, before, after, counter));
                 return false;
             } else {
                 return true;
@@ -13,25 +13,92 @@
  */
 package org.apache.jackrabbit.oak.query;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.oak.commons.Compression;
+import org.apache.jackrabbit.oak.commons.sort.ExternalSort;
 import org.apache.jackrabbit.oak.spi.query.QueryLimits;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Filtering iterators that are useful for queries with limit, offset, order by,
  * or distinct.
+ * <p>
+ * If there are more entries to sort or de-duplicate than the in-memory limit
+ * of the query engine, and a {@link SpillCodec} is available, the entries are
+ * written to sorted runs in temporary files, which are then merged. Otherwise
+ * the query fails once the limit is reached.
  */
 public class FilterIterators {
     
     private static final Logger LOG = LoggerFactory.getLogger(FilterIterators.class);
 
+    /**
+     * Whether entries may be written to temporary files if there are too many
+     * to keep in memory.
+     */
+    static final boolean SPILL_TO_DISK =
+            Boolean.parseBoolean(System.getProperty("oak.query.spillToDisk", "true"));
+
+    /**
+     * Converts entries to and from single line strings, so that they can be
+     * sorted or de-duplicated on disk.
+     *
+     * @param <K> the entry type
+     */
+    public interface SpillCodec<K> {
+
+        /**
+         * Convert an entry to a string without line breaks.
+         *
+         * @param entry the entry
+         * @return the string, or null if the entry can not be converted
+         */
+        @Nullable
+        String encode(K entry);
+
+        /**
+         * Convert a string that was returned by {@link #encode(Object)} back
+         * to an entry.
+         *
+         * @param line the string
+         * @return the entry
+         */
+        K decode(String line);
+
+        /**
+         * Get a string without line breaks or tabs that is the same for two
+         * entries if and only if the entries are equal.
+         *
+         * @param entry the entry
+         * @return the key, or null if the entry can not be converted
+         */
+        @Nullable
+        String getDistinctKey(K entry);
+
+    }
+
     private FilterIterators() {
     }
 
@@ -78,15 +145,21 @@ public class FilterIterators {
     public static <K> Iterator<K> newCombinedFilter(
             Iterator<K> it, boolean distinct, long limit, long offset, 
             Comparator<K> orderBy, QueryLimits settings) {
+        return newCombinedFilter(it, distinct, limit, offset, orderBy, settings, null);
+    }
+
+    public static <K> Iterator<K> newCombinedFilter(
+            Iterator<K> it, boolean distinct, long limit, long offset,
+            Comparator<K> orderBy, QueryLimits settings, @Nullable SpillCodec<K> codec) {
         if (distinct) {
-            it = FilterIterators.newDistinct(it, settings);
+            it = FilterIterators.newDistinct(it, settings, codec);
         }
         if (orderBy != null) {
             // avoid overflow (both offset and limit could be Long.MAX_VALUE)
             int max = (int) Math.min(Integer.MAX_VALUE, 
                     Math.min(Integer.MAX_VALUE, offset) + 
                     Math.min(Integer.MAX_VALUE, limit));
-            it = FilterIterators.newSort(it, orderBy, max, settings);
+            it = FilterIterators.newSort(it, orderBy, max, settings, codec);
         }
         if (offset != 0) {
             it = FilterIterators.newOffset(it, offset);
@@ -98,7 +171,12 @@ public class FilterIterators {
     }
     
     public static <K> DistinctIterator<K> newDistinct(Iterator<K> it, QueryLimits settings) {
-        return new DistinctIterator<K>(it, settings);
+        return newDistinct(it, settings, null);
+    }
+
+    public static <K> DistinctIterator<K> newDistinct(Iterator<K> it, QueryLimits settings,
+            @Nullable SpillCodec<K> codec) {
+        return new DistinctIterator<K>(it, settings, SPILL_TO_DISK ? codec : null);
     }
     
     public static <K> Iterator<K> newLimit(Iterator<K> it, long limit) {
@@ -110,13 +188,23 @@ public class FilterIterators {
     }
     
     public static <K> Iterator<K> newSort(Iterator<K> it, Comparator<K> orderBy, int max, QueryLimits settings) {
-        return new SortIterator<K>(it, orderBy, max, settings);
+        return newSort(it, orderBy, max, settings, null);
+    }
+
+    public static <K> Iterator<K> newSort(Iterator<K> it, Comparator<K> orderBy, int max, QueryLimits settings,
+            @Nullable SpillCodec<K> codec) {
+        return new SortIterator<K>(it, orderBy, max, settings, SPILL_TO_DISK ? codec : null);
     }
 
     /**
      * An iterator that filters duplicate entries, that is, it only returns each
      * unique entry once. The internal set of unique entries is filled only when
      * needed (on demand).
+     * <p>
+     * If the set gets too large, and a codec is available, the keys of the
+     * entries returned so far are written to a temporary file, and the
+     * remaining entries are read and written to sorted runs. The remaining
+     * unique entries are then returned in the order of their keys.
      * 
      * @param <K> the entry type
      */
@@ -124,13 +212,20 @@ public class FilterIterators {
 
         private final Iterator<K> source;
         private final QueryLimits settings;
-        private final HashSet<K> distinctSet;
+        private final SpillCodec<K> codec;
+        private HashSet<K> distinctSet;
+        private Iterator<K> spilled;
         private K current;
         private boolean end;
 
         DistinctIterator(Iterator<K> source, QueryLimits settings) {
+            this(source, settings, null);
+        }
+
+        DistinctIterator(Iterator<K> source, QueryLimits settings, @Nullable SpillCodec<K> codec) {
             this.source = source;
             this.settings = settings;
+            this.codec = codec;
             distinctSet = new HashSet<K>();
         }
 
@@ -138,17 +233,82 @@ public class FilterIterators {
             if (end) {
                 return;
             }
-            while (source.hasNext()) {
-                current = source.next();
-                if (distinctSet.add(current)) {
-                    checkMemoryLimit(distinctSet.size(), settings);
+            if (spilled != null) {
+                if (spilled.hasNext()) {
+                    current = spilled.next();
                     return;
                 }
+            } else {
+                while (source.hasNext()) {
+                    current = source.next();
+                    if (distinctSet.add(current)) {
+                        if (distinctSet.size() > settings.getLimitInMemory() && codec != null) {
+                            spill();
+                        } else {
+                            checkMemoryLimit(distinctSet.size(), settings);
+                        }
+                        return;
+                    }
+                }
             }
             current = null;
             end = true;
         }
 
+        /**
+         * Write the keys of the entries returned so far, and all remaining
+         * entries, to sorted runs.
+         */
+        private void spill() {
+            long limit = settings.getLimitInMemory();
+            SortedRuns<String> runs = new SortedRuns<>(
+                    Comparator.comparing(DistinctIterator::getKey), Function.identity(), Function.identity());
+            try {
+                // the first run contains the keys of the returned entries
+                ArrayList<String> list = new ArrayList<>();
+                for (K k : distinctSet) {
+                    list.add(getDistinctKey(k));
+                }
+                LOG.info("The query read more than {} distinct entries, using temporary files", limit);
+                runs.add(list, true);
+                distinctSet = null;
+                while (source.hasNext()) {
+                    K k = source.next();
+                    String line = codec.encode(k);
+                    if (line == null) {
+                        throw new UnsupportedEntryException(k);
+                    }
+                    // new entries have both a key and a value
+                    list.add(getDistinctKey(k) + '\t' + line);
+                    if (list.size() > limit) {
+                        runs.add(list, true);
+                    }
+                }
+                runs.add(list, true);
+            } catch (IOException e) {
+                runs.close();
+                throw new UncheckedIOException("Could not write temporary file", e);
+            } catch (UnsupportedEntryException e) {
+                runs.close();
+                LOG.debug("Entries can not be written to disk", e);
+                checkMemoryLimit(limit + 1, settings);
+            }
+            spilled = new UniqueIterator<>(runs.merge(Integer.MAX_VALUE), codec);
+        }
+
+        private String getDistinctKey(K k) {
+            String key = codec.getDistinctKey(k);
+            if (key == null) {
+                throw new UnsupportedEntryException(k);
+            }
+            return key;
+        }
+
+        private static String getKey(String line) {
+            int tab = line.indexOf('\t');
+            return tab < 0 ? line : line.substring(0, tab);
+        }
+
         @Override
         public boolean hasNext() {
             if (current == null) {
@@ -181,6 +341,13 @@ public class FilterIterators {
      * An iterator that returns entries in sorted order. The internal list of
      * sorted entries can be limited to a given number of entries, and the
      * entries are only read when needed (on demand).
+     * <p>
+     * If the number of entries to keep is below the in-memory limit, a bounded
+     * heap with the smallest entries is used. Otherwise, if there are more
+     * entries than the in-memory limit and a codec is available, the entries
+     * are written to sorted runs in temporary files, which are then merged.
+     * Entries that are equal according to the comparator are returned in the
+     * order they were read.
      * 
      * @param <K> the entry type
      */
@@ -189,51 +356,118 @@ public class FilterIterators {
         private final Iterator<K> source;
         private final QueryLimits settings;
         private final Comparator<K> orderBy;
+        private final SpillCodec<K> codec;
         private Iterator<K> result;
         private final int max;
 
         SortIterator(Iterator<K> source, Comparator<K> orderBy, int max, QueryLimits settings) {
+            this(source, orderBy, max, settings, null);
+        }
+
+        SortIterator(Iterator<K> source, Comparator<K> orderBy, int max, QueryLimits settings,
+                @Nullable SpillCodec<K> codec) {
             this.source = source;
             this.orderBy = orderBy;
             this.max = max;
             this.settings = settings;
+            this.codec = codec;
         }
         
         private void init() {
             if (result != null) {
                 return;
             }
-            ArrayList<K> list = new ArrayList<K>();
+            if (max < settings.getLimitInMemory()) {
+                result = sortTopK();
+            } else {
+                result = sortAll();
+            }
+        }
+
+        /**
+         * Keep the first entries in a heap, where the largest entry is at the
+         * head. The heap is only built once there are more than max entries,
+         * so that fewer comparisons are needed for small results.
+         */
+        private Iterator<K> sortTopK() {
+            ArrayList<Entry<K>> list = new ArrayList<>();
+            PriorityQueue<Entry<K>> heap = null;
+            long seq = 0;
+            Comparator<Entry<K>> comp = (a, b) -> {
+                int c = orderBy.compare(a.value, b.value);
+                return c != 0 ? c : Long.compare(a.seq, b.seq);
+            };
             while (source.hasNext()) {
-                K x = source.next();
-                list.add(x);
-                checkMemoryLimit(list.size(), settings);
-                // from time to time, sort and truncate
-                // this should need less than O(n*log(3*keep)) operations,
-                // which is close to the optimum O(n*log(keep))
-                if (list.size() > (long) max * 2) {
-                    // remove tail entries right now, to save memory
+                Entry<K> e = new Entry<>(source.next(), seq++);
+                if (heap != null) {
+                    // only replace the head if the new entry is smaller
+                    // (if equal, the older entry is kept)
+                    if (max > 0 && orderBy.compare(e.value, heap.peek().value) < 0) {
+                        heap.poll();
+                        heap.add(e);
+                    }
+                } else if (list.size() < max) {
+                    list.add(e);
+                } else {
+                    heap = new PriorityQueue<>(Math.max(1, max), comp.reversed());
+                    heap.addAll(list);
+                    list = null;
+                    if (max > 0 && orderBy.compare(e.value, heap.peek().value) < 0) {
+                        heap.poll();
+                        heap.add(e);
+                    }
+                }
+            }
+            if (heap != null) {
+                list = new ArrayList<>(heap);
+            }
+            Collections.sort(list, comp);
+            ArrayList<K> sorted = new ArrayList<>(list.size());
+            for (Entry<K> e : list) {
+                sorted.add(e.value);
+            }
+            return sorted.iterator();
+        }
+
+        private Iterator<K> sortAll() {
+            long limit = settings.getLimitInMemory();
+            ArrayList<K> list = new ArrayList<K>();
+            SortedRuns<K> runs = null;
+            try {
+                while (source.hasNext()) {
+                    list.add(source.next());
+                    if (list.size() > limit && codec != null) {
+                        if (runs == null) {
+                            LOG.info("The query read more than {} entries to sort, using temporary files", limit);
+                            runs = new SortedRuns<>(orderBy, this::encode, codec::decode);
+                        }
+                        runs.add(list, false);
+                    } else {
+                        checkMemoryLimit(list.size(), settings);
+                    }
+                }
+                if (runs == null) {
                     Collections.sort(list, orderBy);
-                    keepFirst(list, max);
+                    return list.iterator();
                 }
+                runs.add(list, false);
+            } catch (IOException e) {
+                runs.close();
+                throw new UncheckedIOException("Could not write temporary file", e);
+            } catch (UnsupportedEntryException e) {
+                runs.close();
+                LOG.debug("Entries can not be written to disk", e);
+                checkMemoryLimit(limit + 1, settings);
             }
-            Collections.sort(list, orderBy);
-            keepFirst(list, max);
-            result = list.iterator();
+            return runs.merge(max);
         }
-        
-        /**
-         * Truncate a list.
-         * 
-         * @param list the list
-         * @param keep the maximum number of entries to keep
-         */
-        private static <K> void keepFirst(ArrayList<K> list, int keep) {
-            while (list.size() > keep) {
-                // remove the entries starting at the end, 
-                // to avoid n^2 performance
-                list.remove(list.size() - 1);
-            }        
+
+        private String encode(K k) {
+            String line = codec.encode(k);
+            if (line == null) {
+                throw new UnsupportedEntryException(k);
+            }
+            return line;
         }
 
         @Override
@@ -252,7 +486,286 @@ public class FilterIterators {
         public void remove() {
             throw new UnsupportedOperationException();
         }
-        
+
+        /**
+         * An entry with its position in the source.
+         */
+        private static class Entry<K> {
+
+            final K value;
+            final long seq;
+
+            Entry(K value, long seq) {
+                this.value = value;
+                this.seq = seq;
+            }
+
+        }
+
+    }
+
+    /**
+     * Sorted runs of entries in temporary files. The runs are written using
+     * {@link ExternalSort}, and merged on demand. Entries that are equal
+     * according to the comparator are returned in the order of the runs. The
+     * files are deleted once all entries were read, or when closing. If the
+     * client stops reading the result before that, they are deleted once the
+     * runs (and the iterator returned by {@link #merge(long)}) are no longer
+     * reachable.
+     *
+     * @param <T> the entry type
+     */
+    static class SortedRuns<T> implements Closeable {
+
+        private static final Cleaner CLEANER = Cleaner.create();
+
+        private final Comparator<T> comparator;
+        private final Function<T, String> toLine;
+        private final Function<String, T> fromLine;
+        private final ArrayList<File> files = new ArrayList<>();
+        private final TempFiles tempFiles = new TempFiles();
+        private final Cleaner.Cleanable cleanable;
+
+        SortedRuns(Comparator<T> comparator, Function<T, String> toLine, Function<String, T> fromLine) {
+            this.comparator = comparator;
+            this.toLine = toLine;
+            this.fromLine = fromLine;
+            this.cleanable = CLEANER.register(this, tempFiles);
+        }
+
+        /**
+         * Sort the entries and write them to a new run. The list is cleared.
+         *
+         * @param list the entries
+         * @param distinct whether to only write the first of equal entries
+         */
+        void add(List<T> list, boolean distinct) throws IOException {
+            if (list.isEmpty()) {
+                return;
+            }
+            files.add(ExternalSort.sortAndSave(list, comparator, StandardCharsets.UTF_8,
+                    tempFiles.getDirectory(), distinct, Compression.NONE, toLine, null));
+            list.clear();
+        }
+
+        /**
+         * Merge the runs.
+         *
+         * @param max the maximum number of entries to read, after which the
+         *            files are deleted
+         * @return an iterator over all entries, in sorted order
+         */
+        Iterator<T> merge(long max) {
+            PriorityQueue<Run<T>> queue = new PriorityQueue<>(Math.max(1, files.size()), (a, b) -> {
+                int c = comparator.compare(a.current, b.current);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            try {
+                for (File f : files) {
+                    BufferedReader r = new BufferedReader(new InputStreamReader(
+                            new FileInputStream(f), StandardCharsets.UTF_8));
+                    Run<T> run = new Run<>(tempFiles.addReader(r), r);
+                    if (run.next(fromLine)) {
+                        queue.add(run);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Could not read temporary file", e);
+            }
+            if (queue.isEmpty()) {
+                close();
+            }
+            return new Iterator<T>() {
+
+                private long count;
+
+                @Override
+                public boolean hasNext() {
+                    return !queue.isEmpty() && count < max;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Run<T> run = queue.poll();
+                    T value = run.current;
+                    try {
+                        if (run.next(fromLine)) {
+                            queue.add(run);
+                        }
+                    } catch (IOException e) {
+                        close();
+                        throw new UncheckedIOException("Could not read temporary file", e);
+                    }
+                    if (++count >= max || queue.isEmpty()) {
+                        queue.clear();
+                        close();
+                    }
+                    return value;
+                }
+
+            };
+        }
+
+        @Override
+        public void close() {
+            cleanable.clean();
+        }
+
+        /**
+         * @return the action run by the cleaner once the runs are unreachable
+         */
+        Runnable getCleanupAction() {
+            return tempFiles;
+        }
+
+        /**
+         * @return the temporary directory, or null if no run was written yet
+         */
+        @Nullable
+        File getDirectory() {
+            return tempFiles.getExistingDirectory();
+        }
+
+        /**
+         * The temporary directory and the open readers of the runs. This must
+         * not reference the runs, so that it can clean up after them once
+         * they are unreachable.
+         */
+        private static class TempFiles implements Runnable {
+
+            private final ArrayList<BufferedReader> readers = new ArrayList<>();
+            private File dir;
+
+            synchronized File getExistingDirectory() {
+                return dir;
+            }
+
+            synchronized File getDirectory() throws IOException {
+                if (dir == null) {
+                    dir = Files.createTempDirectory("oak-query-sort-").toFile();
+                }
+                return dir;
+            }
+
+            /**
+             * Add a reader to be closed.
+             *
+             * @return the index of the reader
+             */
+            synchronized int addReader(BufferedReader reader) {
+                readers.add(reader);
+                return readers.size() - 1;
+            }
+
+            /**
+             * Close the readers, and delete the directory with all runs.
+             */
+            @Override
+            public synchronized void run() {
+                for (BufferedReader r : readers) {
+                    try {
+                        r.close();
+                    } catch (IOException e) {
+                        LOG.debug("Could not close temporary file", e);
+                    }
+                }
+                readers.clear();
+                if (dir != null) {
+                    FileUtils.deleteQuietly(dir);
+                    dir = null;
+                }
+            }
+
+        }
+
+        /**
+         * The current entry of a run.
+         */
+        private static class Run<T> {
+
+            final int index;
+            final BufferedReader reader;
+            T current;
+
+            Run(int index, BufferedReader reader) {
+                this.index = index;
+                this.reader = reader;
+            }
+
+            boolean next(Function<String, T> fromLine) throws IOException {
+                String line = reader.readLine();
+                current = line == null ? null : fromLine.apply(line);
+                return line != null;
+            }
+
+        }
+
+    }
+
+    /**
+     * Thrown if an entry can not be written to disk.
+     */
+    private static class UnsupportedEntryException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedEntryException(Object entry) {
+            super("Unsupported entry: " + entry);
+        }
+
+    }
+
+    /**
+     * Returns the new entries of merged runs of a {@link DistinctIterator}:
+     * only the first entry of each key, and only if the key was not returned
+     * before (the keys of returned entries are in the first run, without
+     * value).
+     *
+     * @param <K> the entry type
+     */
+    private static class UniqueIterator<K> implements Iterator<K> {
+
+        private final Iterator<String> source;
+        private final SpillCodec<K> codec;
+        private String lastKey;
+        private K current;
+
+        UniqueIterator(Iterator<String> source, SpillCodec<K> codec) {
+            this.source = source;
+            this.codec = codec;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current == null && source.hasNext()) {
+                String line = source.next();
+                int tab = line.indexOf('\t');
+                String key = tab < 0 ? line : line.substring(0, tab);
+                if (key.equals(lastKey)) {
+                    continue;
+                }
+                lastKey = key;
+                if (tab >= 0) {
+                    current = codec.decode(line.substring(tab + 1));
+                }
+            }
+            return current != null;
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K k = current;
+            current = null;
+            return k;
+        }
+
     }
     
     /**
@@ -100,6 +100,7 @@ import org.apache.jackrabbit.oak.stats.HistogramStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -624,7 +625,8 @@ public class QueryImpl implements Query {
         long localLimit = limit.orElse(Long.MAX_VALUE);
         long localOffset = offset.orElse(0L);
         Iterator<ResultRowImpl> it =
-                FilterIterators.newCombinedFilter(rowIt, distinct, localLimit, localOffset, orderBy, settings);
+                FilterIterators.newCombinedFilter(rowIt, distinct, localLimit, localOffset, orderBy, settings,
+                        ResultRowImpl.getSpillCodec(this, distinctColumns));
         if (orderBy != null) {
             // this will force the rows to be read, so that the size is known
             it.hasNext();
@@ -1072,6 +1074,27 @@ public class QueryImpl implements Query {
                 context.getIndexProvider(), traversalEnabled);
     }
 
+    /**
+     * Get the best execution plan for the given filter, but only if the plan
+     * is not potentially slow. Unlike
+     * {@link #getBestSelectorExecutionPlan(FilterImpl)}, this does not change
+     * whether the query is considered potentially slow. This is used to
+     * evaluate alternative plans, such as the build side of a hash join.
+     *
+     * @param filter the filter
+     * @return the plan, or null if there is only a potentially slow plan
+     */
+    @Nullable
+    public SelectorExecutionPlan getBestFastSelectorExecutionPlan(FilterImpl filter) {
+        boolean slow = potentiallySlowTraversalQuery;
+        try {
+            SelectorExecutionPlan p = getBestSelectorExecutionPlan(filter);
+            return potentiallySlowTraversalQuery || p.getIndex() == null ? null : p;
+        } finally {
+            potentiallySlowTraversalQuery = slow;
+        }
+    }
+
     private SelectorExecutionPlan getBestSelectorExecutionPlan(
             NodeState rootState, FilterImpl filter,
             QueryIndexProvider indexProvider, boolean traversalEnabled) {
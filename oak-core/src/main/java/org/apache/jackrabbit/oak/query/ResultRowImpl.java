@@ -16,16 +16,26 @@
  */
 package org.apache.jackrabbit.oak.query;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
+import javax.jcr.PropertyType;
+
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.ResultRow;
 import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.commons.json.JsopReader;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+import org.apache.jackrabbit.oak.query.FilterIterators.SpillCodec;
 import org.apache.jackrabbit.oak.query.ast.ColumnImpl;
 import org.apache.jackrabbit.oak.query.ast.OrderingImpl;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
 import org.apache.jackrabbit.oak.spi.query.QueryConstants;
 
@@ -265,6 +275,169 @@ public class ResultRowImpl implements ResultRow {
 
     }
 
+    /**
+     * Get a codec to write rows of the given query to disk. Rows are written
+     * as JSON arrays, with the paths of the trees, the column values, and the
+     * order values. Trees are read again using the query. Rows with binary
+     * values are not supported.
+     *
+     * @param query the query
+     * @param distinctValues which values are used for comparing rows
+     * @return the codec
+     */
+    static SpillCodec<ResultRowImpl> getSpillCodec(Query query, boolean[] distinctValues) {
+        return new SpillCodec<ResultRowImpl>() {
+
+            @Override
+            public String encode(ResultRowImpl row) {
+                JsopBuilder buff = new JsopBuilder();
+                buff.array();
+                writePaths(buff, row.getPaths());
+                if (!writeValues(buff, row.values, null) ||
+                        !writeValues(buff, row.orderValues, null)) {
+                    return null;
+                }
+                buff.endArray();
+                return buff.toString();
+            }
+
+            @Override
+            public ResultRowImpl decode(String line) {
+                JsopTokenizer t = new JsopTokenizer(line);
+                t.read('[');
+                List<String> paths = readPaths(t);
+                t.read(',');
+                PropertyValue[] values = readValues(t);
+                t.read(',');
+                PropertyValue[] orderValues = readValues(t);
+                t.read(']');
+                Tree[] trees = new Tree[paths.size()];
+                for (int i = 0; i < trees.length; i++) {
+                    String p = paths.get(i);
+                    trees[i] = p == null ? null : query.getTree(p);
+                }
+                return new ResultRowImpl(query, trees, values, distinctValues, orderValues);
+            }
+
+            @Override
+            public String getDistinctKey(ResultRowImpl row) {
+                JsopBuilder buff = new JsopBuilder();
+                buff.array();
+                writePaths(buff, row.getPaths());
+                if (!writeValues(buff, row.values, row.distinctValues)) {
+                    return null;
+                }
+                buff.endArray();
+                return buff.toString();
+            }
+
+        };
+    }
+
+    private static void writePaths(JsopBuilder buff, String[] paths) {
+        buff.array();
+        for (String p : paths) {
+            if (p == null) {
+                buff.encodedValue("null");
+            } else {
+                buff.value(p);
+            }
+        }
+        buff.endArray();
+    }
+
+    private static List<String> readPaths(JsopTokenizer t) {
+        List<String> paths = new ArrayList<>();
+        t.read('[');
+        if (!t.matches(']')) {
+            do {
+                paths.add(t.matches(JsopReader.NULL) ? null : t.readString());
+            } while (t.matches(','));
+            t.read(']');
+        }
+        return paths;
+    }
+
+    /**
+     * Write the values as an array. Each value is either null, or an array of
+     * the type (negative for multi-valued properties) and the values as
+     * strings.
+     *
+     * @param buff the target
+     * @param values the values, or null
+     * @param filter which values to write (null for all)
+     * @return false if a value can not be written
+     */
+    private static boolean writeValues(JsopBuilder buff, PropertyValue[] values, boolean[] filter) {
+        if (values == null) {
+            buff.encodedValue("null");
+            return true;
+        }
+        buff.array();
+        for (int i = 0; i < values.length; i++) {
+            if (filter != null && !filter[i]) {
+                continue;
+            }
+            PropertyValue v = values[i];
+            if (v == null) {
+                buff.encodedValue("null");
+                continue;
+            }
+            int tag = v.getType().tag();
+            if (tag == PropertyType.BINARY || tag == PropertyType.UNDEFINED) {
+                return false;
+            }
+            buff.array();
+            buff.value(v.isArray() ? -tag : tag);
+            if (v.isArray()) {
+                for (int j = 0; j < v.count(); j++) {
+                    buff.value(v.getValue(Type.STRING, j));
+                }
+            } else {
+                buff.value(v.getValue(Type.STRING));
+            }
+            buff.endArray();
+        }
+        buff.endArray();
+        return true;
+    }
+
+    private static PropertyValue[] readValues(JsopTokenizer t) {
+        if (t.matches(JsopReader.NULL)) {
+            return null;
+        }
+        List<PropertyValue> values = new ArrayList<>();
+        t.read('[');
+        if (!t.matches(']')) {
+            do {
+                values.add(readValue(t));
+            } while (t.matches(','));
+            t.read(']');
+        }
+        return values.toArray(new PropertyValue[0]);
+    }
+
+    private static PropertyValue readValue(JsopTokenizer t) {
+        if (t.matches(JsopReader.NULL)) {
+            return null;
+        }
+        t.read('[');
+        int tag = Integer.parseInt(t.read(JsopReader.NUMBER));
+        List<String> strings = new ArrayList<>();
+        while (t.matches(',')) {
+            strings.add(t.readString());
+        }
+        t.read(']');
+        if (tag < 0) {
+            Type<?> type = Type.fromTag(-tag, true);
+            return PropertyValues.create(PropertyStates.convert(
+                    PropertyStates.createProperty("", strings, Type.STRINGS), type));
+        }
+        Type<?> type = Type.fromTag(tag, false);
+        return PropertyValues.create(PropertyStates.convert(
+                PropertyStates.createProperty("", strings.get(0), Type.STRING), type));
+    }
+
     static ResultRowImpl getMappingResultRow(ResultRowImpl delegate, final Map<String, String> columnToFacetMap) {
         if (columnToFacetMap.size() == 0) {
             return delegate;
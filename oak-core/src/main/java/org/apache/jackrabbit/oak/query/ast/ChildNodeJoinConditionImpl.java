@@ -18,6 +18,8 @@
  */
 package org.apache.jackrabbit.oak.query.ast;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 import org.apache.jackrabbit.oak.commons.PathUtils;
@@ -103,6 +105,26 @@ public class ChildNodeJoinConditionImpl extends JoinConditionImpl {
         return available.contains(childSelector) && available.contains(parentSelector);
     }
 
+    @Override
+    public boolean supportsHashJoin(SelectorImpl buildSide) {
+        return buildSide.equals(childSelector) || buildSide.equals(parentSelector);
+    }
+
+    @Override
+    public Collection<String> getHashJoinKeys(SelectorImpl buildSide, boolean build) {
+        // the key is the path of the parent
+        boolean child = buildSide.equals(childSelector) == build;
+        if (child) {
+            String c = childSelector.currentPath();
+            if (c == null || PathUtils.denotesRoot(c)) {
+                return Collections.emptySet();
+            }
+            return Collections.singleton(PathUtils.getParentPath(c));
+        }
+        String p = parentSelector.currentPath();
+        return p == null ? Collections.emptySet() : Collections.singleton(p);
+    }
+
     @Override
     public AstElement copyOf() {
         return new ChildNodeJoinConditionImpl(childSelectorName, parentSelectorName);
@@ -18,9 +18,16 @@
  */
 package org.apache.jackrabbit.oak.query.ast;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
+import javax.jcr.PropertyType;
+
 import org.apache.jackrabbit.oak.api.PropertyValue;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.query.index.FilterImpl;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
 
@@ -172,6 +179,40 @@ public class EquiJoinConditionImpl extends JoinConditionImpl {
         return available.contains(selector1) && available.contains(selector2);
     }
 
+    @Override
+    public boolean supportsHashJoin(SelectorImpl buildSide) {
+        return buildSide.equals(selector1) || buildSide.equals(selector2);
+    }
+
+    @Override
+    public Collection<String> getHashJoinKeys(SelectorImpl buildSide, boolean build) {
+        boolean first = buildSide.equals(selector1) == build;
+        PropertyValue p = first ?
+                selector1.currentProperty(property1Name) :
+                selector2.currentProperty(property2Name);
+        if (p == null) {
+            // rows without the property never match
+            return Collections.emptySet();
+        }
+        switch (p.getType().tag()) {
+        case PropertyType.STRING:
+        case PropertyType.NAME:
+        case PropertyType.PATH:
+        case PropertyType.REFERENCE:
+        case PropertyType.WEAKREFERENCE:
+        case PropertyType.URI:
+            List<String> keys = new ArrayList<>();
+            for (String v : p.getValue(Type.STRINGS)) {
+                keys.add(v);
+            }
+            return keys;
+        default:
+            // values of other types are converted before they are compared,
+            // so that equal values may have different string representations
+            return null;
+        }
+    }
+
     @Override
     public AstElement copyOf() {
         return new EquiJoinConditionImpl(selector1Name, property1Name, selector2Name, property2Name);
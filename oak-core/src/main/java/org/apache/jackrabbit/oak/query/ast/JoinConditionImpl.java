@@ -13,9 +13,11 @@
  */
 package org.apache.jackrabbit.oak.query.ast;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.apache.jackrabbit.oak.query.index.FilterImpl;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * The base class for join conditions.
@@ -81,4 +83,34 @@ public abstract class JoinConditionImpl extends AstElement {
      */
     public abstract boolean canEvaluate(Set<SourceImpl> available);
 
+    /**
+     * Whether this join condition can be evaluated with a hash join, where
+     * the rows of the given selector are read first and grouped by their
+     * {@link #getHashJoinKeys(SelectorImpl, boolean) keys}.
+     *
+     * @param buildSide the selector that is read first
+     * @return true if a hash join is supported
+     */
+    public boolean supportsHashJoin(SelectorImpl buildSide) {
+        return false;
+    }
+
+    /**
+     * Get the hash join keys of the current row of the build side selector,
+     * or of the other selector of this join condition. Two rows can only
+     * match if they have at least one key in common. Matching keys do not
+     * guarantee a match, so the condition still needs to be evaluated.
+     *
+     * @param buildSide the selector that is read first
+     * @param build whether to get the keys of the build side selector or of
+     *            the other selector
+     * @return the keys (empty if the row can not match any row), or null if
+     *         the keys are unknown and the row needs to be compared with all
+     *         rows of the other selector
+     */
+    @Nullable
+    public Collection<String> getHashJoinKeys(SelectorImpl buildSide, boolean build) {
+        return null;
+    }
+
 }
@@ -16,19 +16,55 @@ package org.apache.jackrabbit.oak.query.ast;
 import static org.apache.jackrabbit.oak.query.ast.AstElementFactory.copyElementAndCheckReference;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.jackrabbit.oak.api.Result.SizePrecision;
 import org.apache.jackrabbit.oak.query.plan.ExecutionPlan;
 import org.apache.jackrabbit.oak.query.plan.JoinExecutionPlan;
+import org.apache.jackrabbit.oak.query.plan.JoinExecutionPlan.Strategy;
+import org.apache.jackrabbit.oak.query.plan.SelectorExecutionPlan;
 import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.IndexRow;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.IndexPlan;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A join. This object contains the left hand side source, the right hand side
  * source, the join type, and the join condition.
+ * <p>
+ * By default, a nested loop join is used: for each row of the left hand side,
+ * the right hand side is executed, restricted by the join condition. If the
+ * right hand side is a selector, and the join condition supports it, a hash
+ * join may be used instead: the right hand side is executed only once,
+ * without restriction from the join condition, and the rows are kept in
+ * memory, grouped by their join keys. The strategy with the lower estimated
+ * cost is used. If the right hand side returns more rows than expected, the
+ * hash join falls back to a nested loop join.
  */
 public class JoinImpl extends SourceImpl {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JoinImpl.class);
+
+    /**
+     * Whether hash joins may be used.
+     */
+    static final boolean HASH_JOIN_ENABLED =
+            Boolean.parseBoolean(System.getProperty("oak.query.hashJoin", "true"));
+
+    /**
+     * The maximum number of rows of the right hand side of a hash join that
+     * are kept in memory (the lower of this value and the in-memory limit of
+     * the query engine is used).
+     */
+    static final long HASH_JOIN_MAX_ROWS = Long.getLong("oak.query.hashJoinMaxRows", 100000);
+
     private final JoinConditionImpl joinCondition;
     private JoinType joinType;
     private SourceImpl left;
@@ -42,6 +78,19 @@ public class JoinImpl extends SourceImpl {
     
     private JoinExecutionPlan plan;
 
+    /**
+     * The hash table of the right hand side, if a hash join is used and the
+     * right hand side was read.
+     */
+    private HashTable hashTable;
+
+    /**
+     * The rows of the right hand side that match the current row of the left
+     * hand side (hash join only).
+     */
+    private int[] candidates;
+    private int candidateIndex;
+
     public JoinImpl(SourceImpl left, SourceImpl right, JoinType joinType,
             JoinConditionImpl joinCondition) {
         this.left = left;
@@ -107,6 +156,9 @@ public class JoinImpl extends SourceImpl {
             append(right.getPlan(rootState)).
             append(" on ").
             append(joinCondition);
+        if (isHashJoin()) {
+            buff.append(" /* hash join */");
+        }
         return buff.toString();
     }
 
@@ -133,6 +185,8 @@ public class JoinImpl extends SourceImpl {
         left.unprepare();
         right.unprepare();
         plan = null;
+        hashTable = null;
+        candidates = null;
     }
     
     private void applyJoinConditions() {
@@ -176,6 +230,9 @@ public class JoinImpl extends SourceImpl {
         applyJoinConditions();
         left.prepare(joinPlan.getLeftPlan());
         right.prepare(joinPlan.getRightPlan());
+        if (joinPlan.getStrategy() == Strategy.HASH) {
+            ((SelectorImpl) right).setHashJoinBuildSide(true);
+        }
     }
 
     @Override
@@ -192,9 +249,59 @@ public class JoinImpl extends SourceImpl {
         ExecutionPlan rightPlan = right.prepare();
         double cost = leftPlan.getEstimatedCost() + 2 * rightPlan.getEstimatedCost();
         plan = new JoinExecutionPlan(this, leftPlan, rightPlan, cost);
+        if (canUseHashJoin()) {
+            // the nested loop join executes the right hand side once per row
+            // of the left hand side, while the hash join executes it once
+            // (without restrictions from the join condition)
+            SelectorImpl r = (SelectorImpl) right;
+            SelectorExecutionPlan hashPlan = r.prepareHashJoinBuildSide();
+            if (hashPlan != null && estimateRows(hashPlan) <= getHashJoinMaxRows()) {
+                double leftCost = leftPlan.getEstimatedCost();
+                double nestedLoopCost = leftCost +
+                        Math.max(1, estimateRows(leftPlan)) * rightPlan.getEstimatedCost();
+                double hashCost = leftCost + hashPlan.getEstimatedCost();
+                if (hashCost < nestedLoopCost) {
+                    r.setHashJoinBuildSidePlan(hashPlan);
+                    plan = new JoinExecutionPlan(this, leftPlan, hashPlan,
+                            Math.min(cost, hashCost), Strategy.HASH);
+                }
+            }
+        }
         return plan;
     }
 
+    private boolean canUseHashJoin() {
+        return HASH_JOIN_ENABLED &&
+                (joinType == JoinType.INNER || joinType == JoinType.LEFT_OUTER) &&
+                right instanceof SelectorImpl &&
+                joinCondition.supportsHashJoin((SelectorImpl) right);
+    }
+
+    private boolean isHashJoin() {
+        return plan != null && plan.getStrategy() == Strategy.HASH;
+    }
+
+    private long getHashJoinMaxRows() {
+        return Math.min(HASH_JOIN_MAX_ROWS, right.query.getSettings().getLimitInMemory());
+    }
+
+    /**
+     * Estimate the number of rows returned when executing the plan.
+     *
+     * @param p the plan
+     * @return the estimated number of rows
+     */
+    private static double estimateRows(ExecutionPlan p) {
+        if (p instanceof SelectorExecutionPlan) {
+            IndexPlan indexPlan = ((SelectorExecutionPlan) p).getIndexPlan();
+            if (indexPlan != null) {
+                return indexPlan.getEstimatedEntryCount();
+            }
+        }
+        // the cost is roughly proportional to the number of rows
+        return p.getEstimatedCost();
+    }
+
     @Override
     public SelectorImpl getSelector(String selectorName) {
         SelectorImpl s = left.getSelector(selectorName);
@@ -241,10 +348,18 @@ public class JoinImpl extends SourceImpl {
             return false;
         }
         if (leftNeedExecute) {
+            if (isHashJoin() && hashTable == null) {
+                // before executing the left hand side, as the fallback
+                // needs to plan the right hand side again
+                buildHashTable();
+            }
             left.execute(rootState);
             leftNeedExecute = false;
             leftNeedNext = true;
         }
+        if (hashTable != null) {
+            return nextHashJoin();
+        }
         while (true) {
             if (leftNeedNext) {
                 if (!left.next()) {
@@ -275,6 +390,59 @@ public class JoinImpl extends SourceImpl {
         }
     }
     
+    /**
+     * Read all rows of the right hand side into the hash table. If there are
+     * too many rows, the right hand side is switched to the nested loop join.
+     */
+    private void buildHashTable() {
+        SelectorImpl r = (SelectorImpl) right;
+        long maxRows = getHashJoinMaxRows();
+        HashTable table = new HashTable();
+        r.execute(rootState);
+        while (r.next()) {
+            if (table.rows.size() >= maxRows) {
+                LOG.debug("Hash join: more than {} rows for {}, using a nested loop join", maxRows, r);
+                r.disableHashJoinBuildSide();
+                plan = new JoinExecutionPlan(this, plan.getLeftPlan(),
+                        r.getExecutionPlan(), plan.getEstimatedCost());
+                return;
+            }
+            table.add(r.getCurrentIndexRow(), joinCondition.getHashJoinKeys(r, true));
+        }
+        hashTable = table;
+    }
+
+    private boolean nextHashJoin() {
+        SelectorImpl r = (SelectorImpl) right;
+        while (true) {
+            if (leftNeedNext) {
+                if (!left.next()) {
+                    r.setCurrentIndexRow(null);
+                    end = true;
+                    return false;
+                }
+                leftNeedNext = false;
+                foundJoinedRow = false;
+                candidates = hashTable.lookup(joinCondition.getHashJoinKeys(r, false));
+                candidateIndex = 0;
+            }
+            while (candidateIndex < candidates.length) {
+                r.setCurrentIndexRow(hashTable.rows.get(candidates[candidateIndex++]));
+                if (joinCondition.evaluate()) {
+                    foundJoinedRow = true;
+                    return true;
+                }
+            }
+            leftNeedNext = true;
+            r.setCurrentIndexRow(null);
+            // for an outer join, if no matching result was found,
+            // one row returned (with all values set to null)
+            if (right.isOuterJoinRightHandSide() && !foundJoinedRow) {
+                return true;
+            }
+        }
+    }
+
     @Override
     public boolean isOuterJoinRightHandSide() {
         return left.isOuterJoinRightHandSide() || right.isOuterJoinRightHandSide();
@@ -295,4 +463,66 @@ public class JoinImpl extends SourceImpl {
             (JoinConditionImpl) copyElementAndCheckReference(joinCondition)
             );
     }
+
+    /**
+     * The rows of the right hand side of a hash join, grouped by key.
+     */
+    private static class HashTable {
+
+        private static final int[] EMPTY = new int[0];
+
+        final ArrayList<IndexRow> rows = new ArrayList<>();
+
+        /**
+         * The row indexes by key.
+         */
+        private final Map<String, List<Integer>> rowsByKey = new HashMap<>();
+
+        /**
+         * The indexes of the rows with unknown keys, which need to be
+         * compared with all rows of the left hand side.
+         */
+        private final List<Integer> unknownKeys = new ArrayList<>();
+
+        void add(IndexRow row, Collection<String> keys) {
+            Integer index = rows.size();
+            rows.add(row);
+            if (keys == null) {
+                unknownKeys.add(index);
+                return;
+            }
+            for (String k : keys) {
+                List<Integer> list = rowsByKey.computeIfAbsent(k, x -> new ArrayList<>(1));
+                // a row could have the same key multiple times
+                if (list.isEmpty() || !list.get(list.size() - 1).equals(index)) {
+                    list.add(index);
+                }
+            }
+        }
+
+        /**
+         * Get the indexes of the rows that may match any of the given keys, in
+         * the order the rows were read.
+         *
+         * @param keys the keys, or null if unknown (in which case all rows
+         *            are returned)
+         * @return the row indexes
+         */
+        int[] lookup(Collection<String> keys) {
+            if (keys == null) {
+                int[] all = new int[rows.size()];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+            BitSet set = new BitSet();
+            for (String k : keys) {
+                List<Integer> list = rowsByKey.get(k);
+                if (list != null) {
+                    list.forEach(set::set);
+                }
+            }
+            unknownKeys.forEach(set::set);
+            return set.isEmpty() ? EMPTY : set.stream().toArray();
+        }
+    }
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.jackrabbit.oak.query.ast;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 import org.apache.jackrabbit.oak.commons.PathUtils;
@@ -126,4 +128,27 @@ public class SameNodeJoinConditionImpl extends JoinConditionImpl {
         return available.contains(selector1) && available.contains(selector2);
     }
 
+    @Override
+    public boolean supportsHashJoin(SelectorImpl buildSide) {
+        return buildSide.equals(selector1) || buildSide.equals(selector2);
+    }
+
+    @Override
+    public Collection<String> getHashJoinKeys(SelectorImpl buildSide, boolean build) {
+        // the key is the path of the node of selector 1
+        boolean first = buildSide.equals(selector1) == build;
+        if (first) {
+            String p1 = selector1.currentPath();
+            return p1 == null ? Collections.emptySet() : Collections.singleton(p1);
+        }
+        String p2 = selector2.currentPath();
+        if (p2 == null) {
+            return Collections.emptySet();
+        }
+        if (selector2Path.equals(".")) {
+            return Collections.singleton(p2);
+        }
+        return Collections.singleton(PathUtils.concat(p2, normalizePath(selector2Path)));
+    }
+
 }
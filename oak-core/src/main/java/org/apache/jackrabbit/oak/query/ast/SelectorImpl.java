@@ -164,6 +164,15 @@ public class SelectorImpl extends SourceImpl {
     private ArrayList<JoinConditionImpl> allJoinConditions =
             new ArrayList<JoinConditionImpl>();
 
+    /**
+     * Whether this selector is the build side of a hash join. The rows of
+     * the build side are read before the rows of the other side of the join,
+     * so the join condition is neither used to restrict the filter nor
+     * evaluated for the rows of this selector. Instead, the join evaluates it
+     * when combining the rows.
+     */
+    private boolean hashJoinBuildSide;
+
     /**
      * The selector constraints can be evaluated when the given selector is
      * evaluated. For example, for the query
@@ -175,6 +184,7 @@ public class SelectorImpl extends SourceImpl {
     private final List<ConstraintImpl> selectorConstraints = new ArrayList<>();
 
     private Cursor cursor;
+    private Cursor replayCursor;
     private IndexRow currentRow;
     private int scanCount;
 
@@ -276,6 +286,7 @@ public class SelectorImpl extends SourceImpl {
         isParent = false;
         joinCondition = null;
         allJoinConditions.clear();
+        hashJoinBuildSide = false;
     }
 
     @Override
@@ -316,6 +327,81 @@ public class SelectorImpl extends SourceImpl {
         return plan;
     }
 
+    /**
+     * Get the best execution plan for this selector if it is used as the
+     * build side of a hash join, that is, without restrictions from the join
+     * condition. The selector must already be prepared. The plan of this
+     * selector is not changed.
+     *
+     * @return the plan, or null if there is only a potentially slow plan
+     */
+    @Nullable
+    SelectorExecutionPlan prepareHashJoinBuildSide() {
+        boolean old = hashJoinBuildSide;
+        hashJoinBuildSide = true;
+        try {
+            return query.getBestFastSelectorExecutionPlan(createFilter(true));
+        } finally {
+            hashJoinBuildSide = old;
+        }
+    }
+
+    /**
+     * Use this selector as the build side of a hash join, with the given plan.
+     *
+     * @param p the plan returned by {@link #prepareHashJoinBuildSide()}
+     */
+    void setHashJoinBuildSidePlan(SelectorExecutionPlan p) {
+        hashJoinBuildSide = true;
+        plan = p;
+    }
+
+    /**
+     * Stop using this selector as the build side of a hash join, and use the
+     * best plan that is restricted by the join condition instead. This is
+     * used if the build side has too many rows.
+     */
+    void disableHashJoinBuildSide() {
+        hashJoinBuildSide = false;
+        plan = query.getBestSelectorExecutionPlan(createFilter(true));
+    }
+
+    /**
+     * Set whether this selector is the build side of a hash join.
+     *
+     * @param hashJoinBuildSide the new value
+     */
+    void setHashJoinBuildSide(boolean hashJoinBuildSide) {
+        this.hashJoinBuildSide = hashJoinBuildSide;
+    }
+
+    /**
+     * Get the current row.
+     *
+     * @return the current row, or null
+     */
+    IndexRow getCurrentIndexRow() {
+        return cursor == null ? null : currentRow;
+    }
+
+    /**
+     * Set the current row to a row that was read before, so that the values
+     * of the row can be read again. This is used by hash joins.
+     *
+     * @param row the row, or null to reset the current row
+     */
+    void setCurrentIndexRow(@Nullable IndexRow row) {
+        if (row == null) {
+            cursor = null;
+        } else {
+            if (replayCursor == null) {
+                replayCursor = Cursors.newPathCursor(Collections.emptyList(), query.getSettings());
+            }
+            cursor = replayCursor;
+        }
+        currentRow = row;
+    }
+
     @Override
     public void setQueryConstraint(ConstraintImpl queryConstraint) {
         this.queryConstraint = queryConstraint;
@@ -467,7 +553,7 @@ public class SelectorImpl extends SourceImpl {
     public FilterImpl createFilter(boolean preparing) {
         FilterImpl f = new FilterImpl(this, query.getStatement(), query.getSettings());
         f.setPreparing(preparing);
-        if (joinCondition != null) {
+        if (joinCondition != null && !hashJoinBuildSide) {
             joinCondition.restrict(f);
         }
         // rep:excerpt handling: create a (fake) restriction
@@ -607,7 +693,7 @@ public class SelectorImpl extends SourceImpl {
                 return false;
             }
         }
-        if (joinCondition != null && !joinCondition.evaluate()) {
+        if (joinCondition != null && !hashJoinBuildSide && !joinCondition.evaluate()) {
             return false;
         }
         return true;
@@ -24,15 +24,41 @@ import org.apache.jackrabbit.oak.query.ast.JoinImpl;
  */
 public class JoinExecutionPlan implements ExecutionPlan {
 
+    /**
+     * How the rows of the left and right hand side are combined.
+     */
+    public enum Strategy {
+
+        /**
+         * For each row of the left hand side, the right hand side is executed,
+         * restricted by the join condition.
+         */
+        NESTED_LOOP,
+
+        /**
+         * The right hand side is executed once, without restrictions from the
+         * join condition, and its rows are kept in a hash table. For each row
+         * of the left hand side, the matching rows are looked up.
+         */
+        HASH
+    }
+
     private final JoinImpl join;
     private final ExecutionPlan leftPlan, rightPlan;
     private final double estimatedCost;
+    private final Strategy strategy;
     
     public JoinExecutionPlan(JoinImpl join, ExecutionPlan leftPlan, ExecutionPlan rightPlan, double estimatedCost) {
+        this(join, leftPlan, rightPlan, estimatedCost, Strategy.NESTED_LOOP);
+    }
+
+    public JoinExecutionPlan(JoinImpl join, ExecutionPlan leftPlan, ExecutionPlan rightPlan, double estimatedCost,
+            Strategy strategy) {
         this.join = join;
         this.leftPlan = leftPlan;
         this.rightPlan = rightPlan;
         this.estimatedCost = estimatedCost;
+        this.strategy = strategy;
     }
     
     @Override
@@ -52,4 +78,8 @@ public class JoinExecutionPlan implements ExecutionPlan {
         return rightPlan;
     }
 
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
 }
@@ -39,6 +39,7 @@ import org.apache.jackrabbit.oak.security.authorization.permission.PermissionPro
 import org.apache.jackrabbit.oak.security.authorization.permission.PermissionStoreValidatorProvider;
 import org.apache.jackrabbit.oak.security.authorization.permission.PermissionUtil;
 import org.apache.jackrabbit.oak.security.authorization.permission.PermissionValidatorProvider;
+import org.apache.jackrabbit.oak.security.authorization.permission.SharedPermissionEntryCache;
 import org.apache.jackrabbit.oak.security.authorization.restriction.RestrictionProviderImpl;
 import org.apache.jackrabbit.oak.spi.commit.CommitHook;
 import org.apache.jackrabbit.oak.spi.commit.MoveTracker;
@@ -63,6 +64,7 @@ import org.apache.jackrabbit.oak.spi.xml.ProtectedItemImporter;
 import org.apache.jackrabbit.oak.stats.Monitor;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -122,12 +124,19 @@ public class AuthorizationConfigurationImpl extends ConfigurationBase implements
                 name = "Ranking",
                 description = "Ranking of this configuration in a setup with multiple authorization configurations.")
         int configurationRanking() default 100;
+
+        @AttributeDefinition(
+                name = "Shared Permission Cache Size",
+                description = "Maximal number of permission entries kept in the cache shared by all sessions. A value of 0 disables the shared cache.")
+        long sharedPermissionCacheSize() default SharedPermissionEntryCache.DEFAULT_SHARED_CACHE_SIZE;
     }
 
     private MountInfoProvider mountInfoProvider = Mounts.defaultMountInfoProvider();
 
     private AuthorizationMonitor monitor = new AuthorizationMonitorImpl(StatisticsProvider.NOOP);
 
+    private volatile SharedPermissionEntryCache sharedPermissionEntryCache;
+
     public AuthorizationConfigurationImpl() {
         super();
     }
@@ -242,6 +251,27 @@ public class AuthorizationConfigurationImpl extends ConfigurationBase implements
         return monitor;
     }
 
+    @Nullable
+    @Override
+    public SharedPermissionEntryCache getSharedPermissionEntryCache() {
+        SharedPermissionEntryCache cache = sharedPermissionEntryCache;
+        if (cache == null) {
+            long size = getParameters().getConfigValue(SharedPermissionEntryCache.PARAM_SHARED_CACHE_SIZE,
+                    SharedPermissionEntryCache.DEFAULT_SHARED_CACHE_SIZE);
+            if (size <= 0) {
+                return null;
+            }
+            synchronized (this) {
+                cache = sharedPermissionEntryCache;
+                if (cache == null) {
+                    cache = new SharedPermissionEntryCache(getTreeProvider(), size);
+                    sharedPermissionEntryCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     //--------------------------------------------------------------------------
     @Reference(name = "mountInfoProvider", cardinality = ReferenceCardinality.MANDATORY)
     public void bindMountInfoProvider(MountInfoProvider mountInfoProvider) {
@@ -19,9 +19,11 @@ package org.apache.jackrabbit.oak.security.authorization;
 import org.apache.jackrabbit.oak.plugins.tree.RootProvider;
 import org.apache.jackrabbit.oak.plugins.tree.TreeProvider;
 import org.apache.jackrabbit.oak.security.authorization.monitor.AuthorizationMonitor;
+import org.apache.jackrabbit.oak.security.authorization.permission.SharedPermissionEntryCache;
 import org.apache.jackrabbit.oak.spi.mount.MountInfoProvider;
 import org.apache.jackrabbit.oak.spi.security.SecurityProvider;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface ProviderCtx {
 
@@ -39,4 +41,13 @@ public interface ProviderCtx {
 
     @NotNull
     AuthorizationMonitor getMonitor();
+
+    /**
+     * @return the permission entry cache shared by all sessions or {@code null}
+     * if permission entries are only cached per session.
+     */
+    @Nullable
+    default SharedPermissionEntryCache getSharedPermissionEntryCache() {
+        return null;
+    }
 }
@@ -44,6 +44,7 @@ import org.apache.jackrabbit.oak.spi.security.authorization.permission.Permissio
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.Permissions;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.RepositoryPermission;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.TreePermission;
+import org.apache.jackrabbit.oak.spi.security.authorization.restriction.RestrictionPattern;
 import org.apache.jackrabbit.oak.spi.security.principal.GroupPrincipals;
 import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeBits;
 import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeBitsProvider;
@@ -497,6 +498,15 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
         private boolean skipped;
         private ReadStatus readStatus;
 
+        /**
+         * Flag indicating if any of the entries of this tree or its ancestors
+         * defines restrictions. If none does, all entries apply to the whole
+         * subtree and the read status of a tree without entries of its own is
+         * the same as the read status of its parent.
+         */
+        private Boolean restricted;
+        private Boolean propertiesReadable;
+
         private TreePermissionImpl(@NotNull Tree tree, @NotNull TreeType type, @NotNull TreePermission parentPermission) {
             this.tree = tree;
             this.type = type;
@@ -522,6 +532,10 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
             if (!isAcTree && isReadableTree) {
                 return true;
             }
+            if (readStatus == null && !isAcTree && inheritsFromParent() && parent.readStatus != null) {
+                readStatus = parent.readStatus;
+                skipped = parent.skipped;
+            }
             if (readStatus == null) {
                 readStatus = ReadStatus.DENY_THIS;
 
@@ -552,16 +566,18 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
             if (readStatus != null && readStatus.allowsProperties()) {
                 return true;
             }
-
-            long permission = (isAcTree) ? Permissions.READ_ACCESS_CONTROL : Permissions.READ_PROPERTY;
-            Iterator<PermissionEntry> it = getIterator(property, permission);
-            while (it.hasNext()) {
-                PermissionEntry entry = it.next();
-                if (entry.privilegeBits.includes(READ_BITS.get(permission))) {
-                    return entry.isAllow;
+            if (!isAcTree && !isRestricted()) {
+                // without restrictions the result is the same for all properties
+                if (propertiesReadable == null) {
+                    if (inheritsFromParent() && parent.propertiesReadable != null) {
+                        propertiesReadable = parent.propertiesReadable;
+                    } else {
+                        propertiesReadable = evaluateCanRead(property, Permissions.READ_PROPERTY);
+                    }
                 }
+                return propertiesReadable;
             }
-            return false;
+            return evaluateCanRead(property, (isAcTree) ? Permissions.READ_ACCESS_CONTROL : Permissions.READ_PROPERTY);
         }
 
         @Override
@@ -589,6 +605,17 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
         }
 
         //--------------------------------------------------------< private >---
+        private boolean evaluateCanRead(@NotNull PropertyState property, long permission) {
+            Iterator<PermissionEntry> it = getIterator(property, permission);
+            while (it.hasNext()) {
+                PermissionEntry entry = it.next();
+                if (entry.privilegeBits.includes(READ_BITS.get(permission))) {
+                    return entry.isAllow;
+                }
+            }
+            return false;
+        }
+
         @NotNull
         private Iterator<PermissionEntry> getIterator(@Nullable PropertyState property, long permissions) {
             EntryPredicate predicate = EntryPredicate.create(tree, property, Permissions.respectParentPermissions(permissions));
@@ -609,24 +636,52 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
         }
 
         @NotNull
-        private Iterator<PermissionEntry> getUserEntries() {
+        private Collection<PermissionEntry> getUserEntries() {
             if (userEntries == null) {
                 userEntries = userStore != null ? userStore.getEntries(tree) : Collections.emptyList();
             }
-            return userEntries.iterator();
+            return userEntries;
         }
 
         @NotNull
-        private Iterator<PermissionEntry> getGroupEntries() {
+        private Collection<PermissionEntry> getGroupEntries() {
             if (groupEntries == null) {
                 groupEntries = groupStore != null ? groupStore.getEntries(tree) : Collections.emptyList();
             }
-            return groupEntries.iterator();
+            return groupEntries;
         }
 
         private boolean isAcTree() {
             return type == TreeType.ACCESS_CONTROL;
         }
+
+        /**
+         * @return {@code true} if the read status of this tree can be taken
+         * from the parent tree because neither this tree nor any of its
+         * ancestors has entries with restrictions and this tree has no entries
+         * of its own.
+         */
+        private boolean inheritsFromParent() {
+            return parent != null && !parent.isAcTree() && !isRestricted()
+                    && getUserEntries().isEmpty() && getGroupEntries().isEmpty();
+        }
+
+        private boolean isRestricted() {
+            if (restricted == null) {
+                restricted = (parent != null && parent.isRestricted())
+                        || hasRestriction(getUserEntries()) || hasRestriction(getGroupEntries());
+            }
+            return restricted;
+        }
+    }
+
+    private static boolean hasRestriction(@NotNull Collection<PermissionEntry> entries) {
+        for (PermissionEntry entry : entries) {
+            if (entry.restriction != RestrictionPattern.EMPTY) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static final class LazyIterator extends AbstractLazyIterator<PermissionEntry> {
@@ -665,7 +720,7 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
                     if (tp == null) {
                         break;
                     }
-                    nextEntries = (isUser) ? tp.getUserEntries() : tp.getGroupEntries();
+                    nextEntries = (isUser) ? tp.getUserEntries().iterator() : tp.getGroupEntries().iterator();
                     tp = tp.parent;
                 }
             }
@@ -117,10 +117,24 @@ public class PermissionHook implements PostValidationHook, AccessControlConstant
         for (Map.Entry<String, PermissionStoreEditor> entry : modified.entrySet()) {
             entry.getValue().updatePermissionEntries();
         }
+        SharedPermissionEntryCache sharedCache = providerCtx.getSharedPermissionEntryCache();
+        if (sharedCache != null) {
+            invalidate(sharedCache, deleted);
+            invalidate(sharedCache, modified);
+        }
         modified.clear();
         deleted.clear();
     }
 
+    private void invalidate(@NotNull SharedPermissionEntryCache sharedCache,
+                            @NotNull Map<String, PermissionStoreEditor> editors) {
+        for (PermissionStoreEditor editor : editors.values()) {
+            for (String principalName : editor.getPrincipalNames()) {
+                sharedCache.invalidate(getPermissionRootName(editor.getPath()), principalName);
+            }
+        }
+    }
+
     @NotNull
     private static NodeBuilder getPermissionStore(@NotNull NodeBuilder rootBuilder) {
         // permission root has been created during workspace initialization
@@ -129,8 +143,13 @@ public class PermissionHook implements PostValidationHook, AccessControlConstant
 
     @NotNull
     private NodeBuilder getPermissionRoot(@NotNull String path) {
+        return permissionStore.getChildNode(getPermissionRootName(path));
+    }
+
+    @NotNull
+    private String getPermissionRootName(@NotNull String path) {
         Mount m = providerCtx.getMountInfoProvider().getMountByPath(path);
-        return permissionStore.getChildNode(MountPermissionProvider.getPermissionRootName(m, workspaceName));
+        return MountPermissionProvider.getPermissionRootName(m, workspaceName);
     }
 
     private final class Diff extends DefaultNodeStateDiff {
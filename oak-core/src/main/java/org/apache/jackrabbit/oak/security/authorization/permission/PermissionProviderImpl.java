@@ -176,7 +176,8 @@ public class PermissionProviderImpl implements PermissionProvider, AccessControl
 
     @NotNull
     protected PermissionStore getPermissionStore(@NotNull Root root, @NotNull String workspaceName, @NotNull RestrictionProvider restrictionProvider) {
-        return new PermissionStoreImpl(root, workspaceName, restrictionProvider, providerCtx.getMonitor());
+        return new PermissionStoreImpl(root, workspaceName, restrictionProvider, providerCtx.getMonitor(),
+                providerCtx.getSharedPermissionEntryCache());
     }
 
     private static boolean isVersionStorePath(@NotNull String oakPath) {
@@ -102,6 +102,11 @@ final class PermissionStoreEditor implements AccessControlConstants, PermissionC
         return accessControlledPath;
     }
 
+    @NotNull
+    Set<String> getPrincipalNames() {
+        return entries.keySet();
+    }
+
     boolean isEmpty() {
         return entries.isEmpty();
     }
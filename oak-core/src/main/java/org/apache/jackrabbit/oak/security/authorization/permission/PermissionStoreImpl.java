@@ -31,6 +31,7 @@ import org.apache.jackrabbit.oak.spi.security.authorization.restriction.Restrict
 import org.apache.jackrabbit.oak.spi.security.privilege.JcrAllUtil;
 import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeBits;
 import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeBitsProvider;
+import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeConstants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -49,17 +50,25 @@ class PermissionStoreImpl implements PermissionStore, PermissionConstants {
     private final String permissionRootName;
     private final RestrictionProvider restrictionProvider;
     private final AuthorizationMonitor monitor;
+    private final SharedPermissionEntryCache sharedCache;
 
     private final Map<String, Tree> principalTreeMap = new HashMap<>();
 
     private Tree permissionsTree;
+    private Tree privilegesTree;
     private PrivilegeBitsProvider bitsProvider;
 
     PermissionStoreImpl(@NotNull Root root, @NotNull String permissionRootName, @NotNull RestrictionProvider restrictionProvider,
                         @NotNull AuthorizationMonitor monitor) {
+        this(root, permissionRootName, restrictionProvider, monitor, null);
+    }
+
+    PermissionStoreImpl(@NotNull Root root, @NotNull String permissionRootName, @NotNull RestrictionProvider restrictionProvider,
+                        @NotNull AuthorizationMonitor monitor, @Nullable SharedPermissionEntryCache sharedCache) {
         this.permissionRootName = permissionRootName;
         this.restrictionProvider = restrictionProvider;
         this.monitor = monitor;
+        this.sharedCache = sharedCache;
         reset(root);
     }
 
@@ -71,6 +80,7 @@ class PermissionStoreImpl implements PermissionStore, PermissionConstants {
 
     private void reset(@NotNull Root root) {
         permissionsTree = PermissionUtil.getPermissionsRoot(root, permissionRootName);
+        privilegesTree = root.getTree(PrivilegeConstants.PRIVILEGES_PATH);
         bitsProvider = new PrivilegeBitsProvider(root);
     }
 
@@ -121,9 +131,20 @@ class PermissionStoreImpl implements PermissionStore, PermissionConstants {
     @Override
     @NotNull
     public PrincipalPermissionEntries load(@NotNull String principalName) {
+        Tree principalRoot = getPrincipalRoot(principalName);
+        if (sharedCache != null && principalRoot != null) {
+            return sharedCache.getFullyLoadedEntries(permissionRootName, principalRoot, privilegesTree,
+                    () -> load(principalName, principalRoot));
+        } else {
+            return load(principalName, principalRoot);
+        }
+    }
+
+    //------------------------------------------------------------< private >---
+    @NotNull
+    private PrincipalPermissionEntries load(@NotNull String principalName, @Nullable Tree principalRoot) {
         long t0 = System.nanoTime();
         PrincipalPermissionEntries ret = new PrincipalPermissionEntries();
-        Tree principalRoot = getPrincipalRoot(principalName);
         if (principalRoot != null) {
             for (Tree entryTree : principalRoot.getChildren()) {
                 loadPermissionEntries(entryTree, ret);
@@ -136,7 +157,6 @@ class PermissionStoreImpl implements PermissionStore, PermissionConstants {
         return ret;
     }
 
-    //------------------------------------------------------------< private >---
     @Nullable
     private Tree getPrincipalRoot(@NotNull String principalName) {
         if (principalTreeMap.containsKey(principalName)) {
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.security.authorization.permission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.jackrabbit.guava.common.cache.Cache;
+import org.apache.jackrabbit.guava.common.cache.CacheBuilder;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.plugins.tree.TreeProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@code SharedPermissionEntryCache} keeps the fully loaded permission entries
+ * of principals across sessions. In contrast to {@link PermissionEntryCache},
+ * which lives as long as the session that reads the entries, this cache is held
+ * by the authorization configuration and is shared by all sessions of the
+ * repository.
+ * <p>
+ * An entry is keyed by the name of the permission root and the principal name
+ * and keeps the permission entries loaded from a few states of the principal
+ * root in the permission store (and of the privilege definitions). Entries
+ * are only used by a session that sees the same state, which makes sure
+ * sessions never see entries of another revision, no matter whether the
+ * permission store was modified locally or by another cluster node. As
+ * sessions reading different revisions add their own states, a session on an
+ * older revision does not replace the entries used by the sessions on the
+ * current one: once there are more than {@link #MAX_STATES} states, the least
+ * recently used one is dropped. Entries are in addition invalidated by the
+ * {@link PermissionHook} when a commit modifies the permission entries of a
+ * principal.
+ * <p>
+ * The size of the cache is bounded by the total number of permission entries
+ * of the cached principals.
+ */
+public final class SharedPermissionEntryCache {
+
+    /**
+     * Name of the configuration option defining the maximal number of permission
+     * entries kept in the shared cache. A value of 0 disables the cache.
+     */
+    public static final String PARAM_SHARED_CACHE_SIZE = "sharedPermissionCacheSize";
+
+    /**
+     * Default value of {@link #PARAM_SHARED_CACHE_SIZE}.
+     */
+    public static final long DEFAULT_SHARED_CACHE_SIZE = 100000;
+
+    /**
+     * The maximal number of states of a principal root kept in the cache.
+     */
+    static final int MAX_STATES = 4;
+
+    private final TreeProvider treeProvider;
+
+    private final Cache<String, Entry> cache;
+
+    public SharedPermissionEntryCache(@NotNull TreeProvider treeProvider, long maxSize) {
+        this.treeProvider = treeProvider;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .build();
+    }
+
+    /**
+     * Returns the fully loaded permission entries of the principal with the
+     * given principal root. If the cache does not contain the entries of the
+     * same state of the principal root and privilege definitions, they are
+     * loaded with the given {@code loader} and put into the cache.
+     *
+     * @param permissionRootName the name of the permission root.
+     * @param principalRoot the principal root as seen by the calling session.
+     * @param privilegesRoot the privilege definitions as seen by the calling session.
+     * @param loader loads the entries from the permission store.
+     * @return the fully loaded permission entries.
+     */
+    @NotNull
+    PrincipalPermissionEntries getFullyLoadedEntries(@NotNull String permissionRootName,
+                                                     @NotNull Tree principalRoot,
+                                                     @NotNull Tree privilegesRoot,
+                                                     @NotNull Supplier<PrincipalPermissionEntries> loader) {
+        String key = getKey(permissionRootName, principalRoot.getName());
+        NodeState state = treeProvider.asNodeState(principalRoot);
+        NodeState privileges = treeProvider.asNodeState(privilegesRoot);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            Version version = entry.get(state, privileges);
+            if (version != null) {
+                return version.entries;
+            }
+        }
+        Version loaded = new Version(state, privileges, loader.get());
+        cache.asMap().compute(key, (k, e) -> e == null ? new Entry(new Version[] {loaded}) : e.with(loaded));
+        return loaded.entries;
+    }
+
+    /**
+     * Removes the entries of the principal with the given (escaped) name
+     * from the cache.
+     *
+     * @param permissionRootName the name of the permission root.
+     * @param principalName the name of the principal root.
+     */
+    void invalidate(@NotNull String permissionRootName, @NotNull String principalName) {
+        cache.invalidate(getKey(permissionRootName, principalName));
+    }
+
+    /**
+     * @return the number of principals with cached entries.
+     */
+    long size() {
+        return cache.size();
+    }
+
+    @NotNull
+    private static String getKey(@NotNull String permissionRootName, @NotNull String principalName) {
+        return permissionRootName + '/' + principalName;
+    }
+
+    /**
+     * The cached states of a principal root. Entries are immutable, adding a
+     * state creates a new entry.
+     */
+    private static final class Entry {
+
+        private final Version[] versions;
+        private final int weight;
+
+        private Entry(@NotNull Version[] versions) {
+            this.versions = versions;
+            long w = 0;
+            for (Version v : versions) {
+                w += v.weight;
+            }
+            this.weight = (int) Math.min(w, Integer.MAX_VALUE);
+        }
+
+        @Nullable
+        private Version get(@NotNull NodeState state, @NotNull NodeState privileges) {
+            for (Version v : versions) {
+                if (v.isValid(state, privileges)) {
+                    v.lastAccess = System.nanoTime();
+                    return v;
+                }
+            }
+            return null;
+        }
+
+        @NotNull
+        private Entry with(@NotNull Version version) {
+            for (Version v : versions) {
+                if (v.isValid(version.state, version.privileges)) {
+                    // loaded concurrently by another session
+                    return this;
+                }
+            }
+            List<Version> list = new ArrayList<>(Arrays.asList(versions));
+            list.add(version);
+            if (list.size() > MAX_STATES) {
+                list.remove(Collections.min(list, Comparator.comparingLong(v -> v.lastAccess)));
+            }
+            return new Entry(list.toArray(new Version[0]));
+        }
+    }
+
+    private static final class Version {
+
+        private final NodeState state;
+        private final NodeState privileges;
+        private final PrincipalPermissionEntries entries;
+        private final int weight;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Version(@NotNull NodeState state, @NotNull NodeState privileges,
+                        @NotNull PrincipalPermissionEntries entries) {
+            this.state = state;
+            this.privileges = privileges;
+            this.entries = entries;
+            long w = 1;
+            for (Collection<PermissionEntry> pes : entries.getEntries().values()) {
+                w += pes.size();
+            }
+            this.weight = (int) Math.min(w, Integer.MAX_VALUE);
+        }
+
+        private boolean isValid(@NotNull NodeState state, @NotNull NodeState privileges) {
+            return (this.state == state || this.state.equals(state))
+                    && (this.privileges == privileges || this.privileges.equals(privileges));
+        }
+    }
+}
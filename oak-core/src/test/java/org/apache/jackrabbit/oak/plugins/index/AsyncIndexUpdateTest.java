@@ -55,6 +55,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import javax.management.openmbean.CompositeData;
 
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.Type;
@@ -2219,6 +2220,114 @@ public class AsyncIndexUpdateTest {
         assertTrue("Failing indexing must report failure", gotFailedCommit.get());
     }
 
+    @Test
+    public void partitionedUpdate() throws Exception {
+        NodeStore store = new MemoryNodeStore();
+        FailingIndexEditorProvider failingProvider = new FailingIndexEditorProvider();
+        IndexEditorProvider provider = CompositeIndexEditorProvider.compose(
+                List.of(new PropertyIndexEditorProvider(), failingProvider));
+
+        NodeBuilder builder = store.getRoot().builder();
+        createIndexDefinition(builder.child(INDEX_DEFINITIONS_NAME),
+                "rootIndex", true, false, Set.of("foo"), null)
+                .setProperty(ASYNC_PROPERTY_NAME, "async");
+        builder.child(INDEX_DEFINITIONS_NAME).child("failingIndex")
+                .setProperty(JcrConstants.JCR_PRIMARYTYPE, IndexConstants.INDEX_DEFINITIONS_NODE_TYPE, Type.NAME)
+                .setProperty(IndexConstants.TYPE_PROPERTY_NAME, FailingIndexEditorProvider.TYPE)
+                .setProperty(ASYNC_PROPERTY_NAME, "async");
+        builder.child("a").setProperty("foo", "a1");
+        builder.child("b").setProperty("foo", "b1");
+        builder.child("c").setProperty("foo", "c1");
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        AsyncIndexUpdate async = new AsyncIndexUpdate("async", store, provider).setPartitioned(true);
+        async.run();
+        assertEquals(Set.of("a"), find(new PropertyIndexLookup(store.getRoot()), "foo", "a1"));
+
+        builder = store.getRoot().builder();
+        builder.child("a").setProperty("foo", "a2");
+        builder.child("b").child("x").setProperty("foo", "b2");
+        builder.child("c").setProperty("foo", "c2");
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        // the update fails in partition /b, after /a was merged
+        failingProvider.nameToFail = "x";
+        async.run();
+        assertTrue(async.getIndexStats().isFailing());
+        NodeState root = store.getRoot();
+        PropertyIndexLookup lookup = new PropertyIndexLookup(root);
+        assertEquals(Set.of("a"), find(lookup, "foo", "a2"));
+        assertEquals(Set.of(), find(lookup, "foo", "b2"));
+        assertEquals(Set.of("c"), find(lookup, "foo", "c1"));
+
+        NodeState asyncState = root.getChildNode(ASYNC);
+        String partitionCheckpoint = asyncState.getString(AsyncIndexUpdate.partitionCheckpoint("async"));
+        assertNotNull(partitionCheckpoint);
+        assertNotNull(store.retrieve(partitionCheckpoint));
+
+        AsyncIndexInfo info = new AsyncIndexInfoServiceImpl(store).getInfo("async");
+        assertNotNull(info);
+        Map<String, Long> partitions = info.getPartitionsIndexedTo();
+        assertEquals(List.of("/", "/a", "/b", "/c"), new ArrayList<>(partitions.keySet()));
+        assertEquals(partitions.get("/"), partitions.get("/a"));
+        assertEquals(info.getLastIndexedTo(), (long) partitions.get("/b"));
+        assertEquals(info.getLastIndexedTo(), (long) partitions.get("/c"));
+
+        // changes after the interrupted update are indexed by the next run
+        builder = store.getRoot().builder();
+        builder.child("a").setProperty("foo", "a3");
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        failingProvider.nameToFail = null;
+        async.run();
+        assertFalse(async.getIndexStats().isFailing());
+        root = store.getRoot();
+        asyncState = root.getChildNode(ASYNC);
+        assertEquals(partitionCheckpoint, asyncState.getString("async"));
+        assertFalse(asyncState.hasProperty(AsyncIndexUpdate.partitionCheckpoint("async")));
+        assertFalse(asyncState.hasProperty(AsyncIndexUpdate.partitions("async")));
+        assertTrue(new AsyncIndexInfoServiceImpl(store).getInfo("async").getPartitionsIndexedTo().isEmpty());
+        lookup = new PropertyIndexLookup(root);
+        assertEquals(Set.of("a"), find(lookup, "foo", "a2"));
+        assertEquals(Set.of("b/x"), find(lookup, "foo", "b2"));
+        assertEquals(Set.of("c"), find(lookup, "foo", "c2"));
+
+        async.run();
+        lookup = new PropertyIndexLookup(store.getRoot());
+        assertEquals(Set.of(), find(lookup, "foo", "a2"));
+        assertEquals(Set.of("a"), find(lookup, "foo", "a3"));
+        assertEquals(1, CollectionUtils.toList(store.checkpoints()).size());
+    }
+
+    private static class FailingIndexEditorProvider implements IndexEditorProvider {
+
+        static final String TYPE = "failing";
+
+        private volatile String nameToFail;
+
+        @Override
+        public Editor getIndexEditor(@NotNull String type, @NotNull NodeBuilder definition, @NotNull NodeState root,
+                                     @NotNull IndexUpdateCallback callback) {
+            if (!TYPE.equals(type)) {
+                return null;
+            }
+            return new DefaultEditor() {
+                @Override
+                public Editor childNodeAdded(String name, NodeState after) throws CommitFailedException {
+                    if (name.equals(nameToFail)) {
+                        throw new CommitFailedException("Test", 1, "Failing on " + name);
+                    }
+                    return this;
+                }
+
+                @Override
+                public Editor childNodeChanged(String name, NodeState before, NodeState after) {
+                    return this;
+                }
+            };
+        }
+    }
+
     private static class TestIndexEditorProvider extends PropertyIndexEditorProvider {
         private String indexPathToFail;
         @Override
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.observation;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.spi.state.DefaultNodeStateDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentDiffCacheTest {
+
+    private NodeState before;
+
+    private NodeState after;
+
+    @Before
+    public void setup() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("a").child("b").setProperty("p", 1);
+        builder.child("c").setProperty("q", "x");
+        before = builder.getNodeState();
+
+        builder = before.builder();
+        builder.child("a").child("b").setProperty("p", 2);
+        builder.child("a").child("d").setProperty("r", true);
+        builder.child("c").remove();
+        builder.setProperty("s", "y");
+        after = builder.getNodeState();
+    }
+
+    @Test
+    public void sameEvents() {
+        List<String> expected = generate(new EventGenerator(before, after, new RecordingHandler("")));
+        assertFalse(expected.isEmpty());
+
+        ContentDiffCache cache = new ContentDiffCache();
+        for (int i = 0; i < 3; i++) {
+            EventGenerator generator = new EventGenerator(cache, before, after);
+            generator.addHandler("/", before, after, new RecordingHandler(""));
+            assertEquals(expected, generate(generator));
+        }
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void compareOnce() {
+        NodeState spied = spy(after);
+        ContentDiffCache cache = new ContentDiffCache();
+        for (int i = 0; i < 3; i++) {
+            EventGenerator generator = new EventGenerator(cache, before, spied);
+            generator.addHandler("/", before, spied, new RecordingHandler(""));
+            generate(generator);
+        }
+        verify(spied, times(1)).compareAgainstBaseState(any(NodeState.class), any(NodeStateDiff.class));
+    }
+
+    @Test
+    public void clear() {
+        ContentDiffCache cache = new ContentDiffCache();
+        EventGenerator generator = new EventGenerator(cache, before, after);
+        generator.addHandler("/", before, after, new RecordingHandler(""));
+        generate(generator);
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void maxDiffs() {
+        NodeState spied = spy(after);
+        ContentDiffCache cache = new ContentDiffCache(16, 0);
+        for (int i = 0; i < 3; i++) {
+            EventGenerator generator = new EventGenerator(cache, before, spied);
+            generator.addHandler("/", before, spied, new RecordingHandler(""));
+            generate(generator);
+        }
+        verify(spied, times(3)).compareAgainstBaseState(any(NodeState.class), any(NodeStateDiff.class));
+    }
+
+    @Test
+    public void tooManyChanges() {
+        // a node with more changed children than the limit
+        AtomicInteger reported = new AtomicInteger();
+        NodeState flat = mock(NodeState.class);
+        doAnswer(invocation -> {
+            NodeStateDiff d = invocation.getArgument(1);
+            for (int i = 0; i < 100; i++) {
+                reported.incrementAndGet();
+                if (!d.childNodeAdded("n" + i, EMPTY_NODE)) {
+                    return false;
+                }
+            }
+            return true;
+        }).when(flat).compareAgainstBaseState(any(NodeState.class), any(NodeStateDiff.class));
+
+        ContentDiffCache cache = new ContentDiffCache(16, 10);
+        for (int i = 0; i < 3; i++) {
+            AtomicInteger added = new AtomicInteger();
+            reported.set(0);
+            assertTrue(cache.compare(before, after, "/flat", EMPTY_NODE, flat, new DefaultNodeStateDiff() {
+                @Override
+                public boolean childNodeAdded(String name, NodeState after) {
+                    added.incrementAndGet();
+                    return true;
+                }
+            }));
+            assertEquals(100, added.get());
+            // the first comparison stops recording after the limit, later
+            // ones compare directly
+            assertEquals(i == 0 ? 111 : 100, reported.get());
+        }
+    }
+
+    @Test
+    public void maxContentChanges() {
+        ContentDiffCache cache = new ContentDiffCache(2, 1000);
+        NodeState root = before;
+        for (int i = 0; i < 5; i++) {
+            NodeBuilder builder = root.builder();
+            builder.setProperty("i", i);
+            NodeState next = builder.getNodeState();
+            EventGenerator generator = new EventGenerator(cache, root, next);
+            generator.addHandler("/", root, next, new RecordingHandler(""));
+            String event = (i == 0) ? "added /i" : "changed /i";
+            assertEquals(List.of("enter /", event, "leave /"), generate(generator).subList(0, 3));
+            root = next;
+        }
+        assertEquals(2, cache.size());
+    }
+
+    private static List<String> generate(EventGenerator generator) {
+        List<String> events = RecordingHandler.EVENTS.get();
+        events.clear();
+        while (!generator.isDone()) {
+            generator.generate();
+        }
+        return new ArrayList<>(events);
+    }
+
+    private static final class RecordingHandler extends DefaultEventHandler {
+
+        private static final ThreadLocal<List<String>> EVENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        private final String path;
+
+        private RecordingHandler(String path) {
+            this.path = path;
+        }
+
+        private void record(String event) {
+            EVENTS.get().add(event);
+        }
+
+        @Override
+        public void enter(NodeState before, NodeState after) {
+            record("enter " + path + "/");
+        }
+
+        @Override
+        public void leave(NodeState before, NodeState after) {
+            record("leave " + path + "/");
+        }
+
+        @Override
+        public EventHandler getChildHandler(String name, NodeState before, NodeState after) {
+            return new RecordingHandler(path + "/" + name);
+        }
+
+        @Override
+        public void propertyAdded(PropertyState after) {
+            record("added " + path + "/" + after.getName());
+        }
+
+        @Override
+        public void propertyChanged(PropertyState before, PropertyState after) {
+            record("changed " + path + "/" + after.getName());
+        }
+
+        @Override
+        public void propertyDeleted(PropertyState before) {
+            record("deleted " + path + "/" + before.getName());
+        }
+
+        @Override
+        public void nodeAdded(String name, NodeState after) {
+            record("added " + path + "/" + name);
+        }
+
+        @Override
+        public void nodeDeleted(String name, NodeState before) {
+            record("deleted " + path + "/" + name);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.jackrabbit.oak.InitialContentHelper;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.property.PropertyIndexEditorProvider;
+import org.apache.jackrabbit.oak.plugins.index.property.PropertyIndexProvider;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests joins where the right hand side is read once and kept in memory.
+ */
+public class HashJoinTest extends AbstractQueryTest {
+
+    @Override
+    protected ContentRepository createRepository() {
+        return new Oak(new MemoryNodeStore(InitialContentHelper.INITIAL_CONTENT))
+                .with(new OpenSecurityProvider())
+                .with(new PropertyIndexProvider())
+                .with(new PropertyIndexEditorProvider())
+                .createContentRepository();
+    }
+
+    @Before
+    @Override
+    public void before() throws Exception {
+        super.before();
+        Tree r = root.getTree("/");
+        createTestIndexNode("type", r, "property")
+                .setProperty("propertyNames", List.of("type"), Type.NAMES);
+        createTestIndexNode("kind", r, "property")
+                .setProperty("propertyNames", List.of("kind"), Type.NAMES);
+        root.commit();
+        Tree test = r.addChild("test");
+        for (int i = 0; i < 20; i++) {
+            Tree order = test.addChild("order" + i);
+            order.setProperty("type", "order");
+            order.setProperty("customer", "c" + i % 5);
+            order.addChild("line").setProperty("kind", "line");
+        }
+        for (int i = 0; i < 6; i++) {
+            Tree customer = test.addChild("customer" + i);
+            customer.setProperty("kind", "customer");
+            customer.setProperty("id", "c" + i);
+        }
+        root.commit();
+    }
+
+    @Test
+    public void equiJoin() throws Exception {
+        String query = "select a.[jcr:path], b.[jcr:path] " +
+                "from [nt:base] as a inner join [nt:base] as b on a.customer = b.id " +
+                "where a.type = 'order' and b.kind = 'customer'";
+        assertTrue(explain(query), explain(query).contains("/* hash join */"));
+        List<String> result = executeQuery(query, SQL2);
+        assertEquals(20, result.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(result.contains("/test/order" + i + ", /test/customer" + i % 5));
+        }
+    }
+
+    @Test
+    public void leftOuterJoin() throws Exception {
+        // the right hand side is only restricted by the join condition,
+        // so reading it once would need to traverse the repository
+        String query = "select a.[jcr:path], b.[jcr:path] " +
+                "from [nt:base] as a left outer join [nt:base] as b on a.id = b.customer " +
+                "where a.kind = 'customer'";
+        assertFalse(explain(query), explain(query).contains("/* hash join */"));
+        List<String> result = executeQuery(query, SQL2);
+        assertEquals(21, result.size());
+        assertTrue(result.contains("/test/customer5, null"));
+
+        query = "select a.[jcr:path], b.[jcr:path] " +
+                "from [nt:base] as a left outer join [nt:base] as b on a.id = b.customer " +
+                "where a.kind = 'customer' and b.type = 'order'";
+        assertTrue(explain(query), explain(query).contains("/* hash join */"));
+        result = executeQuery(query, SQL2);
+        assertEquals(20, result.size());
+        assertFalse(result.contains("/test/customer5, null"));
+        assertTrue(result.contains("/test/customer0, /test/order15"));
+    }
+
+    @Test
+    public void childNodeJoin() throws Exception {
+        String query = "select a.[jcr:path], b.[jcr:path] " +
+                "from [nt:base] as a inner join [nt:base] as b on ischildnode(b, a) " +
+                "where a.type = 'order' and b.kind = 'line'";
+        assertTrue(explain(query), explain(query).contains("/* hash join */"));
+        List<String> result = executeQuery(query, SQL2);
+        assertEquals(20, result.size());
+        assertTrue(result.contains("/test/order7, /test/order7/line"));
+    }
+
+    @Test
+    public void sameNodeJoin() throws Exception {
+        String query = "select a.[jcr:path], b.[jcr:path] " +
+                "from [nt:base] as a inner join [nt:base] as b on issamenode(b, a, [line]) " +
+                "where a.type = 'order' and b.kind = 'line'";
+        assertTrue(explain(query), explain(query).contains("/* hash join */"));
+        List<String> result = executeQuery(query, SQL2);
+        assertEquals(20, result.size());
+        assertTrue(result.contains("/test/order3, /test/order3/line"));
+    }
+
+    private String explain(String query) {
+        return executeQuery("explain " + query, SQL2).get(0);
+    }
+
+}
@@ -18,12 +18,17 @@ package org.apache.jackrabbit.oak.query;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Random;
@@ -143,6 +148,96 @@ public class IteratorsTest {
         assertTrue(compareCalls.get() <= maxComp);
     }
 
+    @Test
+    public void sortTopK() {
+        // equal entries are returned in the order they were read
+        Comparator<String> comp = Comparator.comparing(x -> x.charAt(0));
+        assertEquals("a1, a2, b1", toString(FilterIterators.newSort(
+                it("b1", "a1", "c1", "b2", "a2", "c2"), comp, 3, settings)));
+        assertEquals("a1, a2, b1, b2", toString(FilterIterators.newSort(
+                it("b1", "a1", "c1", "b2", "a2", "c2"), comp, 4, settings)));
+    }
+
+    @Test
+    public void sortSpill() {
+        QueryEngineSettings s = new QueryEngineSettings();
+        s.setLimitInMemory(10);
+        Random r = new Random(1);
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(r.nextInt(100));
+        }
+        Iterator<Integer> it = FilterIterators.newSort(list.iterator(), INT_COMP, Integer.MAX_VALUE, s, INT_CODEC);
+        List<Integer> expected = new ArrayList<>(list);
+        Collections.sort(expected);
+        assertEquals(expected, toList(it));
+
+        // without codec, the limit applies
+        try {
+            toList(FilterIterators.newSort(list.iterator(), INT_COMP, Integer.MAX_VALUE, s));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sortedRunsCleanup() throws Exception {
+        List<Integer> list = new ArrayList<>();
+        FilterIterators.SortedRuns<Integer> runs = new FilterIterators.SortedRuns<>(
+                INT_COMP, INT_CODEC::encode, INT_CODEC::decode);
+        for (int run = 0; run < 3; run++) {
+            for (int i = 0; i < 10; i++) {
+                list.add(i * 3 + run);
+            }
+            runs.add(list, false);
+        }
+        File dir = runs.getDirectory();
+        assertEquals(3, dir.list().length);
+        Iterator<Integer> it = runs.merge(Integer.MAX_VALUE);
+        assertEquals(0, (int) it.next());
+        assertEquals(1, (int) it.next());
+
+        // the action run by the cleaner once a partially read result is
+        // no longer reachable
+        runs.getCleanupAction().run();
+        assertFalse(dir.exists());
+        assertNull(runs.getDirectory());
+        runs.close();
+
+        // reading all entries deletes the files as well
+        runs = new FilterIterators.SortedRuns<>(INT_COMP, INT_CODEC::encode, INT_CODEC::decode);
+        list.add(1);
+        runs.add(list, false);
+        dir = runs.getDirectory();
+        assertEquals(Collections.singletonList(1), toList(runs.merge(Integer.MAX_VALUE)));
+        assertFalse(dir.exists());
+    }
+
+    @Test
+    public void distinctSpill() {
+        QueryEngineSettings s = new QueryEngineSettings();
+        s.setLimitInMemory(10);
+        Random r = new Random(1);
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(r.nextInt(100));
+        }
+        List<Integer> result = toList(FilterIterators.newDistinct(list.iterator(), s, INT_CODEC));
+        assertEquals(new HashSet<>(list).size(), result.size());
+        assertEquals(new HashSet<>(list), new HashSet<>(result));
+        // the first entries are returned in the order they were read
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(list)).subList(0, 11), result.subList(0, 11));
+
+        // without codec, the limit applies
+        try {
+            toList(FilterIterators.newDistinct(list.iterator(), s));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
     @Test
     public void combined() {
 
@@ -193,6 +288,31 @@ public class IteratorsTest {
 
 }
 
+    private static final FilterIterators.SpillCodec<Integer> INT_CODEC = new FilterIterators.SpillCodec<Integer>() {
+
+        @Override
+        public String encode(Integer entry) {
+            return entry.toString();
+        }
+
+        @Override
+        public Integer decode(String line) {
+            return Integer.valueOf(line);
+        }
+
+        @Override
+        public String getDistinctKey(Integer entry) {
+            return entry.toString();
+        }
+
+    };
+
+    private static <K> List<K> toList(Iterator<K> it) {
+        List<K> list = new ArrayList<>();
+        it.forEachRemaining(list::add);
+        return list;
+    }
+
     private static <K> Iterator<K> it(K... x) {
         return Collections.unmodifiableCollection(List.of(x)).iterator();
     }
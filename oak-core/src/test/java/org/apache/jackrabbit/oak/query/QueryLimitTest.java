@@ -21,8 +21,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 
@@ -32,6 +34,7 @@ import org.apache.jackrabbit.oak.Oak;
 import org.apache.jackrabbit.oak.api.ContentRepository;
 import org.apache.jackrabbit.oak.api.QueryEngine;
 import org.apache.jackrabbit.oak.api.ResultRow;
+import org.apache.jackrabbit.oak.api.Tree;
 import org.apache.jackrabbit.oak.commons.junit.LogCustomizer;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
 import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
@@ -127,4 +130,50 @@ public class QueryLimitTest extends AbstractQueryTest {
         }
         assertEquals(10, count);
     }
+
+    @Test
+    public void orderByAboveLimitInMemory() throws Exception {
+        createNodes(100);
+        qeSettings.setLimitInMemory(20);
+        List<String> result = executeQuery(
+                "select [jcr:path], [x] from [nt:base] where isdescendantnode('/test') order by [x] desc, [y]",
+                SQL2);
+        assertEquals(100, result.size());
+        for (int i = 0; i < 100; i++) {
+            int x = 9 - i / 10;
+            int y = i % 10;
+            assertEquals("/test/n" + (y * 10 + x) + ", " + x, result.get(i));
+        }
+
+        // top-k: only 7 rows are kept
+        Iterator<? extends ResultRow> rows = qe.executeQuery(
+                "select [jcr:path] from [nt:base] where isdescendantnode('/test') order by [y], [x] desc",
+                QueryEngineImpl.SQL2, Optional.of(5L), Optional.of(2L),
+                Collections.emptyMap(), Collections.emptyMap()).getRows().iterator();
+        List<String> paths = new ArrayList<>();
+        rows.forEachRemaining(r -> paths.add(r.getPath()));
+        assertEquals(List.of("/test/n7", "/test/n6", "/test/n5", "/test/n4", "/test/n3"), paths);
+    }
+
+    @Test
+    public void distinctAboveLimitInMemory() throws Exception {
+        createNodes(100);
+        qeSettings.setLimitInMemory(20);
+        // rows are distinct by path and values
+        List<String> result = executeQuery(
+                "select distinct [x], [y] from [nt:base] where isdescendantnode('/test') order by [y], [x]", SQL2);
+        assertEquals(100, result.size());
+        assertEquals("0, 0", result.get(0));
+        assertEquals("9, 9", result.get(99));
+    }
+
+    private void createNodes(int count) throws Exception {
+        Tree test = root.getTree("/").addChild("test");
+        for (int i = 0; i < count; i++) {
+            Tree n = test.addChild("n" + i);
+            n.setProperty("x", (long) i % 10);
+            n.setProperty("y", "" + i / 10);
+        }
+        root.commit();
+    }
 }
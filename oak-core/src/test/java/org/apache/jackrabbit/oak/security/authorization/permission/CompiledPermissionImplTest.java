@@ -38,6 +38,7 @@ import org.apache.jackrabbit.oak.spi.nodetype.NodeTypeConstants;
 import org.apache.jackrabbit.oak.spi.security.ConfigurationParameters;
 import org.apache.jackrabbit.oak.spi.security.Context;
 import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
+import org.apache.jackrabbit.oak.spi.security.authorization.accesscontrol.AccessControlConstants;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionConstants;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.Permissions;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.TreePermission;
@@ -54,6 +55,7 @@ import java.lang.reflect.Field;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
@@ -556,6 +558,49 @@ public class CompiledPermissionImplTest extends AbstractSecurityTest {
         verify(store, never()).load(anyString(), anyString());
     }
 
+    @Test
+    public void testReadStatusWithoutRestrictions() throws Exception {
+        Tree t = addChild(root.getTree(ACCESS_CONTROLLED_PATH), "a", NodeTypeConstants.NT_OAK_UNSTRUCTURED);
+        addChild(t, "b", NodeTypeConstants.NT_OAK_UNSTRUCTURED);
+        root.commit();
+
+        CompiledPermissionImpl cp = createForTestSession(ConfigurationParameters.EMPTY);
+        PropertyState ps = PropertyStates.createProperty("prop", "value");
+        for (String path : new String[] {ACCESS_CONTROLLED_PATH, ACCESS_CONTROLLED_PATH + "/a", ACCESS_CONTROLLED_PATH + "/a/b"}) {
+            TreePermission tp = createTreePermission(cp, path);
+            assertTrue(path, tp.canRead());
+            assertTrue(path, tp.canRead(ps));
+            assertTrue(path, tp.canReadProperties());
+        }
+        TreePermission tp = createTreePermission(cp, SUBTREE_PATH);
+        assertFalse(tp.canRead());
+        assertFalse(tp.canRead(ps));
+    }
+
+    @Test
+    public void testReadStatusWithRestrictions() throws Exception {
+        Tree t = addChild(root.getTree(ACCESS_CONTROLLED_PATH), "a", NodeTypeConstants.NT_OAK_UNSTRUCTURED);
+        addChild(t, "b", NodeTypeConstants.NT_OAK_UNSTRUCTURED);
+
+        AccessControlManager acMgr = getAccessControlManager(root);
+        JackrabbitAccessControlList acl = AccessControlUtils.getAccessControlList(acMgr, ACCESS_CONTROLLED_PATH);
+        acl.addEntry(EveryonePrincipal.getInstance(), privilegesFromNames(JCR_READ), false,
+                Map.of(AccessControlConstants.REP_GLOB, getValueFactory().createValue("/a/b")));
+        acMgr.setPolicy(acl.getPath(), acl);
+        root.commit();
+
+        CompiledPermissionImpl cp = createForTestSession(ConfigurationParameters.EMPTY);
+        PropertyState ps = PropertyStates.createProperty("prop", "value");
+
+        TreePermission tp = createTreePermission(cp, ACCESS_CONTROLLED_PATH + "/a");
+        assertTrue(tp.canRead());
+        assertTrue(tp.canRead(ps));
+
+        TreePermission child = cp.getTreePermission(createReadonlyTree(ACCESS_CONTROLLED_PATH + "/a/b"), tp);
+        assertFalse(child.canRead());
+        assertFalse(child.canRead(ps));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testGetTreePermissionInvalidParent() {
         String wspName = adminSession.getWorkspaceName();
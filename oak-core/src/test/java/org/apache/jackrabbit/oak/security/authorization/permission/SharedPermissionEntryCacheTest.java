@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.security.authorization.permission;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.security.AccessControlManager;
+
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.api.security.JackrabbitAccessControlList;
+import org.apache.jackrabbit.commons.jackrabbit.authorization.AccessControlUtils;
+import org.apache.jackrabbit.oak.AbstractSecurityTest;
+import org.apache.jackrabbit.oak.api.Root;
+import org.apache.jackrabbit.oak.plugins.tree.TreeUtil;
+import org.apache.jackrabbit.oak.security.authorization.ProviderCtx;
+import org.apache.jackrabbit.oak.security.authorization.composite.CompositeAuthorizationConfiguration;
+import org.apache.jackrabbit.oak.security.authorization.monitor.AuthorizationMonitor;
+import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
+import org.apache.jackrabbit.oak.spi.security.principal.EveryonePrincipal;
+import org.apache.jackrabbit.oak.spi.security.privilege.PrivilegeConstants;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SharedPermissionEntryCacheTest extends AbstractSecurityTest {
+
+    private final AuthorizationMonitor monitor = mock(AuthorizationMonitor.class);
+
+    private SharedPermissionEntryCache sharedCache;
+
+    @Before
+    public void before() throws Exception {
+        super.before();
+        TreeUtil.addChild(root.getTree("/"), "testPath", JcrConstants.NT_UNSTRUCTURED);
+        addAcl("/testPath", PrivilegeConstants.JCR_READ);
+        root.commit();
+
+        AuthorizationConfiguration config = getConfig(AuthorizationConfiguration.class);
+        ProviderCtx providerCtx = (ProviderCtx) ((CompositeAuthorizationConfiguration) config).getDefaultConfig();
+        sharedCache = providerCtx.getSharedPermissionEntryCache();
+        assertNotNull(sharedCache);
+    }
+
+    @After
+    public void after() throws Exception {
+        try {
+            root.refresh();
+            root.getTree("/testPath").remove();
+            root.commit();
+        } finally {
+            super.after();
+        }
+    }
+
+    private void addAcl(@NotNull String path, @NotNull String privilegeName) throws RepositoryException {
+        AccessControlManager acMgr = getAccessControlManager(root);
+        JackrabbitAccessControlList acl = AccessControlUtils.getAccessControlList(acMgr, path);
+        acl.addAccessControlEntry(EveryonePrincipal.getInstance(), privilegesFromNames(privilegeName));
+        acMgr.setPolicy(path, acl);
+    }
+
+    @NotNull
+    private PermissionStore createPermissionStore() {
+        Root readOnlyRoot = getRootProvider().createReadOnlyRoot(root);
+        return new PermissionStoreImpl(readOnlyRoot, adminSession.getWorkspaceName(),
+                getConfig(AuthorizationConfiguration.class).getRestrictionProvider(), monitor, sharedCache);
+    }
+
+    @Test
+    public void testSharedBetweenStores() {
+        PrincipalPermissionEntries entries = createPermissionStore().load(EveryonePrincipal.NAME);
+        assertSame(entries, createPermissionStore().load(EveryonePrincipal.NAME));
+        verify(monitor, times(1)).permissionAllLoaded(anyLong());
+    }
+
+    @Test
+    public void testReloadForOtherRevision() throws Exception {
+        PermissionStore before = createPermissionStore();
+
+        TreeUtil.addChild(root.getTree("/"), "otherPath", JcrConstants.NT_UNSTRUCTURED);
+        addAcl("/otherPath", PrivilegeConstants.JCR_READ);
+        root.commit();
+
+        try {
+            // the cached entries are not invalidated, like for a modification
+            // made by another cluster node
+            PrincipalPermissionEntries entries = before.load(EveryonePrincipal.NAME);
+            assertEquals(1, entries.getSize());
+            assertEquals(1, sharedCache.size());
+
+            PrincipalPermissionEntries reloaded = createPermissionStore().load(EveryonePrincipal.NAME);
+            assertNotSame(entries, reloaded);
+            assertEquals(2, reloaded.getSize());
+
+            // a session still reading the old revision must not see the new entries
+            PrincipalPermissionEntries old = before.load(EveryonePrincipal.NAME);
+            assertEquals(1, old.getSize());
+            assertEquals(1, sharedCache.size());
+
+            // and it does not replace the entries of the current revision
+            assertSame(reloaded, createPermissionStore().load(EveryonePrincipal.NAME));
+            assertSame(old, before.load(EveryonePrincipal.NAME));
+            verify(monitor, times(2)).permissionAllLoaded(anyLong());
+        } finally {
+            root.getTree("/otherPath").remove();
+            root.commit();
+        }
+    }
+
+    @Test
+    public void testInvalidatedByPermissionHook() throws Exception {
+        createPermissionStore().load(EveryonePrincipal.NAME);
+        assertEquals(1, sharedCache.size());
+
+        addAcl("/testPath", PrivilegeConstants.JCR_WRITE);
+        root.commit();
+        assertEquals(0, sharedCache.size());
+    }
+
+    @Test
+    public void testMissingPrincipalRootNotCached() throws Exception {
+        PrincipalPermissionEntries entries = createPermissionStore().load(getTestUser().getPrincipal().getName());
+        assertEquals(0, entries.getSize());
+        assertEquals(0, sharedCache.size());
+    }
+}
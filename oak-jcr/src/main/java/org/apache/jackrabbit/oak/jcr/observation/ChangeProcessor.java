@@ -44,6 +44,7 @@ import org.apache.jackrabbit.oak.commons.PerfLogger;
 import org.apache.jackrabbit.oak.commons.conditions.Validate;
 import org.apache.jackrabbit.oak.namepath.NamePathMapper;
 import org.apache.jackrabbit.oak.plugins.observation.CommitRateLimiter;
+import org.apache.jackrabbit.oak.plugins.observation.ContentDiffCache;
 import org.apache.jackrabbit.oak.plugins.observation.Filter;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringAwareObserver;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringDispatcher;
@@ -174,6 +175,13 @@ class ChangeProcessor implements FilteringAwareObserver {
     private final CommitRateLimiter commitRateLimiter;
     private final BlobAccessProvider blobAccessProvider;
 
+    /**
+     * Differences of recent content changes, shared by all change processors
+     * of a repository so that the node states of a content change are
+     * compared only once for all listeners.
+     */
+    private final ContentDiffCache diffCache;
+
     /**
      * Lazy initialization via the {@link #start(Whiteboard)} method
      */
@@ -208,7 +216,8 @@ class ChangeProcessor implements FilteringAwareObserver {
             StatisticManager statisticManager,
             int queueLength,
             CommitRateLimiter commitRateLimiter,
-            BlobAccessProvider blobAccessProvider) {
+            BlobAccessProvider blobAccessProvider,
+            ContentDiffCache diffCache) {
         this.contentSession = contentSession;
         this.namePathMapper = namePathMapper;
         this.tracker = tracker;
@@ -220,6 +229,7 @@ class ChangeProcessor implements FilteringAwareObserver {
         this.queueLength = queueLength;
         this.commitRateLimiter = commitRateLimiter;
         this.blobAccessProvider = blobAccessProvider;
+        this.diffCache = diffCache;
     }
 
     /**
@@ -498,7 +508,7 @@ class ChangeProcessor implements FilteringAwareObserver {
                 EventIterator events = new EventQueue(namePathMapper,
                         blobAccessProvider, info, before, after,
                         provider.getSubTrees(), Filters.all(filter, VISIBLE_FILTER), 
-                        provider.getEventAggregator());
+                        provider.getEventAggregator(), diffCache);
 
                 long time = System.nanoTime();
                 boolean hasEvents = events.hasNext();
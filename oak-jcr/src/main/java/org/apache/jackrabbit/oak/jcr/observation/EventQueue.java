@@ -28,6 +28,7 @@ import javax.jcr.observation.EventIterator;
 import org.apache.jackrabbit.oak.api.blob.BlobAccessProvider;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.namepath.NamePathMapper;
+import org.apache.jackrabbit.oak.plugins.observation.ContentDiffCache;
 import org.apache.jackrabbit.oak.plugins.observation.EventGenerator;
 import org.apache.jackrabbit.oak.plugins.observation.EventHandler;
 import org.apache.jackrabbit.oak.plugins.observation.FilteredHandler;
@@ -54,8 +55,8 @@ class EventQueue implements EventIterator {
             @NotNull BlobAccessProvider blobAccessProvider, CommitInfo info,
             @NotNull NodeState before, @NotNull NodeState after,
             @NotNull Iterable<String> basePaths, @NotNull EventFilter filter,
-            @Nullable EventAggregator aggregator) {
-        this.generator = new EventGenerator();
+            @Nullable EventAggregator aggregator, @NotNull ContentDiffCache diffCache) {
+        this.generator = new EventGenerator(diffCache, before, after);
         EventFactory factory = new EventFactory(mapper, blobAccessProvider, info);
         EventHandler handler = new FilteredHandler(
                 filter, new QueueingHandler(this, factory, aggregator, before, after));
@@ -74,7 +75,7 @@ class EventQueue implements EventIterator {
                 return;
             }
         }
-        generator.addHandler(before, after, handler);
+        generator.addHandler(path, before, after, handler);
     }
 
     /**
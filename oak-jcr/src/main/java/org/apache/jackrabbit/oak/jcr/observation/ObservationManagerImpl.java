@@ -55,6 +55,7 @@ import org.apache.jackrabbit.oak.jcr.session.SessionContext;
 import org.apache.jackrabbit.oak.namepath.NamePathMapper;
 import org.apache.jackrabbit.oak.plugins.nodetype.ReadOnlyNodeTypeManager;
 import org.apache.jackrabbit.oak.plugins.observation.CommitRateLimiter;
+import org.apache.jackrabbit.oak.plugins.observation.ContentDiffCache;
 import org.apache.jackrabbit.oak.plugins.observation.ExcludeExternal;
 import org.apache.jackrabbit.oak.plugins.observation.filter.FilterBuilder;
 import org.apache.jackrabbit.oak.plugins.observation.filter.FilterBuilder.Condition;
@@ -67,6 +68,7 @@ import org.apache.jackrabbit.oak.spi.commit.Observable;
 import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
 import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils;
 import org.apache.jackrabbit.oak.stats.StatisticManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -98,6 +100,7 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
     private final CommitRateLimiter commitRateLimiter;
     private final PermissionProviderFactory permissionProviderFactory;
     private final BlobAccessProvider blobAccessProvider;
+    private final ContentDiffCache diffCache;
 
     /**
      * Create a new instance based on a {@link ContentSession} that needs to implement
@@ -122,6 +125,9 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
         this.queueLength = queueLength;
         this.commitRateLimiter = commitRateLimiter;
         this.blobAccessProvider = sessionContext.getBlobAccessProvider();
+        // the repository registers the cache shared by all its sessions
+        ContentDiffCache cache = WhiteboardUtils.getService(whiteboard, ContentDiffCache.class);
+        this.diffCache = cache != null ? cache : new ContentDiffCache();
         this.permissionProviderFactory = new PermissionProviderFactory() {
             Set<Principal> principals = sessionDelegate.getAuthInfo().getPrincipals();
             @NotNull
@@ -163,7 +169,7 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
             // session. See OAK-1368.
             processor = new ChangeProcessor(sessionDelegate.getContentSession(), namePathMapper,
                     tracker, filterProvider, statisticManager, queueLength,
-                    commitRateLimiter, blobAccessProvider);
+                    commitRateLimiter, blobAccessProvider, diffCache);
             processors.put(listener, processor);
             processor.start(whiteboard);
         } else {
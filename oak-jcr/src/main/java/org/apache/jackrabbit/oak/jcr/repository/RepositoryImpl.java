@@ -57,6 +57,7 @@ import org.apache.jackrabbit.oak.jcr.session.SessionContext;
 import org.apache.jackrabbit.oak.jcr.session.SessionStats;
 import org.apache.jackrabbit.oak.jcr.version.FrozenNodeLogger;
 import org.apache.jackrabbit.oak.plugins.observation.CommitRateLimiter;
+import org.apache.jackrabbit.oak.plugins.observation.ContentDiffCache;
 import org.apache.jackrabbit.oak.spi.gc.DelegatingGCMonitor;
 import org.apache.jackrabbit.oak.spi.gc.GCMonitor;
 import org.apache.jackrabbit.oak.spi.mount.MountInfoProvider;
@@ -117,6 +118,8 @@ public class RepositoryImpl implements JackrabbitRepository {
     private final Clock.Fast clock;
     private final DelegatingGCMonitor gcMonitor = new DelegatingGCMonitor();
     private final Registration gcMonitorRegistration;
+    private final ContentDiffCache diffCache = new ContentDiffCache();
+    private final Registration diffCacheRegistration;
     private final MountInfoProvider mountInfoProvider;
     private final BlobAccessProvider blobAccessProvider;
     private final SessionQuerySettingsProvider sessionQuerySettingsProvider;
@@ -169,6 +172,7 @@ public class RepositoryImpl implements JackrabbitRepository {
         this.statisticManager = new StatisticManager(whiteboard, scheduledExecutor);
         this.clock = new Clock.Fast(scheduledExecutor);
         this.gcMonitorRegistration = whiteboard.register(GCMonitor.class, gcMonitor, emptyMap());
+        this.diffCacheRegistration = whiteboard.register(ContentDiffCache.class, diffCache, emptyMap());
         this.fastQueryResultSize = fastQueryResultSize;
         this.createSessionMBeans = createSessionMBeans;
         this.mountInfoProvider = WhiteboardUtils.getService(whiteboard, MountInfoProvider.class);
@@ -353,6 +357,8 @@ public class RepositoryImpl implements JackrabbitRepository {
     public void shutdown() {
         statisticManager.dispose();
         gcMonitorRegistration.unregister();
+        diffCacheRegistration.unregister();
+        diffCache.clear();
         frozenNodeLogger.close();
         clock.close();
         new ExecutorCloser(scheduledExecutor).close();
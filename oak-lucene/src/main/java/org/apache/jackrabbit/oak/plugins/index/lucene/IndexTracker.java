@@ -34,6 +34,7 @@ import org.apache.jackrabbit.oak.plugins.index.lucene.hybrid.NRTIndexFactory;
 import org.apache.jackrabbit.oak.plugins.index.lucene.reader.DefaultIndexReaderFactory;
 import org.apache.jackrabbit.oak.plugins.index.lucene.reader.LuceneIndexReaderFactory;
 import org.apache.jackrabbit.oak.plugins.index.search.BadIndexTracker;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.spi.commit.CompositeEditor;
 import org.apache.jackrabbit.oak.spi.commit.DefaultEditor;
 import org.apache.jackrabbit.oak.spi.commit.Editor;
@@ -88,6 +89,7 @@ public class IndexTracker {
     private volatile Map<String, LuceneIndexNodeManager> indices = emptyMap();
 
     private volatile boolean refresh;
+    private volatile FulltextResultCache resultCache;
     private volatile long nextAutoRefresh = System.currentTimeMillis() + AUTO_REFRESH_MILLIS;
 
     public IndexTracker() {
@@ -114,6 +116,10 @@ public class IndexTracker {
     public synchronized void close() {
         Map<String, LuceneIndexNodeManager> indices = this.indices;
         this.indices = emptyMap();
+        FulltextResultCache resultCache = this.resultCache;
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
 
         for (Map.Entry<String, LuceneIndexNodeManager> entry : indices.entrySet()) {
             try {
@@ -148,6 +154,21 @@ public class IndexTracker {
         return asyncIndexInfoService;
     }
 
+    /**
+     * Sets the cache for query results of the tracked indexes. The cached
+     * results of an index are removed whenever it is reopened.
+     *
+     * @param resultCache the cache, or {@code null} to disable caching
+     */
+    public void setResultCache(@Nullable FulltextResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @Nullable
+    public FulltextResultCache getResultCache() {
+        return resultCache;
+    }
+
     private synchronized void diffAndUpdate(final NodeState root) {
         if (asyncIndexInfoService != null && !asyncIndexInfoService.hasIndexerUpdatedForAnyLane(this.root, root)) {
             log.trace("No changed detected in async indexer state. Skipping further diff");
@@ -192,6 +213,11 @@ public class IndexTracker {
 
             badIndexTracker.markGoodIndexes(updates.keySet());
 
+            FulltextResultCache resultCache = this.resultCache;
+            if (resultCache != null) {
+                updates.keySet().forEach(resultCache::invalidate);
+            }
+
             //This might take some time as close need to acquire the
             //write lock which might be held by current running searches
             //Given that Tracker is now invoked from a BackgroundObserver
@@ -59,6 +59,11 @@ public class LuceneIndexEditorContext extends FulltextIndexEditorContext impleme
     public LuceneDocumentMaker newDocumentMaker(IndexDefinition.IndexingRule rule, String path){
         //Faceting is only enabled for async mode
         FacetsConfigProvider facetsConfigProvider = isAsyncIndexing() ? this : null;
+        if (facetsConfigProvider != null && isConcurrentIndexing()) {
+            //Read the config on the indexing thread, as documents are made concurrently
+            //while the directory writes to the definition builder
+            getFacetsConfig();
+        }
         return new LuceneDocumentMaker(getTextExtractor(), facetsConfigProvider, augmentorFactory,
             definition, rule, path);
     }
@@ -69,13 +74,28 @@ public class LuceneIndexEditorContext extends FulltextIndexEditorContext impleme
     }
 
     @Override
-    public FacetsConfig getFacetsConfig() {
+    public synchronized FacetsConfig getFacetsConfig() {
         if (facetsConfig == null){
-            facetsConfig = FacetHelper.getFacetsConfig(definitionBuilder);
+            //Documents made concurrently must not modify the definition builder,
+            //the multi-valued dimensions are written when the writer is closed
+            facetsConfig = isConcurrentIndexing() ? FacetHelper.getDeferredFacetsConfig(definitionBuilder)
+                    : FacetHelper.getFacetsConfig(definitionBuilder);
         }
         return facetsConfig;
     }
 
+    @Override
+    public void closeWriter() throws IOException {
+        super.closeWriter();
+        FacetsConfig config;
+        synchronized (this) {
+            config = facetsConfig;
+        }
+        if (config != null) {
+            FacetHelper.writePending(config);
+        }
+    }
+
     /** Only set for testing
      * @param c clock
      * */
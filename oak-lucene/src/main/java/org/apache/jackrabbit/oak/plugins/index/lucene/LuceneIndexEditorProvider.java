@@ -58,6 +58,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.apache.jackrabbit.oak.commons.conditions.Validate.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -83,6 +84,8 @@ public class LuceneIndexEditorProvider implements IndexEditorProvider {
     private IndexingQueue indexingQueue;
     private boolean nrtIndexingEnabled;
     private LuceneIndexWriterConfig writerConfig = new LuceneIndexWriterConfig();
+    private Executor indexingExecutor;
+    private int maxPendingDocuments;
 
     private final LuceneIndexMBean mbean;
     private final StatisticsProvider statisticsProvider;
@@ -224,18 +227,24 @@ public class LuceneIndexEditorProvider implements IndexEditorProvider {
                 asyncIndexing = false;
             }
 
+            DirectoryFactory directoryFactory = null;
             if (writerFactory == null) {
                 COWDirectoryCleanupCallback cowDirectoryCleanupCallback = new COWDirectoryCleanupCallback();
                 indexingContext.registerIndexCommitCallback(cowDirectoryCleanupCallback);
 
-                writerFactory = new DefaultIndexWriterFactory(mountInfoProvider,
-                        newDirectoryFactory(blobDeletionCallback, cowDirectoryCleanupCallback),
-                        writerConfig);
+                directoryFactory = newDirectoryFactory(blobDeletionCallback, cowDirectoryCleanupCallback);
+                writerFactory = new DefaultIndexWriterFactory(mountInfoProvider, directoryFactory, writerConfig);
             }
 
             LuceneIndexEditorContext context = new LuceneIndexEditorContext(root, definition, indexDefinition, callback,
                     writerFactory, extractedTextCache, augmentorFactory, indexingContext, asyncIndexing);
 
+            //Indexes written directly to the repository are not updated concurrently,
+            //as their directory writes to the NodeBuilder of the index definition
+            if (indexingExecutor != null && directoryFactory != null && !directoryFactory.remoteDirectory()) {
+                context.setConcurrentIndexing(indexingExecutor, maxPendingDocuments);
+            }
+
             if (propertyIndexUpdateCallback != null) {
                 callbacks.add(propertyIndexUpdateCallback);
             }
@@ -299,6 +308,22 @@ public class LuceneIndexEditorProvider implements IndexEditorProvider {
         this.writerConfig = writerConfig;
     }
 
+    /**
+     * Enables building and writing the Lucene documents of async indexes on
+     * the threads of the given executor, so that text extraction and analysis
+     * are not limited to the indexing thread. Deletes are applied after all
+     * updates submitted before them. Only applies to indexes written through
+     * a local directory, i.e. with copy-on-write or an out-of-band indexer.
+     *
+     * @param executor the executor, or {@code null} to index on the calling thread.
+     * @param maxPendingDocuments the maximum number of documents per index
+     *                            being built or written at any time.
+     */
+    public void setConcurrentIndexing(@Nullable Executor executor, int maxPendingDocuments) {
+        this.indexingExecutor = maxPendingDocuments > 0 ? executor : null;
+        this.maxPendingDocuments = maxPendingDocuments;
+    }
+
     GarbageCollectableBlobStore getBlobStore() {
         return blobStore;
     }
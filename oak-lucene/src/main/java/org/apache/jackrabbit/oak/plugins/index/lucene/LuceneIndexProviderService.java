@@ -26,6 +26,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -57,6 +58,7 @@ import org.apache.jackrabbit.oak.plugins.index.fulltext.PreExtractedTextProvider
 import org.apache.jackrabbit.oak.plugins.index.importer.IndexImporterProvider;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.ActiveDeletedBlobCollectorFactory;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.BufferedOakDirectory;
+import org.apache.jackrabbit.oak.plugins.index.lucene.directory.IndexFileBlockCache;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.LuceneIndexFileSystemStatistics;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.LuceneIndexImporter;
 import org.apache.jackrabbit.oak.plugins.index.lucene.hybrid.DocumentQueue;
@@ -69,6 +71,7 @@ import org.apache.jackrabbit.oak.plugins.index.lucene.reader.DefaultIndexReaderF
 import org.apache.jackrabbit.oak.plugins.index.search.ExtractedTextCache;
 import org.apache.jackrabbit.oak.plugins.index.search.IndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.TextExtractionStatsMBean;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.spi.blob.GarbageCollectableBlobStore;
 import org.apache.jackrabbit.oak.spi.commit.BackgroundObserver;
 import org.apache.jackrabbit.oak.spi.commit.BackgroundObserverMBean;
@@ -177,6 +180,16 @@ public class LuceneIndexProviderService {
     )
     private static final String PROP_THREAD_POOL_SIZE = "threadPoolSize";
 
+    private static final int PROP_INDEXING_THREADS_DEFAULT = 0;
+    @Property(
+            intValue = PROP_INDEXING_THREADS_DEFAULT,
+            label = "Indexing threads",
+            description = "Number of threads used to build and write the Lucene documents of async indexes " +
+                    "concurrently with the traversal of the content. Only used along with CopyOnWrite. " +
+                    "When set to 0 then documents would be indexed by the async indexing thread"
+    )
+    private static final String PROP_INDEXING_THREADS = "indexingThreads";
+
     private static final boolean PROP_PREFETCH_INDEX_FILES_DEFAULT = true;
     @Property(
             boolValue = PROP_PREFETCH_INDEX_FILES_DEFAULT,
@@ -186,6 +199,42 @@ public class LuceneIndexProviderService {
     )
     private static final String PROP_PREFETCH_INDEX_FILES = "prefetchIndexFiles";
 
+    private static final int PROP_INDEX_FILE_BLOCK_CACHE_SIZE_DEFAULT = 0;
+    @Property(
+            intValue = PROP_INDEX_FILE_BLOCK_CACHE_SIZE_DEFAULT,
+            label = "Index file block cache size (MB)",
+            description = "Off-heap cache size in MB for the blocks of index files which are read directly from " +
+                    "the repository, i.e. when CopyOnRead is disabled or the local copy is not yet available. " +
+                    "When set to 0 then cache would be disabled"
+    )
+    private static final String PROP_INDEX_FILE_BLOCK_CACHE_SIZE = "indexFileBlockCacheSizeInMB";
+
+    private static final int PROP_INDEX_FILE_READ_AHEAD_BLOCKS_DEFAULT = 2;
+    @Property(
+            intValue = PROP_INDEX_FILE_READ_AHEAD_BLOCKS_DEFAULT,
+            label = "Index file read-ahead blocks",
+            description = "Number of blocks loaded in the background into the index file block cache when an " +
+                    "index file is read sequentially. When set to 0 then read-ahead would be disabled"
+    )
+    private static final String PROP_INDEX_FILE_READ_AHEAD_BLOCKS = "indexFileReadAheadBlocks";
+
+    private static final int PROP_QUERY_RESULT_CACHE_SIZE_DEFAULT = 0;
+    @Property(
+            intValue = PROP_QUERY_RESULT_CACHE_SIZE_DEFAULT,
+            label = "Query result cache size",
+            description = "Maximum total number of result rows kept in the cache for query results, which is used " +
+                    "for repeated queries as long as the index is not updated. When set to 0 then cache would be disabled"
+    )
+    private static final String PROP_QUERY_RESULT_CACHE_SIZE = "queryResultCacheSize";
+
+    private static final int PROP_QUERY_RESULT_CACHE_MAX_ROWS_DEFAULT = 1000;
+    @Property(
+            intValue = PROP_QUERY_RESULT_CACHE_MAX_ROWS_DEFAULT,
+            label = "Query result cache max rows",
+            description = "Maximum number of rows of a query result which is kept in the query result cache"
+    )
+    private static final String PROP_QUERY_RESULT_CACHE_MAX_ROWS = "queryResultCacheMaxRows";
+
     private static final int PROP_EXTRACTED_TEXT_CACHE_SIZE_DEFAULT = 20;
     @Property(
             intValue = PROP_EXTRACTED_TEXT_CACHE_SIZE_DEFAULT,
@@ -241,8 +290,8 @@ public class LuceneIndexProviderService {
     @Property(
             longValue = PROP_HYBRID_QUEUE_TIMEOUT_DEFAULT,
             label = "Queue timeout",
-            description = "Maximum time to wait for adding entries to the queue used for storing Lucene Documents which need to be " +
-                    "added to local index"
+            description = "Maximum time to wait for adding entries to the full queue used for storing Lucene Documents which need to be " +
+                    "added to local index, without any of the queued entries being processed"
     )
     private static final String PROP_HYBRID_QUEUE_TIMEOUT = "hybridQueueTimeout";
 
@@ -345,12 +394,16 @@ public class LuceneIndexProviderService {
 
     private IndexCopier indexCopier;
 
+    private IndexFileBlockCache indexFileBlockCache;
+
     private ActiveDeletedBlobCollectorFactory.ActiveDeletedBlobCollector activeDeletedBlobCollector;
 
     private File indexDir;
 
     private ExecutorService executorService;
 
+    private ExecutorService indexingExecutorService;
+
     private int threadPoolSize;
 
     private ExtractedTextCache extractedTextCache;
@@ -420,7 +473,8 @@ public class LuceneIndexProviderService {
 
         registerIndexEditor(bundleContext, tracker, mBean, config);
 
-        LuceneIndexFileSystemStatistics luceneIndexFSStats = new LuceneIndexFileSystemStatistics(statisticsProvider, indexCopier);
+        LuceneIndexFileSystemStatistics luceneIndexFSStats = new LuceneIndexFileSystemStatistics(statisticsProvider,
+                indexCopier, indexFileBlockCache);
         registerLuceneFileSystemStats(luceneIndexFSStats, PropertiesUtil.toLong(config.get(PROP_INDEX_FILESYSTEM_STATS_INTERVAL),PROP_INDEX_FILESYSTEM_STATS_INTERVAL_DEFAULT));
     }
 
@@ -469,10 +523,21 @@ public class LuceneIndexProviderService {
             executorService.awaitTermination(1, TimeUnit.MINUTES);
         }
 
+        if (indexingExecutorService != null) {
+            indexingExecutorService.shutdown();
+            indexingExecutorService.awaitTermination(1, TimeUnit.MINUTES);
+            indexingExecutorService = null;
+        }
+
         if (extractedTextCache != null) {
             extractedTextCache.close();
         }
 
+        if (indexFileBlockCache != null) {
+            indexFileBlockCache.invalidateAll();
+            indexFileBlockCache = null;
+        }
+
         InfoStream.setDefault(InfoStream.NO_OUTPUT);
     }
 
@@ -538,6 +603,13 @@ public class LuceneIndexProviderService {
             editorProvider.setIndexingQueue(requireNonNull(documentQueue));
         }
 
+        int indexingThreads = PropertiesUtil.toInteger(config.get(PROP_INDEXING_THREADS), PROP_INDEXING_THREADS_DEFAULT);
+        if (indexingThreads > 0) {
+            indexingExecutorService = createIndexingExecutor(indexingThreads);
+            editorProvider.setConcurrentIndexing(indexingExecutorService, indexingThreads * 2);
+            log.info("Enabled concurrent indexing with {} threads", indexingThreads);
+        }
+
         Dictionary<String, Object> props = new Hashtable<>();
         props.put("type", TYPE_LUCENE);
         regs.add(bundleContext.registerService(IndexEditorProvider.class.getName(), editorProvider, props));
@@ -550,6 +622,7 @@ public class LuceneIndexProviderService {
 
     private IndexTracker createTracker(BundleContext bundleContext, Map<String, ?> config) throws IOException {
         boolean enableCopyOnRead = PropertiesUtil.toBoolean(config.get(PROP_COPY_ON_READ), true);
+        initializeIndexFileBlockCache(config);
         IndexTracker tracker;
         if (enableCopyOnRead){
             initializeIndexCopier(bundleContext, config);
@@ -557,15 +630,40 @@ public class LuceneIndexProviderService {
             if (hybridIndex) {
                 nrtIndexFactory = new NRTIndexFactory(indexCopier, statisticsProvider);
             }
-            tracker = new IndexTracker(new DefaultIndexReaderFactory(mountInfoProvider, indexCopier), nrtIndexFactory);
+            tracker = new IndexTracker(new DefaultIndexReaderFactory(mountInfoProvider, indexCopier,
+                    indexFileBlockCache), nrtIndexFactory);
         } else {
-            tracker = new IndexTracker(new DefaultIndexReaderFactory(mountInfoProvider, null));
+            tracker = new IndexTracker(new DefaultIndexReaderFactory(mountInfoProvider, null,
+                    indexFileBlockCache));
         }
 
         tracker.setAsyncIndexInfoService(asyncIndexInfoService);
+
+        int resultCacheSize = PropertiesUtil.toInteger(config.get(PROP_QUERY_RESULT_CACHE_SIZE),
+                PROP_QUERY_RESULT_CACHE_SIZE_DEFAULT);
+        if (resultCacheSize > 0) {
+            int maxRows = PropertiesUtil.toInteger(config.get(PROP_QUERY_RESULT_CACHE_MAX_ROWS),
+                    PROP_QUERY_RESULT_CACHE_MAX_ROWS_DEFAULT);
+            tracker.setResultCache(new FulltextResultCache(resultCacheSize, maxRows));
+            log.info("Enabled query result cache with size {} and max {} rows per result", resultCacheSize, maxRows);
+        }
         return tracker;
     }
 
+    private void initializeIndexFileBlockCache(Map<String, ?> config) {
+        int cacheSizeInMB = PropertiesUtil.toInteger(config.get(PROP_INDEX_FILE_BLOCK_CACHE_SIZE),
+                PROP_INDEX_FILE_BLOCK_CACHE_SIZE_DEFAULT);
+        if (cacheSizeInMB <= 0) {
+            return;
+        }
+        int readAheadBlocks = PropertiesUtil.toInteger(config.get(PROP_INDEX_FILE_READ_AHEAD_BLOCKS),
+                PROP_INDEX_FILE_READ_AHEAD_BLOCKS_DEFAULT);
+        indexFileBlockCache = new IndexFileBlockCache(cacheSizeInMB * ONE_MB, readAheadBlocks,
+                readAheadBlocks > 0 ? getExecutorService() : null);
+        log.info("Enabled index file block cache with size {} MB and {} read-ahead blocks",
+                cacheSizeInMB, readAheadBlocks);
+    }
+
     private void initializeIndexCopier(BundleContext bundleContext, Map<String, ?> config) throws IOException {
         if(indexCopier != null){
             return;
@@ -617,6 +715,20 @@ public class LuceneIndexProviderService {
         return executor;
     }
 
+    private ExecutorService createIndexingExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            private final Thread.UncaughtExceptionHandler handler = (t, e) -> log.warn("Error occurred in concurrent indexing ", e);
+            @Override
+            public Thread newThread(@NotNull Runnable r) {
+                Thread thread = new Thread(r, "oak-lucene-indexing-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler(handler);
+                return thread;
+            }
+        });
+    }
+
     private void registerObserver(BundleContext bundleContext, Map<String, ?> config) {
         boolean enableAsyncIndexOpen = PropertiesUtil.toBoolean(config.get(PROP_ASYNC_INDEX_OPEN), true);
         Observer observer = indexProvider;
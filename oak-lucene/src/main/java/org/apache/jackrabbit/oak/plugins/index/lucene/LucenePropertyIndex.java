@@ -70,6 +70,7 @@ import org.apache.jackrabbit.oak.plugins.index.search.SizeEstimator;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner.PlanResult;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner.PropertyIndexResult;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.plugins.index.search.util.QueryUtils;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextAnd;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextContains;
@@ -587,6 +588,10 @@ public class LucenePropertyIndex extends FulltextIndex {
             }
         };
         Iterator<FulltextResultRow> itr = rItr;
+        FulltextResultCache resultCache = tracker.getResultCache();
+        if (resultCache != null) {
+            itr = getCachedResult(resultCache, plan, rItr);
+        }
         SizeEstimator sizeEstimator = getSizeEstimator(plan);
 
         if (pr.hasPropertyIndexResult() || pr.evaluateSyncNodeTypeRestriction()) {
@@ -596,6 +601,30 @@ public class LucenePropertyIndex extends FulltextIndex {
         return new FulltextPathCursor(itr, rItr, plan, settings, sizeEstimator);
     }
 
+    /**
+     * Returns the cached rows for the current searcher of the index, or the rows
+     * of the given iterator, which are then added to the cache.
+     */
+    private Iterator<FulltextResultRow> getCachedResult(FulltextResultCache resultCache, IndexPlan plan,
+                                                        LuceneResultRowIterator rItr) {
+        LuceneIndexNode indexNode = tracker.acquireIndexNode(getPlanResult(plan).indexPath);
+        if (indexNode == null) {
+            return rItr;
+        }
+        String generation;
+        try {
+            generation = String.valueOf(indexNode.getIndexNodeId());
+        } finally {
+            indexNode.release();
+        }
+        Iterator<FulltextResultRow> cached = resultCache.get(plan, generation);
+        if (cached != null) {
+            LOG.debug("Using cached result for query [{}]", plan.getFilter());
+            return cached;
+        }
+        return resultCache.record(plan, generation, rItr, rItr);
+    }
+
     private static Query addDescendantClauseIfRequired(Query query, IndexPlan plan) {
         Filter filter = plan.getFilter();
 
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.guava.common.cache.Cache;
+import org.apache.jackrabbit.guava.common.cache.CacheBuilder;
+import org.apache.jackrabbit.guava.common.cache.CacheStats;
+import org.apache.jackrabbit.oak.api.Blob;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the blocks of index files read from the repository, shared by
+ * all read-only {@link OakDirectory} instances. It is used for queries which
+ * read the index files directly from the repository, because copy-on-read is
+ * disabled or the local copy is not yet available.
+ * <p>
+ * Blocks are kept in direct (off-heap) buffers and are keyed by the content
+ * identity of the blob they are stored in. Blobs without content identity
+ * are read without caching. When a file is read sequentially, the following
+ * blocks are loaded in the background if a read-ahead executor is configured.
+ */
+public class IndexFileBlockCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexFileBlockCache.class);
+
+    private final Cache<String, ByteBuffer> cache;
+
+    private final int readAheadBlocks;
+
+    private final Executor readAheadExecutor;
+
+    private final Set<String> pendingReadAheads = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong readAheadCount = new AtomicLong();
+
+    /**
+     * @param maxSizeInBytes the maximum size of the cached blocks.
+     * @param readAheadBlocks the number of blocks to load ahead of a
+     *                        sequential read, or 0 to disable read-ahead.
+     * @param readAheadExecutor executor for loading blocks ahead, or
+     *                          {@code null} to disable read-ahead.
+     */
+    public IndexFileBlockCache(long maxSizeInBytes, int readAheadBlocks,
+                               @Nullable Executor readAheadExecutor) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .weigher((String key, ByteBuffer block) -> block.capacity())
+                .recordStats()
+                .build();
+        this.readAheadBlocks = readAheadExecutor != null ? readAheadBlocks : 0;
+        this.readAheadExecutor = readAheadExecutor;
+    }
+
+    /**
+     * Returns the first {@code length} bytes of the given blob. The returned
+     * buffer is read-only and may be shared with other readers, so callers
+     * should only use absolute reads or work on a duplicate.
+     *
+     * @param blob the blob storing the block.
+     * @param length the length of the block.
+     * @return the block.
+     */
+    @NotNull
+    ByteBuffer getBlock(@NotNull Blob blob, int length) throws IOException {
+        String key = blob.getContentIdentity();
+        if (key == null) {
+            return load(blob, length, false);
+        }
+        try {
+            return cache.get(key, () -> load(blob, length, true));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of blocks to load ahead of a sequential read.
+     */
+    int getReadAheadBlocks() {
+        return readAheadBlocks;
+    }
+
+    /**
+     * Loads the block stored in the given blob in the background, unless it
+     * is already cached or being loaded.
+     *
+     * @param blob the blob storing the block.
+     * @param length the length of the block.
+     */
+    void readAhead(@NotNull Blob blob, int length) {
+        if (readAheadBlocks == 0) {
+            return;
+        }
+        String key = blob.getContentIdentity();
+        if (key == null || cache.asMap().containsKey(key) || !pendingReadAheads.add(key)) {
+            return;
+        }
+        try {
+            readAheadExecutor.execute(() -> {
+                try {
+                    if (!cache.asMap().containsKey(key)) {
+                        cache.asMap().putIfAbsent(key, load(blob, length, true));
+                        readAheadCount.incrementAndGet();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("Reading ahead block {} failed", key, e);
+                } finally {
+                    pendingReadAheads.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingReadAheads.remove(key);
+        }
+    }
+
+    /**
+     * @return the hit and miss statistics of this cache. Blocks loaded by
+     *          read-ahead are not counted as misses.
+     */
+    @NotNull
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of blocks loaded by read-ahead.
+     */
+    public long getReadAheadCount() {
+        return readAheadCount.get();
+    }
+
+    /**
+     * @return the number of cached blocks.
+     */
+    public long getBlockCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return the total size of the cached blocks in bytes.
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (ByteBuffer block : cache.asMap().values()) {
+            size += block.capacity();
+        }
+        return size;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static ByteBuffer load(Blob blob, int length, boolean direct) throws IOException {
+        ByteBuffer block = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        try (ReadableByteChannel channel = Channels.newChannel(blob.getNewStream())) {
+            while (block.hasRemaining()) {
+                if (channel.read(block) < 0) {
+                    throw new EOFException("Blob " + blob + " is shorter than the block length " + length);
+                }
+            }
+        }
+        block.flip();
+        return block.asReadOnlyBuffer();
+    }
+}
@@ -20,10 +20,12 @@
 package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
 
 
+import org.apache.jackrabbit.guava.common.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.index.lucene.IndexCopier;
 import org.apache.jackrabbit.oak.stats.CounterStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,26 +33,65 @@ public class LuceneIndexFileSystemStatistics implements Runnable {
 
     private final StatisticsProvider statisticsProvider;
     private final IndexCopier indexCopier;
+    private final IndexFileBlockCache blockCache;
     private static final String LOCAL_INDEX_DIR_SIZE = "LOCAL_INDEX_DIR_SIZE";
+    static final String INDEX_FILE_BLOCK_CACHE_HIT_COUNT = "INDEX_FILE_BLOCK_CACHE_HIT_COUNT";
+    static final String INDEX_FILE_BLOCK_CACHE_MISS_COUNT = "INDEX_FILE_BLOCK_CACHE_MISS_COUNT";
+    static final String INDEX_FILE_BLOCK_CACHE_HIT_PERCENTAGE = "INDEX_FILE_BLOCK_CACHE_HIT_PERCENTAGE";
+    static final String INDEX_FILE_BLOCK_CACHE_READ_AHEAD_COUNT = "INDEX_FILE_BLOCK_CACHE_READ_AHEAD_COUNT";
+    static final String INDEX_FILE_BLOCK_CACHE_SIZE = "INDEX_FILE_BLOCK_CACHE_SIZE";
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public LuceneIndexFileSystemStatistics(StatisticsProvider statsProvider, IndexCopier indexCopier) {
+        this(statsProvider, indexCopier, null);
+    }
+
+    public LuceneIndexFileSystemStatistics(StatisticsProvider statsProvider, @Nullable IndexCopier indexCopier,
+                                           @Nullable IndexFileBlockCache blockCache) {
         this.statisticsProvider = statsProvider;
         this.indexCopier = indexCopier;
+        this.blockCache = blockCache;
     }
 
     @Override
     public void run() {
-        calculateLocalIndexDirSize();
+        if (indexCopier != null) {
+            calculateLocalIndexDirSize();
+        }
+        if (blockCache != null) {
+            calculateBlockCacheStats();
+        }
     }
 
     private void calculateLocalIndexDirSize() {
         long localIndexDirSize = indexCopier.getLocalIndexDirSize();
-        CounterStats indexDirectorySizeStats = statisticsProvider.getCounterStats(LOCAL_INDEX_DIR_SIZE, StatsOptions.DEFAULT);
-        long deltaInSize = localIndexDirSize - indexDirectorySizeStats.getCount();
+        long deltaInSize = updateCounter(LOCAL_INDEX_DIR_SIZE, localIndexDirSize);
         if (deltaInSize != 0) {
-            indexDirectorySizeStats.inc(deltaInSize);
             log.debug("index directory size stats updated; size {} delta {}", localIndexDirSize, deltaInSize);
         }
     }
+
+    private void calculateBlockCacheStats() {
+        CacheStats stats = blockCache.getStats();
+        updateCounter(INDEX_FILE_BLOCK_CACHE_HIT_COUNT, stats.hitCount());
+        updateCounter(INDEX_FILE_BLOCK_CACHE_MISS_COUNT, stats.missCount());
+        updateCounter(INDEX_FILE_BLOCK_CACHE_HIT_PERCENTAGE, Math.round(stats.hitRate() * 100));
+        updateCounter(INDEX_FILE_BLOCK_CACHE_READ_AHEAD_COUNT, blockCache.getReadAheadCount());
+        updateCounter(INDEX_FILE_BLOCK_CACHE_SIZE, blockCache.getSizeInBytes());
+        log.debug("index file block cache stats updated; {}", stats);
+    }
+
+    /**
+     * Sets the counter with the given name to the given value.
+     *
+     * @return the difference to the previous value
+     */
+    private long updateCounter(String name, long value) {
+        CounterStats counter = statisticsProvider.getCounterStats(name, StatsOptions.DEFAULT);
+        long delta = value - counter.getCount();
+        if (delta != 0) {
+            counter.inc(delta);
+        }
+        return delta;
+    }
 }
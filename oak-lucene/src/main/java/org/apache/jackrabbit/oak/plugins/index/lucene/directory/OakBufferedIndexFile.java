@@ -264,6 +264,19 @@ class OakBufferedIndexFile implements OakIndexFile {
         }
     }
 
+    @Override
+    public byte readByte() throws IOException {
+        if (position >= length) {
+            String msg = String.format("Invalid byte range request for [%s][%s], " +
+                    "position: %d, file length: %d, len: %d", dirDetails, name, position, length, 1);
+            throw new IOException(msg);
+        }
+        loadBlob((int) (position / blobSize));
+        byte b = blob[(int) (position % blobSize)];
+        position++;
+        return b;
+    }
+
     @Override
     public void writeBytes(byte[] b, int offset, int len)
             throws IOException {
@@ -310,14 +323,14 @@ class OakBufferedIndexFile implements OakIndexFile {
         throw new IllegalArgumentException("Don't call copyBytes for buffered case");
     }
 
-    private static int determineBlobSize(NodeBuilder file){
+    static int determineBlobSize(NodeBuilder file){
         if (file.hasProperty(OakDirectory.PROP_BLOB_SIZE)){
             return Ints.checkedCast(file.getProperty(OakDirectory.PROP_BLOB_SIZE).getValue(Type.LONG));
         }
         return DEFAULT_BLOB_SIZE;
     }
 
-    private static byte[] readUniqueKey(NodeBuilder file) {
+    static byte[] readUniqueKey(NodeBuilder file) {
         if (file.hasProperty(OakDirectory.PROP_UNIQUE_KEY)) {
             String key = file.getString(OakDirectory.PROP_UNIQUE_KEY);
             return StringUtils.convertHexToBytes(key);
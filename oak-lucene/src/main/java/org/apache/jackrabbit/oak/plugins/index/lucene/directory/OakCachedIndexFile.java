@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.commons.collections.CollectionUtils;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.lucene.store.DataInput;
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.jackrabbit.JcrConstants.JCR_DATA;
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkElementIndex;
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkPositionIndexes;
+import static org.apache.jackrabbit.oak.api.Type.BINARIES;
+
+/**
+ * A read-only file, split into multiple blobs like {@link OakBufferedIndexFile},
+ * whose blocks are read through the shared {@link IndexFileBlockCache} instead
+ * of being loaded into a buffer of its own.
+ */
+class OakCachedIndexFile implements OakIndexFile {
+
+    /**
+     * The file name.
+     */
+    private final String name;
+
+    private final String dirDetails;
+
+    private final IndexFileBlockCache blockCache;
+
+    /**
+     * The maximum size of each blob.
+     */
+    private final int blobSize;
+
+    /**
+     * The length of the file.
+     */
+    private final long length;
+
+    /**
+     * The list of blobs (might be empty), {@code null} once closed.
+     */
+    private List<Blob> data;
+
+    /**
+     * The current position within the file.
+     */
+    private long position = 0;
+
+    /**
+     * The index of the current block.
+     */
+    private int index = -1;
+
+    /**
+     * The current block, a duplicate of the cached block owned by this file.
+     */
+    private ByteBuffer block;
+
+    OakCachedIndexFile(String name, NodeBuilder file, String dirDetails,
+                       @NotNull IndexFileBlockCache blockCache) {
+        this.name = name;
+        this.dirDetails = dirDetails;
+        this.blockCache = requireNonNull(blockCache);
+        this.blobSize = OakBufferedIndexFile.determineBlobSize(file);
+        byte[] uniqueKey = OakBufferedIndexFile.readUniqueKey(file);
+
+        PropertyState property = file.getProperty(JCR_DATA);
+        if (property != null && property.getType() == BINARIES) {
+            this.data = Collections.unmodifiableList(CollectionUtils.toList(property.getValue(BINARIES)));
+        } else {
+            this.data = Collections.emptyList();
+        }
+
+        long length = (long) data.size() * blobSize;
+        if (!data.isEmpty()) {
+            Blob last = data.get(data.size() - 1);
+            length -= blobSize - last.length();
+            if (uniqueKey != null) {
+                length -= uniqueKey.length;
+            }
+        }
+        this.length = length;
+    }
+
+    private OakCachedIndexFile(OakCachedIndexFile that) {
+        this.name = that.name;
+        this.dirDetails = that.dirDetails;
+        this.blockCache = that.blockCache;
+        this.blobSize = that.blobSize;
+        this.length = that.length;
+        this.data = that.data;
+        this.position = that.position;
+        this.index = that.index;
+        this.block = that.block != null ? that.block.duplicate() : null;
+    }
+
+    private void loadBlock(int i) throws IOException {
+        if (index != i) {
+            checkElementIndex(i, data.size());
+            boolean sequential = i == index + 1;
+            block = blockCache.getBlock(data.get(i), getBlockLength(i)).duplicate();
+            index = i;
+            if (sequential) {
+                int last = Math.min(data.size() - 1, i + blockCache.getReadAheadBlocks());
+                for (int j = i + 1; j <= last; j++) {
+                    blockCache.readAhead(data.get(j), getBlockLength(j));
+                }
+            }
+        }
+    }
+
+    private int getBlockLength(int i) {
+        return (int) Math.min(blobSize, length - (long) i * blobSize);
+    }
+
+    @Override
+    public OakIndexFile clone() {
+        return new OakCachedIndexFile(this);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        this.block = null;
+        this.data = null;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return data == null;
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        // seek() may be called with pos == length
+        // see https://issues.apache.org/jira/browse/LUCENE-1196
+        if (pos < 0 || pos > length) {
+            String msg = String.format("Invalid seek request for [%s][%s], " +
+                    "position: %d, file length: %d", dirDetails, name, pos, length);
+            throw new IOException(msg);
+        } else {
+            position = pos;
+        }
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (position >= length) {
+            String msg = String.format("Invalid byte range request for [%s][%s], " +
+                    "position: %d, file length: %d, len: %d", dirDetails, name, position, length, 1);
+            throw new IOException(msg);
+        }
+        loadBlock((int) (position / blobSize));
+        byte b = block.get((int) (position % blobSize));
+        position++;
+        return b;
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len)
+            throws IOException {
+        checkPositionIndexes(offset, offset + len, requireNonNull(b).length);
+
+        if (len < 0 || position + len > length) {
+            String msg = String.format("Invalid byte range request for [%s][%s], " +
+                    "position: %d, file length: %d, len: %d", dirDetails, name, position, length, len);
+            throw new IOException(msg);
+        }
+
+        int i = (int) (position / blobSize);
+        int o = (int) (position % blobSize);
+        while (len > 0) {
+            loadBlock(i);
+
+            int l = Math.min(len, blobSize - o);
+            block.position(o);
+            block.get(b, offset, l);
+
+            offset += l;
+            len -= l;
+            position += l;
+            // next block
+            i++;
+            // for the next block, we read from the beginning
+            o = 0;
+        }
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int len) {
+        throw new UnsupportedOperationException("Read only file [" + dirDetails + "][" + name + "]");
+    }
+
+    @Override
+    public boolean supportsCopyFromDataInput() {
+        return false;
+    }
+
+    @Override
+    public void copyBytes(DataInput input, long numBytes) {
+        throw new UnsupportedOperationException("Read only file [" + dirDetails + "][" + name + "]");
+    }
+
+    @Override
+    public void flush() {
+        // nothing to flush
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -85,6 +85,7 @@ public class OakDirectory extends Directory {
     private final String indexName;
     private final BlobFactory blobFactory;
     private final BlobDeletionCallback blobDeletionCallback;
+    private final IndexFileBlockCache blockCache;
     private volatile boolean dirty;
 
     public OakDirectory(NodeBuilder builder, LuceneIndexDefinition definition, boolean readOnly) {
@@ -123,6 +124,20 @@ public class OakDirectory extends Directory {
                         boolean readOnly, BlobFactory blobFactory,
                         @NotNull ActiveDeletedBlobCollectorFactory.BlobDeletionCallback blobDeletionCallback,
                         boolean streamingWriteEnabled) {
+        this(builder, dataNodeName, definition, readOnly, blobFactory, blobDeletionCallback,
+                streamingWriteEnabled, null);
+    }
+
+    /**
+     * @param blockCache cache for the blocks of the index files, used when
+     *                   reading the files of a read-only directory. If
+     *                   {@code null}, each input loads the blocks it reads
+     *                   into a buffer of its own.
+     */
+    public OakDirectory(NodeBuilder builder, String dataNodeName, LuceneIndexDefinition definition,
+                        boolean readOnly, BlobFactory blobFactory,
+                        @NotNull ActiveDeletedBlobCollectorFactory.BlobDeletionCallback blobDeletionCallback,
+                        boolean streamingWriteEnabled, @Nullable IndexFileBlockCache blockCache) {
 
         this.lockFactory = NoLockFactory.getNoLockFactory();
         this.builder = builder;
@@ -136,6 +151,7 @@ public class OakDirectory extends Directory {
         this.blobFactory = blobFactory;
         this.blobDeletionCallback = blobDeletionCallback;
         this.streamingWriteEnabled = streamingWriteEnabled;
+        this.blockCache = readOnly ? blockCache : null;
     }
 
     @Override
@@ -190,7 +206,7 @@ public class OakDirectory extends Directory {
             String msg = String.format("[%s] %s", indexName, name);
             throw new FileNotFoundException(msg);
         }
-        OakIndexInput input = new OakIndexInput(name, file, indexName, blobFactory);
+        OakIndexInput input = new OakIndexInput(name, file, indexName, blobFactory, blockCache);
         try {
             return input.length();
         } finally {
@@ -234,13 +250,39 @@ public class OakDirectory extends Directory {
             throws IOException {
         NodeBuilder file = directoryBuilder.getChildNode(name);
         if (file.exists()) {
-            return new OakIndexInput(name, file, indexName, blobFactory);
+            return new OakIndexInput(name, file, indexName, blobFactory, blockCache);
         } else {
             String msg = String.format("[%s] %s", indexName, name);
             throw new FileNotFoundException(msg);
         }
     }
 
+    @Override
+    public IndexInputSlicer createSlicer(final String name, final IOContext context) throws IOException {
+        if (blockCache == null) {
+            return super.createSlicer(name, context);
+        }
+        // slices read the cached blocks directly, instead of copying
+        // them into the buffer of a sliced input
+        final OakIndexInput base = (OakIndexInput) openInput(name, context);
+        return new IndexInputSlicer() {
+            @Override
+            public IndexInput openSlice(String sliceDescription, long offset, long length) throws IOException {
+                return base.slice(sliceDescription, offset, length);
+            }
+
+            @Override
+            public IndexInput openFullSlice() {
+                return base.clone();
+            }
+
+            @Override
+            public void close() {
+                base.close();
+            }
+        };
+    }
+
     @Override
     public Lock makeLock(String name) {
         return lockFactory.makeLock(name);
@@ -22,8 +22,10 @@ import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.lucene.store.DataInput;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static org.apache.jackrabbit.JcrConstants.JCR_DATA;
+import static org.apache.jackrabbit.oak.api.Type.BINARIES;
 import static org.apache.jackrabbit.oak.api.Type.BINARY;
 
 public interface OakIndexFile {
@@ -48,6 +50,20 @@ public interface OakIndexFile {
                 new OakBufferedIndexFile(name, file, dirDetails, blobFactory);
     }
 
+    /**
+     * Returns a file for reading. Files split into multiple blobs are read
+     * through the given block cache, if any.
+     */
+    static OakIndexFile getOakIndexFile(String name, NodeBuilder file, String dirDetails,
+                                        @NotNull BlobFactory blobFactory,
+                                        @Nullable IndexFileBlockCache blockCache) {
+        PropertyState property = file.getProperty(JCR_DATA);
+        if (blockCache != null && property != null && property.getType() == BINARIES) {
+            return new OakCachedIndexFile(name, file, dirDetails, blockCache);
+        }
+        return getOakIndexFile(name, file, dirDetails, blobFactory);
+    }
+
     /**
      * @return if the file implementation supports copying data from {@link DataInput} directly.
      */
@@ -99,6 +115,17 @@ public interface OakIndexFile {
     void readBytes(byte[] b, int offset, int len)
             throws IOException;
 
+    /**
+     * Read a single byte from underlying storage
+     * @return the byte read
+     * @throws IOException
+     */
+    default byte readByte() throws IOException {
+        byte[] b = new byte[1];
+        readBytes(b, 0, 1);
+        return b[0];
+    }
+
     /**
      * Writes {@code len} number of bytes from byte array {@code b}
      * starting at {@code offset} into the underlying storage
@@ -23,6 +23,7 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.WeakIdentityMap;
+import org.jetbrains.annotations.Nullable;
 
 import static org.apache.jackrabbit.oak.plugins.index.lucene.directory.OakIndexFile.getOakIndexFile;
 
@@ -33,11 +34,28 @@ class OakIndexInput extends IndexInput {
     private final WeakIdentityMap<OakIndexInput, Boolean> clones;
     private final String dirDetails;
 
+    /**
+     * The offset of a slice within the file, 0 if this is not a slice.
+     */
+    private final long sliceOffset;
+
+    /**
+     * The length of a slice, -1 if this is not a slice.
+     */
+    private final long sliceLength;
+
     public OakIndexInput(String name, NodeBuilder file, String dirDetails,
                          BlobFactory blobFactory) {
+        this(name, file, dirDetails, blobFactory, null);
+    }
+
+    public OakIndexInput(String name, NodeBuilder file, String dirDetails,
+                         BlobFactory blobFactory, @Nullable IndexFileBlockCache blockCache) {
         super(name);
         this.dirDetails = dirDetails;
-        this.file = getOakIndexFile(name, file, dirDetails, blobFactory);
+        this.file = getOakIndexFile(name, file, dirDetails, blobFactory, blockCache);
+        this.sliceOffset = 0;
+        this.sliceLength = -1;
         clones = WeakIdentityMap.newConcurrentHashMap();
     }
 
@@ -46,6 +64,19 @@ class OakIndexInput extends IndexInput {
         this.file = that.file.clone();
         clones = null;
         this.dirDetails = that.dirDetails;
+        this.sliceOffset = that.sliceOffset;
+        this.sliceLength = that.sliceLength;
+    }
+
+    private OakIndexInput(OakIndexInput that, String sliceDescription,
+                          long offset, long length) throws IOException {
+        super(sliceDescription + " in " + that);
+        this.file = that.file.clone();
+        clones = null;
+        this.dirDetails = that.dirDetails;
+        this.sliceOffset = that.sliceOffset + offset;
+        this.sliceLength = length;
+        this.file.seek(sliceOffset);
     }
 
     @Override
@@ -59,36 +90,58 @@ class OakIndexInput extends IndexInput {
         return clonedIndexInput;
     }
 
+    /**
+     * Returns a slice of this input, which reads the given range of the
+     * file directly instead of through an additional buffer.
+     */
+    OakIndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+        checkNotClosed();
+        if (offset < 0 || length < 0 || offset + length > length()) {
+            throw new IllegalArgumentException("Slice [" + sliceDescription + "] out of bounds: offset="
+                    + offset + ", length=" + length + ", fileLength=" + length() + ": [" + dirDetails + "] " + this);
+        }
+        OakIndexInput slice = new OakIndexInput(this, sliceDescription, offset, length);
+        slice.isClone = true;
+        if (clones != null) {
+            clones.put(slice, Boolean.TRUE);
+        }
+        return slice;
+    }
+
     @Override
     public void readBytes(byte[] b, int o, int n) throws IOException {
         checkNotClosed();
+        checkSliceBounds(n);
         file.readBytes(b, o, n);
     }
 
     @Override
     public byte readByte() throws IOException {
         checkNotClosed();
-        byte[] b = new byte[1];
-        readBytes(b, 0, 1);
-        return b[0];
+        checkSliceBounds(1);
+        return file.readByte();
     }
 
     @Override
     public void seek(long pos) throws IOException {
         checkNotClosed();
-        file.seek(pos);
+        if (sliceLength >= 0 && (pos < 0 || pos > sliceLength)) {
+            throw new IOException("Invalid seek request for slice [" + dirDetails + "] " + this
+                    + ", position: " + pos + ", slice length: " + sliceLength);
+        }
+        file.seek(sliceOffset + pos);
     }
 
     @Override
     public long length() {
         checkNotClosed();
-        return file.length();
+        return sliceLength >= 0 ? sliceLength : file.length();
     }
 
     @Override
     public long getFilePointer() {
         checkNotClosed();
-        return file.position();
+        return file.position() - sliceOffset;
     }
 
     @Override
@@ -104,6 +157,13 @@ class OakIndexInput extends IndexInput {
         }
     }
 
+    private void checkSliceBounds(int len) throws IOException {
+        if (sliceLength >= 0 && file.position() + len > sliceOffset + sliceLength) {
+            throw new IOException("Read past end of slice [" + dirDetails + "] " + this
+                    + ", position: " + getFilePointer() + ", slice length: " + sliceLength + ", len: " + len);
+        }
+    }
+
     private void checkNotClosed() {
         if (file.isClosed()) {
             throw new AlreadyClosedException("Already closed: [" + dirDetails + "] " + this);
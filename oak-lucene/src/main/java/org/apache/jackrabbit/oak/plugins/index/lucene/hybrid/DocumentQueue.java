@@ -23,14 +23,12 @@ import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
 import org.apache.jackrabbit.guava.common.collect.ArrayListMultimap;
@@ -44,33 +42,51 @@ import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexNode;
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexProviderService;
 import org.apache.jackrabbit.oak.plugins.index.lucene.writer.LuceneIndexWriter;
 import org.apache.jackrabbit.oak.stats.CounterStats;
+import org.apache.jackrabbit.oak.stats.HistogramStats;
 import org.apache.jackrabbit.oak.stats.MeterStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
-import org.apache.lucene.index.IndexableField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Queue of documents for the NRT and sync indexes. Documents are added to a
+ * lock-free ring buffer, which is drained in batches on a background thread,
+ * grouped by index.
+ * <p>
+ * If the buffer is full, {@link #add(LuceneDoc)} waits as long as the
+ * background processing makes progress, thereby slowing down the producer.
+ * A document is only dropped if no document was processed for
+ * {@code queueOfferTimeoutMillis}.
+ */
 public class DocumentQueue implements Closeable, IndexingQueue {
     private static final PerfLogger PERF_LOGGER =
             new PerfLogger(LoggerFactory.getLogger(DocumentQueue.class.getName() + ".perf"));
-    private static final LuceneDoc STOP = LuceneDoc.forUpdate("", "", Collections.<IndexableField>emptyList());
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final IndexTracker tracker;
-    private final BlockingQueue<LuceneDoc> docsQueue;
+    private final DocumentRingBuffer<LuceneDoc> docsQueue;
     private final Executor executor;
     private final CounterStats queueSizeStats;
+    private final HistogramStats queueOccupancy;
     private final MeterStats added;
     private final MeterStats dropped;
+    private final MeterStats blocked;
     private final Striped<Lock> locks = Striped.lock(64);
     private UncaughtExceptionHandler delegate = (t, e) -> {};
 
     /**
-     * Time in millis for which add call to queue
-     * would wait before dropping off
+     * Time in millis for which add call to a full queue would wait
+     * for progress of the queue processing before dropping off
      */
     private final long queueOfferTimeoutMillis;
 
+    /**
+     * Monitor on which producers wait while the queue is full
+     */
+    private final Object notFull = new Object();
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
     private volatile boolean stopped;
 
     /**
@@ -98,23 +114,25 @@ public class DocumentQueue implements Closeable, IndexingQueue {
             public Void call() throws Exception {
                 try {
                     long start = PERF_LOGGER.start();
-                    int maxSize = docsQueue.size();
-                    List<LuceneDoc> docs = new ArrayList<>(maxSize);
+                    List<LuceneDoc> docs = new ArrayList<>(docsQueue.size());
                     ListMultimap<String, LuceneDoc> docsPerIndex = ArrayListMultimap.create();
 
                     //Do the processing in batches
-                    int count = docsQueue.drainTo(docs, maxSize);
+                    int count = docsQueue.drainTo(docs, docsQueue.capacity());
                     if (count == 0) {
                         return null;
                     }
 
                     queueSizeStats.dec(count);
+                    queueOccupancy.update(count);
+                    signalNotFull();
+
+                    if (stopped) {
+                        return null;
+                    }
 
                     for (int i = 0; i < count; i++) {
                         LuceneDoc doc = docs.get(i);
-                        if (doc == STOP) {
-                            return null;
-                        }
                         docsPerIndex.get(doc.indexPath).add(doc);
                     }
 
@@ -143,13 +161,15 @@ public class DocumentQueue implements Closeable, IndexingQueue {
     }
 
     public DocumentQueue(int maxQueueSize, long queueOfferTimeoutMillis, IndexTracker tracker, Executor executor, StatisticsProvider sp) {
-        this.docsQueue = new LinkedBlockingDeque<>(maxQueueSize);
+        this.docsQueue = new DocumentRingBuffer<>(maxQueueSize);
         this.tracker = tracker;
         this.executor = executor;
         this.queueOfferTimeoutMillis = queueOfferTimeoutMillis;
         this.queueSizeStats = sp.getCounterStats("HYBRID_QUEUE_SIZE", StatsOptions.DEFAULT);
+        this.queueOccupancy = sp.getHistogram("HYBRID_QUEUE_OCCUPANCY", StatsOptions.METRICS_ONLY);
         this.added = sp.getMeter("HYBRID_ADDED", StatsOptions.DEFAULT);
         this.dropped = sp.getMeter("HYBRID_DROPPED", StatsOptions.DEFAULT);
+        this.blocked = sp.getMeter("HYBRID_BLOCKED", StatsOptions.DEFAULT);
     }
 
     @Override
@@ -168,11 +188,10 @@ public class DocumentQueue implements Closeable, IndexingQueue {
     @Override
     public boolean add(LuceneDoc doc){
         Validate.checkState(!stopped);
-        boolean added = false;
-        try {
-            added = docsQueue.offer(doc, queueOfferTimeoutMillis, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        boolean added = docsQueue.offer(doc);
+        if (!added) {
+            blocked.mark();
+            added = offerWithBackpressure(doc);
         }
         scheduleQueuedDocsProcessing();
 
@@ -187,6 +206,53 @@ public class DocumentQueue implements Closeable, IndexingQueue {
         return added;
     }
 
+    /**
+     * Waits for a free slot while the queue is being processed. Gives up
+     * once no document was taken from the queue for
+     * {@code queueOfferTimeoutMillis}, or if the queue is closed.
+     */
+    private boolean offerWithBackpressure(LuceneDoc doc) {
+        //Make sure the queued docs get processed while waiting
+        scheduleQueuedDocsProcessing();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueOfferTimeoutMillis);
+        long lastRemoved = docsQueue.removedCount();
+        long deadline = System.nanoTime() + timeoutNanos;
+        waitingProducers.incrementAndGet();
+        try {
+            synchronized (notFull) {
+                while (!stopped) {
+                    if (docsQueue.offer(doc)) {
+                        return true;
+                    }
+                    long removed = docsQueue.removedCount();
+                    if (removed != lastRemoved) {
+                        //Queue processing made progress, so keep waiting
+                        lastRemoved = removed;
+                        deadline = System.nanoTime() + timeoutNanos;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(notFull, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitingProducers.decrementAndGet();
+        }
+        return false;
+    }
+
+    private void signalNotFull() {
+        if (waitingProducers.get() > 0) {
+            synchronized (notFull) {
+                notFull.notifyAll();
+            }
+        }
+    }
+
     @Override
     public void scheduleQueuedDocsProcessing() {
         // Set the completion handler on the currently running task. Multiple calls
@@ -230,9 +296,7 @@ public class DocumentQueue implements Closeable, IndexingQueue {
     }
 
     List<LuceneDoc> getQueuedDocs(){
-        List<LuceneDoc> docs = new ArrayList<>();
-        docs.addAll(docsQueue);
-        return docs;
+        return docsQueue.toList();
     }
 
     private void processDocs(String indexPath, Iterable<LuceneDoc> docs, boolean docsFromQueue){
@@ -291,8 +355,8 @@ public class DocumentQueue implements Closeable, IndexingQueue {
     public void close() throws IOException {
         //Its fine to "drop" any entry in queue as
         //local index is meant for running state only
-        docsQueue.clear();
-        docsQueue.add(STOP);
         stopped = true;
+        docsQueue.clear();
+        signalNotFull();
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene.hybrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.jackrabbit.oak.commons.conditions.Validate.checkArgument;
+
+/**
+ * A bounded, lock-free ring buffer which can be used by multiple producers
+ * and consumers concurrently.
+ * <p>
+ * Each slot has a sequence number telling whether it can be written to or
+ * read from for the current position, so that producers only compete on
+ * the tail position and consumers on the head position.
+ */
+class DocumentRingBuffer<E> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    /**
+     * The position of the next element to be added.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next element to be removed.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    DocumentRingBuffer(int capacity) {
+        checkArgument(capacity > 0, "capacity must be positive but was %s", capacity);
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the given element if the buffer is not full.
+     *
+     * @param e the element to add.
+     * @return {@code true} if the element was added.
+     */
+    boolean offer(@NotNull E e) {
+        requireNonNull(e);
+        long pos = tail.get();
+        while (true) {
+            int slot = slot(pos);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.set(slot, e);
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // the slot still holds the element added one round before
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element.
+     *
+     * @return the element or {@code null} if the buffer is empty.
+     */
+    @Nullable
+    E poll() {
+        long pos = head.get();
+        while (true) {
+            int slot = slot(pos);
+            long diff = sequences.get(slot) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = elements.get(slot);
+                    elements.set(slot, null);
+                    sequences.set(slot, pos + capacity);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                // empty, or the producer of this slot has not finished yet
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Removes up to {@code maxElements} elements and adds them to the given
+     * list in the order they were added.
+     *
+     * @return the number of removed elements.
+     */
+    int drainTo(@NotNull List<? super E> list, int maxElements) {
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = poll()) != null) {
+            list.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the total number of elements removed so far, which can be used
+     *          to check whether the buffer is being consumed.
+     */
+    long removedCount() {
+        return head.get();
+    }
+
+    /**
+     * @return the approximate number of elements in the buffer.
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+
+    /**
+     * @return a snapshot of the elements in the buffer, which might be
+     *          inconsistent while elements are added or removed.
+     */
+    List<E> toList() {
+        List<E> result = new ArrayList<>(size());
+        long h = head.get();
+        long t = tail.get();
+        for (long pos = h; pos < t; pos++) {
+            E e = elements.get(slot(pos));
+            if (e != null) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    private int slot(long pos) {
+        return (int) (pos % capacity);
+    }
+}
@@ -34,7 +34,8 @@ public interface IndexingQueue {
 
     /**
      * Adds the given doc to a queue with possible wait if queue is full.
-     * The wait would be having an upper limit
+     * The wait continues while queued docs are being processed and ends
+     * after a time limit without any progress
      *
      * @param doc LuceneDoc to be added
      * @return true if the doc was added to the queue
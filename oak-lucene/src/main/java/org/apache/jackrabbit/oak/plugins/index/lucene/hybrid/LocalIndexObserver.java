@@ -70,7 +70,7 @@ public class LocalIndexObserver implements Observer {
 
         if (droppedCount > 0){
             //TODO Ensure that log do not flood
-            log.warn("Dropped [{}] docs from indexing as queue is full", droppedCount);
+            log.warn("Dropped [{}] docs from indexing as queue is full and not being processed", droppedCount);
         }
     }
 }
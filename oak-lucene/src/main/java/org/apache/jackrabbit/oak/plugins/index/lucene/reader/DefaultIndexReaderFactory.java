@@ -27,11 +27,15 @@ import java.util.List;
 import org.apache.jackrabbit.guava.common.collect.ImmutableList;
 import org.apache.jackrabbit.oak.plugins.index.lucene.IndexCopier;
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexDefinition;
+import org.apache.jackrabbit.oak.plugins.index.lucene.directory.ActiveDeletedBlobCollectorFactory.BlobDeletionCallback;
+import org.apache.jackrabbit.oak.plugins.index.lucene.directory.BlobFactory;
+import org.apache.jackrabbit.oak.plugins.index.lucene.directory.IndexFileBlockCache;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.OakDirectory;
 import org.apache.jackrabbit.oak.plugins.index.lucene.writer.MultiplexersLucene;
 import org.apache.jackrabbit.oak.plugins.index.search.FulltextIndexConstants;
 import org.apache.jackrabbit.oak.spi.mount.Mount;
 import org.apache.jackrabbit.oak.spi.mount.MountInfoProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.ReadOnlyBuilder;
 import org.apache.lucene.store.Directory;
@@ -43,10 +47,17 @@ import static org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexConstant
 public class DefaultIndexReaderFactory implements LuceneIndexReaderFactory {
     private final IndexCopier cloner;
     private final MountInfoProvider mountInfoProvider;
+    private final IndexFileBlockCache blockCache;
 
     public DefaultIndexReaderFactory(MountInfoProvider mountInfoProvider, @Nullable IndexCopier cloner) {
+        this(mountInfoProvider, cloner, null);
+    }
+
+    public DefaultIndexReaderFactory(MountInfoProvider mountInfoProvider, @Nullable IndexCopier cloner,
+                                     @Nullable IndexFileBlockCache blockCache) {
         this.cloner = cloner;
         this.mountInfoProvider = mountInfoProvider;
+        this.blockCache = blockCache;
     }
 
     @Override
@@ -93,7 +104,7 @@ public class DefaultIndexReaderFactory implements LuceneIndexReaderFactory {
         Directory directory = null;
         NodeState data = defnNodeState.getChildNode(indexDataNodeName);
         if (data.exists()) {
-            directory = new OakDirectory(new ReadOnlyBuilder(defnNodeState), indexDataNodeName, definition, true);
+            directory = newOakDirectory(definition, defnNodeState, indexDataNodeName);
             if (cloner != null) {
                 directory = cloner.wrapForRead(indexPath, definition, directory, indexDataNodeName);
             }
@@ -108,7 +119,7 @@ public class DefaultIndexReaderFactory implements LuceneIndexReaderFactory {
         if (directory != null) {
             Directory suggestDirectory = null;
             if (definition.isSuggestEnabled()) {
-                suggestDirectory = new OakDirectory(new ReadOnlyBuilder(defnNodeState), suggestDataNodeName, definition, true);
+                suggestDirectory = newOakDirectory(definition, defnNodeState, suggestDataNodeName);
                 if (cloner != null && definition.getUniqueId() != null) {
                     suggestDirectory = cloner.wrapForRead(indexPath, definition, suggestDirectory, suggestDataNodeName);
                 }
@@ -127,6 +138,13 @@ public class DefaultIndexReaderFactory implements LuceneIndexReaderFactory {
         return null;
     }
 
+    private OakDirectory newOakDirectory(LuceneIndexDefinition definition, NodeState defnNodeState,
+                                         String dataNodeName) {
+        NodeBuilder builder = new ReadOnlyBuilder(defnNodeState);
+        return new OakDirectory(builder, dataNodeName, definition, true,
+                BlobFactory.getNodeBuilderBlobFactory(builder), BlobDeletionCallback.NOOP, false, blockCache);
+    }
+
     @Override
     public MountInfoProvider getMountInfoProvider() {
         return mountInfoProvider;
@@ -63,6 +63,29 @@ public class FacetHelper {
         return new NodeStateFacetsConfig(definition);
     }
 
+    /**
+     * Get a facets config that only writes multi-valued dimensions to the
+     * definition when {@link #writePending(FacetsConfig)} is called.
+     *
+     * @param definition the index definition builder
+     * @return the facets config
+     */
+    public static FacetsConfig getDeferredFacetsConfig(NodeBuilder definition) {
+        return new NodeStateFacetsConfig(definition, true);
+    }
+
+    /**
+     * Write the pending multi-valued dimensions of a config obtained with
+     * {@link #getDeferredFacetsConfig(NodeBuilder)} to the definition.
+     *
+     * @param config the facets config
+     */
+    public static void writePending(FacetsConfig config) {
+        if (config instanceof NodeStateFacetsConfig) {
+            ((NodeStateFacetsConfig) config).writePending();
+        }
+    }
+
     /**
      * Get the column names of all the facets from the index plan, if any.
      *
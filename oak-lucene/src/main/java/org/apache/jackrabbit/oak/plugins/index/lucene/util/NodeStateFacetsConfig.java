@@ -18,6 +18,9 @@
  */
 package org.apache.jackrabbit.oak.plugins.index.lucene.util;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
@@ -27,6 +30,10 @@ import org.apache.lucene.facet.FacetsConfig;
 
 /**
  * {@link FacetsConfig} persisted extension.
+ * <p>
+ * If writes are deferred, multi-valued dimensions are only kept in memory
+ * until {@link #writePending()} is called, so that documents can be made
+ * concurrently while another thread modifies the node builder.
  */
 class NodeStateFacetsConfig extends FacetsConfig {
 
@@ -34,7 +41,16 @@ class NodeStateFacetsConfig extends FacetsConfig {
 
     private final NodeBuilder nodeBuilder;
 
+    private final boolean deferWrites;
+
+    private final Set<String> pending = new LinkedHashSet<>();
+
     NodeStateFacetsConfig(NodeBuilder nodeBuilder) {
+        this(nodeBuilder, false);
+    }
+
+    NodeStateFacetsConfig(NodeBuilder nodeBuilder, boolean deferWrites) {
+        this.deferWrites = deferWrites;
         this.nodeBuilder = nodeBuilder.child(FulltextIndexConstants.FACETS);
         if (!this.nodeBuilder.hasProperty(JcrConstants.JCR_PRIMARYTYPE)) {
             this.nodeBuilder.setProperty(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED, Type.NAME);
@@ -59,15 +75,34 @@ class NodeStateFacetsConfig extends FacetsConfig {
     public synchronized void setMultiValued(String dimName, boolean v) {
         super.setMultiValued(dimName, v);
         if (v) {
-            NodeBuilder current = this.nodeBuilder;
-            for (String p : PathUtils.elements(dimName)) {
-                NodeBuilder child = current.child(p);
-                if (!child.hasProperty(JcrConstants.JCR_PRIMARYTYPE)) {
-                    child.setProperty(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED, Type.NAME);
-                }
-                child.setProperty(MULTIVALUED, true);
-                current = child;
+            if (deferWrites) {
+                pending.add(dimName);
+            } else {
+                writeMultiValued(dimName);
+            }
+        }
+    }
+
+    /**
+     * Writes the multi-valued dimensions set since the last call to the node
+     * builder, if writes are deferred.
+     */
+    synchronized void writePending() {
+        for (String dimName : pending) {
+            writeMultiValued(dimName);
+        }
+        pending.clear();
+    }
+
+    private void writeMultiValued(String dimName) {
+        NodeBuilder current = this.nodeBuilder;
+        for (String p : PathUtils.elements(dimName)) {
+            NodeBuilder child = current.child(p);
+            if (!child.hasProperty(JcrConstants.JCR_PRIMARYTYPE)) {
+                child.setProperty(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED, Type.NAME);
             }
+            child.setProperty(MULTIVALUED, true);
+            current = child;
         }
     }
 }
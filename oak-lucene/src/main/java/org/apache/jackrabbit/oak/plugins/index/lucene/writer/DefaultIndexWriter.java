@@ -67,7 +67,7 @@ class DefaultIndexWriter implements LuceneIndexWriter {
     private volatile IndexWriter writer;
     private Directory directory;
     private long genAtStart = -1;
-    private boolean indexUpdated = false;
+    private volatile boolean indexUpdated = false;
 
     public DefaultIndexWriter(LuceneIndexDefinition definition, NodeBuilder definitionBuilder,
                               DirectoryFactory directoryFactory, String dirName, String suggestDirName,
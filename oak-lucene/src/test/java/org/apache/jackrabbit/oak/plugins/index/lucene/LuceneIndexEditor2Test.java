@@ -20,13 +20,17 @@
 package org.apache.jackrabbit.oak.plugins.index.lucene;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.plugins.index.IndexCommitCallback;
 import org.apache.jackrabbit.oak.plugins.index.IndexEditorProvider;
@@ -36,6 +40,7 @@ import org.apache.jackrabbit.oak.plugins.index.IndexingContext;
 import org.apache.jackrabbit.oak.plugins.index.lucene.util.LuceneIndexDefinitionBuilder;
 import org.apache.jackrabbit.oak.plugins.index.lucene.writer.LuceneIndexWriter;
 import org.apache.jackrabbit.oak.plugins.index.search.ExtractedTextCache;
+import org.apache.jackrabbit.oak.plugins.index.search.FulltextIndexConstants;
 import org.apache.jackrabbit.oak.plugins.index.search.IndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.PropertyDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.PropertyUpdateCallback;
@@ -57,6 +62,7 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
@@ -91,6 +97,70 @@ public class LuceneIndexEditor2Test {
         assertThat(writer.docs.keySet(), containsInAnyOrder("/a"));
     }
 
+    @Test
+    public void concurrentIndexing() throws Exception{
+        LuceneIndexDefinitionBuilder defnb = new LuceneIndexDefinitionBuilder();
+        defnb.indexRule("nt:base").property("foo").propertyIndex();
+
+        NodeState defnState = defnb.build();
+        IndexDefinition defn = new IndexDefinition(root, defnState, indexPath);
+        LuceneIndexEditorContext ctx = newContext(defnState.builder(), defn, true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ctx.setConcurrentIndexing(executor, 8);
+        EditorHook hook = createHook(ctx);
+
+        updateBefore(defnb);
+        NodeBuilder builder = before.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.child("a").child("n" + i).setProperty("foo", "bar");
+        }
+        builder.child("b").setProperty("foo", "bar");
+
+        before = hook.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        assertEquals(101, writer.docs.size());
+        assertEquals(101, ctx.getIndexedNodes());
+        assertTrue(writer.closed);
+
+        //Delete is applied after the pending updates
+        builder = before.builder();
+        builder.child("a").remove();
+        hook.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        assertThat(writer.deletedPaths, containsInAnyOrder("/a"));
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void concurrentIndexingFacets() throws Exception{
+        LuceneIndexDefinitionBuilder defnb = new LuceneIndexDefinitionBuilder();
+        defnb.indexRule("nt:base").property("foo").propertyIndex().facets();
+
+        NodeState defnState = defnb.build();
+        IndexDefinition defn = new IndexDefinition(root, defnState, indexPath);
+        NodeBuilder defnBuilder = defnState.builder();
+        LuceneIndexEditorContext ctx = newContext(defnBuilder, defn, true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ctx.setConcurrentIndexing(executor, 8);
+        EditorHook hook = createHook(ctx);
+
+        updateBefore(defnb);
+        NodeBuilder builder = before.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.child("a").child("n" + i).setProperty("foo", List.of("bar", "baz" + i), Type.STRINGS);
+        }
+
+        hook.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        assertEquals(100, writer.docs.size());
+
+        //Multi-valued dimensions are written to the definition when the writer is closed
+        NodeBuilder facets = defnBuilder.getChildNode(FulltextIndexConstants.FACETS);
+        assertTrue(facets.getChildNode("foo").getBoolean("multivalued"));
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
     @Test
     public void simplePropertyUpdateCallback() throws Exception{
         LuceneIndexDefinitionBuilder defnb = new LuceneIndexDefinitionBuilder();
@@ -290,8 +360,8 @@ public class LuceneIndexEditor2Test {
     }
 
     private static class TestWriter implements LuceneIndexWriter {
-        Set<String> deletedPaths = new HashSet<>();
-        Map<String, Iterable<? extends IndexableField>> docs = new HashMap<>();
+        Set<String> deletedPaths = ConcurrentHashMap.newKeySet();
+        Map<String, Iterable<? extends IndexableField>> docs = new ConcurrentHashMap<>();
         boolean closed;
 
         @Override
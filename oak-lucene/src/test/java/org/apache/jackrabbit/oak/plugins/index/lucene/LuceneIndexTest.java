@@ -76,6 +76,7 @@ import org.apache.jackrabbit.oak.plugins.index.IndexUpdateProvider;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.DefaultDirectoryFactory;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.LocalIndexDir;
 import org.apache.jackrabbit.oak.plugins.index.search.FulltextIndexConstants;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.plugins.index.search.IndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.IndexFormatVersion;
 import org.apache.jackrabbit.oak.plugins.memory.ArrayBasedBlob;
@@ -256,6 +257,48 @@ public class LuceneIndexTest {
         assertFalse(cursor.hasNext());
     }
 
+    @Test
+    public void resultCache() throws Exception {
+        NodeBuilder index = builder.child(INDEX_DEFINITIONS_NAME);
+        newLucenePropertyIndexDefinition(index, "lucene", Set.of("foo"), null);
+
+        NodeState before = builder.getNodeState();
+        builder.child("a").setProperty("foo", "bar");
+        builder.child("b").setProperty("foo", "bar");
+        NodeState indexed = HOOK.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+
+        tracker = new IndexTracker();
+        FulltextResultCache resultCache = new FulltextResultCache(100, 10);
+        tracker.setResultCache(resultCache);
+        tracker.update(indexed);
+        AdvancedQueryIndex queryIndex = new LucenePropertyIndex(tracker);
+        FilterImpl filter = createFilter(NT_BASE);
+        filter.restrictProperty("foo", Operator.EQUAL,
+            PropertyValues.newString("bar"));
+        List<IndexPlan> plans = queryIndex.getPlans(filter, null, indexed);
+
+        List<String> paths = copyOf(transform(queryIndex.query(plans.get(0), indexed), IndexRow::getPath));
+        assertEquals(Set.of("/a", "/b"), Set.copyOf(paths));
+        assertEquals(0, resultCache.getStats().hitCount());
+        assertEquals(1, resultCache.getResultCount());
+
+        assertEquals(paths, copyOf(transform(queryIndex.query(plans.get(0), indexed), IndexRow::getPath)));
+        assertEquals(1, resultCache.getStats().hitCount());
+
+        // a new index generation invalidates the cached results
+        before = indexed;
+        builder = indexed.builder();
+        builder.child("c").setProperty("foo", "bar");
+        indexed = HOOK.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        tracker.update(indexed);
+        assertEquals(0, resultCache.getResultCount());
+
+        plans = queryIndex.getPlans(filter, null, indexed);
+        paths = copyOf(transform(queryIndex.query(plans.get(0), indexed), IndexRow::getPath));
+        assertEquals(Set.of("/a", "/b", "/c"), Set.copyOf(paths));
+        assertEquals(1, resultCache.getStats().hitCount());
+    }
+
 
     @Test
     public void testLucene3() throws Exception {
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexDefinition;
+import org.apache.jackrabbit.oak.plugins.index.lucene.directory.ActiveDeletedBlobCollectorFactory.BlobDeletionCallback;
+import org.apache.jackrabbit.oak.plugins.index.search.FulltextIndexConstants;
+import org.apache.jackrabbit.oak.spi.blob.MemoryBlobStore;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.ReadOnlyBuilder;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.InitialContentHelper.INITIAL_CONTENT;
+import static org.apache.jackrabbit.oak.plugins.index.search.FulltextIndexConstants.INDEX_DATA_CHILD_NAME;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexFileBlockCacheTest {
+
+    private static final int BLOB_SIZE = 1024;
+
+    private final Random rnd = new Random(42);
+
+    private final MemoryBlobStore blobStore = new MemoryBlobStore();
+
+    private NodeBuilder builder;
+
+    private LuceneIndexDefinition defn;
+
+    private byte[] data;
+
+    @Before
+    public void setup() throws IOException {
+        builder = INITIAL_CONTENT.builder();
+        builder.setProperty(FulltextIndexConstants.BLOB_SIZE, BLOB_SIZE);
+        defn = new LuceneIndexDefinition(INITIAL_CONTENT, builder.getNodeState(), "/foo");
+
+        data = new byte[BLOB_SIZE * 5 + 123];
+        rnd.nextBytes(data);
+        Directory dir = createDir(builder, false, null);
+        IndexOutput out = dir.createOutput("test", IOContext.DEFAULT);
+        out.writeBytes(data, data.length);
+        out.close();
+        dir.close();
+    }
+
+    @Test
+    public void readThroughCache() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(1024 * 1024, 0, null);
+        Directory dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        assertEquals(data.length, dir.fileLength("test"));
+
+        assertArrayEquals(data, readFully(dir));
+        assertEquals(0, cache.getStats().hitCount());
+        assertEquals(6, cache.getStats().missCount());
+        assertEquals(6, cache.getBlockCount());
+        assertEquals(data.length, cache.getSizeInBytes());
+
+        // read again with a new directory, all blocks are served from the cache
+        dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        assertArrayEquals(data, readFully(dir));
+        assertEquals(6, cache.getStats().hitCount());
+        assertEquals(6, cache.getStats().missCount());
+    }
+
+    @Test
+    public void randomAccess() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(1024 * 1024, 0, null);
+        Directory dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        IndexInput in = dir.openInput("test", IOContext.DEFAULT);
+        for (int i = 0; i < 100; i++) {
+            int pos = rnd.nextInt(data.length);
+            int len = rnd.nextInt(data.length - pos);
+            in.seek(pos);
+            assertEquals(data[pos], in.readByte());
+            byte[] b = new byte[len];
+            in.seek(pos);
+            in.readBytes(b, 0, len);
+            assertArrayEquals(Arrays.copyOfRange(data, pos, pos + len), b);
+        }
+        in.close();
+    }
+
+    @Test
+    public void slices() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(1024 * 1024, 0, null);
+        Directory dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        Directory.IndexInputSlicer slicer = dir.createSlicer("test", IOContext.DEFAULT);
+        int offset = BLOB_SIZE - 10;
+        int length = BLOB_SIZE * 2;
+        IndexInput slice = slicer.openSlice("slice", offset, length);
+        assertEquals(length, slice.length());
+
+        byte[] b = new byte[length];
+        slice.readBytes(b, 0, length);
+        assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), b);
+        assertEquals(length, slice.getFilePointer());
+
+        slice.seek(5);
+        assertEquals(data[offset + 5], slice.readByte());
+        assertEquals(6, slice.getFilePointer());
+
+        try {
+            slice.seek(length + 1);
+            fail("seek beyond the slice must fail");
+        } catch (IOException expected) {
+            // expected
+        }
+        slice.close();
+        slicer.close();
+    }
+
+    @Test
+    public void evictsBlocks() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(BLOB_SIZE * 2, 0, null);
+        Directory dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        assertArrayEquals(data, readFully(dir));
+        assertTrue(cache.getSizeInBytes() <= BLOB_SIZE * 2);
+    }
+
+    @Test
+    public void readAhead() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(1024 * 1024, 2, Runnable::run);
+        Directory dir = createDir(new ReadOnlyBuilder(builder.getNodeState()), true, cache);
+        assertArrayEquals(data, readFully(dir));
+        // the first block is a miss, the following ones were read ahead
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(5, cache.getReadAheadCount());
+        assertEquals(6, cache.getBlockCount());
+    }
+
+    @Test
+    public void writableDirectoryDoesNotUseCache() throws Exception {
+        IndexFileBlockCache cache = new IndexFileBlockCache(1024 * 1024, 0, null);
+        Directory dir = createDir(builder, false, cache);
+        assertArrayEquals(data, readFully(dir));
+        assertEquals(0, cache.getBlockCount());
+    }
+
+    private byte[] readFully(Directory dir) throws IOException {
+        IndexInput in = dir.openInput("test", IOContext.DEFAULT);
+        byte[] result = new byte[(int) in.length()];
+        in.readBytes(result, 0, result.length);
+        in.close();
+        return result;
+    }
+
+    private OakDirectory createDir(NodeBuilder builder, boolean readOnly, IndexFileBlockCache cache) {
+        return new OakDirectory(builder, INDEX_DATA_CHILD_NAME, defn, readOnly,
+                BlobFactory.getBlobStoreBlobFactory(blobStore), BlobDeletionCallback.NOOP, false, cache);
+    }
+}
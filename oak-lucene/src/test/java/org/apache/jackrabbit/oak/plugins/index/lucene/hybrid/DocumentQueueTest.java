@@ -24,7 +24,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jackrabbit.guava.common.base.Stopwatch;
@@ -110,6 +113,31 @@ public class DocumentQueueTest {
         assertFalse(queue.add(LuceneDoc.forDelete("foo", "bar")));
     }
 
+    @Test
+    public void waitWhileQueueProcessed() throws Exception{
+        //Slow background processing, but each batch is done within the timeout
+        ExecutorService slowExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new ThreadPoolExecutor.DiscardPolicy());
+        Executor executor = command -> slowExecutor.execute(() -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.run();
+        });
+        DocumentQueue queue = new DocumentQueue(2, tracker, executor);
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(queue.add(LuceneDoc.forDelete("foo", "bar" + i)));
+            }
+        } finally {
+            queue.close();
+            slowExecutor.shutdown();
+            slowExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
     @Test
     public void noIssueIfNoIndex() throws Exception{
         DocumentQueue queue = new DocumentQueue(2, tracker, newDirectExecutorService());
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene.hybrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentRingBufferTest {
+
+    @Test
+    public void offerAndPoll() {
+        DocumentRingBuffer<String> buffer = new DocumentRingBuffer<>(3);
+        assertNull(buffer.poll());
+
+        // wrap around a few times
+        for (int round = 0; round < 5; round++) {
+            assertTrue(buffer.offer("a"));
+            assertTrue(buffer.offer("b"));
+            assertTrue(buffer.offer("c"));
+            assertFalse(buffer.offer("d"));
+            assertEquals(3, buffer.size());
+            assertEquals(List.of("a", "b", "c"), buffer.toList());
+
+            assertEquals("a", buffer.poll());
+            List<String> drained = new ArrayList<>();
+            assertEquals(2, buffer.drainTo(drained, 10));
+            assertEquals(List.of("b", "c"), drained);
+            assertEquals(0, buffer.size());
+        }
+        assertEquals(15, buffer.removedCount());
+    }
+
+    @Test
+    public void drainLimit() {
+        DocumentRingBuffer<String> buffer = new DocumentRingBuffer<>(4);
+        buffer.offer("a");
+        buffer.offer("b");
+        buffer.offer("c");
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(1, buffer.size());
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void multipleProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 10000;
+        DocumentRingBuffer<Integer> buffer = new DocumentRingBuffer<>(16);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        Set<Integer> consumed = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        while (consumed.size() < producers * perProducer) {
+            Integer e = buffer.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(consumed.add(e));
+            // elements of one producer are consumed in order
+            int p = e / perProducer;
+            assertTrue(e > lastPerProducer[p]);
+            lastPerProducer[p] = e;
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        executor.shutdown();
+        assertNull(buffer.poll());
+    }
+}
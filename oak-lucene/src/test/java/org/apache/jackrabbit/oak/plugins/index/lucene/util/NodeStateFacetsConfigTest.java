@@ -24,6 +24,7 @@ import org.apache.lucene.facet.FacetsConfig;
 import org.junit.Test;
 
 import static org.apache.jackrabbit.oak.InitialContentHelper.INITIAL_CONTENT;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -64,4 +65,16 @@ public class NodeStateFacetsConfigTest {
         assertTrue(nodeStateFacetsConfig.getDimConfig(dimension).multiValued);
     }
 
+    @Test
+    public void testDeferredMultivaluedDimConfig() throws Exception {
+        NodeStateFacetsConfig nodeStateFacetsConfig = new NodeStateFacetsConfig(builder, true);
+        String dimension = "foo";
+        nodeStateFacetsConfig.setMultiValued(dimension, true);
+        assertTrue(nodeStateFacetsConfig.getDimConfig(dimension).multiValued);
+        assertFalse(new NodeStateFacetsConfig(builder).getDimConfig(dimension).multiValued);
+
+        nodeStateFacetsConfig.writePending();
+        assertTrue(new NodeStateFacetsConfig(builder).getDimConfig(dimension).multiValued);
+    }
+
 }
\ No newline at end of file
@@ -20,6 +20,12 @@ package org.apache.jackrabbit.oak.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.jackrabbit.guava.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.index.indexer.document.IndexerConfiguration;
 import org.apache.jackrabbit.oak.plugins.index.CompositeIndexEditorProvider;
 import org.apache.jackrabbit.oak.plugins.index.IndexEditorProvider;
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexEditorProvider;
@@ -61,6 +67,14 @@ public class OutOfBandIndexer extends OutOfBandIndexerBase {
         luceneIndexHelper.setDirectoryFactory(dirFactory);
         LuceneIndexEditorProvider provider = luceneIndexHelper.createEditorProvider();
         provider.setWriterConfig(luceneIndexHelper.getWriterConfigForReindex());
+
+        int threads = IndexerConfiguration.indexThreadPoolSize();
+        if (threads > 1) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("oak-index-writer-%d").setDaemon(true).build());
+            closer.register(new ExecutorCloser(executor));
+            provider.setConcurrentIndexing(executor, threads * 2);
+        }
         return provider;
     }
 
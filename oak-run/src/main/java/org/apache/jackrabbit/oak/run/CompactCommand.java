@@ -63,6 +63,9 @@ class CompactCommand implements Command {
                 .withRequiredArg()
                 .ofType(Integer.class)
                 .defaultsTo(1);
+        OptionSpec<Void> resumableArg = parser.accepts("resumable", "Save the progress of the compaction, so that " +
+                "an interrupted run can be resumed from the already compacted parts of the repository. This is only " +
+                "applicable to the \"parallel\" compactor with more than one thread.");
         OptionSpec<String> targetPath = parser.accepts("target-path", "Path/URI to TAR/remote segment store where " +
                 "resulting archives will be written")
                 .withRequiredArg()
@@ -112,7 +115,8 @@ class CompactCommand implements Command {
                     .withTargetPath(targetPath.value(options))
                     .withForce(options.has(forceArg))
                     .withGCLogInterval(Long.getLong("compaction-progress-log", 150000))
-                    .withConcurrency(nThreads.value(options));
+                    .withConcurrency(nThreads.value(options))
+                    .withResumableCompaction(options.has(resumableArg));
 
             if (options.has(persistentCachePath)) {
                 azureBuilder.withPersistentCachePath(persistentCachePath.value(options));
@@ -160,7 +164,8 @@ class CompactCommand implements Command {
                     .withOs(System.getProperty("os.name"))
                     .withSegmentCacheSize(Integer.getInteger("cache", 256))
                     .withGCLogInterval(Long.getLong("compaction-progress-log", 150000))
-                    .withConcurrency(nThreads.value(options));
+                    .withConcurrency(nThreads.value(options))
+                    .withResumableCompaction(options.has(resumableArg));
 
             if (options.has(tailArg)) {
                 tarBuilder.withGCType(SegmentGCOptions.GCType.TAIL);
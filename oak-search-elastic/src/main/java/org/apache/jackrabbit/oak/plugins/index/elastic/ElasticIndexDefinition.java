@@ -60,6 +60,12 @@ public class ElasticIndexDefinition extends IndexDefinition {
     public static final String QUERY_FETCH_SIZES = "queryFetchSizes";
     public static final Long[] QUERY_FETCH_SIZES_DEFAULT = new Long[]{10L, 100L, 1000L};
 
+    /**
+     * The maximum number of result chunks requested ahead of the consumer of a query.
+     */
+    public static final String QUERY_PREFETCH_PAGES = "queryPrefetchPages";
+    public static final int QUERY_PREFETCH_PAGES_DEFAULT = 3;
+
     public static final String QUERY_TIMEOUT_MS = "queryTimeoutMs";
     public static final long QUERY_TIMEOUT_MS_DEFAULT = 60000;
 
@@ -179,6 +185,7 @@ public class ElasticIndexDefinition extends IndexDefinition {
     public final int numberOfShards;
     public final int numberOfReplicas;
     public final int[] queryFetchSizes;
+    public final int queryPrefetchPages;
     public final long queryTimeoutMs;
     public final Integer trackTotalHits;
     public final String dynamicMapping;
@@ -212,6 +219,7 @@ public class ElasticIndexDefinition extends IndexDefinition {
         this.similarityTagsBoost = getOptionalValue(defn, SIMILARITY_TAGS_BOOST, SIMILARITY_TAGS_BOOST_DEFAULT);
         this.queryFetchSizes = Arrays.stream(getOptionalValues(defn, QUERY_FETCH_SIZES, Type.LONGS, Long.class, QUERY_FETCH_SIZES_DEFAULT))
                 .mapToInt(Long::intValue).toArray();
+        this.queryPrefetchPages = Math.max(1, getOptionalValue(defn, QUERY_PREFETCH_PAGES, QUERY_PREFETCH_PAGES_DEFAULT));
         this.queryTimeoutMs = getOptionalValue(defn, QUERY_TIMEOUT_MS, QUERY_TIMEOUT_MS_DEFAULT);
         this.trackTotalHits = getOptionalValue(defn, TRACK_TOTAL_HITS, TRACK_TOTAL_HITS_DEFAULT);
         this.dynamicMapping = getOptionalValue(defn, DYNAMIC_MAPPING, DYNAMIC_MAPPING_DEFAULT);
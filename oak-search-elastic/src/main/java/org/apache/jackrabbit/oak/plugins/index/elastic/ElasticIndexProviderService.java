@@ -28,6 +28,7 @@ import org.apache.jackrabbit.oak.plugins.index.elastic.index.ElasticIndexEditorP
 import org.apache.jackrabbit.oak.plugins.index.elastic.query.ElasticIndexProvider;
 import org.apache.jackrabbit.oak.plugins.index.fulltext.PreExtractedTextProvider;
 import org.apache.jackrabbit.oak.plugins.index.search.ExtractedTextCache;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.spi.commit.Observer;
 import org.apache.jackrabbit.oak.spi.query.QueryIndexProvider;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
@@ -125,8 +126,23 @@ public class ElasticIndexProviderService {
         @AttributeDefinition(name = "Remote index deletion threshold", description = "Time in seconds after which a remote index whose local index is not found gets deleted." +
                 "Default is 1 day.")
         int remoteIndexDeletionThreshold() default 24*60*60;
+
+        @AttributeDefinition(name = "Query result cache size", description = "Maximum total number of result rows kept " +
+                "in the cache for query results, which is used for repeated queries as long as the index is not updated. " +
+                "Default is 0 (disabled).")
+        int queryResultCacheSize() default 0;
+
+        @AttributeDefinition(name = "Query result cache max rows", description = "Maximum number of rows of a query " +
+                "result which is kept in the query result cache.")
+        int queryResultCacheMaxRows() default 1000;
     }
 
+    /**
+     * Results of a new index generation are only cached after twice the refresh
+     * interval of the Elasticsearch index, so that all changes are searchable.
+     */
+    private static final long QUERY_RESULT_CACHE_MIN_GENERATION_AGE_MILLIS = 2000;
+
 
     private static final Logger LOG = LoggerFactory.getLogger(ElasticIndexProviderService.class);
 
@@ -175,6 +191,10 @@ public class ElasticIndexProviderService {
         elasticConnection = getElasticConnection(config);
         metricHandler = new ElasticMetricHandler(statisticsProvider);
         indexTracker = new ElasticIndexTracker(elasticConnection, metricHandler);
+        if (config.queryResultCacheSize() > 0) {
+            indexTracker.setResultCache(new FulltextResultCache(config.queryResultCacheSize(),
+                    config.queryResultCacheMaxRows(), QUERY_RESULT_CACHE_MIN_GENERATION_AGE_MILLIS));
+        }
 
         // register observer needed for index tracking
         regs.add(bundleContext.registerService(Observer.class.getName(), indexTracker, null));
@@ -19,19 +19,26 @@ package org.apache.jackrabbit.oak.plugins.index.elastic.query;
 import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.TYPE_PROPERTY_NAME;
 import static org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexDefinition.TYPE_ELASTICSEARCH;
 
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexNode;
 import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexTracker;
 import org.apache.jackrabbit.oak.plugins.index.elastic.query.async.ElasticResultRowAsyncIterator;
+import org.apache.jackrabbit.oak.plugins.index.search.IndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.IndexNode;
 import org.apache.jackrabbit.oak.plugins.index.search.SizeEstimator;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache;
 import org.apache.jackrabbit.oak.spi.query.Cursor;
 import org.apache.jackrabbit.oak.spi.query.Filter;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
@@ -100,10 +107,34 @@ class ElasticIndex extends FulltextIndex {
 
     @Override
     public Cursor query(IndexPlan plan, NodeState rootState) {
-        return new FulltextPathCursor(queryIterator(plan, rootState), REWOUND_STATE_PROVIDER_NOOP,
+        Iterator<FulltextResultRow> itr = null;
+        FulltextResultCache resultCache = elasticIndexTracker.getResultCache();
+        String generation = resultCache != null ? getIndexGeneration(plan, rootState) : null;
+        if (generation != null) {
+            itr = resultCache.get(plan, generation);
+            if (itr == null) {
+                itr = resultCache.record(plan, generation, queryIterator(plan, rootState), REWOUND_STATE_PROVIDER_NOOP);
+            }
+        }
+        if (itr == null) {
+            itr = queryIterator(plan, rootState);
+        }
+        return new FulltextPathCursor(itr, REWOUND_STATE_PROVIDER_NOOP,
                 plan, plan.getFilter().getQueryLimits(), getSizeEstimator(plan));
     }
 
+    /**
+     * Returns the last update time of the index, as seen by the given root state,
+     * which identifies the indexed content.
+     */
+    @Nullable
+    private static String getIndexGeneration(IndexPlan plan, NodeState rootState) {
+        NodeState status = NodeStateUtils.getNode(rootState, getPlanResult(plan).indexPath)
+                .getChildNode(IndexDefinition.STATUS_NODE);
+        PropertyState lastUpdated = status.getProperty(IndexDefinition.STATUS_LAST_UPDATED);
+        return lastUpdated != null ? lastUpdated.getValue(Type.STRING) : null;
+    }
+
     private @NotNull ElasticQueryIterator queryIterator(IndexPlan plan, NodeState rootState) {
         Filter filter = plan.getFilter();
         FulltextIndexPlanner.PlanResult planResult = getPlanResult(plan);
@@ -18,6 +18,7 @@ package org.apache.jackrabbit.oak.plugins.index.elastic.query.async;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexNode;
 import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticMetricHandler;
 import org.apache.jackrabbit.oak.plugins.index.elastic.query.ElasticQueryIterator;
@@ -50,6 +51,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +65,11 @@ import java.util.function.Predicate;
  * The results are produced asynchronously into an internal unbounded {@link BlockingQueue}. To avoid too many calls to
  * Elastic the results are loaded in chunks (using search_after strategy) and loaded only when needed.
  * <p>
+ * The next chunk is requested before the consumer has drained the current one, so that the consumer does not have to
+ * wait for Elastic. The number of chunks read ahead (up to {@link ElasticIndexDefinition#queryPrefetchPages}) grows
+ * each time the consumer has to wait for results, which also moves faster to the bigger fetch sizes. A slow consumer
+ * keeps at most one chunk read ahead.
+ * <p>
  * The resources held by this class are automatically released when the iterator is exhausted. In case the iterator is not
  * exhausted, it is recommended for the caller to invoke {@link #close()} to release the resources.
  * </p
@@ -111,7 +118,12 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
     public boolean hasNext() {
         // if nextRow is not null it means the caller invoked hasNext() before without calling next()
         if (nextRow == null) {
-            if (queue.isEmpty()) {
+            int bufferedRows = queue.size();
+            if (bufferedRows == 0) {
+                // the consumer is faster than Elastic: read further ahead
+                elasticQueryScanner.consumerWaiting();
+            }
+            if (bufferedRows <= elasticQueryScanner.prefetchThreshold()) {
                 // this triggers, when needed, the scan of the next results chunk
                 elasticQueryScanner.scan();
             }
@@ -204,9 +216,19 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
         return JsonpUtils.toString(elasticQueryScanner.searchRequest, new StringBuilder()).toString();
     }
 
+    /**
+     * Cancels the search request to Elastic that might be in progress and releases the resources. Further calls to
+     * {@link #hasNext()} return {@code false}.
+     * <p>
+     * Query cursors have no close hook, so an iterator abandoned by the query engine is not closed. It keeps at
+     * most the chunks read ahead, and the search in progress, if any, completes.
+     */
     @Override
     public void close() {
-        elasticQueryScanner.close();
+        // the rows read ahead are not needed anymore. This also guarantees there is room for the poison pill
+        queue.clear();
+        nextRow = null;
+        elasticQueryScanner.cancel();
     }
 
     /**
@@ -228,12 +250,27 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
 
         // concurrent data structures to coordinate chunks loading
         private final AtomicBoolean anyDataLeft = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
 
-        private int scannedRows;
+        private volatile int scannedRows;
         private int requests;
         private boolean fullScan;
         private long searchStartTime;
 
+        // position in the fetch sizes array, which moves faster when the consumer is waiting for results
+        private int fetchSizeIndex;
+        // the size of the last requested chunk
+        private volatile int lastFetchSize;
+        // the number of chunks to read ahead of the consumer
+        private volatile int prefetchPages = 1;
+        // set when the consumer had to wait for results since the last request
+        private volatile boolean consumerWaiting;
+        // set while the hits of a response are emitted to the listeners
+        private volatile boolean emitting;
+
+        // the search request in progress, if any
+        private volatile CompletableFuture<SearchResponse<ObjectNode>> pendingSearch;
+
         // reference to the last document sort values for search_after queries
         private List<FieldValue> lastHitSortValues;
 
@@ -264,6 +301,9 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
             };
             listeners.forEach(register);
             this.sourceConfig = SourceConfig.of(fn -> fn.filter(f -> f.includes(new ArrayList<>(sourceFieldsSet))));
+            // use a smaller size when the query contains aggregations. This improves performance
+            // when the client is only interested in insecure facets
+            this.lastFetchSize = needsAggregations.get() ? Math.min(SMALL_RESULT_SET_SIZE, getFetchSize(0)) : getFetchSize(0);
 
             searchRequest = SearchRequest.of(builder -> {
                         builder
@@ -273,9 +313,7 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
                                 .source(sourceConfig)
                                 .query(query)
                                 .highlight(highlight)
-                                // use a smaller size when the query contains aggregations. This improves performance
-                                // when the client is only interested in insecure facets
-                                .size(needsAggregations.get() ? Math.min(SMALL_RESULT_SET_SIZE, getFetchSize(requests)) : getFetchSize(requests));
+                                .size(lastFetchSize);
                         if (needsAggregations.get()) {
                             builder.aggregations(elasticRequestHandler.aggregations());
                         }
@@ -287,17 +325,25 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
             LOG.trace("Kicking initial search for query {}", searchRequest);
             semaphore.tryAcquire();
 
-            searchStartTime = System.currentTimeMillis();
             requests++;
+            fetchSizeIndex++;
+            search(searchRequest, true);
+        }
 
-            indexNode.getConnection().getAsyncClient()
-                    .search(searchRequest, ObjectNode.class)
-                    .whenComplete(((searchResponse, throwable) -> {
-                        if (throwable != null) {
-                            onFailure(throwable);
-                        } else onSuccess(searchResponse);
-                    }));
-            metricHandler.markQuery(indexNode.getDefinition().getIndexPath(), true);
+        private void search(SearchRequest request, boolean isRootQuery) {
+            searchStartTime = System.currentTimeMillis();
+            CompletableFuture<SearchResponse<ObjectNode>> search =
+                    indexNode.getConnection().getAsyncClient().search(request, ObjectNode.class);
+            pendingSearch = search;
+            search.whenComplete(((searchResponse, throwable) -> {
+                if (closed.get()) {
+                    // the iterator was closed, or the search was cancelled
+                    LOG.trace("Ignoring the response of a closed scanner");
+                } else if (throwable != null) {
+                    onFailure(throwable);
+                } else onSuccess(searchResponse);
+            }));
+            metricHandler.markQuery(indexNode.getDefinition().getIndexPath(), isRootQuery);
         }
 
         /**
@@ -318,6 +364,7 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
                 long totalHits = searchResponse.hits().total().value();
                 LOG.debug("Processing search response that took {} to read {}/{} docs", searchResponse.took(), hitsSize, totalHits);
                 lastHitSortValues = searchHits.get(hitsSize - 1).sort();
+                emitting = true;
                 scannedRows += hitsSize;
                 if (searchResponse.hits().total().relation() == TotalHitsRelation.Eq) {
                     anyDataLeft.set(totalHits > scannedRows);
@@ -345,13 +392,17 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
 
                 BitSet listenersWithHits = new BitSet(searchHitListeners.size());
 
-                for (Hit<ObjectNode> hit : searchHits) {
-                    for (int index = 0; index < searchHitListeners.size(); index++) {
-                        SearchHitListener l = searchHitListeners.get(index);
-                        if (l.on(hit)) {
-                            listenersWithHits.set(index);
+                try {
+                    for (Hit<ObjectNode> hit : searchHits) {
+                        for (int index = 0; index < searchHitListeners.size(); index++) {
+                            SearchHitListener l = searchHitListeners.get(index);
+                            if (l.on(hit)) {
+                                listenersWithHits.set(index);
+                            }
                         }
                     }
+                } finally {
+                    emitting = false;
                 }
                 // if any listener has not processed any hit, it means we need to load more data since there could be
                 // listeners waiting for some results before triggering a new scan
@@ -360,7 +411,7 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
                 if (!anyDataLeft.get()) {
                     LOG.trace("No data left: closing scanner, notifying listeners");
                     close();
-                } else if (fullScan || !areAllListenersProcessed) {
+                } else if (fullScan || !areAllListenersProcessed || queue.size() <= prefetchThreshold()) {
                     scan();
                 }
             } else {
@@ -394,7 +445,14 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
          * Triggers a scan of a new chunk of the result set, if needed.
          */
         private void scan() {
-            if (semaphore.tryAcquire() && anyDataLeft.get()) {
+            if (!closed.get() && semaphore.tryAcquire() && anyDataLeft.get()) {
+                if (consumerWaiting) {
+                    consumerWaiting = false;
+                    prefetchPages = Math.min(prefetchPages + 1, indexNode.getDefinition().queryPrefetchPages);
+                    fetchSizeIndex++;
+                }
+                lastFetchSize = getFetchSize(fetchSizeIndex++);
+                requests++;
                 final SearchRequest searchReq = SearchRequest.of(s -> s
                         .index(indexNode.getDefinition().getIndexAlias())
                         .trackTotalHits(thb -> thb.count(indexNode.getDefinition().trackTotalHits))
@@ -403,36 +461,63 @@ public class ElasticResultRowAsyncIterator implements ElasticQueryIterator, Elas
                         .searchAfter(lastHitSortValues)
                         .query(query)
                         .highlight(highlight)
-                        .size(getFetchSize(requests++))
+                        .size(lastFetchSize)
                 );
                 LOG.trace("Kicking new search after query {}", searchReq);
 
-                searchStartTime = System.currentTimeMillis();
-                indexNode.getConnection().getAsyncClient()
-                        .search(searchReq, ObjectNode.class)
-                        .whenComplete(((searchResponse, throwable) -> {
-                            if (throwable != null) {
-                                onFailure(throwable);
-                            } else onSuccess(searchResponse);
-                        }));
-                metricHandler.markQuery(indexNode.getDefinition().getIndexPath(), false);
+                search(searchReq, false);
             } else {
                 LOG.trace("Scanner is closing or still processing data from the previous scan");
             }
         }
 
-        /* picks the size in the fetch array at index=requests or the last if out of bound */
-        private int getFetchSize(int requestId) {
+        /* picks the size in the fetch array at the given index or the last if out of bound */
+        private int getFetchSize(int index) {
             int[] queryFetchSizes = indexNode.getDefinition().queryFetchSizes;
-            return queryFetchSizes.length > requestId ?
-                    queryFetchSizes[requestId] : queryFetchSizes[queryFetchSizes.length - 1];
+            return queryFetchSizes.length > index ?
+                    queryFetchSizes[index] : queryFetchSizes[queryFetchSizes.length - 1];
+        }
+
+        /**
+         * Returns the number of buffered rows below which the next chunk is requested: half of the last chunk, plus
+         * a whole chunk for each additional chunk to read ahead.
+         */
+        private int prefetchThreshold() {
+            int fetchSize = lastFetchSize;
+            return (prefetchPages - 1) * fetchSize + fetchSize / 2;
+        }
+
+        /**
+         * Notifies the scanner that the consumer has drained all the loaded results, so that more chunks, and
+         * bigger ones, are read ahead from now on. A consumer that only waits for the hits of a response to be
+         * emitted does not wait for Elastic.
+         */
+        private void consumerWaiting() {
+            if (scannedRows > 0 && anyDataLeft.get() && !emitting) {
+                consumerWaiting = true;
+            }
+        }
+
+        /**
+         * Cancels the search in progress and closes the scanner.
+         */
+        private void cancel() {
+            CompletableFuture<SearchResponse<ObjectNode>> search = pendingSearch;
+            close();
+            if (search != null && !search.isDone()) {
+                LOG.debug("Cancelling search request for query {}", query);
+                // this also aborts the http request
+                search.cancel(true);
+            }
         }
 
         // close all listeners
         private void close() {
-            semaphore.release();
-            for (ElasticResponseListener l : allListeners) {
-                l.endData();
+            if (closed.compareAndSet(false, true)) {
+                semaphore.release();
+                for (ElasticResponseListener l : allListeners) {
+                    l.endData();
+                }
             }
         }
     }
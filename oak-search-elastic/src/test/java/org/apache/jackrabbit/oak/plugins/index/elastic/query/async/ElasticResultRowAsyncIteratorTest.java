@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.elastic.query.async;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticConnection;
+import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexDefinition;
+import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticIndexNode;
+import org.apache.jackrabbit.oak.plugins.index.elastic.ElasticMetricHandler;
+import org.apache.jackrabbit.oak.plugins.index.elastic.query.ElasticRequestHandler;
+import org.apache.jackrabbit.oak.plugins.index.elastic.query.ElasticResponseHandler;
+import org.apache.jackrabbit.oak.plugins.index.elastic.util.ElasticIndexDefinitionBuilder;
+import org.apache.jackrabbit.oak.plugins.index.search.FieldNames;
+import org.apache.jackrabbit.oak.plugins.index.search.util.IndexDefinitionBuilder;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.IndexPlan;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the paging of {@link ElasticResultRowAsyncIterator} against a local server mocking the Elastic search API.
+ */
+public class ElasticResultRowAsyncIteratorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+    // the fetch sizes and search_after positions of the received requests
+    private final List<int[]> requests = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private ElasticConnection connection;
+
+    // the responses to the requests from this one on wait for the barrier
+    private final CountDownLatch responseBarrier = new CountDownLatch(1);
+    private volatile int blockedRequest = Integer.MAX_VALUE;
+
+    private volatile int totalHits;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::search);
+        server.setExecutor(serverExecutor);
+        server.start();
+        connection = ElasticConnection.newBuilder()
+                .withIndexPrefix("test")
+                .withConnectionParameters("http", "127.0.0.1", server.getAddress().getPort())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        responseBarrier.countDown();
+        connection.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void allRowsInOrder() {
+        totalHits = 250;
+        ElasticResultRowAsyncIterator it = newIterator(List.of(10L, 100L), 3);
+
+        List<String> paths = new ArrayList<>();
+        while (it.hasNext()) {
+            paths.add(it.next().path);
+        }
+        assertEquals(totalHits, paths.size());
+        for (int i = 0; i < totalHits; i++) {
+            assertEquals("/content/n" + i, paths.get(i));
+        }
+        assertEquals(-1, requests.get(0)[1]);
+        for (int i = 1; i < requests.size(); i++) {
+            // each chunk continues after the last hit of the previous one
+            int[] previous = requests.get(i - 1);
+            assertEquals(previous[1] + previous[0], requests.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void nextChunkRequestedBeforeDrained() throws Exception {
+        totalHits = 1000;
+        ElasticResultRowAsyncIterator it = newIterator(List.of(10L, 100L), 3);
+
+        // read more than half of the first chunk
+        for (int i = 0; i < 6; i++) {
+            assertTrue(it.hasNext());
+            it.next();
+        }
+        awaitRequests(2);
+        assertEquals(100, requests.get(1)[0]);
+
+        // a slow consumer does not get more than one chunk read ahead
+        Thread.sleep(200);
+        assertEquals(2, requests.size());
+        it.close();
+    }
+
+    @Test
+    public void fastConsumerReadsFurtherAhead() {
+        totalHits = 1000;
+        ElasticResultRowAsyncIterator it = newIterator(List.of(10L, 20L, 50L, 100L), 3);
+
+        int rows = 0;
+        while (it.hasNext()) {
+            it.next();
+            rows++;
+        }
+        assertEquals(totalHits, rows);
+        // without waiting for the consumer, the fetch sizes would have been 10, 20, 50 and then 100
+        assertTrue(requests.size() < 4 + (totalHits - 80) / 100);
+    }
+
+    @Test
+    public void closeCancelsSearch() throws Exception {
+        totalHits = 1000;
+        // hold the response of the third chunk
+        blockedRequest = 3;
+        ElasticResultRowAsyncIterator it = newIterator(List.of(10L), 3);
+        while (requests.size() < 3) {
+            assertTrue(it.hasNext());
+            it.next();
+            Thread.sleep(20);
+        }
+
+        it.close();
+        assertFalse(it.hasNext());
+        assertNull(it.next());
+
+        responseBarrier.countDown();
+        Thread.sleep(200);
+        assertEquals(3, requests.size());
+    }
+
+    private ElasticResultRowAsyncIterator newIterator(List<Long> fetchSizes, long prefetchPages) {
+        IndexDefinitionBuilder builder = new ElasticIndexDefinitionBuilder();
+        builder.indexRule("nt:base").property("foo").propertyIndex();
+        builder.getBuilderTree().setProperty(ElasticIndexDefinition.QUERY_FETCH_SIZES, fetchSizes, Type.LONGS);
+        builder.getBuilderTree().setProperty(ElasticIndexDefinition.QUERY_PREFETCH_PAGES, prefetchPages, Type.LONG);
+        NodeState defn = builder.build();
+        ElasticIndexDefinition definition = new ElasticIndexDefinition(defn, defn, "/oak:index/foo", "test");
+
+        ElasticIndexNode indexNode = mock(ElasticIndexNode.class);
+        when(indexNode.getDefinition()).thenReturn(definition);
+        when(indexNode.getConnection()).thenReturn(connection);
+
+        ElasticRequestHandler requestHandler = mock(ElasticRequestHandler.class);
+        when(requestHandler.baseQuery()).thenReturn(Query.of(q -> q.matchAll(m -> m)));
+        when(requestHandler.baseSorts()).thenReturn(List.of(SortOptions.of(so -> so.field(f -> f.field(FieldNames.PATH)))));
+
+        ElasticResponseHandler responseHandler = mock(ElasticResponseHandler.class);
+        when(responseHandler.getPath(any())).thenAnswer(inv -> {
+            Hit<ObjectNode> hit = inv.getArgument(0);
+            return hit.source().get(FieldNames.PATH).asText();
+        });
+
+        IndexPlan plan = mock(IndexPlan.class, RETURNS_DEEP_STUBS);
+        when(plan.getFilter().getQueryLimits().getLimitReads()).thenReturn(100000L);
+
+        return new ElasticResultRowAsyncIterator(indexNode, requestHandler, responseHandler, plan, null,
+                new ElasticMetricHandler(StatisticsProvider.NOOP));
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (requests.size() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, requests.size());
+    }
+
+    /**
+     * Returns the hits of documents sorted by their position, honoring the size and search_after of the request.
+     */
+    private void search(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = MAPPER.readTree(in);
+        }
+        int size = request.path("size").asInt(10);
+        JsonNode searchAfter = request.get("search_after");
+        int from = searchAfter != null ? searchAfter.get(0).asInt() + 1 : 0;
+        requests.add(new int[]{size, from - 1});
+
+        if (requests.size() >= blockedRequest) {
+            try {
+                responseBarrier.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", 1);
+        response.put("timed_out", false);
+        response.putObject("_shards").put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+        ObjectNode hits = response.putObject("hits");
+        hits.putObject("total").put("value", totalHits).put("relation", "eq");
+        hits.put("max_score", 1.0);
+        ArrayNode hitArray = hits.putArray("hits");
+        for (int i = from; i < Math.min(totalHits, from + size); i++) {
+            ObjectNode hit = hitArray.addObject();
+            hit.put("_index", "test.foo");
+            hit.put("_id", "/content/n" + i);
+            hit.put("_score", 1.0);
+            hit.putObject("_source").put(FieldNames.PATH, "/content/n" + i);
+            hit.putArray("sort").add(i);
+        }
+
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        try {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // the client cancelled the request
+        }
+        exchange.close();
+    }
+}
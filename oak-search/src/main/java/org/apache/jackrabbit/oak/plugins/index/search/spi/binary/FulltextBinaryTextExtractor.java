@@ -156,7 +156,7 @@ public class FulltextBinaryTextExtractor {
         if (log.isDebugEnabled()) {
             log.debug("Extracting {}. Length: {}, reference: {}", path, blobLength, blob.getReference());
         }
-        textExtractionStats.startExtraction();
+        long extractionStart = textExtractionStats.startExtraction();
         try {
             CountingInputStream stream = new CountingInputStream(new LazyInputStream(blob::getNewStream));
             try {
@@ -211,7 +211,7 @@ public class FulltextBinaryTextExtractor {
         String result = handler.toString();
         if (bytesRead > 0) {
             int len = result.length();
-            long extractionTimeMillis = textExtractionStats.finishExtraction(bytesRead, len);
+            long extractionTimeMillis = textExtractionStats.finishExtraction(extractionStart, bytesRead, len);
             if (log.isDebugEnabled()) {
                 log.debug("Extracted {}. Time: {} ms, Bytes read: {}, Text size: {}", path, extractionTimeMillis, bytesRead, len);
             }
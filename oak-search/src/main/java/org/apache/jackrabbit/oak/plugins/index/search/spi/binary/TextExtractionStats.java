@@ -40,23 +40,25 @@ final class TextExtractionStats {
     private long totalBytesRead;
     private long totalExtractedTextLength;
     private long totalExtractionTimeNanos;
-    private long currentExtractionStartNanos = 0;
     private long startTimeNanos = System.nanoTime();
 
-    public void reset() {
+    public synchronized void reset() {
         this.numberOfExtractions = 0;
         this.totalBytesRead = 0;
         this.totalExtractedTextLength = 0;
         this.totalExtractionTimeNanos = 0;
-        this.currentExtractionStartNanos = 0;
         this.startTimeNanos = System.nanoTime();
     }
 
-    public void startExtraction() {
-        currentExtractionStartNanos = System.nanoTime();
+    /**
+     * @return the start time to pass to {@link #finishExtraction}. Extractions
+     *          may run concurrently when documents are built on multiple threads.
+     */
+    public long startExtraction() {
+        return System.nanoTime();
     }
 
-    public void log(boolean reindex) {
+    public synchronized void log(boolean reindex) {
         if (log.isDebugEnabled()) {
             log.debug("Text extraction stats {}", this);
         } else if (anyParsingDone() && (reindex || isTakingLotsOfTime())) {
@@ -64,8 +66,8 @@ final class TextExtractionStats {
         }
     }
 
-    public long finishExtraction(long bytesRead, int extractedTextLength) {
-        long elapsedNanos = System.nanoTime() - currentExtractionStartNanos;
+    public synchronized long finishExtraction(long startNanos, long bytesRead, int extractedTextLength) {
+        long elapsedNanos = System.nanoTime() - startNanos;
         numberOfExtractions++;
         totalBytesRead += bytesRead;
         totalExtractedTextLength += extractedTextLength;
@@ -73,7 +75,7 @@ final class TextExtractionStats {
         return elapsedNanos / 1_000_000;
     }
 
-    public void collectStats(ExtractedTextCache cache) {
+    public synchronized void collectStats(ExtractedTextCache cache) {
         cache.addStats(numberOfExtractions, totalExtractionTimeNanos / 1_000_000, totalBytesRead, totalExtractedTextLength);
     }
 
@@ -86,7 +88,7 @@ final class TextExtractionStats {
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return String.format(" %d (Time Taken %s, Bytes Read %s, Extracted text size %s)",
                 numberOfExtractions,
                 timeInWords(totalExtractionTimeNanos),
@@ -94,7 +96,7 @@ final class TextExtractionStats {
                 humanReadableByteCount(totalExtractedTextLength));
     }
 
-    public String formatStats() {
+    public synchronized String formatStats() {
         long timeSinceStartNanos = System.nanoTime() - startTimeNanos;
         double timeExtractingPercentage = FormattingUtils.safeComputePercentage(totalExtractionTimeNanos, timeSinceStartNanos);
         long avgExtractionTimeMillis = Math.round(FormattingUtils.safeComputeAverage(totalExtractionTimeNanos / 1_000_000, numberOfExtractions));
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.search.spi.editor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds and writes the documents of an index on the threads of an
+ * {@link Executor}, while the index editor continues the traversal. The
+ * {@link FulltextIndexWriter} has to support concurrent updates.
+ * <p>
+ * At most {@code maxPending} documents are built or written at any time.
+ * The editor has to call {@link #awaitPending()} before deleting documents
+ * or closing the writer, so that deletes are applied after all updates
+ * submitted before them. If building or writing a document fails, the
+ * failure is rethrown on the next call of {@link #updateDocument} or
+ * {@link #awaitPending()}.
+ */
+class ConcurrentDocumentWriter<D> {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentDocumentWriter.class);
+
+    /**
+     * Supplier of a document, which may be {@code null} if the node does not
+     * need to be indexed.
+     */
+    interface DocumentSupplier<D> {
+        D get() throws IOException;
+    }
+
+    private final FulltextIndexWriter<D> writer;
+
+    private final Executor executor;
+
+    private final int maxPending;
+
+    private final Semaphore permits;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param writer the writer of the index.
+     * @param executor the executor building and writing documents.
+     * @param maxPending the maximum number of documents built or written
+     *                   at any time.
+     */
+    ConcurrentDocumentWriter(@NotNull FulltextIndexWriter<D> writer, @NotNull Executor executor,
+                             int maxPending) {
+        this.writer = requireNonNull(writer);
+        this.executor = requireNonNull(executor);
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxPending);
+    }
+
+    /**
+     * Builds the document with the given supplier and writes it, unless it
+     * is {@code null}. Blocks while {@code maxPending} documents are pending.
+     *
+     * @param path the path of the indexed node.
+     * @param supplier supplier of the document.
+     * @param onWritten called after the document has been written.
+     */
+    void updateDocument(@NotNull String path, @NotNull DocumentSupplier<D> supplier,
+                        @NotNull Runnable onWritten) throws IOException {
+        checkFailure();
+        acquire(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    D doc = build(path, supplier);
+                    if (doc != null) {
+                        writer.updateDocument(path, doc);
+                        onWritten.run();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // index on the calling thread
+            try {
+                D doc = build(path, supplier);
+                if (doc != null) {
+                    writer.updateDocument(path, doc);
+                    onWritten.run();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Waits until all submitted documents have been written.
+     *
+     * @throws IOException if building or writing any of them failed.
+     */
+    void awaitPending() throws IOException {
+        acquire(maxPending);
+        permits.release(maxPending);
+        checkFailure();
+    }
+
+    private D build(String path, DocumentSupplier<D> supplier) throws IOException {
+        try {
+            return supplier.get();
+        } catch (IllegalArgumentException e) {
+            log.warn("Failed to index the node [{}]", path, e);
+            return null;
+        }
+    }
+
+    private void acquire(int n) throws IOException {
+        try {
+            permits.acquire(n);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for pending documents");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw new IOException(t.getMessage(), t);
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException(t);
+    }
+}
@@ -135,13 +135,7 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
   public void leave(NodeState before, NodeState after)
       throws CommitFailedException {
     if (propertiesChanged || !before.exists()) {
-      String path = getPath();
-      if (addOrUpdate(path, after, before.exists())) {
-        long indexed = context.incIndexedNodes();
-        if (indexed % 1000 == 0) {
-          log.debug("[{}] => Indexed {} nodes...", getIndexName(), indexed);
-        }
-      }
+      addOrUpdate(getPath(), after, before.exists());
     }
 
     for (Aggregate.Matcher m : matcherState.affectedMatchers){
@@ -149,6 +143,15 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
     }
 
     if (parent == null) {
+      try {
+        context.awaitPendingDocuments();
+      } catch (IOException e) {
+        CommitFailedException ce = new CommitFailedException("Fulltext", 3,
+            "Failed to index the nodes of " + context.getIndexingContext().getIndexPath(), e);
+        context.getIndexingContext().indexUpdateFailed(ce);
+        throw ce;
+      }
+
       PropertyUpdateCallback callback = context.getPropertyUpdateCallback();
       if (callback != null) {
         callback.done();
@@ -223,6 +226,8 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
       String path = concat(getPath(), name);
       try {
         FulltextIndexWriter<D> writer = context.getWriter();
+        // Updates submitted before must not be applied after the delete
+        context.awaitPendingDocuments();
         // Remove all index entries in the removed subtree
         writer.deleteDocuments(path);
         this.context.indexUpdate();
@@ -245,9 +250,27 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
     return context;
   }
 
-  private boolean addOrUpdate(String path, NodeState state, boolean isUpdate)
+  private void addOrUpdate(String path, NodeState state, boolean isUpdate)
       throws CommitFailedException {
     try {
+      ConcurrentDocumentWriter<D> concurrentWriter = context.getConcurrentWriter();
+      if (concurrentWriter != null) {
+        if (isIndexable()) {
+          // The callback may not be thread safe, so it is notified on the
+          // traversal thread, even though the node may not need a document
+          context.indexUpdate();
+          DocumentMaker<D> maker = context.newDocumentMaker(indexingRule, path);
+          List<PropertyState> modified = propertiesModified;
+          concurrentWriter.updateDocument(path, () -> {
+            D d = maker.makeDocument(state, isUpdate, modified);
+            if (d != null && log.isTraceEnabled()) {
+              log.trace("[{}] Indexed document for {} is {}", getIndexName(), path, d);
+            }
+            return d;
+          }, this::nodeIndexed);
+        }
+        return;
+      }
       D d = makeDocument(path, state, isUpdate);
       if (d != null) {
         if (log.isTraceEnabled()) {
@@ -255,7 +278,7 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
         }
         context.indexUpdate();
         context.getWriter().updateDocument(path, d);
-        return true;
+        nodeIndexed();
       }
     } catch (IOException e) {
       log.warn("Failed to index the node [{}] due to {}", path, e.getMessage());
@@ -266,7 +289,13 @@ public class FulltextIndexEditor<D> implements IndexEditor, Aggregate.AggregateR
     } catch (IllegalArgumentException ie) {
       log.warn("Failed to index the node [{}]", path, ie);
     }
-    return false;
+  }
+
+  private void nodeIndexed() {
+    long indexed = context.incIndexedNodes();
+    if (indexed % 1000 == 0) {
+      log.debug("[{}] => Indexed {} nodes...", getIndexName(), indexed);
+    }
   }
 
   private D makeDocument(String path, NodeState state, boolean isUpdate) throws IOException {
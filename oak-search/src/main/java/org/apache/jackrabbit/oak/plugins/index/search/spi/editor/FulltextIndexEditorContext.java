@@ -21,6 +21,8 @@ package org.apache.jackrabbit.oak.plugins.index.search.spi.editor;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.PropertyState;
@@ -69,7 +71,7 @@ public abstract class FulltextIndexEditorContext<D> {
 
   private FulltextIndexWriter<D> writer = null;
 
-  private long indexedNodes;
+  private final AtomicLong indexedNodes = new AtomicLong();
 
   private final IndexUpdateCallback updateCallback;
 
@@ -93,6 +95,12 @@ public abstract class FulltextIndexEditorContext<D> {
 
   private PropertyUpdateCallback propertyUpdateCallback;
 
+  private Executor indexingExecutor;
+
+  private int maxPendingDocuments;
+
+  private ConcurrentDocumentWriter<D> concurrentWriter;
+
   protected FulltextIndexEditorContext(NodeState root, NodeBuilder definition,
                                        @Nullable IndexDefinition indexDefinition,
                                        IndexUpdateCallback updateCallback,
@@ -105,7 +113,6 @@ public abstract class FulltextIndexEditorContext<D> {
     this.indexWriterFactory = indexWriterFactory;
     this.definition = indexDefinition != null ? indexDefinition :
             createIndexDefinition(root, definition, indexingContext, asyncIndexing);
-    this.indexedNodes = 0;
     this.updateCallback = updateCallback;
     this.extractedTextCache = extractedTextCache;
     this.asyncIndexing = asyncIndexing;
@@ -135,6 +142,42 @@ public abstract class FulltextIndexEditorContext<D> {
     return writer;
   }
 
+  /**
+   * Enables building and writing documents on the threads of the given
+   * executor, concurrently with the traversal of the content.
+   * The index writer has to support concurrent updates.
+   *
+   * @param executor the executor, or {@code null} to disable concurrent indexing.
+   * @param maxPendingDocuments the maximum number of documents being built
+   *                            or written at any time.
+   */
+  public void setConcurrentIndexing(@Nullable Executor executor, int maxPendingDocuments) {
+    this.indexingExecutor = maxPendingDocuments > 0 ? executor : null;
+    this.maxPendingDocuments = maxPendingDocuments;
+  }
+
+  public boolean isConcurrentIndexing() {
+    return indexingExecutor != null;
+  }
+
+  @Nullable
+  ConcurrentDocumentWriter<D> getConcurrentWriter() {
+    if (concurrentWriter == null && indexingExecutor != null) {
+      concurrentWriter = new ConcurrentDocumentWriter<>(getWriter(), indexingExecutor, maxPendingDocuments);
+    }
+    return concurrentWriter;
+  }
+
+  /**
+   * Waits until the documents built and written concurrently have been
+   * written, if concurrent indexing is enabled.
+   */
+  void awaitPendingDocuments() throws IOException {
+    if (concurrentWriter != null) {
+      concurrentWriter.awaitPending();
+    }
+  }
+
   public IndexingContext getIndexingContext() {
     return indexingContext;
   }
@@ -152,6 +195,7 @@ public abstract class FulltextIndexEditorContext<D> {
    * close writer if it's not null
    */
   public void closeWriter() throws IOException {
+    awaitPendingDocuments();
     Calendar currentTime = getCalendar();
     final long start = PERF_LOGGER.start();
     boolean indexUpdated = getWriter().close(currentTime.getTimeInMillis());
@@ -163,7 +207,7 @@ public abstract class FulltextIndexEditorContext<D> {
       //is stored in file system
       NodeBuilder status = definitionBuilder.child(IndexDefinition.STATUS_NODE);
       status.setProperty(IndexDefinition.STATUS_LAST_UPDATED, getUpdatedTime(currentTime), Type.DATE);
-      status.setProperty("indexedNodes", indexedNodes);
+      status.setProperty("indexedNodes", indexedNodes.get());
       if (reindex) {
         status.setProperty(IndexDefinition.REINDEX_COMPLETION_TIMESTAMP, ISO8601.format(currentTime), Type.DATE);
         log.info(IndexDefinition.REINDEX_COMPLETION_TIMESTAMP + " set to current time for index:" + definition.getIndexPath());
@@ -210,8 +254,7 @@ public abstract class FulltextIndexEditorContext<D> {
   }
 
   public long incIndexedNodes() {
-    indexedNodes++;
-    return indexedNodes;
+    return indexedNodes.incrementAndGet();
   }
 
   public boolean isAsyncIndexing() {
@@ -219,7 +262,7 @@ public abstract class FulltextIndexEditorContext<D> {
   }
 
   public long getIndexedNodes() {
-    return indexedNodes;
+    return indexedNodes.get();
   }
 
   public void indexUpdate() throws CommitFailedException {
@@ -68,11 +68,17 @@ public abstract class FulltextIndexTracker<I extends IndexNodeManager<N>, N exte
 
     private volatile boolean refresh;
 
+    private volatile FulltextResultCache resultCache;
+
     protected abstract I openIndex(String path, NodeState root, NodeState node);
 
     synchronized void close() {
         Map<String, I> indices = this.indices;
         this.indices = emptyMap();
+        FulltextResultCache resultCache = this.resultCache;
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
 
         for (Map.Entry<String, I> entry : indices.entrySet()) {
             entry.getValue().close();
@@ -110,6 +116,21 @@ public abstract class FulltextIndexTracker<I extends IndexNodeManager<N>, N exte
         return asyncIndexInfoService;
     }
 
+    /**
+     * Sets the cache for query results of the tracked indexes. The cached
+     * results of an index are removed whenever its {@link IndexNode} is reopened.
+     *
+     * @param resultCache the cache, or {@code null} to disable caching
+     */
+    public void setResultCache(@Nullable FulltextResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @Nullable
+    public FulltextResultCache getResultCache() {
+        return resultCache;
+    }
+
     private synchronized void diffAndUpdate(final NodeState root) {
         if (asyncIndexInfoService != null && !asyncIndexInfoService.hasIndexerUpdatedForAnyLane(this.root, root)) {
             LOG.trace("No changed detected in async indexer state. Skipping further diff");
@@ -154,6 +175,11 @@ public abstract class FulltextIndexTracker<I extends IndexNodeManager<N>, N exte
 
             badIndexTracker.markGoodIndexes(updates.keySet());
 
+            FulltextResultCache resultCache = this.resultCache;
+            if (resultCache != null) {
+                updates.keySet().forEach(resultCache::invalidate);
+            }
+
             //This might take some time as close need to acquire the
             //write lock which might be held by current running searches
             //Given that Tracker is now invoked from a BackgroundObserver
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.search.spi.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jackrabbit.guava.common.cache.Cache;
+import org.apache.jackrabbit.guava.common.cache.CacheBuilder;
+import org.apache.jackrabbit.guava.common.cache.CacheStats;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.search.IndexDefinition.SecureFacetConfiguration;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.Facet;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.FacetProvider;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.FulltextResultRow;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.IteratorRewoundStateProvider;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner.PlanResult;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.Filter.PropertyRestriction;
+import org.apache.jackrabbit.oak.spi.query.QueryConstants;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.IndexPlan;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cache for the results of fulltext index queries, shared by all sessions.
+ * <p>
+ * Results are keyed on the index path, the generation of the index (for
+ * example the id of the index searcher) and the normalized filter and sort
+ * order of the query. Only the paths, scores and (insecure) facets are kept,
+ * so access control is still checked per session by the query engine. Queries
+ * whose results depend on the session (secure facets, spellcheck and suggest
+ * results) or which need per row data (excerpts, score explanation) are not
+ * cached.
+ * <p>
+ * A result is only added to the cache once it has been read completely and if
+ * it does not have more than {@code maxRowsPerResult} rows.
+ */
+public class FulltextResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FulltextResultCache.class);
+
+    private final Cache<Key, Result> cache;
+
+    private final int maxRowsPerResult;
+
+    private final long minGenerationAgeMillis;
+
+    private final Map<String, Generation> generations = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxRows the maximum total number of cached rows.
+     * @param maxRowsPerResult the maximum number of rows of a cached result.
+     */
+    public FulltextResultCache(long maxRows, int maxRowsPerResult) {
+        this(maxRows, maxRowsPerResult, 0);
+    }
+
+    /**
+     * @param maxRows the maximum total number of cached rows.
+     * @param maxRowsPerResult the maximum number of rows of a cached result.
+     * @param minGenerationAgeMillis the time after which the results of a new
+     *                               index generation are cached, for indexes
+     *                               that make changes searchable with a delay.
+     */
+    public FulltextResultCache(long maxRows, int maxRowsPerResult, long minGenerationAgeMillis) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((Key key, Result result) -> result.size() + 1)
+                .recordStats()
+                .build();
+        this.maxRowsPerResult = maxRowsPerResult;
+        this.minGenerationAgeMillis = minGenerationAgeMillis;
+    }
+
+    /**
+     * Returns the cached rows of the given plan.
+     *
+     * @param plan the plan of the query.
+     * @param generation the current generation of the index.
+     * @return the rows or {@code null} if the result is not cached.
+     */
+    @Nullable
+    public Iterator<FulltextResultRow> get(@NotNull IndexPlan plan, @NotNull String generation) {
+        Key key = newKey(plan, generation);
+        return key != null ? get(key) : null;
+    }
+
+    /**
+     * Returns an iterator over the given rows, which adds them to the cache
+     * once all rows have been read. The rows are returned as is if the result
+     * of the plan cannot be cached.
+     *
+     * @param plan the plan of the query.
+     * @param generation the generation of the index the query is run against.
+     * @param rows the rows returned by the index.
+     * @param rewoundStateProvider tells whether the index query was restarted
+     *                             while reading the rows.
+     */
+    @NotNull
+    public Iterator<FulltextResultRow> record(@NotNull IndexPlan plan, @NotNull String generation,
+                                              @NotNull Iterator<FulltextResultRow> rows,
+                                              @NotNull IteratorRewoundStateProvider rewoundStateProvider) {
+        Key key = newKey(plan, generation);
+        return key != null ? record(key, rows, rewoundStateProvider) : rows;
+    }
+
+    /**
+     * Removes the cached results of the given index.
+     */
+    public void invalidate(@NotNull String indexPath) {
+        cache.asMap().keySet().removeIf(k -> k.indexPath.equals(indexPath));
+        generations.remove(indexPath);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        generations.clear();
+    }
+
+    @NotNull
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of cached results.
+     */
+    public long getResultCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return the total number of cached rows.
+     */
+    public long getRowCount() {
+        long count = 0;
+        for (Result result : cache.asMap().values()) {
+            count += result.size();
+        }
+        return count;
+    }
+
+    @Nullable
+    Iterator<FulltextResultRow> get(@NotNull Key key) {
+        Result result = cache.getIfPresent(key);
+        return result != null ? result.iterator() : null;
+    }
+
+    @NotNull
+    Iterator<FulltextResultRow> record(@NotNull Key key, @NotNull Iterator<FulltextResultRow> rows,
+                                       @NotNull IteratorRewoundStateProvider rewoundStateProvider) {
+        if (!isSettled(key)) {
+            return rows;
+        }
+        return new RecordingIterator(key, rows, rewoundStateProvider);
+    }
+
+    /**
+     * Returns the key for the result of the given plan, or {@code null} if
+     * the result must not be cached.
+     */
+    @Nullable
+    static Key newKey(@NotNull IndexPlan plan, @NotNull String generation) {
+        Filter filter = plan.getFilter();
+        if (filter.getPropertyRestriction(QueryConstants.REP_EXCERPT) != null
+                || filter.getPropertyRestriction(QueryConstants.OAK_SCORE_EXPLANATION) != null) {
+            return null;
+        }
+        PlanResult planResult = FulltextIndex.getPlanResult(plan);
+        List<String> facetColumns = new ArrayList<>();
+        for (PropertyRestriction pr : filter.getPropertyRestrictions()) {
+            if (QueryConstants.REP_FACET.equals(pr.propertyName)) {
+                facetColumns.add(pr.first.getValue(Type.STRING));
+            }
+        }
+        if (!facetColumns.isEmpty() && planResult.indexDefinition.getSecureFacetConfiguration().getMode()
+                != SecureFacetConfiguration.MODE.INSECURE) {
+            // facet counts depend on the access rights of the session
+            return null;
+        }
+        String query = filter + ", sort=" + plan.getSortOrder() + ", pathPrefix=" + plan.getPathPrefix();
+        return new Key(planResult.indexPath, generation, query, facetColumns,
+                planResult.indexDefinition.getNumberOfTopFacets());
+    }
+
+    private boolean isSettled(Key key) {
+        if (minGenerationAgeMillis <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Generation g = generations.compute(key.indexPath, (path, current) ->
+                current != null && current.id.equals(key.generation) ? current : new Generation(key.generation, now));
+        return now - g.firstSeen >= minGenerationAgeMillis;
+    }
+
+    static final class Key {
+        final String indexPath;
+        final String generation;
+        final String query;
+        final List<String> facetColumns;
+        final int numberOfFacets;
+
+        Key(String indexPath, String generation, String query, List<String> facetColumns, int numberOfFacets) {
+            this.indexPath = requireNonNull(indexPath);
+            this.generation = requireNonNull(generation);
+            this.query = requireNonNull(query);
+            this.facetColumns = facetColumns;
+            this.numberOfFacets = numberOfFacets;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return indexPath.equals(other.indexPath)
+                    && generation.equals(other.generation)
+                    && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(indexPath, generation, query);
+        }
+
+        @Override
+        public String toString() {
+            return indexPath + "@" + generation + ": " + query;
+        }
+    }
+
+    private static final class Generation {
+        final String id;
+        final long firstSeen;
+
+        Generation(String id, long firstSeen) {
+            this.id = id;
+            this.firstSeen = firstSeen;
+        }
+    }
+
+    /**
+     * A cached result, stored as arrays of paths and scores.
+     */
+    private static final class Result {
+        private final String[] paths;
+        private final double[] scores;
+        private final FacetProvider facetProvider;
+
+        Result(String[] paths, double[] scores, Map<String, List<Facet>> facets) {
+            this.paths = paths;
+            this.scores = scores;
+            this.facetProvider = (numberOfFacets, columnName) -> facets.get(columnName);
+        }
+
+        int size() {
+            return paths.length;
+        }
+
+        Iterator<FulltextResultRow> iterator() {
+            return new Iterator<FulltextResultRow>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < paths.length;
+                }
+
+                @Override
+                public FulltextResultRow next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int i = index++;
+                    return new FulltextResultRow(paths[i], scores[i], Collections.emptyMap(), facetProvider, null);
+                }
+            };
+        }
+    }
+
+    /**
+     * Passes the rows of a query through and adds them to the cache once the
+     * last row has been read.
+     */
+    private class RecordingIterator implements Iterator<FulltextResultRow> {
+        private final Key key;
+        private final Iterator<FulltextResultRow> rows;
+        private final IteratorRewoundStateProvider rewoundStateProvider;
+        private final Map<String, List<Facet>> facets = new ConcurrentHashMap<>();
+        private List<String> paths = new ArrayList<>();
+        private double[] scores = new double[16];
+        private FulltextResultRow firstRow;
+
+        RecordingIterator(Key key, Iterator<FulltextResultRow> rows,
+                          IteratorRewoundStateProvider rewoundStateProvider) {
+            this.key = key;
+            this.rows = rows;
+            this.rewoundStateProvider = rewoundStateProvider;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = rows.hasNext();
+            if (!hasNext && paths != null) {
+                complete();
+                paths = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public FulltextResultRow next() {
+            FulltextResultRow row = rows.next();
+            if (paths == null) {
+                return row;
+            }
+            if (row.isVirutal || paths.size() >= maxRowsPerResult) {
+                // suggestions depend on the session, large results are not cached
+                paths = null;
+                scores = null;
+                return row;
+            }
+            if (firstRow == null) {
+                firstRow = row;
+            }
+            if (paths.size() == scores.length) {
+                scores = Arrays.copyOf(scores, scores.length * 2);
+            }
+            scores[paths.size()] = row.score;
+            paths.add(row.path);
+            if (key.facetColumns.isEmpty()) {
+                return row;
+            }
+            // remember the facets read from the result
+            return new FulltextResultRow(row.path, row.score, row.excerpts, (numberOfFacets, columnName) -> {
+                List<Facet> f = facets.get(columnName);
+                if (f == null) {
+                    f = row.getFacets(numberOfFacets, columnName);
+                    if (f != null) {
+                        facets.put(columnName, f);
+                    }
+                }
+                return f;
+            }, row.explanation);
+        }
+
+        private void complete() {
+            if (rewoundStateProvider.rewoundCount() > 0) {
+                return;
+            }
+            Map<String, List<Facet>> resultFacets = new HashMap<>(facets);
+            if (firstRow != null) {
+                try {
+                    for (String column : key.facetColumns) {
+                        if (!resultFacets.containsKey(column)) {
+                            List<Facet> f = firstRow.getFacets(key.numberOfFacets, column);
+                            if (f != null) {
+                                resultFacets.put(column, f);
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("Not caching the result of {} as reading the facets failed", key, e);
+                    return;
+                }
+            }
+            int size = paths.size();
+            cache.put(key, new Result(paths.toArray(new String[0]), Arrays.copyOf(scores, size), resultFacets));
+            LOG.trace("Cached {} rows for {}", size, key);
+        }
+    }
+}
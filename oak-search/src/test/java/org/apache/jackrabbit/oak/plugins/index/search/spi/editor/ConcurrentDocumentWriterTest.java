@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.search.spi.editor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentDocumentWriterTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final RecordingWriter writer = new RecordingWriter();
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void allDocumentsWritten() throws Exception {
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 8);
+        AtomicInteger written = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            String path = "/n" + i;
+            cw.updateDocument(path, () -> "doc" + path, written::incrementAndGet);
+        }
+        cw.awaitPending();
+        assertEquals(100, written.get());
+        assertEquals(100, writer.ops.size());
+    }
+
+    @Test
+    public void nullDocumentsSkipped() throws Exception {
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 8);
+        AtomicInteger written = new AtomicInteger();
+        cw.updateDocument("/a", () -> null, written::incrementAndGet);
+        cw.updateDocument("/b", () -> {
+            throw new IllegalArgumentException("invalid");
+        }, written::incrementAndGet);
+        cw.awaitPending();
+        assertEquals(0, written.get());
+        assertTrue(writer.ops.isEmpty());
+    }
+
+    @Test
+    public void deleteAfterPendingUpdates() throws Exception {
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 8);
+        cw.updateDocument("/a/b", () -> {
+            sleep(100);
+            return "doc";
+        }, () -> {});
+        cw.awaitPending();
+        writer.deleteDocuments("/a");
+        assertEquals(List.of("update /a/b", "delete /a"), writer.ops);
+    }
+
+    @Test
+    public void boundedPending() throws Exception {
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            cw.updateDocument("/n" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                return "doc";
+            }, () -> {});
+        }
+        cw.awaitPending();
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(20, writer.ops.size());
+    }
+
+    @Test
+    public void failureRethrown() throws Exception {
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 8);
+        cw.updateDocument("/a", () -> {
+            throw new IOException("failed");
+        }, () -> {});
+        try {
+            cw.awaitPending();
+            fail("Expected the failure of the pending document");
+        } catch (IOException e) {
+            assertEquals("failed", e.getCause().getMessage());
+        }
+        try {
+            cw.updateDocument("/b", () -> "doc", () -> {});
+            fail("Expected the failure of the pending document");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectedExecution() throws Exception {
+        executor.shutdown();
+        ConcurrentDocumentWriter<String> cw = new ConcurrentDocumentWriter<>(writer, executor, 8);
+        AtomicInteger written = new AtomicInteger();
+        cw.updateDocument("/a", () -> "doc", written::incrementAndGet);
+        assertEquals(1, written.get());
+        cw.awaitPending();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingWriter implements FulltextIndexWriter<String> {
+
+        final List<String> ops = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void updateDocument(String path, String doc) {
+            ops.add("update " + path);
+        }
+
+        @Override
+        public void deleteDocuments(String path) {
+            ops.add("delete " + path);
+        }
+
+        @Override
+        public boolean close(long timestamp) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.search.spi.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.Facet;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.FacetProvider;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.FulltextResultRow;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex.IteratorRewoundStateProvider;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextResultCache.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FulltextResultCacheTest {
+
+    private static final IteratorRewoundStateProvider NOT_REWOUND = () -> 0;
+
+    private static final String INDEX_PATH = "/oak:index/foo";
+
+    private final FulltextResultCache cache = new FulltextResultCache(100, 5);
+
+    @Test
+    public void cachedAfterFullRead() throws Exception {
+        Key key = newKey("1", "q");
+        assertNull(cache.get(key));
+
+        List<String> paths = readPaths(cache.record(key, rows(3), NOT_REWOUND));
+        assertEquals(List.of("/a0", "/a1", "/a2"), paths);
+        assertEquals(1, cache.getResultCount());
+        assertEquals(3, cache.getRowCount());
+
+        Iterator<FulltextResultRow> cached = cache.get(key);
+        assertNotNull(cached);
+        FulltextResultRow row = cached.next();
+        assertEquals("/a0", row.path);
+        assertEquals(0.0, row.score, 0);
+        row = cached.next();
+        assertEquals("/a1", row.path);
+        assertEquals(1.0, row.score, 0);
+
+        // another query or generation is not served from the cache
+        assertNull(cache.get(newKey("1", "q2")));
+        assertNull(cache.get(newKey("2", "q")));
+    }
+
+    @Test
+    public void partialReadNotCached() {
+        Key key = newKey("1", "q");
+        Iterator<FulltextResultRow> it = cache.record(key, rows(3), NOT_REWOUND);
+        it.next();
+        it.next();
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void largeResultNotCached() {
+        Key key = newKey("1", "q");
+        assertEquals(6, readPaths(cache.record(key, rows(6), NOT_REWOUND)).size());
+        assertNull(cache.get(key));
+
+        assertEquals(5, readPaths(cache.record(key, rows(5), NOT_REWOUND)).size());
+        assertNotNull(cache.get(key));
+    }
+
+    @Test
+    public void rewoundResultNotCached() {
+        Key key = newKey("1", "q");
+        readPaths(cache.record(key, rows(3), () -> 1));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void virtualRowsNotCached() {
+        Key key = newKey("1", "q");
+        Iterator<FulltextResultRow> rows = List.of(new FulltextResultRow("suggestion")).iterator();
+        readPaths(cache.record(key, rows, NOT_REWOUND));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void invalidate() {
+        Key key = newKey("1", "q");
+        Key other = new Key("/oak:index/bar", "1", "q", Collections.emptyList(), 10);
+        readPaths(cache.record(key, rows(1), NOT_REWOUND));
+        readPaths(cache.record(other, rows(1), NOT_REWOUND));
+
+        cache.invalidate(INDEX_PATH);
+        assertNull(cache.get(key));
+        assertNotNull(cache.get(other));
+
+        cache.invalidateAll();
+        assertNull(cache.get(other));
+    }
+
+    @Test
+    public void facetsCached() throws Exception {
+        String column = "rep:facet(tags)";
+        Key key = new Key(INDEX_PATH, "1", "q", List.of(column), 10);
+        AtomicInteger facetReads = new AtomicInteger();
+        List<Facet> facets = List.of(new Facet("a", 2), new Facet("b", 1));
+        FacetProvider provider = (numberOfFacets, columnName) -> {
+            facetReads.incrementAndGet();
+            return column.equals(columnName) ? facets : null;
+        };
+        List<FulltextResultRow> rows = new ArrayList<>();
+        rows.add(new FulltextResultRow("/a", 1, null, provider, null));
+        rows.add(new FulltextResultRow("/b", 1, null, provider, null));
+
+        Iterator<FulltextResultRow> it = cache.record(key, rows.iterator(), NOT_REWOUND);
+        assertEquals(facets, it.next().getFacets(10, column));
+        assertEquals(facets, it.next().getFacets(10, column));
+        it.hasNext();
+        assertEquals(1, facetReads.get());
+
+        FulltextResultRow cached = cache.get(key).next();
+        assertEquals(facets, cached.getFacets(10, column));
+        assertEquals(1, facetReads.get());
+    }
+
+    @Test
+    public void newGenerationCachedAfterMinAge() {
+        FulltextResultCache delayed = new FulltextResultCache(100, 5, 60 * 60 * 1000);
+        Key key = newKey("1", "q");
+        Iterator<FulltextResultRow> rows = rows(1);
+        assertSame(rows, delayed.record(key, rows, NOT_REWOUND));
+    }
+
+    private static Key newKey(String generation, String query) {
+        return new Key(INDEX_PATH, generation, query, Collections.emptyList(), 10);
+    }
+
+    private static Iterator<FulltextResultRow> rows(int count) {
+        List<FulltextResultRow> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new FulltextResultRow("/a" + i, i, null, null, null));
+        }
+        return rows.iterator();
+    }
+
+    private static List<String> readPaths(Iterator<FulltextResultRow> it) {
+        List<String> paths = new ArrayList<>();
+        while (it.hasNext()) {
+            paths.add(it.next().path);
+        }
+        return paths;
+    }
+}
@@ -43,8 +43,18 @@ import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -57,6 +67,17 @@ public class AzureArchiveManager implements SegmentArchiveManager {
 
     private static final Logger log = LoggerFactory.getLogger(AzureSegmentArchiveReader.class);
 
+    /**
+     * Number of blobs processed concurrently when an archive is deleted,
+     * renamed, copied or recovered. Each of these operations issues one or
+     * more remote calls per segment, so running them one after another makes
+     * the cleanup and recovery time proportional to the round trip latency
+     * times the number of segments in the archive.
+     */
+    static final int BULK_THREADS = Integer.getInteger("oak.segment.azure.archive.threads", 8);
+
+    private static final AtomicInteger BULK_EXECUTOR_COUNT = new AtomicInteger();
+
     protected final CloudBlobDirectory cloudBlobDirectory;
 
     protected final IOMonitor ioMonitor;
@@ -64,11 +85,33 @@ public class AzureArchiveManager implements SegmentArchiveManager {
     protected final FileStoreMonitor monitor;
     private WriteAccessController writeAccessController;
 
+    /**
+     * Executor for the bulk operations on the blobs of an archive, shared by
+     * all the operations of this archive manager. Its threads are only
+     * started on demand and terminate when idle.
+     */
+    private final ThreadPoolExecutor bulkExecutor;
+
     public AzureArchiveManager(CloudBlobDirectory segmentstoreDirectory, IOMonitor ioMonitor, FileStoreMonitor fileStoreMonitor, WriteAccessController writeAccessController) {
         this.cloudBlobDirectory = segmentstoreDirectory;
         this.ioMonitor = ioMonitor;
         this.monitor = fileStoreMonitor;
         this.writeAccessController = writeAccessController;
+        this.bulkExecutor = newBulkExecutor();
+    }
+
+    private static ThreadPoolExecutor newBulkExecutor() {
+        int threads = Math.max(1, BULK_THREADS);
+        String prefix = "azure-archive-" + BULK_EXECUTOR_COUNT.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
@@ -136,15 +179,15 @@ public class AzureArchiveManager implements SegmentArchiveManager {
     @Override
     public boolean delete(String archiveName) {
         try {
-            getBlobs(archiveName)
-                    .forEach(cloudBlob -> {
-                        try {
-                            writeAccessController.checkWritingAllowed();
-                            cloudBlob.delete();
-                        } catch (StorageException e) {
-                            log.error("Can't delete segment {}", cloudBlob.getUri().getPath(), e);
-                        }
-                    });
+            forEachBlob(getBlobs(archiveName), cloudBlob -> {
+                try {
+                    writeAccessController.checkWritingAllowed();
+                    cloudBlob.delete();
+                } catch (StorageException e) {
+                    log.error("Can't delete segment {}", cloudBlob.getUri().getPath(), e);
+                }
+                return null;
+            });
             return true;
         } catch (IOException e) {
             log.error("Can't delete archive {}", archiveName, e);
@@ -156,15 +199,15 @@ public class AzureArchiveManager implements SegmentArchiveManager {
     public boolean renameTo(String from, String to) {
         try {
             CloudBlobDirectory targetDirectory = getDirectory(to);
-            getBlobs(from)
-                    .forEach(cloudBlob -> {
-                        try {
-                            writeAccessController.checkWritingAllowed();
-                            renameBlob(cloudBlob, targetDirectory);
-                        } catch (IOException e) {
-                            log.error("Can't rename segment {}", cloudBlob.getUri().getPath(), e);
-                        }
-                    });
+            forEachBlobSegmentsFirst(getBlobs(from), cloudBlob -> {
+                try {
+                    writeAccessController.checkWritingAllowed();
+                    renameBlob(cloudBlob, targetDirectory);
+                } catch (IOException e) {
+                    log.error("Can't rename segment {}", cloudBlob.getUri().getPath(), e);
+                }
+                return null;
+            });
             return true;
         } catch (IOException e) {
             log.error("Can't rename archive {} to {}", from, to, e);
@@ -175,14 +218,14 @@ public class AzureArchiveManager implements SegmentArchiveManager {
     @Override
     public void copyFile(String from, String to) throws IOException {
         CloudBlobDirectory targetDirectory = getDirectory(to);
-        getBlobs(from)
-                .forEach(cloudBlob -> {
-                    try {
-                        copyBlob(cloudBlob, targetDirectory);
-                    } catch (IOException e) {
-                        log.error("Can't copy segment {}", cloudBlob.getUri().getPath(), e);
-                    }
-                });
+        forEachBlobSegmentsFirst(getBlobs(from), cloudBlob -> {
+            try {
+                copyBlob(cloudBlob, targetDirectory);
+            } catch (IOException e) {
+                log.error("Can't copy segment {}", cloudBlob.getUri().getPath(), e);
+            }
+            return null;
+        });
     }
 
     @Override
@@ -200,11 +243,11 @@ public class AzureArchiveManager implements SegmentArchiveManager {
         Pattern pattern = Pattern.compile(RemoteUtilities.SEGMENT_FILE_NAME_PATTERN);
         List<RecoveredEntry> entryList = new ArrayList<>();
 
-        for (CloudBlob b : getBlobs(archiveName)) {
+        for (RecoveredEntry entry : forEachBlob(getBlobs(archiveName), b -> {
             String name = getName(b);
             Matcher m = pattern.matcher(name);
             if (!m.matches()) {
-                continue;
+                return null;
             }
             int position = Integer.parseInt(m.group(1), 16);
             UUID uuid = UUID.fromString(m.group(2));
@@ -216,7 +259,12 @@ public class AzureArchiveManager implements SegmentArchiveManager {
                 } catch (StorageException e) {
                     throw new IOException(e);
                 }
-                entryList.add(new RecoveredEntry(position, uuid, data, name));
+                return new RecoveredEntry(position, uuid, data, name);
+            }
+            return null;
+        })) {
+            if (entry != null) {
+                entryList.add(entry);
             }
         }
         Collections.sort(entryList);
@@ -234,16 +282,16 @@ public class AzureArchiveManager implements SegmentArchiveManager {
     }
 
     private void delete(String archiveName, Set<UUID> recoveredEntries) throws IOException {
-        getBlobs(archiveName)
-                .forEach(cloudBlob -> {
-                    if (!recoveredEntries.contains(RemoteUtilities.getSegmentUUID(getName(cloudBlob)))) {
-                        try {
-                            cloudBlob.delete();
-                        } catch (StorageException e) {
-                            log.error("Can't delete segment {}", cloudBlob.getUri().getPath(), e);
-                        }
-                    }
-                });
+        forEachBlob(getBlobs(archiveName), cloudBlob -> {
+            if (!recoveredEntries.contains(RemoteUtilities.getSegmentUUID(getName(cloudBlob)))) {
+                try {
+                    cloudBlob.delete();
+                } catch (StorageException e) {
+                    log.error("Can't delete segment {}", cloudBlob.getUri().getPath(), e);
+                }
+            }
+            return null;
+        });
     }
 
     /**
@@ -257,6 +305,11 @@ public class AzureArchiveManager implements SegmentArchiveManager {
         delete(archiveName, recoveredEntries);
     }
 
+    @Override
+    public void close() throws IOException {
+        bulkExecutor.shutdown();
+    }
+
     protected CloudBlobDirectory getDirectory(String archiveName) throws IOException {
         try {
             return cloudBlobDirectory.getDirectoryReference(archiveName);
@@ -269,6 +322,75 @@ public class AzureArchiveManager implements SegmentArchiveManager {
         return AzureUtilities.getBlobs(getDirectory(archiveName));
     }
 
+    /**
+     * Apply {@code task} to all {@code blobs}, running up to {@link #BULK_THREADS}
+     * tasks concurrently. The results are returned in the order of the blobs.
+     * The first failing task fails the whole operation. Once this archive
+     * manager is closed, the tasks are run by the calling thread.
+     */
+    private <T> List<T> forEachBlob(List<CloudBlob> blobs, BlobTask<T> task) throws IOException {
+        List<T> results = new ArrayList<>(blobs.size());
+        if (blobs.size() <= 1 || BULK_THREADS <= 1) {
+            for (CloudBlob blob : blobs) {
+                results.add(task.run(blob));
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(blobs.size());
+        try {
+            for (CloudBlob blob : blobs) {
+                futures.add(submit(() -> task.run(blob)));
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<T> submit(Callable<T> callable) {
+        try {
+            return bulkExecutor.submit(callable);
+        } catch (RejectedExecutionException e) {
+            FutureTask<T> future = new FutureTask<>(callable);
+            future.run();
+            return future;
+        }
+    }
+
+    /**
+     * Like {@link #forEachBlob(List, BlobTask)}, but only starts with the
+     * remaining blobs (the {@code closed} marker and the archive metadata)
+     * once all the segments have been processed. This way a concurrent copy
+     * never exposes a closed archive in the target directory that is still
+     * missing some of its segments.
+     */
+    private void forEachBlobSegmentsFirst(List<CloudBlob> blobs, BlobTask<?> task) throws IOException {
+        Pattern pattern = Pattern.compile(RemoteUtilities.SEGMENT_FILE_NAME_PATTERN);
+        Map<Boolean, List<CloudBlob>> partitioned = blobs.stream()
+                .collect(Collectors.partitioningBy(blob -> pattern.matcher(getName(blob)).matches()));
+        forEachBlob(partitioned.get(true), task);
+        forEachBlob(partitioned.get(false), task);
+    }
+
+    @FunctionalInterface
+    private interface BlobTask<T> {
+        T run(CloudBlob blob) throws IOException;
+    }
+
     private void renameBlob(CloudBlob blob, CloudBlobDirectory newParent) throws IOException {
         copyBlob(blob, newParent);
         try {
@@ -94,6 +94,11 @@ public class AzurePersistence implements SegmentNodeStorePersistence {
         return new AzureGCJournalFile(getAppendBlob("gc.log"));
     }
 
+    @Override
+    public GCJournalFile getCompactionProgressFile() throws IOException {
+        return new AzureGCJournalFile(getAppendBlob("compaction.log"));
+    }
+
     @Override
     public ManifestFile getManifestFile() throws IOException {
         return new AzureManifestFile(getBlockBlob("manifest"));
@@ -92,6 +92,8 @@ public class AzureCompact {
 
         private int concurrency = 1;
 
+        private boolean resumable;
+
         private String persistentCachePath;
 
         private Integer persistentCacheSizeGb;
@@ -207,6 +209,20 @@ public class AzureCompact {
             return this;
         }
 
+        /**
+         * Whether the progress of the compaction should be saved in the target
+         * segment store, so that an interrupted run can be resumed from the
+         * already compacted subtrees. This only applies to the "parallel"
+         * compactor with a concurrency greater than 1.
+         *
+         * @param resumable {@code true} to enable resumable compaction
+         * @return this builder
+         */
+        public Builder withResumableCompaction(boolean resumable) {
+            this.resumable = resumable;
+            return this;
+        }
+
         /**
          * The path where segments in the persistent cache will be stored.
          *
@@ -296,6 +312,8 @@ public class AzureCompact {
 
     private final int concurrency;
 
+    private final boolean resumable;
+
     private final String persistentCachePath;
 
     private final Integer persistentCacheSizeGb;
@@ -318,6 +336,7 @@ public class AzureCompact {
         this.gcType = builder.gcType;
         this.compactorType = builder.compactorType;
         this.concurrency = builder.concurrency;
+        this.resumable = builder.resumable;
         this.persistentCachePath = builder.persistentCachePath;
         this.persistentCacheSizeGb = builder.persistentCacheSizeGb;
         this.garbageThresholdGb = builder.garbageThresholdGb;
@@ -373,7 +392,7 @@ public class AzureCompact {
         String root = null;
 
         try (FileStore store = newFileStore(splitPersistence, Files.createTempDir(), strictVersionCheck, segmentCacheSize,
-                gcLogInterval, compactorType, concurrency)) {
+                gcLogInterval, compactorType, concurrency, resumable)) {
             if (garbageThresholdGb > 0 && garbageThresholdPercentage > 0) {
                 System.out.printf("    -> minimum garbage threshold set to %d GB or %d%%\n", garbageThresholdGb, garbageThresholdPercentage);
                 long currentSize = store.size();
@@ -109,6 +109,14 @@ public class ToolUtils {
     public static FileStore newFileStore(SegmentNodeStorePersistence persistence, File directory,
             boolean strictVersionCheck, int segmentCacheSize, long gcLogInterval, CompactorType compactorType, int gcConcurrency)
             throws IOException, InvalidFileStoreVersionException {
+        return newFileStore(persistence, directory, strictVersionCheck,
+                segmentCacheSize, gcLogInterval, compactorType, gcConcurrency, false);
+    }
+
+    public static FileStore newFileStore(SegmentNodeStorePersistence persistence, File directory,
+            boolean strictVersionCheck, int segmentCacheSize, long gcLogInterval, CompactorType compactorType, int gcConcurrency,
+            boolean resumableCompaction)
+            throws IOException, InvalidFileStoreVersionException {
         return FileStoreBuilder.fileStoreBuilder(directory)
                 .withCustomPersistence(persistence)
                 .withMemoryMapping(false)
@@ -118,7 +126,8 @@ public class ToolUtils {
                         .setOffline()
                         .setGCLogInterval(gcLogInterval)
                         .setCompactorType(compactorType)
-                        .setConcurrency(gcConcurrency))
+                        .setConcurrency(gcConcurrency)
+                        .setResumableCompaction(resumableCompaction))
                 .build();
     }
 
@@ -23,6 +23,7 @@ import org.apache.jackrabbit.oak.commons.Buffer;
 import org.apache.jackrabbit.oak.commons.conditions.Validate;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeBuilder;
 import org.apache.jackrabbit.oak.segment.file.CompactedNodeState;
+import org.apache.jackrabbit.oak.segment.file.CompactionProgress;
 import org.apache.jackrabbit.oak.segment.file.GCNodeWriteMonitor;
 import org.apache.jackrabbit.oak.segment.file.CompactionWriter;
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
@@ -54,6 +55,9 @@ import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE
  * It explores the tree breadth-first until the target node count ({@value EXPLORATION_LOWER_LIMIT}) is reached.
  * Every node at this depth will be an entry point for asynchronous compaction. After the exploration phase,
  * the main thread will collect these compaction results and write their parents' node state to disk.
+ * <p>
+ * If a {@link CompactionProgress} is passed, every fully compacted entry point is recorded in it and
+ * entry points already recorded by an interrupted compaction to the same generation are not compacted again.
  */
 public class ParallelCompactor extends CheckpointCompactor {
     /**
@@ -68,10 +72,18 @@ public class ParallelCompactor extends CheckpointCompactor {
      */
     private static final int EXPLORATION_UPPER_LIMIT = 100_000;
 
+    /**
+     * Number of entry points per worker when recording the compaction progress. Smaller entry points
+     * reduce the amount of work lost when compaction is interrupted.
+     */
+    private static final int RESUMABLE_UNITS_PER_WORKER = 8;
+
     private final int numWorkers;
 
     private final long totalSizeEstimate;
 
+    private final @Nullable CompactionProgress progress;
+
     /**
      * Manages workers for asynchronous compaction.
      */
@@ -91,12 +103,59 @@ public class ParallelCompactor extends CheckpointCompactor {
             @NotNull CompactionWriter writer,
             @NotNull GCNodeWriteMonitor compactionMonitor,
             int nThreads) {
+        this(gcListener, writer, compactionMonitor, nThreads, null);
+    }
+
+    /**
+     * Create a new instance based on the passed arguments.
+     *
+     * @param gcListener        listener receiving notifications about the garbage collection process
+     * @param writer            segment writer used to serialise to segments
+     * @param compactionMonitor notification call back for each compacted nodes, properties, and binaries
+     * @param nThreads          number of threads to use for parallel compaction,
+     *                          negative numbers are interpreted relative to the number of available processors
+     * @param progress          records compacted subtrees so that an interrupted compaction can be resumed,
+     *                          or {@code null} to not record any progress
+     */
+    public ParallelCompactor(
+            @NotNull GCMonitor gcListener,
+            @NotNull CompactionWriter writer,
+            @NotNull GCNodeWriteMonitor compactionMonitor,
+            int nThreads,
+            @Nullable CompactionProgress progress) {
         super(gcListener, writer, compactionMonitor);
         if (nThreads < 0) {
             nThreads += Runtime.getRuntime().availableProcessors() + 1;
         }
         numWorkers = Math.max(0, nThreads - 1);
         totalSizeEstimate = compactionMonitor.getEstimatedTotal();
+        this.progress = progress;
+    }
+
+    /**
+     * Maximum estimated size of a subtree to compact asynchronously.
+     */
+    private long getMaxUnitSize() {
+        return progress == null
+                ? totalSizeEstimate / numWorkers
+                : totalSizeEstimate / ((long) numWorkers * RESUMABLE_UNITS_PER_WORKER);
+    }
+
+    private @Nullable CompactedNodeState getCompactedState(@NotNull NodeState after) {
+        CompactedNodeState compactedState = compactor.getPreviouslyCompactedState(after);
+        if (compactedState == null && progress != null) {
+            compactedState = progress.getCompactedState(after);
+        }
+        return compactedState;
+    }
+
+    private @Nullable CompactedNodeState recordProgress(
+            @NotNull NodeState after,
+            @Nullable CompactedNodeState compactedState) throws IOException {
+        if (progress != null && compactedState != null) {
+            progress.completed(after, compactedState);
+        }
+        return compactedState;
     }
 
     /**
@@ -142,7 +201,7 @@ public class ParallelCompactor extends CheckpointCompactor {
 
         @Nullable List<Entry<String, CompactionTree>> expand(@NotNull Canceller hardCanceller) {
             Validate.checkState(compactionFuture == null);
-            CompactedNodeState compactedState = compactor.getPreviouslyCompactedState(after);
+            CompactedNodeState compactedState = getCompactedState(after);
             if (compactedState != null) {
                 compactionFuture = CompletableFuture.completedFuture(compactedState);
                 return Collections.emptyList();
@@ -203,13 +262,16 @@ public class ParallelCompactor extends CheckpointCompactor {
         void compactAsync(@NotNull Canceller hardCanceller, @Nullable Canceller softCanceller) {
             if (compactionFuture == null) {
                 requireNonNull(executorService);
-                if (softCanceller == null) {
+                CompactedNodeState compactedState = progress != null ? progress.getCompactedState(after) : null;
+                if (compactedState != null) {
+                    compactionFuture = CompletableFuture.completedFuture(compactedState);
+                } else if (softCanceller == null) {
                     compactionFuture = executorService.submit(() ->
-                            compactor.compact(before, after, onto, hardCanceller));
+                            recordProgress(after, compactor.compact(before, after, onto, hardCanceller)));
                 } else {
                     Validate.checkState(onto.equals(after));
                     compactionFuture = executorService.submit(() ->
-                            compactor.compactDown(before, after, hardCanceller, softCanceller));
+                            recordProgress(after, compactor.compactDown(before, after, hardCanceller, softCanceller)));
                 }
             }
         }
@@ -351,7 +413,7 @@ public class ParallelCompactor extends CheckpointCompactor {
             List<CompactionTree> nextDepth = new ArrayList<>();
             for (CompactionTree node : nodes) {
                 long estimatedSize = node.getEstimatedSize();
-                if (estimatedSize != -1 && estimatedSize <= (totalSizeEstimate / numWorkers)) {
+                if (estimatedSize != -1 && estimatedSize <= getMaxUnitSize()) {
                     node.compactAsync(hardCanceller, softCanceller);
                 } else if (nextDepth.size() < EXPLORATION_UPPER_LIMIT) {
                     List<Entry<String, CompactionTree>> children = node.expand(hardCanceller);
@@ -18,6 +18,7 @@
  */
 package org.apache.jackrabbit.oak.segment;
 
+import java.io.IOException;
 import java.util.function.Function;
 
 import org.jetbrains.annotations.NotNull;
@@ -97,6 +98,17 @@ public interface Revisions {
     RecordId setHead(@NotNull Function<RecordId, RecordId> newHead,
                     @NotNull Option... options)
     throws InterruptedException;
+
+    /**
+     * Wait until the head state set by a preceding successful call to one of
+     * the {@code setHead} methods has been persisted. Implementations that
+     * persist the head asynchronously return immediately, which is what the
+     * default implementation does.
+     *
+     * @throws IOException  if persisting the head state failed
+     */
+    default void awaitPersisted() throws IOException {
+    }
 }
 
 
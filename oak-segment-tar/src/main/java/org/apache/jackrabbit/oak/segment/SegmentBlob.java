@@ -23,7 +23,10 @@ import static org.apache.jackrabbit.oak.segment.Segment.MEDIUM_LIMIT;
 import static org.apache.jackrabbit.oak.segment.Segment.SMALL_LIMIT;
 import static org.apache.jackrabbit.oak.segment.SegmentStream.BLOCK_SIZE;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
@@ -123,6 +126,26 @@ public class SegmentBlob extends Record implements Blob {
         }
     }
 
+    @Override
+    public int read(long position, @NotNull ByteBuffer dst) throws IOException {
+        String blobId = getBlobId();
+        if (blobId != null) {
+            return getBlob(blobId).read(position, dst);
+        }
+        // segment streams skip without reading the skipped blocks
+        return Blob.super.read(position, dst);
+    }
+
+    @Override
+    @Nullable
+    public FileChannel openFileChannel() throws IOException {
+        String blobId = getBlobId();
+        if (blobId != null) {
+            return getBlob(blobId).openFileChannel();
+        }
+        return null;
+    }
+
     @Override
     @Nullable
     public String getReference() {
@@ -22,10 +22,18 @@ package org.apache.jackrabbit.oak.segment;
 import static java.util.Objects.requireNonNull;
 import static org.apache.jackrabbit.oak.segment.CacheWeights.segmentWeight;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import org.apache.jackrabbit.guava.common.cache.Cache;
@@ -33,6 +41,7 @@ import org.apache.jackrabbit.guava.common.cache.CacheBuilder;
 import org.apache.jackrabbit.guava.common.cache.CacheStats;
 import org.apache.jackrabbit.guava.common.cache.RemovalNotification;
 import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
+import org.apache.jackrabbit.oak.commons.Buffer;
 import org.apache.jackrabbit.oak.segment.CacheWeights.SegmentCacheWeigher;
 import org.jetbrains.annotations.NotNull;
 
@@ -55,6 +64,12 @@ public abstract class SegmentCache {
 
     private static final String NAME = "Segment Cache";
 
+    /**
+     * Expected average size of a data segment in bytes, used to dimension
+     * the frequency sketch of the off heap cache.
+     */
+    private static final int AVERAGE_SEGMENT_SIZE = 64 * 1024;
+
     /**
      * Create a new segment cache of the given size. Returns an always empty
      * cache for {@code cacheSizeMB <= 0}.
@@ -70,6 +85,40 @@ public abstract class SegmentCache {
         }
     }
 
+    /**
+     * Create a new segment cache of the given size keeping the data of the
+     * cached segments outside of the Java heap. Returns an always empty cache
+     * for {@code cacheSizeMB <= 0}.
+     * <p>
+     * The segment data is copied into direct buffers, such that only small
+     * {@link Segment} instances wrapping those buffers remain on the heap.
+     * Eviction is based on the W-TinyLFU policy (see {@link
+     * SegmentCachePolicy#windowTinyLfu(long, int)}).
+     *
+     * @param cacheSizeMB size of the cache in megabytes.
+     * @param idProvider  the segment id provider used to re-create segments
+     *                    from their cached data
+     */
+    @NotNull
+    public static SegmentCache newOffHeapSegmentCache(long cacheSizeMB, @NotNull SegmentIdProvider idProvider) {
+        if (cacheSizeMB > 0) {
+            long maximumWeight = cacheSizeMB * 1024 * 1024;
+            return new OffHeapCache(maximumWeight, idProvider, SegmentCachePolicy.windowTinyLfu(
+                    maximumWeight, (int) Math.min(Integer.MAX_VALUE, maximumWeight / AVERAGE_SEGMENT_SIZE)));
+        } else {
+            return new EmptyCache();
+        }
+    }
+
+    /**
+     * Create a new off heap segment cache using the given eviction policy.
+     */
+    @NotNull
+    static SegmentCache newOffHeapSegmentCache(long maximumWeight, @NotNull SegmentIdProvider idProvider,
+            @NotNull SegmentCachePolicy<SegmentId> policy) {
+        return new OffHeapCache(maximumWeight, idProvider, policy);
+    }
+
     /**
      * Retrieve an segment from the cache or load it and cache it if not yet in
      * the cache.
@@ -215,6 +264,296 @@ public abstract class SegmentCache {
         }
     }
 
+    /**
+     * A cache storing the data of segments in direct buffers. The cache keeps
+     * the {@link Segment} instances wrapping those buffers, so that a hit does
+     * not parse the segment header and references again. The direct buffers
+     * are never reused, their memory is released by the garbage collector
+     * once neither this cache nor any {@link Segment} instance reference them
+     * any more. This guarantees that segments handed out by this cache stay
+     * valid after having been evicted.
+     * <p>
+     * Concurrent misses on the same segment might load it more than once,
+     * only one of the loaded instances is retained in this case.
+     * <p>
+     * Hits do not take the lock of the eviction policy. They are recorded in
+     * a {@link ReadBuffer}, which is drained into the policy under the lock
+     * whenever it fills up and before a segment is added.
+     */
+    private static class OffHeapCache extends SegmentCache {
+
+        /**
+         * The cached segments backed by direct buffers by segment id.
+         */
+        @NotNull
+        private final ConcurrentMap<SegmentId, Segment> segments = new ConcurrentHashMap<>();
+
+        /**
+         * The eviction policy. All access is synchronized on the policy
+         * instance.
+         */
+        @NotNull
+        private final SegmentCachePolicy<SegmentId> policy;
+
+        /**
+         * The hits not yet recorded in the eviction policy.
+         */
+        @NotNull
+        private final ReadBuffer readBuffer = new ReadBuffer();
+
+        /**
+         * Whether a thread is about to drain the {@link #readBuffer}. Other
+         * threads do not wait for it.
+         */
+        @NotNull
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        @NotNull
+        private final SegmentIdProvider idProvider;
+
+        @NotNull
+        private final Stats stats;
+
+        private OffHeapCache(long maximumWeight, @NotNull SegmentIdProvider idProvider,
+                @NotNull SegmentCachePolicy<SegmentId> policy) {
+            this.idProvider = requireNonNull(idProvider);
+            this.policy = requireNonNull(policy);
+            this.stats = new Stats(NAME, maximumWeight, () -> (long) segments.size());
+        }
+
+        @Override
+        @NotNull
+        public Segment getSegment(@NotNull SegmentId id, @NotNull Callable<Segment> loader) throws ExecutionException {
+            if (!id.isDataSegmentId()) {
+                try {
+                    return loader.call();
+                } catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+
+            Segment cached = segments.get(id);
+            if (cached != null) {
+                id.loaded(cached);
+                // an eviction removes the segment before unloading it. Undo
+                // the memoisation if it might have happened in between, as
+                // the segment would otherwise never be unloaded
+                if (segments.get(id) != cached) {
+                    id.unloaded();
+                }
+                if (readBuffer.offer(id)) {
+                    drainReadBuffer();
+                }
+                stats.hitCount.incrementAndGet();
+                return cached;
+            }
+
+            Segment segment;
+            try {
+                long t0 = System.nanoTime();
+                segment = loader.call();
+                stats.loadSuccessCount.incrementAndGet();
+                stats.loadTime.addAndGet(System.nanoTime() - t0);
+                stats.missCount.incrementAndGet();
+            } catch (Exception e) {
+                stats.loadExceptionCount.incrementAndGet();
+                throw new ExecutionException(e);
+            }
+            return cache(segment);
+        }
+
+        @Override
+        public void putSegment(@NotNull Segment segment) {
+            if (segment.getSegmentId().isDataSegmentId()) {
+                cache(segment);
+            }
+        }
+
+        /**
+         * Copy the data of {@code segment} off heap and cache it.
+         *
+         * @return a segment backed by the off heap copy or {@code segment}
+         * itself if it could not be copied
+         */
+        @NotNull
+        private Segment cache(@NotNull Segment segment) {
+            SegmentId id = segment.getSegmentId();
+            Buffer buffer = Buffer.allocateDirect(segment.size());
+            try {
+                segment.writeTo(new OutputStream() {
+
+                    @Override
+                    public void write(int b) {
+                        buffer.put((byte) b);
+                    }
+
+                    @Override
+                    public void write(byte @NotNull [] b, int off, int len) {
+                        buffer.put(b, off, len);
+                    }
+                });
+            } catch (IOException e) {
+                return segment;
+            }
+            buffer.flip();
+
+            Segment offHeap = new Segment(idProvider, id, buffer.duplicate());
+            long weight = segment.size();
+
+            List<SegmentId> evicted;
+            synchronized (policy) {
+                drainAccesses();
+                // As in NonEmptyCache, call loaded and update the current
+                // weight *before* handing the segment to the eviction policy,
+                // which might evict it right away again
+                id.loaded(offHeap);
+                stats.currentWeight.addAndGet(weight);
+                Segment previous = segments.put(id, offHeap);
+                if (previous != null) {
+                    stats.currentWeight.addAndGet(-previous.size());
+                }
+                evicted = policy.add(id, weight);
+                for (SegmentId e : evicted) {
+                    Segment removed = segments.remove(e);
+                    if (removed != null) {
+                        stats.currentWeight.addAndGet(-removed.size());
+                    }
+                    e.unloaded();
+                }
+            }
+            stats.evictionCount.addAndGet(evicted.size());
+            return offHeap;
+        }
+
+        private void drainReadBuffer() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    synchronized (policy) {
+                        drainAccesses();
+                    }
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+
+        /**
+         * Record the buffered hits in the eviction policy. Must be called
+         * while holding the lock of the policy.
+         */
+        private void drainAccesses() {
+            readBuffer.drain(id -> {
+                // skip hits on segments evicted in the meantime
+                if (segments.containsKey(id)) {
+                    policy.recordAccess(id);
+                }
+            });
+        }
+
+        @Override
+        public void clear() {
+            synchronized (policy) {
+                readBuffer.drain(id -> {});
+                for (SegmentId id : segments.keySet()) {
+                    id.unloaded();
+                }
+                stats.evictionCount.addAndGet(segments.size());
+                segments.clear();
+                policy.clear();
+                stats.currentWeight.set(0);
+            }
+        }
+
+        @Override
+        @NotNull
+        public AbstractCacheStats getCacheStats() {
+            return stats;
+        }
+
+        @Override
+        public void recordHit() {
+            stats.hitCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * A lossy buffer of segment ids, striped by thread. An id is dropped if
+     * the stripe of the current thread is full or contended, which only
+     * affects the precision of the eviction policy. Draining is not thread
+     * safe and needs to be serialized by the caller.
+     */
+    static final class ReadBuffer {
+
+        /**
+         * The number of ids a stripe can hold, a power of two.
+         */
+        static final int STRIPE_SIZE = 16;
+
+        private static final int MAX_STRIPES = 64;
+
+        private final Stripe[] stripes;
+
+        ReadBuffer() {
+            int processors = Runtime.getRuntime().availableProcessors();
+            int count = Integer.highestOneBit(Math.min(MAX_STRIPES, Math.max(1, processors * 2 - 1)));
+            stripes = new Stripe[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        /**
+         * Add an id to the stripe of the current thread.
+         *
+         * @return {@code true} if the stripe is full and should be drained
+         */
+        boolean offer(@NotNull SegmentId id) {
+            int h = Thread.currentThread().hashCode();
+            Stripe stripe = stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+            long tail = stripe.writeCount.get();
+            long size = tail - stripe.readCount;
+            if (size >= STRIPE_SIZE) {
+                return true;
+            }
+            if (stripe.writeCount.compareAndSet(tail, tail + 1)) {
+                stripe.ids.lazySet((int) (tail & (STRIPE_SIZE - 1)), id);
+                return size + 1 >= STRIPE_SIZE;
+            }
+            return false;
+        }
+
+        /**
+         * Remove all ids from this buffer, passing them to {@code consumer}.
+         * Ids offered concurrently might be left in the buffer.
+         */
+        void drain(@NotNull Consumer<SegmentId> consumer) {
+            for (Stripe stripe : stripes) {
+                long head = stripe.readCount;
+                long tail = stripe.writeCount.get();
+                for (; head < tail; head++) {
+                    int index = (int) (head & (STRIPE_SIZE - 1));
+                    SegmentId id = stripe.ids.get(index);
+                    if (id == null) {
+                        // not yet published by the offering thread
+                        break;
+                    }
+                    stripe.ids.lazySet(index, null);
+                    consumer.accept(id);
+                }
+                stripe.readCount = head;
+            }
+        }
+
+        private static final class Stripe {
+
+            final AtomicReferenceArray<SegmentId> ids = new AtomicReferenceArray<>(STRIPE_SIZE);
+
+            final AtomicLong writeCount = new AtomicLong();
+
+            volatile long readCount;
+        }
+    }
+
     /** An always empty cache */
     private static class EmptyCache extends SegmentCache {
         private final Stats stats = new Stats(NAME, 0, () -> 0L);
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment;
+
+import static org.apache.jackrabbit.oak.commons.conditions.Validate.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Eviction policy deciding which entries of a weight bounded cache to
+ * retain. A policy only tracks keys and their weights, the cache using it
+ * is responsible for storing the values and for discarding the values of
+ * the keys returned by {@link #add(Object, long)}.
+ * <p>
+ * Implementations are not thread safe. Callers need to serialize access.
+ *
+ * @param <K> type of the keys
+ */
+interface SegmentCachePolicy<K> {
+
+    /**
+     * Record an access to {@code key}, which must have been previously
+     * {@link #add(Object, long) added} and not yet evicted.
+     */
+    void recordAccess(@NotNull K key);
+
+    /**
+     * Add {@code key} with the given {@code weight} to this policy.
+     *
+     * @return the keys evicted as a consequence. This might include
+     * {@code key} itself if the policy decided not to admit it.
+     */
+    @NotNull
+    List<K> add(@NotNull K key, long weight);
+
+    /**
+     * Remove {@code key} from this policy if present.
+     */
+    void remove(@NotNull K key);
+
+    /**
+     * Remove all keys from this policy.
+     */
+    void clear();
+
+    /**
+     * @return the sum of the weights of all keys currently retained.
+     */
+    long weight();
+
+    /**
+     * @return the number of keys currently retained.
+     */
+    int size();
+
+    /**
+     * Least recently used eviction.
+     */
+    @NotNull
+    static <K> SegmentCachePolicy<K> lru(long maximumWeight) {
+        return new Lru<>(maximumWeight);
+    }
+
+    /**
+     * Window TinyLFU eviction: new keys enter a small LRU window. Keys
+     * evicted from the window are only admitted to the main space if their
+     * estimated access frequency is higher than the one of the main space's
+     * eviction candidate. The main space is a segmented LRU consisting of a
+     * probation and a protected part.
+     *
+     * @param maximumWeight   maximum total weight
+     * @param expectedEntries expected number of retained entries, used to
+     *                        dimension the frequency sketch
+     */
+    @NotNull
+    static <K> SegmentCachePolicy<K> windowTinyLfu(long maximumWeight, int expectedEntries) {
+        return new WindowTinyLfu<>(maximumWeight, expectedEntries);
+    }
+
+    /**
+     * Weighted LRU list of keys in access order, least recently used first.
+     */
+    class Region<K> {
+        private final LinkedHashMap<K, Long> weights = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final long maximumWeight;
+
+        private long weight;
+
+        Region(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        boolean touch(K key) {
+            return weights.get(key) != null;
+        }
+
+        void add(K key, long weight) {
+            Long previous = weights.put(key, weight);
+            this.weight += weight - (previous == null ? 0 : previous);
+        }
+
+        long remove(K key) {
+            Long removed = weights.remove(key);
+            if (removed == null) {
+                return -1;
+            }
+            weight -= removed;
+            return removed;
+        }
+
+        K eldest() {
+            Iterator<K> it = weights.keySet().iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        boolean isOverflowing() {
+            return weight > maximumWeight;
+        }
+
+        void clear() {
+            weights.clear();
+            weight = 0;
+        }
+    }
+
+    class Lru<K> implements SegmentCachePolicy<K> {
+        private final Region<K> region;
+
+        Lru(long maximumWeight) {
+            checkArgument(maximumWeight >= 0, "maximumWeight must not be negative");
+            this.region = new Region<>(maximumWeight);
+        }
+
+        @Override
+        public void recordAccess(@NotNull K key) {
+            region.touch(key);
+        }
+
+        @NotNull
+        @Override
+        public List<K> add(@NotNull K key, long weight) {
+            region.add(key, weight);
+            List<K> evicted = new ArrayList<>();
+            while (region.isOverflowing()) {
+                K eldest = region.eldest();
+                region.remove(eldest);
+                evicted.add(eldest);
+            }
+            return evicted;
+        }
+
+        @Override
+        public void remove(@NotNull K key) {
+            region.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            region.clear();
+        }
+
+        @Override
+        public long weight() {
+            return region.weight;
+        }
+
+        @Override
+        public int size() {
+            return region.weights.size();
+        }
+    }
+
+    class WindowTinyLfu<K> implements SegmentCachePolicy<K> {
+
+        /**
+         * Percentage of the maximum weight used for the admission window.
+         */
+        private static final int WINDOW_PERCENT = 1;
+
+        /**
+         * Percentage of the main space used for the protected region.
+         */
+        private static final int PROTECTED_PERCENT = 80;
+
+        private final long maximumWeight;
+
+        private final FrequencySketch sketch;
+
+        private final Region<K> window;
+
+        private final Region<K> probation;
+
+        private final Region<K> protectedRegion;
+
+        WindowTinyLfu(long maximumWeight, int expectedEntries) {
+            checkArgument(maximumWeight >= 0, "maximumWeight must not be negative");
+            this.maximumWeight = maximumWeight;
+            this.sketch = new FrequencySketch(Math.max(1, expectedEntries));
+            long windowWeight = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+            long mainWeight = maximumWeight - windowWeight;
+            this.window = new Region<>(windowWeight);
+            this.probation = new Region<>(mainWeight);
+            this.protectedRegion = new Region<>(mainWeight * PROTECTED_PERCENT / 100);
+        }
+
+        @Override
+        public void recordAccess(@NotNull K key) {
+            sketch.increment(key.hashCode());
+            if (window.touch(key) || protectedRegion.touch(key)) {
+                return;
+            }
+            long weight = probation.remove(key);
+            if (weight >= 0) {
+                // promote to the protected region, demoting its least
+                // recently used keys back to probation if necessary
+                protectedRegion.add(key, weight);
+                while (protectedRegion.isOverflowing()) {
+                    K demoted = protectedRegion.eldest();
+                    probation.add(demoted, protectedRegion.remove(demoted));
+                }
+            }
+        }
+
+        @NotNull
+        @Override
+        public List<K> add(@NotNull K key, long weight) {
+            remove(key);
+            sketch.increment(key.hashCode());
+            List<K> evicted = new ArrayList<>();
+            if (weight > maximumWeight) {
+                evicted.add(key);
+                return evicted;
+            }
+            window.add(key, weight);
+
+            // move keys overflowing the window to probation
+            List<K> candidates = new ArrayList<>();
+            while (window.isOverflowing()) {
+                K candidate = window.eldest();
+                probation.add(candidate, window.remove(candidate));
+                candidates.add(candidate);
+            }
+
+            // evict from the main space until it fits, letting each
+            // candidate compete against the main space's victim
+            while (mainWeight() + window.weight > maximumWeight) {
+                K victim = probation.eldest();
+                if (victim == null) {
+                    victim = protectedRegion.eldest();
+                    protectedRegion.remove(victim);
+                    evicted.add(victim);
+                    continue;
+                }
+                K candidate = candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+                if (candidate != null && candidate != victim
+                        && sketch.frequency(candidate.hashCode()) <= sketch.frequency(victim.hashCode())) {
+                    // the candidate is not more valuable than the victim
+                    candidates.remove(candidates.size() - 1);
+                    probation.remove(candidate);
+                    evicted.add(candidate);
+                } else {
+                    candidates.remove(victim);
+                    probation.remove(victim);
+                    evicted.add(victim);
+                }
+            }
+            return evicted;
+        }
+
+        private long mainWeight() {
+            return probation.weight + protectedRegion.weight;
+        }
+
+        @Override
+        public void remove(@NotNull K key) {
+            if (window.remove(key) < 0 && probation.remove(key) < 0) {
+                protectedRegion.remove(key);
+            }
+        }
+
+        @Override
+        public void clear() {
+            window.clear();
+            probation.clear();
+            protectedRegion.clear();
+            sketch.clear();
+        }
+
+        @Override
+        public long weight() {
+            return window.weight + mainWeight();
+        }
+
+        @Override
+        public int size() {
+            return window.weights.size() + probation.weights.size() + protectedRegion.weights.size();
+        }
+    }
+}
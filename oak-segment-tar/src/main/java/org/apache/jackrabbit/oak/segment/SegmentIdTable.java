@@ -18,8 +18,6 @@
  */
 package org.apache.jackrabbit.oak.segment;
 
-import static java.util.Collections.nCopies;
-
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,19 +25,28 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.jackrabbit.oak.commons.collections.CollectionUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Hash table of weak references to segment identifiers.
+ * <p>
+ * Lookups of already tracked identifiers do not acquire any lock: they probe
+ * the current snapshot of the table and only fall back to the synchronized
+ * slow path when the identifier is not found. Adding entries and rebuilding
+ * the table is still serialized per table instance, and a rebuild always
+ * publishes a new array instead of modifying the one concurrent readers
+ * might be probing.
  */
 public class SegmentIdTable {
 
     /**
-     * The list of weak references to segment identifiers that are currently
+     * The array of weak references to segment identifiers that are currently
      * being accessed. This represents a hash table that uses open addressing
      * with linear probing. It is not a hash map, to speed up read access.
      * <p>
@@ -57,9 +64,12 @@ public class SegmentIdTable {
      * <p>
      * The array is not sorted (we could; lookup might be faster, but adding
      * entries would be slower).
+     * <p>
+     * The field is only written while holding the monitor of this table, but
+     * read without it by {@link #newSegmentId(long, long, SegmentIdFactory)}.
      */
-    private final ArrayList<WeakReference<SegmentId>> references =
-            new ArrayList<>(nCopies(1024, (WeakReference<SegmentId>) null));
+    private volatile AtomicReferenceArray<WeakReference<SegmentId>> references =
+            new AtomicReferenceArray<>(1024);
 
     private static final Logger LOG = LoggerFactory.getLogger(SegmentIdTable.class);
 
@@ -67,12 +77,12 @@ public class SegmentIdTable {
     /**
      * The refresh count (for diagnostics and testing).
      */
-    private int rebuildCount;
+    private volatile int rebuildCount;
 
     /**
      * The number of used entries (WeakReferences) in this table.
      */
-    private int entryCount;
+    private volatile int entryCount;
 
     /**
      * Get the segment id, and reference it in the weak references map. If the
@@ -86,8 +96,44 @@ public class SegmentIdTable {
      * @return the segment id
      */
     @NotNull
-    synchronized SegmentId newSegmentId(long msb, long lsb, SegmentIdFactory maker) {
-        int index = getIndex(lsb);
+    SegmentId newSegmentId(long msb, long lsb, SegmentIdFactory maker) {
+        SegmentId id = find(references, msb, lsb);
+        if (id != null) {
+            return id;
+        }
+        return newSegmentIdSynchronized(msb, lsb, maker);
+    }
+
+    /**
+     * Lock free lookup of an existing segment id in the given snapshot of
+     * the table. A {@code null} return value does not imply the segment id
+     * is not tracked: an entry might have been added or moved concurrently.
+     */
+    @Nullable
+    private static SegmentId find(AtomicReferenceArray<WeakReference<SegmentId>> references, long msb, long lsb) {
+        int mask = references.length() - 1;
+        int index = getIndex(lsb, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            WeakReference<SegmentId> reference = references.get(index);
+            if (reference == null) {
+                return null;
+            }
+            SegmentId id = reference.get();
+            if (id != null
+                    && id.getMostSignificantBits() == msb
+                    && id.getLeastSignificantBits() == lsb) {
+                return id;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    @NotNull
+    private synchronized SegmentId newSegmentIdSynchronized(long msb, long lsb, SegmentIdFactory maker) {
+        AtomicReferenceArray<WeakReference<SegmentId>> references = this.references;
+        int mask = references.length() - 1;
+        int index = getIndex(lsb, mask);
         boolean shouldRefresh = false;
 
         WeakReference<SegmentId> reference = references.get(index);
@@ -101,14 +147,14 @@ public class SegmentIdTable {
             // shouldRefresh if we have a garbage collected entry
             shouldRefresh = shouldRefresh || id == null;
             // open addressing / linear probing
-            index = (index + 1) % references.size();
+            index = (index + 1) & mask;
             reference = references.get(index);
         }
 
         SegmentId id = maker.newSegmentId(msb, lsb);
         references.set(index, new WeakReference<SegmentId>(id));
         entryCount++;
-        if (entryCount > references.size() * 0.75) {
+        if (entryCount > references.length() * 0.75) {
             // more than 75% full
             shouldRefresh = true;
         }
@@ -128,7 +174,8 @@ public class SegmentIdTable {
     }
 
     private synchronized Collection<SegmentId> refresh() {
-        int size = references.size();
+        AtomicReferenceArray<WeakReference<SegmentId>> references = this.references;
+        int size = references.length();
         Map<SegmentId, WeakReference<SegmentId>> ids = CollectionUtils.newHashMap(size);
 
         boolean hashCollisions = false;
@@ -139,8 +186,12 @@ public class SegmentIdTable {
                 SegmentId id = reference.get();
                 if (id != null) {
                     ids.put(id, reference);
-                    hashCollisions = hashCollisions || (i != getIndex(id));
+                    hashCollisions = hashCollisions || (i != getIndex(id.getLeastSignificantBits(), size - 1));
                 } else {
+                    // clearing a slot never breaks a probe sequence if all
+                    // entries are at their home location; otherwise the
+                    // table is rebuilt below, and concurrent readers that
+                    // miss an entry fall back to the synchronized path
                     references.set(i, null);
                     entryCount--;
                     emptyReferences = true;
@@ -166,34 +217,37 @@ public class SegmentIdTable {
         // but also if we removed some of the entries (because an entry was
         // garbage collected) and there is at least one entry at the "wrong"
         // location (due to open addressing)
-        if ((hashCollisions && emptyReferences) || size != references.size()) {
+        if ((hashCollisions && emptyReferences) || size != references.length()) {
             rebuildCount++;
-            references.clear();
-            references.addAll(nCopies(size, (WeakReference<SegmentId>) null));
-
+            AtomicReferenceArray<WeakReference<SegmentId>> rebuilt = new AtomicReferenceArray<>(size);
+            int mask = size - 1;
             for (Map.Entry<SegmentId, WeakReference<SegmentId>> entry
                     : ids.entrySet()) {
-                int index = getIndex(entry.getKey());
-                while (references.get(index) != null) {
-                    index = (index + 1) % size;
+                int index = getIndex(entry.getKey().getLeastSignificantBits(), mask);
+                while (rebuilt.get(index) != null) {
+                    index = (index + 1) & mask;
                 }
-                references.set(index, entry.getValue());
+                rebuilt.set(index, entry.getValue());
             }
+            this.references = rebuilt;
         }
 
         return ids.keySet();
     }
 
-    private int getIndex(SegmentId id) {
-        return getIndex(id.getLeastSignificantBits());
-    }
-
-    private int getIndex(long lsb) {
-        return ((int) lsb) & (references.size() - 1);
+    private static int getIndex(long lsb, int mask) {
+        return ((int) lsb) & mask;
     }
 
-    synchronized void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
-        for (WeakReference<SegmentId> reference : references) {
+    /**
+     * Mark all tracked segment ids contained in {@code reclaimed} as
+     * reclaimed by garbage collection. This operates on a snapshot of the
+     * table and does not block concurrent lookups.
+     */
+    void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
+        AtomicReferenceArray<WeakReference<SegmentId>> references = this.references;
+        for (int i = 0; i < references.length(); i++) {
+            WeakReference<SegmentId> reference = references.get(i);
             if (reference != null) {
                 SegmentId id = reference.get();
                 if (id != null && reclaimed.contains(id.asUUID())) {
@@ -227,7 +281,7 @@ public class SegmentIdTable {
      * @return the map size
      */
     int getMapSize() {
-        return references.size();
+        return references.length();
     }
 
     /**
@@ -237,7 +291,9 @@ public class SegmentIdTable {
      */
     List<SegmentId> getRawSegmentIdList() {
         ArrayList<SegmentId> list = new ArrayList<SegmentId>();
-        for (WeakReference<SegmentId> ref : references) {
+        AtomicReferenceArray<WeakReference<SegmentId>> references = this.references;
+        for (int i = 0; i < references.length(); i++) {
+            WeakReference<SegmentId> ref = references.get(i);
             if (ref != null) {
                 SegmentId id = ref.get();
                 if (id != null) {
@@ -38,6 +38,7 @@ import org.apache.jackrabbit.oak.commons.conditions.Validate;
 import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
 import org.apache.jackrabbit.oak.segment.scheduler.Commit;
 import org.apache.jackrabbit.oak.segment.scheduler.LockBasedScheduler;
+import org.apache.jackrabbit.oak.segment.scheduler.OptimisticScheduler;
 import org.apache.jackrabbit.oak.segment.scheduler.Scheduler;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 import org.apache.jackrabbit.oak.spi.commit.CommitHook;
@@ -82,6 +83,8 @@ public class SegmentNodeStore implements NodeStore, Observable {
 
         private boolean dispatchChanges = true;
 
+        private boolean optimisticScheduler = Boolean.getBoolean("oak.segmentNodeStore.optimisticScheduler");
+
         @NotNull
         private StatisticsProvider statsProvider = StatisticsProvider.NOOP;
 
@@ -105,6 +108,22 @@ public class SegmentNodeStore implements NodeStore, Observable {
             return this;
         }
 
+        /**
+         * Use the {@link OptimisticScheduler}, which applies concurrent commits
+         * in parallel and resolves the head state with a compare-and-set,
+         * instead of the {@link LockBasedScheduler}, which serializes all
+         * commits. All commit hooks must be safe for concurrent use when
+         * enabling this.
+         *
+         * @param optimisticScheduler
+         * @return this instance
+         */
+        @NotNull
+        public SegmentNodeStoreBuilder withOptimisticScheduler(boolean optimisticScheduler) {
+            this.optimisticScheduler = optimisticScheduler;
+            return this;
+        }
+
         /**
          * {@link StatisticsProvider} for collecting statistics related to SegmentStore
          * @param statisticsProvider
@@ -144,6 +163,7 @@ public class SegmentNodeStore implements NodeStore, Observable {
         public String toString() {
             return "SegmentNodeStoreBuilder{" +
                     getString(blobStore) +
+                    ", optimisticScheduler=" + optimisticScheduler +
                     '}';
         }
     }
@@ -179,9 +199,15 @@ public class SegmentNodeStore implements NodeStore, Observable {
         this.writer = builder.writer;
         this.blobStore = builder.blobStore;
         this.stats = new SegmentNodeStoreStats(builder.statsProvider);
-        this.scheduler = LockBasedScheduler.builder(builder.revisions, builder.reader, stats)
-                .dispatchChanges(builder.dispatchChanges)
-                .build();
+        if (builder.optimisticScheduler) {
+            this.scheduler = OptimisticScheduler.builder(builder.revisions, builder.reader, stats)
+                    .dispatchChanges(builder.dispatchChanges)
+                    .build();
+        } else {
+            this.scheduler = LockBasedScheduler.builder(builder.revisions, builder.reader, stats)
+                    .dispatchChanges(builder.dispatchChanges)
+                    .build();
+        }
         this.loggingHook = builder.loggingHook;
     }
 
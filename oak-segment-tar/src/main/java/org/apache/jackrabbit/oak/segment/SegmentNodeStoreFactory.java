@@ -120,6 +120,14 @@ public class SegmentNodeStoreFactory {
         )
         int segmentCache_size() default DEFAULT_SEGMENT_CACHE_MB;
 
+        @AttributeDefinition(
+            name = "Segment cache off heap",
+            description = "Boolean value indicating that the data of the cached segments should be kept " +
+                "off heap in direct memory instead of on the Java heap. The off heap segment cache uses " +
+                "W-TinyLFU admission and eviction. Default value is 'false'."
+        )
+        boolean segmentCache_offHeap() default false;
+
         @AttributeDefinition(
             name = "String cache size (MB)",
             description = "Cache size for storing most recently used strings in megabytes. " +
@@ -498,6 +506,11 @@ public class SegmentNodeStoreFactory {
                 return getCacheSize("segmentCache.size", configuration.segmentCache_size());
             }
 
+            @Override
+            public boolean getSegmentCacheOffHeap() {
+                return Boolean.getBoolean("segmentCache.offHeap") || configuration.segmentCache_offHeap();
+            }
+
             @Override
             public int getStringCacheSize() {
                 return getCacheSize("stringCache.size", configuration.stringCache_size());
@@ -125,6 +125,8 @@ class SegmentNodeStoreRegistrar {
 
         int getSegmentCacheSize();
 
+        boolean getSegmentCacheOffHeap();
+
         int getStringCacheSize();
 
         int getTemplateCacheSize();
@@ -225,6 +227,7 @@ class SegmentNodeStoreRegistrar {
         // Build the FileStore
         FileStoreBuilder builder = fileStoreBuilder(cfg.getSegmentDirectory())
             .withSegmentCacheSize(cfg.getSegmentCacheSize())
+            .withSegmentCacheOffHeap(cfg.getSegmentCacheOffHeap())
             .withStringCacheSize(cfg.getStringCacheSize())
             .withTemplateCacheSize(cfg.getTemplateCacheSize())
             .withStringDeduplicationCacheSize(cfg.getStringDeduplicationCacheSize())
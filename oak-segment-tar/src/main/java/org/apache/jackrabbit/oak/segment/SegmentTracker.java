@@ -44,6 +44,15 @@ public class SegmentTracker implements SegmentIdProvider {
 
     private static final long BULK = 0xBL << 60;
 
+    /**
+     * Default number of {@link SegmentIdTable}s the tracked segment ids are
+     * distributed over: at least 32 and at least four per available
+     * processor, rounded up to the next power of two. Can be overridden
+     * with the {@code oak.segment.tracker.tables} system property.
+     */
+    static final int DEFAULT_TABLE_COUNT = tableCount(Integer.getInteger(
+            "oak.segment.tracker.tables", 4 * Runtime.getRuntime().availableProcessors()));
+
     /**
      * The random number source for generating new segment identifiers.
      */
@@ -58,9 +67,13 @@ public class SegmentTracker implements SegmentIdProvider {
      * distribution of entries. Each table entry is either {@code null}
      * (when there are no matching identifiers) or a list of weak references
      * to the matching identifiers.
+     * <p>
+     * The tables are indexed by the lower random bits of the most significant
+     * bits of a segment id. Lookups of known ids do not lock, and the number
+     * of tables bounds the contention between threads adding new ids.
      */
     @NotNull
-    private final SegmentIdTable[] tables = new SegmentIdTable[32];
+    private final SegmentIdTable[] tables;
 
     /**
      * Number of segment tracked since this tracker was instantiated
@@ -72,12 +85,38 @@ public class SegmentTracker implements SegmentIdProvider {
     private final SegmentIdFactory segmentIdFactory;
 
     public SegmentTracker(@NotNull SegmentIdFactory segmentIdFactory) {
+        this(segmentIdFactory, DEFAULT_TABLE_COUNT);
+    }
+
+    /**
+     * Create a new tracker distributing the tracked segment ids over
+     * {@code tableCount} tables.
+     *
+     * @param segmentIdFactory factory for new {@code SegmentId} instances
+     * @param tableCount       number of tables, rounded up to the next power
+     *                         of two between 32 and 4096
+     */
+    public SegmentTracker(@NotNull SegmentIdFactory segmentIdFactory, int tableCount) {
         this.segmentIdFactory = requireNonNull(segmentIdFactory);
+        this.tables = new SegmentIdTable[tableCount(tableCount)];
         for (int i = 0; i < tables.length; i++) {
             tables[i] = new SegmentIdTable();
         }
     }
 
+    /**
+     * Round {@code count} up to a power of two in the range [32, 4096]. The
+     * upper bound is given by the 12 random low bits of the most
+     * significant bits of a segment id.
+     */
+    static int tableCount(int count) {
+        int n = 32;
+        while (n < count && n < 4096) {
+            n <<= 1;
+        }
+        return n;
+    }
+
     @Override
     public int getSegmentIdCount() {
         return segmentCounter.get();
@@ -88,7 +127,7 @@ public class SegmentTracker implements SegmentIdProvider {
      *
      * @return referenced segment identifiers
      */
-    public synchronized Set<SegmentId> getReferencedSegmentIds() {
+    public Set<SegmentId> getReferencedSegmentIds() {
         Set<SegmentId> ids = new HashSet<>();
         for (SegmentIdTable table : tables) {
             table.collectReferencedIds(ids);
@@ -141,7 +180,7 @@ public class SegmentTracker implements SegmentIdProvider {
         return newSegmentId(msb, lsb);
     }
 
-    public synchronized void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
+    public void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
         for (SegmentIdTable table : tables) {
             table.clearSegmentIdTables(reclaimed, gcInfo);
         }
@@ -169,6 +169,12 @@ public class SegmentGCOptions {
 
     private CompactorType compactorType = CompactorType.PARALLEL_COMPACTOR;
 
+    /**
+     * Flag controlling whether the progress of compaction is recorded, so that
+     * an interrupted compaction can be resumed.
+     */
+    private boolean resumableCompaction = false;
+
     public SegmentGCOptions(boolean paused, int retryCount, int forceTimeout) {
         this.paused = paused;
         this.retryCount = retryCount;
@@ -294,6 +300,7 @@ public class SegmentGCOptions {
                     ", retainedGenerations=" + retainedGenerations +
                     ", compactorType=" + compactorType +
                     ", concurrency=" + concurrency +
+                    ", resumableCompaction=" + resumableCompaction +
                     "}";
         } else {
             return getClass().getSimpleName() + "{" +
@@ -305,6 +312,7 @@ public class SegmentGCOptions {
                     ", retainedGenerations=" + retainedGenerations +
                     ", gcType=" + gcType +
                     ", compactorType=" + compactorType +
+                    ", resumableCompaction=" + resumableCompaction +
                     "}";
         }
     }
@@ -435,4 +443,26 @@ public class SegmentGCOptions {
         this.concurrency = concurrency;
         return this;
     }
+
+    /**
+     * @return {@code true} if the progress of compaction is recorded so that an
+     * interrupted compaction can be resumed
+     */
+    public boolean isResumableCompaction() {
+        return resumableCompaction;
+    }
+
+    /**
+     * Enables recording the progress of compaction. Subtrees compacted by the
+     * parallel compactor are recorded in the compaction progress file of the
+     * persistence, so that a subsequent compaction to the same generation can
+     * skip them after a crash or cancellation. This only applies to the
+     * "parallel" compactor with a concurrency of more than one thread.
+     * @param resumableCompaction whether compaction should be resumable
+     * @return this instance
+     */
+    public SegmentGCOptions setResumableCompaction(boolean resumableCompaction) {
+        this.resumableCompaction = resumableCompaction;
+        return this;
+    }
 }
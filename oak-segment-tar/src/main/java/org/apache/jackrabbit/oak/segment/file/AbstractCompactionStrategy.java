@@ -34,12 +34,15 @@ import org.apache.jackrabbit.oak.segment.ParallelCompactor;
 import org.apache.jackrabbit.oak.segment.RecordId;
 import org.apache.jackrabbit.oak.segment.SegmentNodeState;
 import org.apache.jackrabbit.oak.segment.SegmentWriter;
+import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.CompactorType;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.GCType;
 import org.apache.jackrabbit.oak.segment.file.cancel.Cancellation;
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
 import org.apache.jackrabbit.oak.segment.file.tar.GCGeneration;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -75,6 +78,56 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
         return CompactionResult.aborted(getGcGeneration(context), context.getGCCount());
     }
 
+    private static CompactionResult compactionAborted(
+        Context context,
+        GCGeneration generation,
+        @Nullable CompactionProgress progress
+    ) {
+        if (progress != null) {
+            try {
+                progress.commit();
+                context.getGCListener().info("compaction progress saved, compaction can be resumed.");
+            } catch (IOException e) {
+                context.getGCListener().error("could not save compaction progress", e);
+            }
+        }
+        return compactionAborted(context, generation);
+    }
+
+    private static void clearProgress(Context context, @Nullable CompactionProgress progress) {
+        if (progress != null) {
+            try {
+                progress.clear();
+            } catch (IOException e) {
+                context.getGCListener().error("could not clear compaction progress", e);
+            }
+        }
+    }
+
+    @Nullable
+    private static CompactionProgress newCompactionProgress(
+        Context context,
+        CompactionWriter writer,
+        Flusher flusher,
+        GCGeneration targetGeneration
+    ) throws IOException {
+        SegmentGCOptions gcOptions = context.getGCOptions();
+        if (!gcOptions.isResumableCompaction() || gcOptions.getCompactorType() != CompactorType.PARALLEL_COMPACTOR) {
+            return null;
+        }
+        GCJournalFile progressFile = context.getCompactionProgressFile();
+        if (progressFile == null) {
+            context.getGCListener().warn("resumable compaction is not supported by the persistence.");
+            return null;
+        }
+        CompactionProgress progress = CompactionProgress.open(progressFile, context.getSegmentReader(),
+                context.getSegmentTracker(), writer, flusher, targetGeneration, CompactionProgress.COMMIT_INTERVAL);
+        if (progress.getResumedCount() > 0) {
+            context.getGCListener().info("resuming compaction, found {} compacted subtrees.", progress.getResumedCount());
+        }
+        return progress;
+    }
+
     private static GCGeneration getGcGeneration(Context context) {
         return context.getRevisions().getHead().getSegmentId().getGcGeneration();
     }
@@ -136,6 +189,7 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
         GCGeneration partialGeneration = partialGeneration(baseGeneration);
         GCGeneration targetGeneration = targetGeneration(baseGeneration);
         GCIncrement gcIncrement = new GCIncrement(baseGeneration, partialGeneration, targetGeneration);
+        CompactionProgress progress = null;
 
         try {
             PrintableStopwatch watch = PrintableStopwatch.createStarted();
@@ -160,7 +214,13 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
             Canceller hardCanceller = context.getHardCanceller().withShortCircuit();
             Canceller softCanceller = context.getSoftCanceller().withShortCircuit();
 
-            Compactor compactor = newCompactor(context, writer);
+            Flusher flusher = () -> {
+                writer.flush();
+                context.getFlusher().flush();
+            };
+
+            progress = newCompactionProgress(context, writer, flusher, targetGeneration);
+            Compactor compactor = newCompactor(context, writer, progress);
             CompactedNodeState compacted = null;
 
             int cycles;
@@ -168,10 +228,6 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
             final int retryCount = Math.max(0, context.getGCOptions().getRetryCount());
 
             SegmentNodeState head;
-            Flusher flusher = () -> {
-                writer.flush();
-                context.getFlusher().flush();
-            };
 
             do {
                 head = getHead(context);
@@ -193,7 +249,7 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
                 if (compacted == null) {
                     context.getGCListener().warn("compaction cancelled: {}.",
                             hardCanceller.check().getReason().orElse("unknown reason"));
-                    return compactionAborted(context, targetGeneration);
+                    return compactionAborted(context, targetGeneration, progress);
                 }
 
                 context.getGCListener().info("compaction cycle 0 completed in {}. Compacted {} to {}",
@@ -216,7 +272,7 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
                     if (compacted == null) {
                         context.getGCListener().warn("compaction cancelled: {}.",
                                 hardCanceller.check().getReason().orElse("unknown reason"));
-                        return compactionAborted(context, targetGeneration);
+                        return compactionAborted(context, targetGeneration, progress);
                     }
 
                     context.getGCListener().info("compaction cycle {} completed in {}. Compacted {} against {} to {}",
@@ -268,6 +324,7 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
                 // Update type of the last compaction before calling methods that could throw an exception.
                 context.getSuccessfulCompactionListener().onSuccessfulCompaction(getCompactionType());
                 context.getCompactionMonitor().finished();
+                clearProgress(context, progress);
 
                 if (compacted.isComplete()) {
                     context.getGCListener().info("compaction succeeded in {}, after {} cycles", watch, cycles);
@@ -279,24 +336,24 @@ abstract class AbstractCompactionStrategy implements CompactionStrategy {
                 }
             } else {
                 context.getGCListener().info("compaction failed after {}, and {} cycles", watch, cycles);
-                return compactionAborted(context, targetGeneration);
+                return compactionAborted(context, targetGeneration, progress);
             }
         } catch (InterruptedException e) {
             context.getGCListener().error("compaction interrupted", e);
             currentThread().interrupt();
-            return compactionAborted(context, targetGeneration);
+            return compactionAborted(context, targetGeneration, progress);
         } catch (Throwable e) {
             context.getGCListener().error("compaction encountered an error", e instanceof Exception ? (Exception) e : new Exception(e));
             return compactionAborted(context, targetGeneration);
         }
     }
 
-    private Compactor newCompactor(Context context, CompactionWriter writer) {
+    private Compactor newCompactor(Context context, CompactionWriter writer, @Nullable CompactionProgress progress) {
         CompactorType compactorType = context.getGCOptions().getCompactorType();
         switch (compactorType) {
             case PARALLEL_COMPACTOR:
                 return new ParallelCompactor(context.getGCListener(), writer, context.getCompactionMonitor(),
-                        context.getGCOptions().getConcurrency());
+                        context.getGCOptions().getConcurrency(), progress);
             case CHECKPOINT_COMPACTOR:
                 return new CheckpointCompactor(context.getGCListener(), writer, context.getCompactionMonitor());
             case CLASSIC_COMPACTOR:
@@ -18,6 +18,7 @@
  */
 package org.apache.jackrabbit.oak.segment.file;
 
+import static org.apache.jackrabbit.oak.segment.SegmentCache.newOffHeapSegmentCache;
 import static org.apache.jackrabbit.oak.segment.SegmentCache.newSegmentCache;
 import static org.apache.jackrabbit.oak.segment.data.SegmentData.newSegmentData;
 
@@ -142,7 +143,9 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
             }
         });
         this.blobStore = builder.getBlobStore();
-        this.segmentCache = newSegmentCache(builder.getSegmentCacheSize());
+        this.segmentCache = builder.getSegmentCacheOffHeap()
+            ? newOffHeapSegmentCache(builder.getSegmentCacheSize(), tracker)
+            : newSegmentCache(builder.getSegmentCacheSize());
         this.segmentReader = new CachingSegmentReader(
             this::getWriter,
             blobStore,
@@ -35,6 +35,7 @@ import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
 import org.apache.jackrabbit.oak.segment.file.tar.GCGeneration;
 import org.apache.jackrabbit.oak.segment.file.tar.TarFiles;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 
 abstract class AbstractGarbageCollectionStrategy implements GarbageCollectionStrategy {
@@ -195,6 +196,11 @@ abstract class AbstractGarbageCollectionStrategy implements GarbageCollectionStr
                 return context.getGCJournal();
             }
 
+            @Override
+            public GCJournalFile getCompactionProgressFile() {
+                return context.getCompactionProgressFile();
+            }
+
             @Override
             public SegmentGCOptions getGCOptions() {
                 return context.getGCOptions();
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.file;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.segment.RecordId;
+import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNotFoundException;
+import org.apache.jackrabbit.oak.segment.SegmentReader;
+import org.apache.jackrabbit.oak.segment.file.tar.GCGeneration;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the subtrees fully compacted by a running compaction in the
+ * compaction progress file of the persistence, so that a later compaction to
+ * the same target generation can reuse them instead of starting over. The
+ * first line of the file identifies the target generation with the format
+ * 'target, generation, full generation, compacted'. Every further line
+ * contains a batch of space separated 'source record id=compacted record id'
+ * pairs.
+ * <p>
+ * A batch is only written after the segments containing its compacted
+ * records have been flushed, so that all recorded entries are readable after
+ * a crash. Entries that cannot be read or do not belong to the target
+ * generation are ignored.
+ */
+public class CompactionProgress {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompactionProgress.class);
+
+    private static final String TARGET = "target";
+
+    /**
+     * Minimum interval between two writes to the progress file.
+     */
+    static final long COMMIT_INTERVAL = TimeUnit.SECONDS.toMillis(
+            Long.getLong("oak.segment.compaction.progressInterval", 30));
+
+    private final GCJournalFile file;
+
+    private final SegmentReader reader;
+
+    private final SegmentIdProvider idProvider;
+
+    private final CompactionWriter writer;
+
+    private final Flusher flusher;
+
+    private final long commitInterval;
+
+    /**
+     * Entries read from the progress file of a previous compaction.
+     */
+    private final Map<String, String> resumed;
+
+    private final List<String> pending = new ArrayList<>();
+
+    private long lastCommit = System.currentTimeMillis();
+
+    private CompactionProgress(
+            @NotNull GCJournalFile file,
+            @NotNull SegmentReader reader,
+            @NotNull SegmentIdProvider idProvider,
+            @NotNull CompactionWriter writer,
+            @NotNull Flusher flusher,
+            long commitInterval,
+            @NotNull Map<String, String> resumed) {
+        this.file = file;
+        this.reader = reader;
+        this.idProvider = idProvider;
+        this.writer = writer;
+        this.flusher = flusher;
+        this.commitInterval = commitInterval;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Open the progress of a compaction to {@code target}. Entries recorded by
+     * a previous compaction to the same target generation are loaded, the file
+     * is reset otherwise.
+     *
+     * @param file           the compaction progress file
+     * @param reader         reader for the compacted node states
+     * @param idProvider     provider for the segment ids of recorded entries
+     * @param writer         the writer of the running compaction
+     * @param flusher        flushes all segments written by the compaction
+     * @param target         the target generation of the compaction
+     * @param commitInterval minimum interval in milliseconds between two
+     *                       writes to the progress file
+     */
+    @NotNull
+    static CompactionProgress open(
+            @NotNull GCJournalFile file,
+            @NotNull SegmentReader reader,
+            @NotNull SegmentIdProvider idProvider,
+            @NotNull CompactionWriter writer,
+            @NotNull Flusher flusher,
+            @NotNull GCGeneration target,
+            long commitInterval
+    ) throws IOException {
+        Map<String, String> resumed = new ConcurrentHashMap<>();
+        String header = header(target);
+        List<String> lines = file.readLines();
+        if (!lines.isEmpty() && header.equals(lines.get(0))) {
+            for (String line : lines.subList(1, lines.size())) {
+                for (String entry : line.split(" ")) {
+                    int separator = entry.indexOf('=');
+                    if (separator > 0) {
+                        resumed.put(entry.substring(0, separator), entry.substring(separator + 1));
+                    }
+                }
+            }
+        } else {
+            file.truncate();
+            file.writeLine(header);
+        }
+        return new CompactionProgress(requireNonNull(file), requireNonNull(reader),
+                requireNonNull(idProvider), requireNonNull(writer), requireNonNull(flusher),
+                commitInterval, resumed);
+    }
+
+    private static String header(GCGeneration target) {
+        return TARGET + "," + target.getGeneration() + "," + target.getFullGeneration() + "," + target.isCompacted();
+    }
+
+    /**
+     * @return the number of compacted subtrees recorded by a previous
+     * compaction to the same target generation.
+     */
+    public int getResumedCount() {
+        return resumed.size();
+    }
+
+    /**
+     * Look up the compacted state of {@code source} recorded by a previous
+     * compaction to the same target generation.
+     *
+     * @param source the node state to compact
+     * @return the compacted state or {@code null} if none was recorded or it
+     * cannot be read.
+     */
+    @Nullable
+    public CompactedNodeState getCompactedState(@NotNull NodeState source) {
+        if (resumed.isEmpty() || !(source instanceof SegmentNodeState)) {
+            return null;
+        }
+        String compactedId = resumed.get(((SegmentNodeState) source).getRecordId().toString());
+        if (compactedId == null) {
+            return null;
+        }
+        try {
+            SegmentNodeState compacted = reader.readNode(RecordId.fromString(idProvider, compactedId));
+            return writer.getPreviouslyCompactedState(compacted);
+        } catch (SegmentNotFoundException | IllegalArgumentException e) {
+            LOG.warn("Ignoring unreadable compaction progress entry {}", compactedId, e);
+            resumed.remove(((SegmentNodeState) source).getRecordId().toString());
+            return null;
+        }
+    }
+
+    /**
+     * Record that {@code source} has been fully compacted to {@code compacted}.
+     * The progress file is updated once the commit interval has elapsed.
+     *
+     * @param source    the node state that has been compacted
+     * @param compacted the compacted node state
+     */
+    public void completed(@NotNull NodeState source, @NotNull CompactedNodeState compacted) throws IOException {
+        if (!compacted.isComplete() || !(source instanceof SegmentNodeState)) {
+            return;
+        }
+        boolean commit;
+        synchronized (this) {
+            pending.add(((SegmentNodeState) source).getRecordId() + "=" + compacted.getRecordId());
+            commit = System.currentTimeMillis() - lastCommit >= commitInterval;
+        }
+        if (commit) {
+            commit();
+        }
+    }
+
+    /**
+     * Flush the segments written so far and write all pending entries to the
+     * progress file.
+     */
+    public synchronized void commit() throws IOException {
+        lastCommit = System.currentTimeMillis();
+        if (pending.isEmpty()) {
+            return;
+        }
+        flusher.flush();
+        file.writeLine(String.join(" ", pending));
+        pending.clear();
+    }
+
+    /**
+     * Remove all recorded progress, e.g. once compaction succeeded.
+     */
+    public synchronized void clear() throws IOException {
+        pending.clear();
+        resumed.clear();
+        file.truncate();
+    }
+}
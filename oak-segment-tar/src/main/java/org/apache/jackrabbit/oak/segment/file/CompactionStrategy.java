@@ -29,6 +29,7 @@ import org.apache.jackrabbit.oak.segment.SegmentWriterFactory;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
 import org.apache.jackrabbit.oak.segment.file.tar.TarFiles;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 
 interface CompactionStrategy {
@@ -39,6 +40,8 @@ interface CompactionStrategy {
 
         GCJournal getGCJournal();
 
+        GCJournalFile getCompactionProgressFile();
+
         SegmentGCOptions getGCOptions();
 
         GCNodeWriteMonitor getCompactionMonitor();
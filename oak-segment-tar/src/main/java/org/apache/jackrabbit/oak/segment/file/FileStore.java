@@ -19,6 +19,7 @@
 package org.apache.jackrabbit.oak.segment.file;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.jackrabbit.oak.commons.IOUtils.humanReadableByteCount;
@@ -137,6 +138,12 @@ public class FileStore extends AbstractFileStore {
 
     private final boolean eagerSegmentCaching;
 
+    /**
+     * Maximum delay in milliseconds of a group commit, or a negative value if
+     * group commit is disabled.
+     */
+    private final int journalGroupCommitDelay;
+
     FileStore(final FileStoreBuilder builder) throws InvalidFileStoreVersionException, IOException {
         super(builder);
 
@@ -184,6 +191,7 @@ public class FileStore extends AbstractFileStore {
             builder.getGcOptions(),
             builder.getGcListener(),
             new GCJournal(persistence.getGCJournalFile()),
+            persistence.getCompactionProgressFile(),
             sufficientMemory,
             fileReaper,
             tarFiles,
@@ -208,6 +216,7 @@ public class FileStore extends AbstractFileStore {
         );
 
         this.eagerSegmentCaching = builder.getEagerSegmentCaching();
+        this.journalGroupCommitDelay = builder.getJournalGroupCommitDelay();
 
         TimerStats flushTimer = statsProvider.getTimer("oak.segment.flush", METRICS_ONLY);
         fileStoreScheduler.scheduleWithFixedDelay(format("TarMK flush [%s]", directory), 5, SECONDS, () -> {
@@ -245,6 +254,10 @@ public class FileStore extends AbstractFileStore {
         try (ShutDownCloser ignored = shutDown.keepAlive()) {
             this.revisions = revisions;
             this.revisions.bind(this, tracker, initialNode());
+            this.revisions.setStats(stats);
+            if (journalGroupCommitDelay >= 0) {
+                this.revisions.setGroupCommit(this::flush, journalGroupCommitDelay, MILLISECONDS);
+            }
             return this;
         }
     }
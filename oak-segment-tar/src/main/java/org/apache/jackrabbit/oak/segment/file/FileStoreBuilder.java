@@ -40,6 +40,8 @@ import org.apache.jackrabbit.oak.segment.CacheWeights.StringCacheWeigher;
 import org.apache.jackrabbit.oak.segment.CacheWeights.TemplateCacheWeigher;
 import org.apache.jackrabbit.oak.segment.RecordCache;
 import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentCache;
+import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
 import org.apache.jackrabbit.oak.segment.SegmentNotFoundExceptionListener;
 import org.apache.jackrabbit.oak.segment.WriterCacheManager;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
@@ -81,6 +83,8 @@ public class FileStoreBuilder {
 
     private int segmentCacheSize = DEFAULT_SEGMENT_CACHE_MB;
 
+    private boolean segmentCacheOffHeap = getBoolean("segmentCache.offHeap");
+
     private int stringCacheSize = DEFAULT_STRING_CACHE_MB;
 
     private int templateCacheSize = DEFAULT_TEMPLATE_CACHE_MB;
@@ -141,6 +145,8 @@ public class FileStoreBuilder {
 
     private boolean eagerSegmentCaching;
 
+    private int journalGroupCommitDelay = -1;
+
     private boolean built;
 
     /**
@@ -196,6 +202,19 @@ public class FileStoreBuilder {
         return this;
     }
 
+    /**
+     * Keep the data of the segments in the segment cache off heap instead of
+     * on heap. See {@link SegmentCache#newOffHeapSegmentCache(long, SegmentIdProvider)}.
+     *
+     * @param segmentCacheOffHeap
+     * @return this instance
+     */
+    @NotNull
+    public FileStoreBuilder withSegmentCacheOffHeap(boolean segmentCacheOffHeap) {
+        this.segmentCacheOffHeap = segmentCacheOffHeap;
+        return this;
+    }
+
     /**
      * Size of the string cache in MB.
      *
@@ -408,6 +427,25 @@ public class FileStoreBuilder {
         return this;
     }
 
+    /**
+     * Enable group commit of the journal. With group commit enabled, a commit
+     * only returns once its head state has been written to the journal.
+     * A commit first waits for up to {@code maxDelayMillis} for a concurrent
+     * journal write covering it, so that commits completing at the same time
+     * are persisted together, and writes the journal itself otherwise.
+     *
+     * @param maxDelayMillis maximum time a commit waits for a concurrent
+     *                       journal write in milliseconds,
+     *                       {@code 0} for no delay or a negative value to
+     *                       disable group commit (the default).
+     * @return this instance
+     */
+    @NotNull
+    public FileStoreBuilder withJournalGroupCommit(int maxDelayMillis) {
+        this.journalGroupCommitDelay = maxDelayMillis;
+        return this;
+    }
+
     public Backend buildProcBackend(AbstractFileStore fileStore) throws IOException {
         return new FileStoreProcBackend(fileStore, persistence);
     }
@@ -509,6 +547,10 @@ public class FileStoreBuilder {
         return segmentCacheSize;
     }
 
+    boolean getSegmentCacheOffHeap() {
+        return segmentCacheOffHeap;
+    }
+
     int getStringCacheSize() {
         return stringCacheSize;
     }
@@ -590,6 +632,10 @@ public class FileStoreBuilder {
         return binariesInlineThreshold;
     }
 
+    int getJournalGroupCommitDelay() {
+        return journalGroupCommitDelay;
+    }
+
     @Override
     public String toString() {
         return "FileStoreBuilder{" +
@@ -599,6 +645,7 @@ public class FileStoreBuilder {
                 ", binariesInlineThreshold=" + binariesInlineThreshold +
                 ", maxFileSize=" + maxFileSize +
                 ", segmentCacheSize=" + segmentCacheSize +
+                ", segmentCacheOffHeap=" + segmentCacheOffHeap +
                 ", stringCacheSize=" + stringCacheSize +
                 ", templateCacheSize=" + templateCacheSize +
                 ", stringDeduplicationCacheSize=" + stringDeduplicationCacheSize +
@@ -606,6 +653,7 @@ public class FileStoreBuilder {
                 ", nodeDeduplicationCacheSize=" + nodeDeduplicationCacheSize +
                 ", memoryMapping=" + memoryMapping +
                 ", offHeapAccess=" + offHeapAccess +
+                ", journalGroupCommitDelay=" + journalGroupCommitDelay +
                 ", gcOptions=" + gcOptions +
                 '}';
     }
@@ -21,6 +21,8 @@ package org.apache.jackrabbit.oak.segment.file;
 
 import static org.apache.jackrabbit.stats.TimeSeriesStatsUtil.asCompositeData;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.management.openmbean.CompositeData;
 
 import org.apache.jackrabbit.api.stats.TimeSeries;
@@ -30,15 +32,19 @@ import org.apache.jackrabbit.oak.segment.SegmentNotFoundException;
 import org.apache.jackrabbit.oak.segment.SegmentNotFoundExceptionListener;
 import org.apache.jackrabbit.oak.segment.spi.monitor.FileStoreMonitor;
 import org.apache.jackrabbit.oak.stats.CounterStats;
+import org.apache.jackrabbit.oak.stats.HistogramStats;
 import org.apache.jackrabbit.oak.stats.MeterStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
+import org.apache.jackrabbit.oak.stats.TimerStats;
 import org.jetbrains.annotations.NotNull;
 
 public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor, SegmentNotFoundExceptionListener {
     public static final String SEGMENT_REPO_SIZE = "SEGMENT_REPO_SIZE";
     public static final String SEGMENT_WRITES = "SEGMENT_WRITES";
     public static final String JOURNAL_WRITES = "JOURNAL_WRITES";
+    public static final String JOURNAL_BATCH_SIZE = "JOURNAL_BATCH_SIZE";
+    public static final String JOURNAL_WRITE_TIME = "JOURNAL_WRITE_TIME";
     private static final String SNFE_COUNT = "SNFE_COUNT";
 
     private final StatisticsProvider statisticsProvider;
@@ -47,6 +53,8 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor, Se
     private final CounterStats repoSize;
     private final MeterStats journalWriteStats;
     private final CounterStats snfeCountStats;
+    private final HistogramStats journalBatchSize;
+    private final TimerStats journalWriteTime;
 
     public FileStoreStats(StatisticsProvider statisticsProvider, FileStore store, long initialSize) {
         this.statisticsProvider = statisticsProvider;
@@ -55,6 +63,8 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor, Se
         this.repoSize = statisticsProvider.getCounterStats(SEGMENT_REPO_SIZE, StatsOptions.DEFAULT);
         this.journalWriteStats = statisticsProvider.getMeter(JOURNAL_WRITES, StatsOptions.DEFAULT);
         this.snfeCountStats = statisticsProvider.getCounterStats(SNFE_COUNT, StatsOptions.DEFAULT);
+        this.journalBatchSize = statisticsProvider.getHistogram(JOURNAL_BATCH_SIZE, StatsOptions.METRICS_ONLY);
+        this.journalWriteTime = statisticsProvider.getTimer(JOURNAL_WRITE_TIME, StatsOptions.METRICS_ONLY);
         repoSize.inc(initialSize);
     }
 
@@ -86,6 +96,17 @@ public class FileStoreStats implements FileStoreStatsMBean, FileStoreMonitor, Se
         journalWriteStats.mark();
     }
 
+    /**
+     * Called after a new head has been appended to the journal.
+     *
+     * @param batchSize  number of head updates covered by the journal entry
+     * @param nanos      time spent appending and syncing the entry
+     */
+    void journalWritten(long batchSize, long nanos) {
+        journalBatchSize.update(batchSize);
+        journalWriteTime.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
     //~--------------------------------< FileStoreStatsMBean >
 
     @Override
@@ -31,6 +31,7 @@ import org.apache.jackrabbit.oak.segment.SegmentWriterFactory;
 import org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions;
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
 import org.apache.jackrabbit.oak.segment.file.tar.TarFiles;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 
 interface GarbageCollectionStrategy {
@@ -51,6 +52,8 @@ interface GarbageCollectionStrategy {
 
         GCJournal getGCJournal();
 
+        GCJournalFile getCompactionProgressFile();
+
         SegmentTracker getSegmentTracker();
 
         SegmentWriterFactory getSegmentWriterFactory();
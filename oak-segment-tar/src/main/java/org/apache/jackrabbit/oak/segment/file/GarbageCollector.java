@@ -40,8 +40,10 @@ import org.apache.jackrabbit.oak.segment.file.GarbageCollectionStrategy.Successf
 import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
 import org.apache.jackrabbit.oak.segment.file.tar.GCGeneration;
 import org.apache.jackrabbit.oak.segment.file.tar.TarFiles;
+import org.apache.jackrabbit.oak.segment.spi.persistence.GCJournalFile;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 class GarbageCollector {
 
@@ -70,6 +72,9 @@ class GarbageCollector {
     @NotNull
     private final GCJournal gcJournal;
 
+    @Nullable
+    private final GCJournalFile compactionProgressFile;
+
     private final AtomicBoolean sufficientMemory;
 
     private final FileReaper fileReaper;
@@ -118,6 +123,7 @@ class GarbageCollector {
         SegmentGCOptions gcOptions,
         GCListener gcListener,
         GCJournal gcJournal,
+        @Nullable GCJournalFile compactionProgressFile,
         AtomicBoolean sufficientMemory,
         FileReaper fileReaper,
         TarFiles tarFiles,
@@ -135,6 +141,7 @@ class GarbageCollector {
         this.gcOptions = gcOptions;
         this.gcListener = new PrefixedGCListener(gcListener, GC_COUNT);
         this.gcJournal = gcJournal;
+        this.compactionProgressFile = compactionProgressFile;
         this.sufficientMemory = sufficientMemory;
         this.fileReaper = fileReaper;
         this.tarFiles = tarFiles;
@@ -182,6 +189,11 @@ class GarbageCollector {
                 return gcJournal;
             }
 
+            @Override
+            public GCJournalFile getCompactionProgressFile() {
+                return compactionProgressFile;
+            }
+
             @Override
             public SegmentTracker getSegmentTracker() {
                 return tracker;
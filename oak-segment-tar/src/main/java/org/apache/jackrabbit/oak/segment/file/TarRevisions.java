@@ -24,7 +24,9 @@ import static org.apache.jackrabbit.oak.segment.file.FileStoreUtil.findPersisted
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -56,6 +58,14 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Instance of this class must be {@link #bind(SegmentStore, SegmentIdProvider, Supplier)} bound} to
  * a {@code SegmentStore} otherwise its method throw {@code IllegalStateException}s.
+ * <p>
+ * Concurrent calls to {@link #flush(Flusher)} are coalesced: a caller whose
+ * head update has already been written by another caller while it was waiting
+ * for the journal returns without writing a journal entry of its own. When
+ * {@link #setGroupCommit(Flusher, long, TimeUnit) group commit} is enabled,
+ * {@link #awaitPersisted()} blocks until the current head is in the journal,
+ * so that all the commits waiting at the same time share a single journal
+ * append and a single fsync.
  */
 public class TarRevisions implements Revisions, Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(TarRevisions.class);
@@ -88,6 +98,41 @@ public class TarRevisions implements Revisions, Closeable {
     @NotNull
     private final ReadWriteLock rwLock = new ReentrantReadWriteLock(true);
 
+    /**
+     * Incremented on every update of {@link #head}. Used to determine whether
+     * an update has already been written to the journal.
+     */
+    private final AtomicLong headSequence = new AtomicLong();
+
+    /**
+     * The value of {@link #headSequence} covered by {@link #persistedHead}. It
+     * is only written while holding {@link #journalFileLock}.
+     */
+    private volatile long persistedSequence;
+
+    /**
+     * Monitor notified whenever {@link #persistedSequence} advances, so that
+     * callers of {@link #awaitPersisted()} waiting for a group commit return
+     * as soon as their head update has been written.
+     */
+    private final Object persistedMonitor = new Object();
+
+    /**
+     * Call back persisting the current head for {@link #awaitPersisted()},
+     * {@code null} if group commit is disabled.
+     */
+    @Nullable
+    private volatile Flusher groupCommitFlusher;
+
+    /**
+     * Time {@link #awaitPersisted()} waits for a concurrent journal write
+     * before writing the journal itself, when group commit is enabled.
+     */
+    private volatile long groupCommitDelayNanos;
+
+    @Nullable
+    private volatile FileStoreStats stats;
+
     private static class TimeOutOption implements Option {
         private final long time;
 
@@ -163,12 +208,38 @@ public class TarRevisions implements Revisions, Closeable {
         RecordId persistedId = findPersistedRecordId(store, idProvider, journalFile);
         if (persistedId == null) {
             head.set(writeInitialNode.get());
+            headSequence.incrementAndGet();
         } else {
             persistedHead.set(persistedId);
             head.set(persistedId);
         }
     }
 
+    /**
+     * Enable group commit. Once enabled, {@link #awaitPersisted()} waits for up
+     * to {@code maxDelay} for a concurrent journal write covering the current
+     * head, and otherwise calls {@code flusher} to persist it.
+     *
+     * @param flusher   call back persisting the current head, usually
+     *                  {@link FileStore#flush()}.
+     * @param maxDelay  maximum time to wait for a concurrent journal write,
+     *                  {@code 0} for no delay.
+     * @param unit      time unit of {@code maxDelay}
+     */
+    void setGroupCommit(@NotNull Flusher flusher, long maxDelay, @NotNull TimeUnit unit) {
+        Validate.checkArgument(maxDelay >= 0, "maxDelay must not be negative");
+        this.groupCommitDelayNanos = unit.toNanos(maxDelay);
+        this.groupCommitFlusher = flusher;
+    }
+
+    /**
+     * Set the statistics receiving the size and the latency of the journal
+     * writes performed by this instance.
+     */
+    void setStats(@Nullable FileStoreStats stats) {
+        this.stats = stats;
+    }
+
     private void checkBound() {
         Validate.checkState(head.get() != null, "Revisions not bound to a store");
     }
@@ -188,8 +259,13 @@ public class TarRevisions implements Revisions, Closeable {
             LOG.debug("No head available, skipping flush");
             return;
         }
+        long target = headSequence.get();
         journalFileLock.lock();
         try {
+            if (persistedSequence >= target) {
+                LOG.debug("Head state already flushed by a concurrent call, skipping flush");
+                return;
+            }
             doFlush(flusher);
         } finally {
             journalFileLock.unlock();
@@ -221,21 +297,93 @@ public class TarRevisions implements Revisions, Closeable {
         }
     }
 
+    /**
+     * Wait for up to {@code delay} nanoseconds until the head update with the
+     * given sequence number has been written to the journal. Callers must not
+     * hold {@link #journalFileLock}, so that the journal can be written while
+     * they wait.
+     *
+     * @return {@code true} if the update has been written
+     */
+    private boolean awaitPersistedSequence(long target, long delay) throws InterruptedException {
+        long deadline = System.nanoTime() + delay;
+        synchronized (persistedMonitor) {
+            while (persistedSequence < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(persistedMonitor, remaining);
+            }
+            return true;
+        }
+    }
+
+    private void setPersistedSequence(long sequence) {
+        synchronized (persistedMonitor) {
+            persistedSequence = sequence;
+            persistedMonitor.notifyAll();
+        }
+    }
+
     private void doFlush(Flusher flusher) throws IOException {
         if (journalFileWriter == null) {
             LOG.debug("No journal file available, skipping flush");
             return;
         }
+        // Read the sequence before the head: the head written below covers
+        // at least all updates counted up to here.
+        long sequence = headSequence.get();
         RecordId before = persistedHead.get();
         RecordId after = getHead();
         if (after.equals(before)) {
             LOG.debug("Head state did not change, skipping flush");
+            setPersistedSequence(sequence);
             return;
         }
         flusher.flush();
         LOG.debug("TarMK journal update {} -> {}", before, after);
+        long start = System.nanoTime();
         journalFileWriter.writeLine(after.toString10() + " root " + System.currentTimeMillis());
+        long elapsed = System.nanoTime() - start;
         persistedHead.set(after);
+        FileStoreStats stats = this.stats;
+        if (stats != null) {
+            stats.journalWritten(sequence - persistedSequence, elapsed);
+        }
+        setPersistedSequence(sequence);
+    }
+
+    /**
+     * When group commit is enabled this implementation blocks until the current
+     * head has been written to the journal. It first waits for up to the group
+     * commit delay for a concurrent journal write, so that concurrent callers
+     * are served by the same journal write. Otherwise this method returns
+     * immediately and the head is persisted by the next periodic flush.
+     *
+     * @throws IOException if writing the journal failed
+     * @throws InterruptedIOException if interrupted while waiting
+     * @see #setGroupCommit(Flusher, long, TimeUnit)
+     */
+    @Override
+    public void awaitPersisted() throws IOException {
+        Flusher flusher = groupCommitFlusher;
+        if (flusher == null) {
+            return;
+        }
+        long target = headSequence.get();
+        if (persistedSequence >= target) {
+            return;
+        }
+        try {
+            if (awaitPersistedSequence(target, groupCommitDelayNanos)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+        flusher.flush();
     }
 
     @NotNull
@@ -277,7 +425,11 @@ public class TarRevisions implements Revisions, Closeable {
         lock.lock();
         try {
             RecordId id = this.head.get();
-            return id.equals(expected) && this.head.compareAndSet(id, head);
+            if (id.equals(expected) && this.head.compareAndSet(id, head)) {
+                headSequence.incrementAndGet();
+                return true;
+            }
+            return false;
         } finally {
             lock.unlock();
         }
@@ -308,6 +460,7 @@ public class TarRevisions implements Revisions, Closeable {
                 RecordId after = newHead.apply(getHead());
                 if (after != null) {
                     head.set(after);
+                    headSequence.incrementAndGet();
                     return after;
                 } else {
                     return null;
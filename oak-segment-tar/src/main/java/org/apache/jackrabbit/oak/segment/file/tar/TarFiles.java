@@ -476,6 +476,16 @@ public class TarFiles implements Closeable {
             }
         }
 
+        try {
+            archiveManager.close();
+        } catch (IOException e) {
+            if (exception == null) {
+                exception = e;
+            } else {
+                exception.addSuppressed(e);
+            }
+        }
+
         if (exception != null) {
             throw exception;
         }
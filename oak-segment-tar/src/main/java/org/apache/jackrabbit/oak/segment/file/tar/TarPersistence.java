@@ -44,6 +44,8 @@ public class TarPersistence implements SegmentNodeStorePersistence {
 
     private static final String GC_JOURNAL = "gc.log";
 
+    private static final String COMPACTION_PROGRESS = "compaction.log";
+
     private static final String MANIFEST_FILE_NAME = "manifest";
 
     private static final String JOURNAL_FILE_NAME = "journal.log";
@@ -83,6 +85,11 @@ public class TarPersistence implements SegmentNodeStorePersistence {
         return new LocalGCJournalFile(directory, GC_JOURNAL);
     }
 
+    @Override
+    public GCJournalFile getCompactionProgressFile() {
+        return new LocalGCJournalFile(directory, COMPACTION_PROGRESS);
+    }
+
     @Override
     public ManifestFile getManifestFile() {
         return new LocalManifestFile(directory, MANIFEST_FILE_NAME);
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.scheduler;
+
+import static org.apache.jackrabbit.oak.api.Type.LONG;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeBuilder;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Utility methods for creating and removing checkpoints, shared by the
+ * {@link Scheduler} implementations.
+ */
+final class Checkpoints {
+
+    static final String ROOT = "root";
+
+    static final String CHECKPOINTS = "checkpoints";
+
+    private Checkpoints() {}
+
+    /**
+     * Add a checkpoint of the current root to {@code state}, removing all
+     * expired checkpoints on the way.
+     *
+     * @return the new head state containing the checkpoint
+     */
+    @NotNull
+    static SegmentNodeState addCheckpoint(@NotNull SegmentNodeState state, @NotNull String name,
+            long lifetime, @NotNull Map<String, String> properties) {
+        long now = System.currentTimeMillis();
+
+        SegmentNodeBuilder builder = state.builder();
+
+        NodeBuilder checkpoints = builder.child(CHECKPOINTS);
+        for (String n : checkpoints.getChildNodeNames()) {
+            NodeBuilder cp = checkpoints.getChildNode(n);
+            PropertyState ts = cp.getProperty("timestamp");
+            if (ts == null || ts.getType() != LONG || now > ts.getValue(LONG)) {
+                cp.remove();
+            }
+        }
+
+        NodeBuilder cp = checkpoints.child(name);
+        if (Long.MAX_VALUE - now > lifetime) {
+            cp.setProperty("timestamp", now + lifetime);
+        } else {
+            cp.setProperty("timestamp", Long.MAX_VALUE);
+        }
+        cp.setProperty("created", now);
+
+        NodeBuilder props = cp.setChildNode("properties");
+        for (Entry<String, String> p : properties.entrySet()) {
+            props.setProperty(p.getKey(), p.getValue());
+        }
+        cp.setChildNode(ROOT, state.getChildNode(ROOT));
+
+        return builder.getNodeState();
+    }
+
+    /**
+     * Remove the checkpoint {@code name} from {@code state}.
+     *
+     * @return the new head state without the checkpoint or {@code null} if
+     * {@code state} does not contain such a checkpoint.
+     */
+    @Nullable
+    static SegmentNodeState removeCheckpoint(@NotNull SegmentNodeState state, @NotNull String name) {
+        SegmentNodeBuilder builder = state.builder();
+        NodeBuilder cp = builder.child(CHECKPOINTS).child(name);
+        if (cp.exists()) {
+            cp.remove();
+            return builder.getNodeState();
+        }
+        return null;
+    }
+}
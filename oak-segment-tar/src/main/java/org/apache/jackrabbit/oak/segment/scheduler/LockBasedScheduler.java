@@ -22,12 +22,11 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.jackrabbit.oak.commons.conditions.Validate.checkArgument;
-import static org.apache.jackrabbit.oak.api.Type.LONG;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -38,9 +37,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.UniformReservoir;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
-import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.segment.Revisions;
-import org.apache.jackrabbit.oak.segment.SegmentNodeBuilder;
 import org.apache.jackrabbit.oak.segment.SegmentNodeState;
 import org.apache.jackrabbit.oak.segment.SegmentNodeStoreStats;
 import org.apache.jackrabbit.oak.segment.SegmentOverflowException;
@@ -50,7 +47,6 @@ import org.apache.jackrabbit.oak.spi.commit.ChangeDispatcher;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.Observable;
 import org.apache.jackrabbit.oak.spi.commit.Observer;
-import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -259,6 +255,7 @@ public class LockBasedScheduler implements Scheduler {
             long queuedTime = System.nanoTime();
             stats.onCommitQueued(Thread.currentThread(), commit::getGCGeneration);
 
+            SegmentNodeState merged;
             commitSemaphore.acquire();
             commitSemaphoreLogging.commitStarted(commit);
             try {
@@ -267,18 +264,25 @@ public class LockBasedScheduler implements Scheduler {
 
                 long beforeCommitTime = System.nanoTime();
 
-                SegmentNodeState merged = (SegmentNodeState) execute(commit);
+                merged = (SegmentNodeState) execute(commit);
                 commit.applied(merged);
 
                 long afterCommitTime = System.nanoTime();
                 commitTimeHistogram.update(afterCommitTime - beforeCommitTime);
                 stats.onCommit(Thread.currentThread(), afterCommitTime - beforeCommitTime);
-
-                return merged;
             } finally {
                 commitSemaphoreLogging.commitEnded();
                 commitSemaphore.release();
             }
+
+            // Wait for durability outside of the commit lock, so that
+            // concurrent commits can share a single journal write
+            if (commit.hasChanges()) {
+                revisions.awaitPersisted();
+            }
+            return merged;
+        } catch (IOException e) {
+            throw new CommitFailedException("Segment", 4, "Failed to persist the head state", e);
         } catch (InterruptedException e) {
             currentThread().interrupt();
             throw new CommitFailedException("Segment", 2, "Merge interrupted", e);
@@ -362,16 +366,11 @@ public class LockBasedScheduler implements Scheduler {
                     refreshHead(true);
 
                     SegmentNodeState state = head.get();
-                    SegmentNodeBuilder builder = state.builder();
-
-                    NodeBuilder cp = builder.child("checkpoints").child(name);
-                    if (cp.exists()) {
-                        cp.remove();
-                        SegmentNodeState newState = builder.getNodeState();
-                        if (revisions.setHead(state.getRecordId(), newState.getRecordId())) {
-                            refreshHead(false);
-                            return true;
-                        }
+                    SegmentNodeState newState = Checkpoints.removeCheckpoint(state, name);
+                    if (newState != null
+                            && revisions.setHead(state.getRecordId(), newState.getRecordId())) {
+                        refreshHead(false);
+                        return true;
                     }
                 } finally {
                     commitSemaphore.release();
@@ -414,37 +413,10 @@ public class LockBasedScheduler implements Scheduler {
 
         @Override
         public Boolean call() {
-            long now = System.currentTimeMillis();
-
             refreshHead(true);
 
             SegmentNodeState state = head.get();
-            SegmentNodeBuilder builder = state.builder();
-
-            NodeBuilder checkpoints = builder.child("checkpoints");
-            for (String n : checkpoints.getChildNodeNames()) {
-                NodeBuilder cp = checkpoints.getChildNode(n);
-                PropertyState ts = cp.getProperty("timestamp");
-                if (ts == null || ts.getType() != LONG || now > ts.getValue(LONG)) {
-                    cp.remove();
-                }
-            }
-
-            NodeBuilder cp = checkpoints.child(name);
-            if (Long.MAX_VALUE - now > lifetime) {
-                cp.setProperty("timestamp", now + lifetime);
-            } else {
-                cp.setProperty("timestamp", Long.MAX_VALUE);
-            }
-            cp.setProperty("created", now);
-
-            NodeBuilder props = cp.setChildNode("properties");
-            for (Entry<String, String> p : properties.entrySet()) {
-                props.setProperty(p.getKey(), p.getValue());
-            }
-            cp.setChildNode(ROOT, state.getChildNode(ROOT));
-
-            SegmentNodeState newState = builder.getNodeState();
+            SegmentNodeState newState = Checkpoints.addCheckpoint(state, name, lifetime, properties);
             if (revisions.setHead(state.getRecordId(), newState.getRecordId())) {
                 refreshHead(false);
                 return true;
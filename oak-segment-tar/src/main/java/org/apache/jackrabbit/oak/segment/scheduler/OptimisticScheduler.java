@@ -0,0 +1,440 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.scheduler;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.jackrabbit.oak.commons.conditions.Validate.checkArgument;
+import static org.apache.jackrabbit.oak.segment.scheduler.Checkpoints.ROOT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.segment.Revisions;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreStats;
+import org.apache.jackrabbit.oak.segment.SegmentOverflowException;
+import org.apache.jackrabbit.oak.segment.SegmentReader;
+import org.apache.jackrabbit.oak.spi.commit.ChangeDispatcher;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.Observable;
+import org.apache.jackrabbit.oak.spi.commit.Observer;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Scheduler} executing commits optimistically. In contrast to the
+ * {@link LockBasedScheduler}, the rebase of the changes and the commit hooks
+ * of concurrent commits run in parallel, each against a snapshot of the
+ * current head state. The head state is then resolved by a compare-and-set
+ * on {@link Revisions#setHead(org.apache.jackrabbit.oak.segment.RecordId,
+ * org.apache.jackrabbit.oak.segment.RecordId, Revisions.Option...)}. A
+ * commit losing that race is rebased onto the new head and its commit hooks
+ * are run again.
+ * <p>
+ * A commit that failed {@link OptimisticSchedulerBuilder#withMaxOptimisticRetries(int)}
+ * times in a row falls back to exclusive execution: it waits for the
+ * optimistic commits in progress to finish and blocks new ones until it
+ * succeeded. This guarantees progress under high contention on the same
+ * content.
+ * <p>
+ * Only the compare-and-set and the subsequent dispatch of the changes to
+ * observers are serialized, so that observers see the changes in the order
+ * they have been applied to the head state.
+ * <p>
+ * Commit hooks used with this scheduler must be safe for concurrent use.
+ */
+public class OptimisticScheduler implements Scheduler {
+
+    public static class OptimisticSchedulerBuilder {
+        @NotNull
+        private final SegmentReader reader;
+
+        @NotNull
+        private final Revisions revisions;
+
+        @NotNull
+        private final SegmentNodeStoreStats stats;
+
+        private boolean dispatchChanges = true;
+
+        private int maxOptimisticRetries = DEFAULT_MAX_OPTIMISTIC_RETRIES;
+
+        private OptimisticSchedulerBuilder(@NotNull Revisions revisions, @NotNull SegmentReader reader,
+                @NotNull SegmentNodeStoreStats stats) {
+            this.revisions = revisions;
+            this.reader = reader;
+            this.stats = stats;
+        }
+
+        @NotNull
+        public OptimisticSchedulerBuilder dispatchChanges(boolean dispatchChanges) {
+            this.dispatchChanges = dispatchChanges;
+            return this;
+        }
+
+        /**
+         * Number of times a commit is retried optimistically after losing
+         * the race on the head state, before it falls back to exclusive
+         * execution.
+         *
+         * @param maxOptimisticRetries none negative number of retries
+         * @return this instance
+         */
+        @NotNull
+        public OptimisticSchedulerBuilder withMaxOptimisticRetries(int maxOptimisticRetries) {
+            checkArgument(maxOptimisticRetries >= 0, "maxOptimisticRetries must not be negative");
+            this.maxOptimisticRetries = maxOptimisticRetries;
+            return this;
+        }
+
+        @NotNull
+        public OptimisticScheduler build() {
+            if (dispatchChanges) {
+                return new ObservableOptimisticScheduler(this);
+            } else {
+                return new OptimisticScheduler(this);
+            }
+        }
+
+    }
+
+    public static OptimisticSchedulerBuilder builder(@NotNull Revisions revisions, @NotNull SegmentReader reader,
+            @NotNull SegmentNodeStoreStats stats) {
+        return new OptimisticSchedulerBuilder(requireNonNull(revisions), requireNonNull(reader), requireNonNull(stats));
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticScheduler.class);
+
+    /**
+     * Default number of optimistic attempts before a commit falls back to
+     * exclusive execution.
+     */
+    private static final int DEFAULT_MAX_OPTIMISTIC_RETRIES = Integer
+            .getInteger("oak.segmentNodeStore.optimisticRetries", 5);
+
+    /**
+     * Maximum number of milliseconds to wait before re-attempting to update the
+     * current head state in exclusive mode, provided a concurrent head state
+     * update happens from outside this scheduler.
+     */
+    private static final long MAXIMUM_BACKOFF = MILLISECONDS.convert(10, SECONDS);
+
+    /**
+     * Sets the number of seconds to wait for the attempt to grab the lock to
+     * create a checkpoint
+     */
+    private final int checkpointsLockWaitTime = Integer.getInteger("oak.checkpoints.lockWaitTime", 10);
+
+    @NotNull
+    private final SegmentReader reader;
+
+    @NotNull
+    private final Revisions revisions;
+
+    @NotNull
+    private final SegmentNodeStoreStats stats;
+
+    private final int maxOptimisticRetries;
+
+    /**
+     * Optimistic commits hold the read lock while being applied, commits
+     * falling back to exclusive execution as well as checkpoint operations
+     * hold the write lock.
+     */
+    private final ReentrantReadWriteLock exclusiveLock = new ReentrantReadWriteLock(true);
+
+    /**
+     * Monitor serializing updates of {@link #head} and the dispatch of the
+     * corresponding changes.
+     */
+    private final Object headMonitor = new Object();
+
+    /**
+     * Number of commits that lost the race on the head state
+     */
+    private final AtomicLong conflictCount = new AtomicLong();
+
+    /**
+     * Number of commits that fell back to exclusive execution
+     */
+    private final AtomicLong exclusiveCount = new AtomicLong();
+
+    protected volatile SegmentNodeState head;
+
+    public OptimisticScheduler(OptimisticSchedulerBuilder builder) {
+        this.reader = builder.reader;
+        this.revisions = builder.revisions;
+        this.stats = builder.stats;
+        this.maxOptimisticRetries = builder.maxOptimisticRetries;
+        this.head = reader.readHeadState(revisions);
+    }
+
+    @Override
+    public NodeState getHeadNodeState() {
+        return refreshHead();
+    }
+
+    /**
+     * Refreshes the head state from {@link Revisions}, dispatching the changes
+     * if it changed.
+     *
+     * @return the current head state
+     */
+    @NotNull
+    private SegmentNodeState refreshHead() {
+        synchronized (headMonitor) {
+            SegmentNodeState state = reader.readHeadState(revisions);
+            if (!state.getRecordId().equals(head.getRecordId())) {
+                head = state;
+                contentChanged(state.getChildNode(ROOT), CommitInfo.EMPTY_EXTERNAL);
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Atomically replaces the head state {@code before} with {@code after},
+     * dispatching the changes on success.
+     *
+     * @return {@code true} on success, {@code false} if the head state
+     * changed concurrently.
+     */
+    private boolean setHead(@NotNull SegmentNodeState before, @NotNull SegmentNodeState after, @NotNull CommitInfo info) {
+        synchronized (headMonitor) {
+            if (!before.getRecordId().equals(head.getRecordId())) {
+                // pick up concurrent changes from outside this scheduler
+                // before reporting the failure
+                refreshHead();
+                return false;
+            }
+            if (revisions.setHead(before.getRecordId(), after.getRecordId())) {
+                head = after;
+                contentChanged(after.getChildNode(ROOT), info);
+                return true;
+            }
+            refreshHead();
+            return false;
+        }
+    }
+
+    protected void contentChanged(NodeState root, CommitInfo info) {
+        // do nothing without a change dispatcher
+    }
+
+    /**
+     * @return number of commits that had to be retried because a concurrent
+     * commit changed the head state first (for testing and diagnostics).
+     */
+    public long getConflictCount() {
+        return conflictCount.get();
+    }
+
+    /**
+     * @return number of commits that fell back to exclusive execution (for
+     * testing and diagnostics).
+     */
+    public long getExclusiveCount() {
+        return exclusiveCount.get();
+    }
+
+    @Override
+    public NodeState schedule(@NotNull Commit commit, SchedulerOption... schedulingOptions)
+            throws CommitFailedException {
+        try {
+            long queuedTime = System.nanoTime();
+            stats.onCommitQueued(currentThread(), commit::getGCGeneration);
+            stats.onCommitDequeued(currentThread(), System.nanoTime() - queuedTime);
+
+            long beforeCommitTime = System.nanoTime();
+
+            SegmentNodeState merged = (SegmentNodeState) execute(commit).getChildNode(ROOT);
+            commit.applied(merged);
+
+            long afterCommitTime = System.nanoTime();
+            stats.onCommit(currentThread(), afterCommitTime - beforeCommitTime);
+
+            if (commit.hasChanges()) {
+                revisions.awaitPersisted();
+            }
+            return merged;
+        } catch (IOException e) {
+            throw new CommitFailedException("Segment", 4, "Failed to persist the head state", e);
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+            throw new CommitFailedException("Segment", 2, "Merge interrupted", e);
+        } catch (SegmentOverflowException e) {
+            throw new CommitFailedException("Segment", 3, "Merge failed", e);
+        }
+    }
+
+    @NotNull
+    private SegmentNodeState execute(Commit commit) throws CommitFailedException, InterruptedException {
+        // only do the merge if there are some changes to commit
+        if (!commit.hasChanges()) {
+            return refreshHead();
+        }
+
+        for (int attempt = 0; attempt <= maxOptimisticRetries; attempt++) {
+            Lock lock = exclusiveLock.readLock();
+            lock.lockInterruptibly();
+            try {
+                SegmentNodeState before = head;
+                SegmentNodeState after = commit.apply(before);
+                if (setHead(before, after, commit.info())) {
+                    return after;
+                }
+            } finally {
+                lock.unlock();
+            }
+            conflictCount.incrementAndGet();
+            if (attempt > 0) {
+                // spread out the retries of commits conflicting repeatedly
+                Thread.sleep(0, ThreadLocalRandom.current().nextInt(1_000_000));
+            }
+        }
+
+        exclusiveCount.incrementAndGet();
+        log.debug("Commit failed {} optimistic attempts, falling back to exclusive execution", maxOptimisticRetries + 1);
+        Lock lock = exclusiveLock.writeLock();
+        lock.lockInterruptibly();
+        try {
+            return executeExclusively(commit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply {@code commit} while holding the write lock. Only changes to the
+     * head state from outside this scheduler can cause retries at this point.
+     */
+    @NotNull
+    private SegmentNodeState executeExclusively(Commit commit) throws CommitFailedException, InterruptedException {
+        long start = System.nanoTime();
+        int count = 0;
+        for (long backoff = 1; backoff < MAXIMUM_BACKOFF; backoff *= 2) {
+            SegmentNodeState before = refreshHead();
+            SegmentNodeState after = commit.apply(before);
+            if (setHead(before, after, commit.info())) {
+                return after;
+            }
+
+            count++;
+            int randNs = ThreadLocalRandom.current().nextInt(1_000_000);
+            log.info("Scheduler detected concurrent commits. Retrying after {} ms and {} ns", backoff, randNs);
+            Thread.sleep(backoff, randNs);
+        }
+
+        long finish = System.nanoTime();
+
+        String message = MessageFormat.format(
+                "The commit could not be executed after {0} attempts. Total wait time: {1} ms",
+                count, NANOSECONDS.toMillis(finish - start));
+        throw new CommitFailedException("Segment", 3, message);
+    }
+
+    @Override
+    public String checkpoint(long lifetime, @NotNull Map<String, String> properties) {
+        checkArgument(lifetime > 0);
+        requireNonNull(properties);
+        String name = UUID.randomUUID().toString();
+        try {
+            Lock lock = exclusiveLock.writeLock();
+            if (lock.tryLock(checkpointsLockWaitTime, TimeUnit.SECONDS)) {
+                try {
+                    SegmentNodeState state = refreshHead();
+                    SegmentNodeState newState = Checkpoints.addCheckpoint(state, name, lifetime, properties);
+                    if (revisions.setHead(state.getRecordId(), newState.getRecordId())) {
+                        return name;
+                    }
+                } finally {
+                    // Explicitly give up reference to the previous root state
+                    // otherwise they would block cleanup. See OAK-3347
+                    refreshHead();
+                    lock.unlock();
+                }
+            }
+            log.warn("Failed to create checkpoint {} in {} seconds.", name, checkpointsLockWaitTime);
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+            log.error("Failed to create checkpoint {}.", name, e);
+        } catch (Exception e) {
+            log.error("Failed to create checkpoint {}.", name, e);
+        }
+        return name;
+    }
+
+    @Override
+    public boolean removeCheckpoint(String name) {
+        requireNonNull(name);
+
+        // try 5 times
+        for (int i = 0; i < 5; i++) {
+            Lock lock = exclusiveLock.writeLock();
+            if (lock.tryLock()) {
+                try {
+                    SegmentNodeState state = refreshHead();
+                    SegmentNodeState newState = Checkpoints.removeCheckpoint(state, name);
+                    if (newState != null
+                            && revisions.setHead(state.getRecordId(), newState.getRecordId())) {
+                        return true;
+                    }
+                } finally {
+                    refreshHead();
+                    lock.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class ObservableOptimisticScheduler extends OptimisticScheduler implements Observable {
+        private final ChangeDispatcher changeDispatcher;
+
+        public ObservableOptimisticScheduler(OptimisticSchedulerBuilder builder) {
+            super(builder);
+            this.changeDispatcher = new ChangeDispatcher(head.getChildNode(ROOT));
+        }
+
+        @Override
+        protected void contentChanged(NodeState root, CommitInfo info) {
+            changeDispatcher.contentChanged(root, info);
+        }
+
+        @Override
+        public Closeable addObserver(Observer observer) {
+            return changeDispatcher.addObserver(observer);
+        }
+    }
+}
@@ -127,4 +127,15 @@ public interface SegmentArchiveManager {
      * @throws IOException
      */
     void backup(@NotNull String archiveName, @NotNull String backupArchiveName, @NotNull Set<UUID> recoveredEntries) throws IOException;
+
+    /**
+     * Release the resources held by this archive manager, for example the
+     * threads used to process the files of an archive concurrently. The
+     * archive manager might still be used afterwards, but without these
+     * resources.
+     *
+     * @throws IOException
+     */
+    default void close() throws IOException {
+    }
 }
@@ -73,6 +73,18 @@ public interface SegmentNodeStorePersistence {
      */
     ManifestFile getManifestFile() throws IOException;
 
+    /**
+     * Create the {@link GCJournalFile} used to record the progress of a
+     * compaction, so that an interrupted compaction can be resumed. Each record
+     * is a single line, as for the GC journal.
+     * @return object representing the compaction progress file or {@code null}
+     * if the persistence doesn't support resumable compaction
+     * @throws IOException
+     */
+    default GCJournalFile getCompactionProgressFile() throws IOException {
+        return null;
+    }
+
     /**
      * Acquire the lock on the repository. During the lock lifetime it shouldn't
      * be possible to acquire it again, either by a local or by a remote process.
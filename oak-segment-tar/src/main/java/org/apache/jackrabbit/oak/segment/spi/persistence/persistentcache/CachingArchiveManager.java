@@ -102,4 +102,9 @@ public class CachingArchiveManager implements SegmentArchiveManager {
             @NotNull Set<UUID> recoveredEntries) throws IOException {
         delegate.backup(archiveName, backupArchiveName, recoveredEntries);
     }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
 }
\ No newline at end of file
@@ -146,4 +146,13 @@ public class SplitSegmentArchiveManager implements SegmentArchiveManager {
             rwArchiveManager.backup(archiveName, backupArchiveName, recoveredEntries);
         }
     }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            roArchiveManager.close();
+        } finally {
+            rwArchiveManager.close();
+        }
+    }
 }
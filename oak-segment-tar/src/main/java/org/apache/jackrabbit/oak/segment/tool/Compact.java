@@ -86,6 +86,8 @@ public class Compact {
 
         private int concurrency = 1;
 
+        private boolean resumable;
+
         private Builder() {
             // Prevent external instantiation.
         }
@@ -199,6 +201,20 @@ public class Compact {
             return this;
         }
 
+        /**
+         * Whether the progress of the compaction should be saved, so that an
+         * interrupted run can be resumed from the already compacted subtrees.
+         * This only applies to the "parallel" compactor with a concurrency
+         * greater than 1.
+         *
+         * @param resumable {@code true} to enable resumable compaction
+         * @return this builder
+         */
+        public Builder withResumableCompaction(boolean resumable) {
+            this.resumable = resumable;
+            return this;
+        }
+
         /**
          * Create an executable version of the {@link Compact} command.
          *
@@ -297,6 +313,8 @@ public class Compact {
 
     private final int concurrency;
 
+    private final boolean resumable;
+
     private Compact(Builder builder) {
         this.path = builder.path;
         this.journal = new File(builder.path, "journal.log");
@@ -307,6 +325,7 @@ public class Compact {
         this.gcType = builder.gcType;
         this.compactorType = builder.compactorType;
         this.concurrency = builder.concurrency;
+        this.resumable = builder.resumable;
     }
 
     public int run() {
@@ -373,7 +392,8 @@ public class Compact {
                 .setOffline()
                 .setGCLogInterval(gcLogInterval)
                 .setCompactorType(compactorType)
-                .setConcurrency(concurrency));
+                .setConcurrency(concurrency)
+                .setResumableCompaction(resumable));
         if (fileAccessMode.memoryMapped != null) {
             builder.withMemoryMapping(fileAccessMode.memoryMapped);
         }
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment;
+
+import static org.apache.jackrabbit.oak.segment.SegmentCache.newOffHeapSegmentCache;
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapSegmentCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    @Test
+    public void cachesSegmentDataOffHeap() throws Exception {
+        MemoryStore store = new MemoryStore();
+        SegmentNodeState head = store.getReader().readHeadState(store.getRevisions());
+        SegmentId id = head.getRecordId().getSegmentId();
+        Segment segment = store.readSegment(id);
+
+        SegmentCache cache = newOffHeapSegmentCache(1, store.getSegmentIdProvider());
+        AbstractCacheStats stats = cache.getCacheStats();
+
+        Segment cached = cache.getSegment(id, () -> segment);
+        assertNotSame(segment, cached);
+        assertEquals(toBytes(segment).length, toBytes(cached).length);
+        assertTrue(Arrays.equals(toBytes(segment), toBytes(cached)));
+        assertEquals(1, stats.getElementCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(segment.size(), stats.estimateCurrentWeight());
+
+        // served from the off heap buffer without calling the loader
+        Segment hit = cache.getSegment(id, () -> failToLoad(id));
+        assertTrue(Arrays.equals(toBytes(segment), toBytes(hit)));
+        assertEquals(1, stats.getHitCount());
+
+        // without parsing the segment again
+        assertSame(cached, hit);
+        assertSame(hit, cache.getSegment(id, () -> failToLoad(id)));
+
+        cache.clear();
+        assertEquals(0, stats.getElementCount());
+        assertEquals(0, stats.estimateCurrentWeight());
+        assertEquals(1, stats.getEvictionCount());
+    }
+
+    @Test
+    public void hitsAreRecordedInBatches() throws Exception {
+        MemoryStore store = new MemoryStore();
+        SegmentNodeState head = store.getReader().readHeadState(store.getRevisions());
+        SegmentId id = head.getRecordId().getSegmentId();
+        Segment segment = store.readSegment(id);
+
+        List<SegmentId> accesses = new ArrayList<>();
+        SegmentCache cache = newOffHeapSegmentCache(1024 * 1024, store.getSegmentIdProvider(),
+                new RecordingPolicy(SegmentCachePolicy.lru(1024 * 1024), accesses));
+        cache.getSegment(id, () -> segment);
+
+        // buffered until the buffer of this thread is full
+        for (int i = 1; i < SegmentCache.ReadBuffer.STRIPE_SIZE; i++) {
+            cache.getSegment(id, () -> failToLoad(id));
+        }
+        assertEquals(0, accesses.size());
+        cache.getSegment(id, () -> failToLoad(id));
+        assertEquals(SegmentCache.ReadBuffer.STRIPE_SIZE, accesses.size());
+
+        // and before adding a segment
+        accesses.clear();
+        for (int i = 0; i < 3; i++) {
+            cache.getSegment(id, () -> failToLoad(id));
+        }
+        assertEquals(0, accesses.size());
+        cache.putSegment(segment);
+        assertEquals(3, accesses.size());
+        assertEquals(SegmentCache.ReadBuffer.STRIPE_SIZE + 3, cache.getCacheStats().getHitCount());
+    }
+
+    @Test
+    public void fileStoreWithOffHeapSegmentCache() throws Exception {
+        File directory = folder.newFolder();
+        try (FileStore store = newFileStore(directory)) {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(store).build();
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            for (int i = 0; i < 1000; i++) {
+                builder.child("node-" + i).setProperty("p", "value-" + i);
+            }
+            merge(nodeStore, builder);
+            store.flush();
+        }
+
+        try (FileStore store = newFileStore(directory)) {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(store).build();
+            NodeState root = nodeStore.getRoot();
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("value-" + i, root.getChildNode("node-" + i).getString("p"));
+            }
+            AbstractCacheStats stats = (AbstractCacheStats) store.getSegmentCacheStats();
+            assertTrue(stats.getMissCount() > 0);
+            assertTrue(stats.getElementCount() > 0);
+            assertTrue(stats.estimateCurrentWeight() <= stats.getMaxTotalWeight());
+        }
+    }
+
+    private static FileStore newFileStore(File directory) throws InvalidFileStoreVersionException, IOException {
+        return fileStoreBuilder(directory)
+                .withMemoryMapping(false)
+                .withSegmentCacheSize(8)
+                .withSegmentCacheOffHeap(true)
+                .build();
+    }
+
+    private static void merge(SegmentNodeStore nodeStore, NodeBuilder builder) throws CommitFailedException {
+        nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+    }
+
+    private static byte[] toBytes(Segment segment) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        segment.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static class RecordingPolicy implements SegmentCachePolicy<SegmentId> {
+
+        private final SegmentCachePolicy<SegmentId> delegate;
+
+        private final List<SegmentId> accesses;
+
+        RecordingPolicy(SegmentCachePolicy<SegmentId> delegate, List<SegmentId> accesses) {
+            this.delegate = delegate;
+            this.accesses = accesses;
+        }
+
+        @Override
+        public void recordAccess(@NotNull SegmentId key) {
+            accesses.add(key);
+            delegate.recordAccess(key);
+        }
+
+        @NotNull
+        @Override
+        public List<SegmentId> add(@NotNull SegmentId key, long weight) {
+            return delegate.add(key, weight);
+        }
+
+        @Override
+        public void remove(@NotNull SegmentId key) {
+            delegate.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public long weight() {
+            return delegate.weight();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+    }
+
+    private static Segment failToLoad(SegmentId id) {
+        fail("Cache should not need to load " + id);
+        return null;
+    }
+
+}
@@ -34,6 +34,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -123,6 +124,17 @@ public class RecordTest {
             assertEquals(offset, expected.length);
             assertEquals(-1, stream.read());
         }
+
+        ByteBuffer buffer = ByteBuffer.allocate(349);
+        int n = actual.read(skip, buffer);
+        if (skip >= expected.length) {
+            assertEquals(-1, n);
+        } else {
+            assertEquals(min(buffer.capacity(), expected.length - skip), n);
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[skip + i], buffer.get(i));
+            }
+        }
     }
 
     @Test
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SegmentCachePolicyTest {
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        SegmentCachePolicy<String> policy = SegmentCachePolicy.lru(3);
+        assertEquals(emptyList(), policy.add("a", 1));
+        assertEquals(emptyList(), policy.add("b", 1));
+        assertEquals(emptyList(), policy.add("c", 1));
+        policy.recordAccess("a");
+        assertEquals(singletonList("b"), policy.add("d", 1));
+        assertEquals(3, policy.weight());
+        assertEquals(3, policy.size());
+    }
+
+    @Test
+    public void lruRejectsOversizedEntry() {
+        SegmentCachePolicy<String> policy = SegmentCachePolicy.lru(3);
+        assertEquals(singletonList("a"), policy.add("a", 4));
+        assertEquals(0, policy.weight());
+    }
+
+    @Test
+    public void tinyLfuRejectsOversizedEntry() {
+        SegmentCachePolicy<String> policy = SegmentCachePolicy.windowTinyLfu(100, 10);
+        assertEquals(singletonList("a"), policy.add("a", 101));
+        assertEquals(0, policy.weight());
+    }
+
+    @Test
+    public void tinyLfuStaysWithinWeight() {
+        SegmentCachePolicy<Integer> policy = SegmentCachePolicy.windowTinyLfu(1000, 100);
+        Set<Integer> retained = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            retained.add(i);
+            retained.removeAll(policy.add(i, 1 + i % 20));
+            assertTrue(policy.weight() <= 1000);
+        }
+        assertEquals(retained.size(), policy.size());
+        policy.clear();
+        assertEquals(0, policy.weight());
+        assertEquals(0, policy.size());
+    }
+
+    @Test
+    public void tinyLfuIsScanResistant() {
+        SegmentCachePolicy<Integer> policy = SegmentCachePolicy.windowTinyLfu(100, 100);
+        Set<Integer> retained = new HashSet<>();
+
+        // a hot working set accessed repeatedly
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (retained.contains(i)) {
+                    policy.recordAccess(i);
+                } else {
+                    retained.add(i);
+                    retained.removeAll(policy.add(i, 1));
+                }
+            }
+        }
+
+        // a scan over keys never accessed again
+        for (int i = 1000; i < 2000; i++) {
+            retained.add(i);
+            retained.removeAll(policy.add(i, 1));
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (retained.contains(i)) {
+                hot++;
+            }
+        }
+        assertTrue("Expected most of the hot keys to survive the scan, got " + hot, hot >= 45);
+
+        // an LRU policy loses the whole working set
+        SegmentCachePolicy<Integer> lru = SegmentCachePolicy.lru(100);
+        retained.clear();
+        for (int i = 0; i < 50; i++) {
+            retained.add(i);
+            retained.removeAll(lru.add(i, 1));
+        }
+        for (int i = 1000; i < 2000; i++) {
+            List<Integer> evicted = lru.add(i, 1);
+            retained.removeAll(evicted);
+        }
+        assertTrue(retained.stream().noneMatch(i -> i < 50));
+    }
+
+}
@@ -20,7 +20,11 @@ package org.apache.jackrabbit.oak.segment;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
 import org.jetbrains.annotations.NotNull;
@@ -46,6 +50,77 @@ public class SegmentIdTableBenchmark {
         test();
         test();
         test();
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+            contention(threads, 32);
+            contention(threads, SegmentTracker.DEFAULT_TABLE_COUNT);
+        }
+    }
+
+    /**
+     * Measures the throughput of {@link SegmentTracker#newSegmentId(long, long)}
+     * with {@code threadCount} threads concurrently looking up a shared set
+     * of segment ids, while every 16th call interns a new id.
+     */
+    private static void contention(int threadCount, int tableCount) throws IOException {
+        int count = 100000;
+        int repeat = 20;
+        MemoryStore store = new MemoryStore();
+        final SegmentTracker tracker = new SegmentTracker(newSegmentIdMaker(store), tableCount);
+
+        final long[] msbs = new long[count];
+        final long[] lsbs = new long[count];
+        Random r = new Random(1);
+        List<SegmentId> live = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            msbs[i] = r.nextLong();
+            lsbs[i] = r.nextLong();
+            live.add(tracker.newSegmentId(msbs[i], lsbs[i]));
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong operations = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final Random random = new Random(t);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long ops = 0;
+                for (int i = 0; i < repeat; i++) {
+                    for (int j = 0; j < count; j++) {
+                        if ((j & 15) == 0) {
+                            tracker.newSegmentId(random.nextLong(), random.nextLong());
+                        } else {
+                            tracker.newSegmentId(msbs[j], lsbs[j]);
+                        }
+                        ops++;
+                    }
+                }
+                operations.addAndGet(ops);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        time = System.nanoTime() - time;
+        System.out.println("SegmentTracker threads: " + threadCount
+                + " tables: " + tableCount
+                + " ops/ms: " + operations.get() * 1000000 / time
+                + " (" + live.size() + " live ids)");
     }
 
     private static void test() throws IOException {
@@ -32,6 +32,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -216,4 +217,42 @@ public class SegmentIdTableTest {
         }
         assertEquals(2, tbl.getMapRebuildCount());
     }
+
+    @Test
+    public void concurrentLookups() throws Exception {
+        final SegmentIdFactory maker = newSegmentIdMaker();
+        final SegmentIdTable tbl = new SegmentIdTable();
+        int threadCount = 8;
+        final int count = 4 * 1024;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<List<SegmentId>>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(new Callable<List<SegmentId>>() {
+
+                    @Override
+                    public List<SegmentId> call() {
+                        List<SegmentId> ids = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            // modulo 256 to ensure we have conflicts
+                            ids.add(tbl.newSegmentId(i, i % 256, maker));
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            List<SegmentId> first = futures.get(0).get(30, TimeUnit.SECONDS);
+            for (Future<List<SegmentId>> f : futures) {
+                List<SegmentId> ids = f.get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < count; i++) {
+                    assertTrue(first.get(i) == ids.get(i));
+                }
+            }
+            assertEquals(count, tbl.getEntryCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.file;
+
+import static org.apache.jackrabbit.oak.segment.CompactorTestUtils.addTestContent;
+import static org.apache.jackrabbit.oak.segment.DefaultSegmentWriterBuilder.defaultSegmentWriterBuilder;
+import static org.apache.jackrabbit.oak.segment.compaction.SegmentGCOptions.defaultGCOptions;
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.jackrabbit.oak.segment.ClassicCompactor;
+import org.apache.jackrabbit.oak.segment.ParallelCompactor;
+import org.apache.jackrabbit.oak.segment.SegmentBufferWriterPool;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.SegmentWriterFactory;
+import org.apache.jackrabbit.oak.segment.file.cancel.Canceller;
+import org.apache.jackrabbit.oak.segment.file.tar.GCGeneration;
+import org.apache.jackrabbit.oak.spi.gc.GCMonitor;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompactionProgressTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private FileStore fileStore;
+
+    private SegmentNodeStore nodeStore;
+
+    private GCGeneration targetGeneration;
+
+    private CompactionWriter writer;
+
+    private GCNodeWriteMonitor compactionMonitor;
+
+    private LocalGCJournalFile progressFile;
+
+    @Before
+    public void setup() throws Exception {
+        fileStore = fileStoreBuilder(folder.newFolder("store")).build();
+        nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+
+        GCGeneration baseGeneration = fileStore.getHead().getGcGeneration();
+        targetGeneration = baseGeneration.nextFull();
+        GCIncrement increment = new GCIncrement(baseGeneration, baseGeneration.nextPartial(), targetGeneration);
+        SegmentWriterFactory writerFactory = generation -> defaultSegmentWriterBuilder("c")
+                .withGeneration(generation)
+                .withWriterPool(SegmentBufferWriterPool.PoolType.THREAD_SPECIFIC)
+                .build(fileStore);
+        writer = new CompactionWriter(fileStore.getReader(), fileStore.getBlobStore(), increment, writerFactory);
+        compactionMonitor = new GCNodeWriteMonitor(-1, GCMonitor.EMPTY);
+        progressFile = new LocalGCJournalFile(folder.getRoot(), "compaction.log");
+    }
+
+    @After
+    public void tearDown() {
+        fileStore.close();
+    }
+
+    private CompactionProgress openProgress(GCGeneration target) throws Exception {
+        return CompactionProgress.open(progressFile, fileStore.getReader(), fileStore.getSegmentIdProvider(),
+                writer, () -> {
+                    writer.flush();
+                    fileStore.flush();
+                }, target, 0);
+    }
+
+    private NodeState getNode(String name) {
+        return fileStore.getHead().getChildNode("root").getChildNode(name);
+    }
+
+    private CompactedNodeState compactAndRecord(CompactionProgress progress, NodeState node) throws Exception {
+        CompactedNodeState compacted = new ClassicCompactor(writer, compactionMonitor)
+                .compactUp(node, Canceller.newCanceller());
+        assertNotNull(compacted);
+        progress.completed(node, compacted);
+        return compacted;
+    }
+
+    @Test
+    public void resume() throws Exception {
+        addTestContent("a", nodeStore, 42);
+        addTestContent("b", nodeStore, 42);
+
+        CompactedNodeState compacted = compactAndRecord(openProgress(targetGeneration), getNode("a"));
+
+        CompactionProgress resumed = openProgress(targetGeneration);
+        assertEquals(1, resumed.getResumedCount());
+        CompactedNodeState resumedState = resumed.getCompactedState(getNode("a"));
+        assertNotNull(resumedState);
+        assertTrue(resumedState.isComplete());
+        assertEquals(compacted.getRecordId(), resumedState.getRecordId());
+        assertNull(resumed.getCompactedState(getNode("b")));
+    }
+
+    @Test
+    public void resetForOtherGeneration() throws Exception {
+        addTestContent("a", nodeStore, 42);
+        compactAndRecord(openProgress(targetGeneration), getNode("a"));
+
+        assertEquals(0, openProgress(targetGeneration.nextFull()).getResumedCount());
+        assertEquals(0, openProgress(targetGeneration).getResumedCount());
+    }
+
+    @Test
+    public void clear() throws Exception {
+        addTestContent("a", nodeStore, 42);
+        CompactionProgress progress = openProgress(targetGeneration);
+        compactAndRecord(progress, getNode("a"));
+        progress.clear();
+
+        assertTrue(progressFile.readLines().isEmpty());
+        assertEquals(0, openProgress(targetGeneration).getResumedCount());
+    }
+
+    @Test
+    public void parallelCompactorReusesRecordedSubtrees() throws Exception {
+        addTestContent("a", nodeStore, 42);
+        addTestContent("b", nodeStore, 42);
+        CompactedNodeState compactedA = compactAndRecord(openProgress(targetGeneration), getNode("a"));
+
+        ParallelCompactor compactor = new ParallelCompactor(GCMonitor.EMPTY, writer, compactionMonitor, 2,
+                openProgress(targetGeneration));
+        CompactedNodeState compacted = compactor.compactUp(fileStore.getHead(), Canceller.newCanceller());
+        assertNotNull(compacted);
+        assertTrue(compacted.isComplete());
+
+        NodeState root = compacted.getChildNode("root");
+        assertEquals(compactedA.getRecordId(), ((SegmentNodeState) root.getChildNode("a")).getRecordId());
+        assertEquals(getNode("b"), root.getChildNode("b"));
+    }
+
+    @Test
+    public void fullCompactionClearsProgress() throws Exception {
+        File directory = folder.newFolder("resumable");
+        try (FileStore store = fileStoreBuilder(directory)
+                .withGCOptions(defaultGCOptions()
+                        .setEstimationDisabled(true)
+                        .setResumableCompaction(true)
+                        .setConcurrency(2))
+                .build()) {
+            addTestContent("a", SegmentNodeStoreBuilders.builder(store).build(), 42);
+            assertTrue(store.compactFull());
+        }
+        assertTrue(new LocalGCJournalFile(directory, "compaction.log").readLines().isEmpty());
+    }
+}
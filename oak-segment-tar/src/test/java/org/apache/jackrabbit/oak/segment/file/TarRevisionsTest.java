@@ -22,6 +22,7 @@ package org.apache.jackrabbit.oak.segment.file;
 import static org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -34,6 +35,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.apache.jackrabbit.guava.common.base.Functions;
@@ -232,4 +234,115 @@ public class TarRevisionsTest {
         }
     }
 
+    @Test
+    public void awaitPersistedWithoutGroupCommit() throws IOException {
+        RecordId headId = revisions.getHead();
+        SegmentNodeState newRoot = addChild(reader.readNode(headId), "a");
+        assertTrue(revisions.setHead(headId, newRoot.getRecordId()));
+        revisions.awaitPersisted();
+        assertEquals(headId, revisions.getPersistedHead());
+    }
+
+    @Test
+    public void awaitPersistedWithGroupCommit() throws IOException {
+        revisions.setGroupCommit(store::flush, 0, MILLISECONDS);
+        RecordId headId = revisions.getHead();
+        SegmentNodeState newRoot = addChild(reader.readNode(headId), "a");
+        assertTrue(revisions.setHead(headId, newRoot.getRecordId()));
+        revisions.awaitPersisted();
+        assertEquals(newRoot.getRecordId(), revisions.getPersistedHead());
+
+        try (JournalReader reader = createJournalReader()) {
+            assertTrue(reader.hasNext());
+            assertEquals(newRoot.getRecordId().toString10(), reader.next().getRevision());
+        }
+    }
+
+    @Test
+    public void awaitPersistedServedByConcurrentFlush() throws Exception {
+        AtomicInteger groupFlushes = new AtomicInteger();
+        revisions.setGroupCommit(groupFlushes::incrementAndGet, 1, MINUTES);
+        RecordId headId = revisions.getHead();
+        SegmentNodeState newRoot = addChild(reader.readNode(headId), "a");
+        assertTrue(revisions.setHead(headId, newRoot.getRecordId()));
+
+        Thread waiter = new Thread(() -> {
+            try {
+                revisions.awaitPersisted();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+
+        // an explicit flush is not delayed by the waiting commit
+        revisions.flush(store::flush);
+        waiter.join(10000);
+        assertFalse(waiter.isAlive());
+        assertEquals(0, groupFlushes.get());
+        assertEquals(newRoot.getRecordId(), revisions.getPersistedHead());
+    }
+
+    @Test
+    public void concurrentFlushesAreCoalesced() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordId headId = revisions.getHead();
+        SegmentNodeState rootA = addChild(reader.readNode(headId), "a");
+        assertTrue(revisions.setHead(headId, rootA.getRecordId()));
+
+        // Hold the journal lock while two more head updates take place
+        Thread leader = new Thread(() -> {
+            try {
+                revisions.flush(() -> {
+                    flushing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        leader.start();
+        flushing.await();
+
+        SegmentNodeState rootB = addChild(rootA, "b");
+        assertTrue(revisions.setHead(rootA.getRecordId(), rootB.getRecordId()));
+        SegmentNodeState rootC = addChild(rootB, "c");
+        assertTrue(revisions.setHead(rootB.getRecordId(), rootC.getRecordId()));
+
+        AtomicInteger flushes = new AtomicInteger();
+        Thread[] followers = new Thread[2];
+        for (int i = 0; i < followers.length; i++) {
+            followers[i] = new Thread(() -> {
+                try {
+                    revisions.flush(flushes::incrementAndGet);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            followers[i].start();
+        }
+        for (Thread follower : followers) {
+            while (follower.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+
+        release.countDown();
+        leader.join();
+        for (Thread follower : followers) {
+            follower.join();
+        }
+
+        assertEquals(1, flushes.get());
+        assertEquals(rootC.getRecordId(), revisions.getPersistedHead());
+    }
+
 }
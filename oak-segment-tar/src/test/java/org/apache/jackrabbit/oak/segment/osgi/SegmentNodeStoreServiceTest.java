@@ -45,6 +45,10 @@ public class SegmentNodeStoreServiceTest {
             .withIntegerType()
             .withValue("256")
             .check());
+        assertTrue(cd.hasProperty("segmentCache.offHeap")
+            .withBooleanType()
+            .withValue("false")
+            .check());
         assertTrue(cd.hasProperty("stringCache.size")
             .withIntegerType()
             .withValue("256")
@@ -163,6 +167,10 @@ public class SegmentNodeStoreServiceTest {
             .withIntegerType()
             .withDefaultValue("256")
             .check());
+        assertTrue(ocd.hasAttributeDefinition("segmentCache.offHeap")
+            .withBooleanType()
+            .withDefaultValue("false")
+            .check());
         assertTrue(ocd.hasAttributeDefinition("stringCache.size")
             .withIntegerType()
             .withDefaultValue("256")
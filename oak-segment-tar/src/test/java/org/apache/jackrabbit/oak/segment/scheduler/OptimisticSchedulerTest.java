@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.segment.scheduler;
+
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.segment.RecordId;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreStats;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitHook;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.stats.StatisticsProvider;
+import org.junit.Test;
+
+public class OptimisticSchedulerTest {
+
+    private static OptimisticScheduler newScheduler(MemoryStore ms, int maxOptimisticRetries) {
+        SegmentNodeStoreStats stats = new SegmentNodeStoreStats(StatisticsProvider.NOOP);
+        return OptimisticScheduler.builder(ms.getRevisions(), ms.getReader(), stats)
+                .withMaxOptimisticRetries(maxOptimisticRetries)
+                .build();
+    }
+
+    private NodeState getRoot(Scheduler scheduler) {
+        return scheduler.getHeadNodeState().getChildNode("root");
+    }
+
+    @Test
+    public void concurrentCommitsAreAllApplied() throws Exception {
+        MemoryStore ms = new MemoryStore();
+        OptimisticScheduler scheduler = newScheduler(ms, 5);
+
+        int commitCount = 200;
+        ExecutorService executorService = newFixedThreadPool(8);
+        try {
+            List<Future<PropertyState>> results = new ArrayList<>();
+            for (int i = 0; i < commitCount; i++) {
+                String property = "prop" + i;
+                results.add(executorService.submit(() -> {
+                    Commit commit = createCommit(scheduler, property, "value", EmptyHook.INSTANCE);
+                    SegmentNodeState result = (SegmentNodeState) scheduler.schedule(commit);
+                    return result.getProperty(property);
+                }));
+            }
+            for (Future<PropertyState> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            new ExecutorCloser(executorService).close();
+        }
+
+        NodeState root = getRoot(scheduler);
+        for (int i = 0; i < commitCount; i++) {
+            assertTrue(root.hasProperty("prop" + i));
+        }
+    }
+
+    @Test
+    public void hooksRunConcurrently() throws Exception {
+        MemoryStore ms = new MemoryStore();
+        OptimisticScheduler scheduler = newScheduler(ms, 5);
+
+        // both commits can only complete if their hooks run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        CommitHook hook = newAwaitingHook(latch);
+
+        ExecutorService executorService = newFixedThreadPool(2);
+        try {
+            Future<NodeState> a = executorService.submit(
+                    () -> scheduler.schedule(createCommit(scheduler, "a", "a", hook)));
+            Future<NodeState> b = executorService.submit(
+                    () -> scheduler.schedule(createCommit(scheduler, "b", "b", hook)));
+            assertTrue(a.get().hasProperty("a"));
+            assertTrue(b.get().hasProperty("b"));
+        } finally {
+            new ExecutorCloser(executorService).close();
+        }
+
+        NodeState root = getRoot(scheduler);
+        assertTrue(root.hasProperty("a"));
+        assertTrue(root.hasProperty("b"));
+        assertEquals(1, scheduler.getConflictCount());
+    }
+
+    @Test
+    public void fallbackToExclusiveExecution() throws Exception {
+        MemoryStore ms = new MemoryStore();
+        OptimisticScheduler scheduler = newScheduler(ms, 0);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        CommitHook hook = newAwaitingHook(latch);
+
+        ExecutorService executorService = newFixedThreadPool(2);
+        try {
+            Future<NodeState> a = executorService.submit(
+                    () -> scheduler.schedule(createCommit(scheduler, "a", "a", hook)));
+            Future<NodeState> b = executorService.submit(
+                    () -> scheduler.schedule(createCommit(scheduler, "b", "b", hook)));
+            a.get();
+            b.get();
+        } finally {
+            new ExecutorCloser(executorService).close();
+        }
+
+        NodeState root = getRoot(scheduler);
+        assertTrue(root.hasProperty("a"));
+        assertTrue(root.hasProperty("b"));
+        assertEquals(1, scheduler.getExclusiveCount());
+    }
+
+    /**
+     * Same as {@code LockBasedSchedulerTest#testSimulatedRaceOnRevisions}:
+     * the head state in {@code Revisions} is changed from outside the
+     * scheduler, which must not cause commits to get lost.
+     */
+    @Test
+    public void testSimulatedRaceOnRevisions() throws Exception {
+        final MemoryStore ms = new MemoryStore();
+        final OptimisticScheduler scheduler = newScheduler(ms, 5);
+
+        final RecordId initialHead = ms.getRevisions().getHead();
+        ExecutorService executorService = newFixedThreadPool(10);
+        final AtomicInteger count = new AtomicInteger();
+        final Random rand = new Random();
+
+        try {
+            Callable<PropertyState> commitTask = () -> {
+                String property = "prop" + count.incrementAndGet();
+                Commit commit = createCommit(scheduler, property, "value", EmptyHook.INSTANCE);
+                SegmentNodeState result = (SegmentNodeState) scheduler.schedule(commit);
+                return result.getProperty(property);
+            };
+
+            Callable<Void> parallelTask = () -> {
+                Thread.sleep(rand.nextInt(10));
+                ms.getRevisions().setHead(ms.getRevisions().getHead(), initialHead);
+                return null;
+            };
+
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executorService.submit(commitTask));
+                executorService.submit(parallelTask);
+            }
+
+            for (Future<?> result : results) {
+                assertNotNull(
+                        "PropertyState must not be null! The corresponding commit got lost because of a race condition.",
+                        result.get());
+            }
+        } finally {
+            new ExecutorCloser(executorService).close();
+        }
+    }
+
+    @Test
+    public void checkpoints() throws Exception {
+        MemoryStore ms = new MemoryStore();
+        OptimisticScheduler scheduler = newScheduler(ms, 5);
+
+        String cp = scheduler.checkpoint(60000, emptyMap());
+        assertTrue(scheduler.getHeadNodeState().getChildNode("checkpoints").hasChildNode(cp));
+        assertTrue(scheduler.removeCheckpoint(cp));
+        assertFalse(scheduler.getHeadNodeState().getChildNode("checkpoints").hasChildNode(cp));
+    }
+
+    /**
+     * @return a commit hook blocking until {@code latch} reached zero
+     */
+    private static CommitHook newAwaitingHook(CountDownLatch latch) {
+        return (before, after, info) -> {
+            latch.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommitFailedException("Test", 1, "Interrupted", e);
+            }
+            return after;
+        };
+    }
+
+    private Commit createCommit(Scheduler scheduler, String property, String value, CommitHook hook) {
+        NodeBuilder a = getRoot(scheduler).builder();
+        a.setProperty(property, value);
+        return new Commit(a, hook, CommitInfo.EMPTY);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.jackrabbit.oak.plugins.document.util.BatchingAsyncDocumentStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Optional extension of a {@link DocumentStore} with non-blocking variants of
+ * the most frequently used operations. The returned futures complete with the
+ * same values the corresponding {@link DocumentStore} methods return, or
+ * exceptionally with the exception they throw.
+ * <p>
+ * Implementations are free to combine operations issued concurrently into a
+ * single round trip to the backend, e.g. point reads into one query for
+ * multiple keys or independent updates into one bulk update. Updates of the
+ * same document are applied in the order in which they were issued. A read
+ * is only guaranteed to reflect an update when it is issued after the future
+ * of the update completed.
+ * An {@link UpdateOp} passed to this interface must not be modified until
+ * the returned future is completed.
+ * <p>
+ * A {@link DocumentStore} that does not implement this interface can be
+ * adapted with {@link BatchingAsyncDocumentStore}.
+ */
+public interface AsyncDocumentStore {
+
+    /**
+     * Asynchronous variant of {@link DocumentStore#find(Collection, String)}.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param key the key
+     * @return a future completing with the document, or {@code null} if not found
+     */
+    @NotNull
+    <T extends Document> CompletableFuture<T> findAsync(Collection<T> collection,
+                                                        String key);
+
+    /**
+     * Asynchronous variant of
+     * {@link DocumentStore#query(Collection, String, String, int)}.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param fromKey the start value (excluding)
+     * @param toKey the end value (excluding)
+     * @param limit the maximum number of entries to return
+     * @return a future completing with the list of documents (possibly empty)
+     */
+    @NotNull
+    <T extends Document> CompletableFuture<List<T>> queryAsync(Collection<T> collection,
+                                                               String fromKey,
+                                                               String toKey,
+                                                               int limit);
+
+    /**
+     * Asynchronous variant of
+     * {@link DocumentStore#createOrUpdate(Collection, UpdateOp)}.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param update the update operation (where conditions are not allowed)
+     * @return a future completing with the old document or {@code null}
+     * @throws IllegalArgumentException when the {@linkplain UpdateOp} is
+     *          conditional
+     */
+    @NotNull
+    <T extends Document> CompletableFuture<T> createOrUpdateAsync(Collection<T> collection,
+                                                                  UpdateOp update)
+            throws IllegalArgumentException;
+
+    /**
+     * Asynchronous variant of
+     * {@link DocumentStore#findAndUpdate(Collection, UpdateOp)}.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param update the update operation with the condition
+     * @return a future completing with the old document or {@code null} if
+     *          the condition is not met or if the document wasn't found
+     */
+    @NotNull
+    <T extends Document> CompletableFuture<T> findAndUpdateAsync(Collection<T> collection,
+                                                                 UpdateOp update);
+}
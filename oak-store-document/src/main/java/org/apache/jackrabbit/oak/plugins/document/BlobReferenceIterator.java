@@ -38,12 +38,28 @@ public class BlobReferenceIterator extends AbstractIterator<ReferencedBlob> impl
     private final DocumentStore documentStore;
     private final BlobCollector blobCollector;
     private final Queue<ReferencedBlob> blobs = new ArrayDeque<>();
+    private final String fromId;
+    private final String toId;
 
     private Iterator<NodeDocument> iterator;
 
     public BlobReferenceIterator(DocumentNodeStore nodeStore) {
+        this(nodeStore, NodeDocument.MIN_ID_VALUE, NodeDocument.MAX_ID_VALUE);
+    }
+
+    /**
+     * Creates an iterator over the binaries referenced by documents with an
+     * id in the range from {@code fromId} to {@code toId} (both exclusive).
+     *
+     * @param nodeStore the node store.
+     * @param fromId the lower bound of the document ids.
+     * @param toId the upper bound of the document ids.
+     */
+    public BlobReferenceIterator(DocumentNodeStore nodeStore, String fromId, String toId) {
         this.documentStore = nodeStore.getDocumentStore();
         this.blobCollector = new BlobCollector(nodeStore);
+        this.fromId = fromId;
+        this.toId = toId;
     }
 
     @Override
@@ -75,13 +91,37 @@ public class BlobReferenceIterator extends AbstractIterator<ReferencedBlob> impl
         blobCollector.collect(nodeDocument, blobs);
     }
 
+    /**
+     * @return the lower bound of the document ids (exclusive).
+     */
+    protected String getFromId() {
+        return fromId;
+    }
+
+    /**
+     * @return the upper bound of the document ids (exclusive).
+     */
+    protected String getToId() {
+        return toId;
+    }
+
+    /**
+     * @return {@code true} if this iterator is restricted to a range of
+     *          document ids narrower than all documents.
+     */
+    protected boolean isRange() {
+        return !NodeDocument.MIN_ID_VALUE.equals(fromId) || !NodeDocument.MAX_ID_VALUE.equals(toId);
+    }
+
     /**
      * Override this document to use a document store specific iterator.
+     * Implementations must only return documents with an id in the range
+     * of {@link #getFromId()} and {@link #getToId()}.
      */
     public Iterator<NodeDocument> getIteratorOverDocsWithBinaries() {
         int batchSize = 1000;
-        return Utils.getSelectedDocuments(documentStore, NodeDocument.HAS_BINARY_FLAG, NodeDocument.HAS_BINARY_VAL, batchSize)
-                .iterator();
+        return Utils.getSelectedDocuments(documentStore, NodeDocument.HAS_BINARY_FLAG, NodeDocument.HAS_BINARY_VAL,
+                fromId, toId, batchSize).iterator();
     }
 
     @Override
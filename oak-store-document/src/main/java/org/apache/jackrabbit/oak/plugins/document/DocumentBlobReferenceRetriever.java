@@ -18,21 +18,38 @@
  */
 package org.apache.jackrabbit.oak.plugins.document;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.plugins.blob.BlobReferenceRetriever;
 import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
+import org.apache.jackrabbit.oak.plugins.blob.PartitionedBlobReferenceRetriever;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
 import org.apache.jackrabbit.oak.plugins.blob.ReferencedBlob;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of {@link BlobReferenceRetriever} for the DocumentNodeStore.
+ * <p>
+ * The partitions of this retriever are ranges of document ids. As the id of
+ * a document starts with the depth of its path, there is one partition per
+ * depth up to {@link #PARTITION_DEPTH} and the ranges in between cover the
+ * remaining ids.
  */
-public class DocumentBlobReferenceRetriever implements BlobReferenceRetriever {
+public class DocumentBlobReferenceRetriever implements PartitionedBlobReferenceRetriever {
+
+    /**
+     * The maximum depth with a separate partition.
+     */
+    static final int PARTITION_DEPTH = 32;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final DocumentNodeStore nodeStore;
 
@@ -42,10 +59,33 @@ public class DocumentBlobReferenceRetriever implements BlobReferenceRetriever {
 
     @Override
     public void collectReferences(ReferenceCollector collector) {
+        collectReferences(collector, nodeStore.getReferencedBlobsIterator());
+    }
+
+    @Override
+    public @NotNull Map<String, BlobReferenceRetriever> getPartitions() {
+        // "<depth>:" is never a document id and all ids with a given
+        // depth are greater than "<depth>:" and less than "<depth>;"
+        List<String> bounds = new ArrayList<>();
+        for (int depth = 0; depth <= PARTITION_DEPTH; depth++) {
+            bounds.add(depth + ":");
+        }
+        bounds.sort(null);
+        bounds.add(0, NodeDocument.MIN_ID_VALUE);
+        bounds.add(NodeDocument.MAX_ID_VALUE);
+        Map<String, BlobReferenceRetriever> partitions = new LinkedHashMap<>();
+        for (int i = 1; i < bounds.size(); i++) {
+            String fromId = bounds.get(i - 1);
+            String toId = bounds.get(i);
+            partitions.put("(" + fromId + ", " + toId + ")", collector -> collectReferences(
+                    collector, nodeStore.getReferencedBlobsIterator(fromId, toId)));
+        }
+        return partitions;
+    }
+
+    private void collectReferences(ReferenceCollector collector, Iterator<ReferencedBlob> blobIterator) {
         int referencesFound = 0;
-        Iterator<ReferencedBlob> blobIterator = null;
         try {
-            blobIterator = nodeStore.getReferencedBlobsIterator();
             while (blobIterator.hasNext()) {
                 ReferencedBlob refBlob = blobIterator.next();
                 Blob blob = refBlob.getBlob();
@@ -69,6 +69,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -99,6 +100,7 @@ import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingConfigHandler;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCache;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.DynamicBroadcastConfig;
+import org.apache.jackrabbit.oak.plugins.document.prefetch.AdaptivePrefetcher;
 import org.apache.jackrabbit.oak.plugins.document.prefetch.CacheWarming;
 import org.apache.jackrabbit.oak.plugins.document.util.LeaseCheckDocumentStoreWrapper;
 import org.apache.jackrabbit.oak.plugins.document.util.LoggingDocumentStoreWrapper;
@@ -228,6 +230,13 @@ public final class DocumentNodeStore
     public static final String SYS_PROP_PREFETCH = "oak.documentstore.prefetch";
     private final boolean prefetchEnabled = SystemPropertySupplier.create(SYS_PROP_PREFETCH, false).loggingTo(LOG).get();
 
+    /**
+     * Enables the {@link AdaptivePrefetcher} when set to {@code true}. It can
+     * also be enabled with {@link DocumentNodeStoreBuilder#setAdaptivePrefetch(boolean)}.
+     */
+    public static final String SYS_PROP_ADAPTIVE_PREFETCH = "oak.documentstore.adaptivePrefetch";
+    private final boolean adaptivePrefetchEnabled = SystemPropertySupplier.create(SYS_PROP_ADAPTIVE_PREFETCH, false).loggingTo(LOG).get();
+
     /**
      * The document store without potentially lease checking wrapper.
      */
@@ -509,6 +518,8 @@ public final class DocumentNodeStore
     private final JournalGarbageCollector journalGarbageCollector;
 
     private final Iterable<ReferencedBlob> referencedBlobs;
+
+    private final BiFunction<String, String, Iterable<ReferencedBlob>> referencedBlobsInRange;
     
     private final Executor executor;
 
@@ -574,6 +585,9 @@ public final class DocumentNodeStore
 
     private CacheWarming cacheWarming;
 
+    @Nullable
+    private final AdaptivePrefetcher adaptivePrefetcher;
+
     public DocumentNodeStore(DocumentNodeStoreBuilder<?> builder) {
         this.nodeCachePredicate = builder.getNodeCachePathPredicate();
         this.updateLimit = builder.getUpdateLimit();
@@ -649,6 +663,8 @@ public final class DocumentNodeStore
         this.cancelInvalidationFeature = builder.getCancelInvalidationFeature();
         this.noChildOrderCleanupFeature = builder.getNoChildOrderCleanupFeature();
         this.cacheWarming = new CacheWarming(s);
+        this.adaptivePrefetcher = adaptivePrefetchEnabled || builder.isAdaptivePrefetch()
+                ? new AdaptivePrefetcher(s, nodeStoreStatsCollector) : null;
 
         this.journalPropertyHandlerFactory = builder.getJournalPropertyHandlerFactory();
         this.store = s;
@@ -666,6 +682,8 @@ public final class DocumentNodeStore
                 this, builder.getJournalGCMaxAge());
         this.referencedBlobs =
                 builder.createReferencedBlobs(this);
+        this.referencedBlobsInRange =
+                (fromId, toId) -> builder.createReferencedBlobs(this, fromId, toId);
         this.lastRevRecoveryAgent = new LastRevRecoveryAgent(store, this,
                 lastRevSeeker, clusterId -> this.signalClusterStateChange());
         this.disableBranches = builder.isDisableBranches();
@@ -1647,6 +1665,9 @@ public final class DocumentNodeStore
         final long start = PERFLOG.start();
         String id = Utils.getIdFromPath(path);
         Revision lastRevision = getPendingModifications().get(path);
+        if (adaptivePrefetcher != null) {
+            adaptivePrefetcher.beforeRead(path);
+        }
         NodeDocument doc = store.find(Collection.NODES, id);
         if (doc == null) {
             PERFLOG.end(start, 1,
@@ -3965,6 +3986,21 @@ public final class DocumentNodeStore
         return referencedBlobs.iterator();
     }
 
+    /**
+     * Returns an iterator for the blobs referenced by documents with an id
+     * in the range from {@code fromId} to {@code toId} (both exclusive).
+     *
+     * <p>In some cases the iterator might implement {@link java.io.Closeable}. So
+     * callers should check for such iterator and close them.
+     *
+     * @param fromId the lower bound of the document ids.
+     * @param toId the upper bound of the document ids.
+     * @return an iterator for the blobs in the range
+     */
+    public Iterator<ReferencedBlob> getReferencedBlobsIterator(String fromId, String toId) {
+        return referencedBlobsInRange.apply(fromId, toId).iterator();
+    }
+
     public DiffCache getDiffCache() {
         return diffCache;
     }
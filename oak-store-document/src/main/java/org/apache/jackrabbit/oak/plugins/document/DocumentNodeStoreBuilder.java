@@ -131,6 +131,7 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
     private LeaseCheckMode leaseCheck = ClusterNodeInfo.DEFAULT_LEASE_CHECK_MODE; // OAK-2739 is enabled by default also for non-osgi
     private boolean isReadOnlyMode = false;
     private Feature prefetchFeature;
+    private boolean adaptivePrefetch;
     private Feature docStoreThrottlingFeature;
     private Feature noChildOrderCleanupFeature;
     private Feature cancelInvalidationFeature;
@@ -406,6 +407,23 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return prefetchFeature;
     }
 
+    /**
+     * Enables the adaptive prefetch of node documents. When enabled, the
+     * node store detects sequential reads of children and descendants and
+     * loads the documents likely read next with a range query.
+     *
+     * @param adaptivePrefetch whether adaptive prefetch is enabled.
+     * @return this
+     */
+    public T setAdaptivePrefetch(boolean adaptivePrefetch) {
+        this.adaptivePrefetch = adaptivePrefetch;
+        return thisBuilder();
+    }
+
+    public boolean isAdaptivePrefetch() {
+        return adaptivePrefetch;
+    }
+
     public T setDocStoreThrottlingFeature(@Nullable Feature docStoreThrottling) {
         this.docStoreThrottlingFeature = docStoreThrottling;
         return thisBuilder();
@@ -894,6 +912,12 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return () -> new BlobReferenceIterator(ns);
     }
 
+    public Iterable<ReferencedBlob> createReferencedBlobs(final DocumentNodeStore ns,
+                                                          final String fromId,
+                                                          final String toId) {
+        return () -> new BlobReferenceIterator(ns, fromId, toId);
+    }
+
     public MissingLastRevSeeker createMissingLastRevSeeker() {
         return new MissingLastRevSeeker(getDocumentStore(), getClock());
     }
@@ -65,6 +65,10 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     static final String BRANCH_COMMIT_COUNT = "DOCUMENT_NS_BRANCH_COMMIT_COUNT";
     static final String MERGE_BRANCH_COMMIT_COUNT = "DOCUMENT_NS_MERGE_BRANCH_COMMIT_COUNT";
 
+    static final String PREFETCH_LOADED = "DOCUMENT_NS_PREFETCH_LOADED";
+    static final String PREFETCH_HIT = "DOCUMENT_NS_PREFETCH_HIT";
+    static final String PREFETCH_WASTED = "DOCUMENT_NS_PREFETCH_WASTED";
+
     // background read
     private final TimerStats readHead;
     private final TimerStats readCacheInvalidate;
@@ -107,6 +111,11 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private final MeterStats branchCommitRate;
     private final MeterStats mergeBranchCommitRate;
 
+    // prefetch stats
+    private final MeterStats prefetchLoaded;
+    private final MeterStats prefetchHit;
+    private final MeterStats prefetchWasted;
+
 
     public DocumentNodeStoreStats(StatisticsProvider sp) {
         readHead = sp.getTimer(BGR_READ_HEAD, StatsOptions.METRICS_ONLY);
@@ -145,6 +154,10 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
         branchCommitRate = sp.getMeter(BRANCH_COMMIT_COUNT, StatsOptions.DEFAULT);
         mergeBranchCommitRate = sp.getMeter(MERGE_BRANCH_COMMIT_COUNT, StatsOptions.DEFAULT);
+
+        prefetchLoaded = sp.getMeter(PREFETCH_LOADED, StatsOptions.METRICS_ONLY);
+        prefetchHit = sp.getMeter(PREFETCH_HIT, StatsOptions.METRICS_ONLY);
+        prefetchWasted = sp.getMeter(PREFETCH_WASTED, StatsOptions.METRICS_ONLY);
     }
 
     @Override
@@ -245,4 +258,19 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     public void doneChangesApplied(long timeMicros) {
         mergeChangesApplied.update(timeMicros, TimeUnit.MICROSECONDS);
     }
+
+    @Override
+    public void donePrefetch(int numDocuments) {
+        prefetchLoaded.mark(numDocuments);
+    }
+
+    @Override
+    public void prefetchHit() {
+        prefetchHit.mark();
+    }
+
+    @Override
+    public void prefetchWasted(long numDocuments) {
+        prefetchWasted.mark(numDocuments);
+    }
 }
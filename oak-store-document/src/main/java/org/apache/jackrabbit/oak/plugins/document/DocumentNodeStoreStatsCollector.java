@@ -114,4 +114,25 @@ public interface DocumentNodeStoreStatsCollector {
      * @param timeMicros the time in microseconds.
      */
     void doneChangesApplied(long timeMicros);
+
+    /**
+     * Reports to the collector that the given number of documents were
+     * loaded into the cache by a predictive prefetch.
+     *
+     * @param numDocuments the number of prefetched documents.
+     */
+    void donePrefetch(int numDocuments);
+
+    /**
+     * Reports to the collector that a prefetched document was read.
+     */
+    void prefetchHit();
+
+    /**
+     * Reports to the collector that prefetched documents were not read
+     * while they were tracked.
+     *
+     * @param numDocuments the number of wasted prefetched documents.
+     */
+    void prefetchWasted(long numDocuments);
 }
@@ -30,6 +30,7 @@ import static org.apache.jackrabbit.oak.plugins.document.util.Utils.resolveCommi
 import static org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
 import static org.apache.jackrabbit.oak.plugins.document.UpdateOp.Operation;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -2504,6 +2505,32 @@ public final class NodeDocument extends Document {
         return doc;
     }
     
+    /**
+     * Serializes this document with the compact binary format of
+     * {@link NodeDocumentCodec}.
+     *
+     * @return the serialized document.
+     */
+    public byte[] asBytes() {
+        return NodeDocumentCodec.encode(this);
+    }
+
+    /**
+     * Reads a document serialized with {@link #asBytes()} from the current
+     * position of the buffer. The returned document is sealed.
+     *
+     * @param store the document store.
+     * @param buffer the buffer.
+     * @return the document.
+     * @throws IllegalArgumentException if the buffer does not contain a valid
+     *          serialized document.
+     */
+    public static NodeDocument fromBytes(DocumentStore store, ByteBuffer buffer) {
+        NodeDocument doc = NodeDocumentCodec.decode(buffer, new NodeDocument(store));
+        doc.seal();
+        return doc;
+    }
+
     private static Object fromJson(JsopTokenizer json) {
         switch (json.read()) {
         case JsopReader.NULL:
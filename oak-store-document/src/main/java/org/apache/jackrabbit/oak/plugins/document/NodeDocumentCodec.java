@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.NotNull;
+
+import static org.apache.jackrabbit.oak.plugins.document.StableRevisionComparator.REVERSE;
+
+/**
+ * A compact binary serialization of documents. It is an alternative to the
+ * JSON serialization of {@link NodeDocument#asString()} and supports the
+ * same value types: {@code null}, {@link Boolean}, {@link Long} (and
+ * {@link Integer}, which is read back as {@link Long}), {@link Double},
+ * {@link String} and maps with {@link Revision} keys.
+ * <p>
+ * The format is:
+ * <pre>
+ * document  := MAGIC version revisions fields
+ * revisions := varint(count) revision*
+ * revision  := zigzag(timestamp - previous timestamp) varint(counter)
+ *              varint(clusterId) byte(branch)
+ * fields    := varint(count) (string(key) value)*
+ * value     := NULL | FALSE | TRUE | LONG zigzag | DOUBLE long
+ *              | STRING string | MAP varint(count) (varint(revision) value)*
+ * string    := varint(length) utf8-bytes
+ * </pre>
+ * All revisions used as map keys are stored once in a dictionary and
+ * referenced by their index. The first byte of an encoded document is
+ * {@link #MAGIC}, which is neither a valid first byte of a UTF-8 encoded
+ * JSON string nor of a GZIP stream. This allows readers to detect the format.
+ */
+public final class NodeDocumentCodec {
+
+    /**
+     * The first byte of an encoded document.
+     */
+    public static final byte MAGIC = (byte) 0xB1;
+
+    /**
+     * The current version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte MAP = 6;
+
+    private NodeDocumentCodec() {
+    }
+
+    /**
+     * @param data the serialized data.
+     * @return {@code true} if the data starts with {@link #MAGIC}.
+     */
+    public static boolean isEncoded(@NotNull byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    /**
+     * Encodes all entries of the given document.
+     *
+     * @param doc the document.
+     * @return the encoded document.
+     * @throws IllegalArgumentException if the document contains a value that
+     *          cannot be encoded.
+     */
+    @NotNull
+    public static byte[] encode(@NotNull Document doc) {
+        return encode(doc, Collections.emptySet());
+    }
+
+    /**
+     * Encodes the entries of the given document, except for those with the
+     * given keys.
+     *
+     * @param doc the document.
+     * @param excluded the keys of entries to exclude.
+     * @return the encoded document.
+     * @throws IllegalArgumentException if the document contains a value that
+     *          cannot be encoded.
+     */
+    @NotNull
+    public static byte[] encode(@NotNull Document doc, @NotNull Set<String> excluded) {
+        Map<Revision, Integer> revisions = new LinkedHashMap<>();
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<String, Object> e : doc.entrySet()) {
+            if (!excluded.contains(e.getKey())) {
+                entries.add(e);
+                collectRevisions(e.getValue(), revisions);
+            }
+        }
+        Writer w = new Writer();
+        w.put(MAGIC);
+        w.put(VERSION);
+        w.putVarInt(revisions.size());
+        long previous = 0;
+        for (Revision r : revisions.keySet()) {
+            w.putVarLong(zigzag(r.getTimestamp() - previous));
+            w.putVarInt(r.getCounter());
+            w.putVarInt(r.getClusterId());
+            w.put(r.isBranch() ? TRUE : FALSE);
+            previous = r.getTimestamp();
+        }
+        w.putVarInt(entries.size());
+        for (Map.Entry<String, Object> e : entries) {
+            w.putString(e.getKey());
+            writeValue(w, e.getValue(), revisions);
+        }
+        return w.toByteArray();
+    }
+
+    /**
+     * Decodes the entries of an encoded document into the given document.
+     *
+     * @param data the encoded document.
+     * @param doc the document to decode into.
+     * @return the document passed to this method.
+     * @throws IllegalArgumentException if the data is not a valid encoded
+     *          document.
+     */
+    @NotNull
+    public static <T extends Document> T decode(@NotNull byte[] data, @NotNull T doc) {
+        return decode(ByteBuffer.wrap(data), doc);
+    }
+
+    /**
+     * Decodes the entries of an encoded document into the given document.
+     * The position of the buffer is advanced to the end of the encoded
+     * document.
+     *
+     * @param buffer the buffer with the encoded document.
+     * @param doc the document to decode into.
+     * @return the document passed to this method.
+     * @throws IllegalArgumentException if the data is not a valid encoded
+     *          document.
+     */
+    @NotNull
+    public static <T extends Document> T decode(@NotNull ByteBuffer buffer, @NotNull T doc) {
+        try {
+            byte magic = buffer.get();
+            if (magic != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded document (first byte " + magic + ")");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported document format version " + version);
+            }
+            Revision[] revisions = new Revision[readVarInt(buffer)];
+            long timestamp = 0;
+            for (int i = 0; i < revisions.length; i++) {
+                timestamp += unzigzag(readVarLong(buffer));
+                int counter = readVarInt(buffer);
+                int clusterId = readVarInt(buffer);
+                boolean branch = buffer.get() == TRUE;
+                revisions[i] = new Revision(timestamp, counter, clusterId, branch);
+            }
+            int numEntries = readVarInt(buffer);
+            for (int i = 0; i < numEntries; i++) {
+                String key = readString(buffer);
+                doc.put(key, readValue(buffer, revisions));
+            }
+            return doc;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or corrupt document", e);
+        }
+    }
+
+    //-----------------------------< internal >---------------------------------
+
+    private static void collectRevisions(Object value, Map<Revision, Integer> revisions) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                Object k = e.getKey();
+                if (!(k instanceof Revision)) {
+                    throw new IllegalArgumentException("Unsupported map key: " + k);
+                }
+                revisions.putIfAbsent((Revision) k, revisions.size());
+                collectRevisions(e.getValue(), revisions);
+            }
+        }
+    }
+
+    private static void writeValue(Writer w, Object value, Map<Revision, Integer> revisions) {
+        if (value == null) {
+            w.put(NULL);
+        } else if (value instanceof Boolean) {
+            w.put((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Long || value instanceof Integer) {
+            w.put(LONG);
+            w.putVarLong(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Double) {
+            w.put(DOUBLE);
+            w.putLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof String || value instanceof Revision) {
+            w.put(STRING);
+            w.putString(value.toString());
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            w.put(MAP);
+            w.putVarInt(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                w.putVarInt(revisions.get(e.getKey()));
+                writeValue(w, e.getValue(), revisions);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass());
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer, Revision[] revisions) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case LONG:
+                return unzigzag(readVarLong(buffer));
+            case DOUBLE:
+                return Double.longBitsToDouble(buffer.getLong());
+            case STRING:
+                return readString(buffer);
+            case MAP:
+                int size = readVarInt(buffer);
+                TreeMap<Revision, Object> map = new TreeMap<>(REVERSE);
+                for (int i = 0; i < size; i++) {
+                    Revision r = revisions[readVarInt(buffer)];
+                    map.put(r, readValue(buffer, revisions));
+                }
+                return map;
+            default:
+                throw new IllegalArgumentException("Unknown value type: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = readVarInt(buffer);
+        String s;
+        if (buffer.hasArray()) {
+            int pos = buffer.position();
+            s = new String(buffer.array(), buffer.arrayOffset() + pos, len, StandardCharsets.UTF_8);
+            buffer.position(pos + len);
+        } else {
+            byte[] bytes = new byte[len];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        long v = readVarLong(buffer);
+        if (v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid varint: " + v);
+        }
+        return (int) v;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varlong");
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * A minimal growable byte buffer.
+     */
+    private static final class Writer {
+
+        private byte[] buffer = new byte[256];
+
+        private int pos;
+
+        void put(byte b) {
+            ensureCapacity(1);
+            buffer[pos++] = b;
+        }
+
+        void putLong(long v) {
+            ensureCapacity(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                buffer[pos++] = (byte) (v >>> i);
+            }
+        }
+
+        void putVarInt(int v) {
+            putVarLong(v & 0xffffffffL);
+        }
+
+        void putVarLong(long v) {
+            ensureCapacity(10);
+            while ((v & ~0x7fL) != 0) {
+                buffer[pos++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            buffer[pos++] = (byte) v;
+        }
+
+        void putString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, pos);
+        }
+
+        private void ensureCapacity(int len) {
+            if (pos + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, pos + len));
+            }
+        }
+    }
+}
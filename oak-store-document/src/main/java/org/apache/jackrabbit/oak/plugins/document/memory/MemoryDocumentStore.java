@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.locks.Lock;
@@ -35,6 +36,7 @@ import org.apache.jackrabbit.guava.common.base.Splitter;
 import org.apache.jackrabbit.guava.common.collect.Maps;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.commons.properties.SystemPropertySupplier;
+import org.apache.jackrabbit.oak.plugins.document.AsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
@@ -46,6 +48,7 @@ import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
 import org.apache.jackrabbit.oak.plugins.document.UpdateUtils;
 import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
+import org.apache.jackrabbit.oak.plugins.document.util.BatchingAsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -57,7 +60,7 @@ import com.mongodb.WriteConcern;
  * Emulates a MongoDB store (possibly consisting of multiple shards and
  * replicas).
  */
-public class MemoryDocumentStore implements DocumentStore {
+public class MemoryDocumentStore implements DocumentStore, AsyncDocumentStore {
 
     /**
      * The 'nodes' collection.
@@ -95,6 +98,8 @@ public class MemoryDocumentStore implements DocumentStore {
 
     private final boolean maintainModCount;
 
+    private final BatchingAsyncDocumentStore asyncStore = new BatchingAsyncDocumentStore(this);
+
     private static final Key KEY_MODIFIED = new Key(MODIFIED_IN_SECS, null);
 
     private static final long SIZE_LIMIT = SystemPropertySupplier.create("memoryds.size.limit", -1).get();
@@ -392,7 +397,36 @@ public class MemoryDocumentStore implements DocumentStore {
 
     @Override
     public void dispose() {
-        // ignore
+        asyncStore.close();
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAsync(Collection<T> collection, String key) {
+        return asyncStore.findAsync(collection, key);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<List<T>> queryAsync(Collection<T> collection,
+                                                                      String fromKey,
+                                                                      String toKey,
+                                                                      int limit) {
+        return asyncStore.queryAsync(collection, fromKey, toKey, limit);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> createOrUpdateAsync(Collection<T> collection,
+                                                                         UpdateOp update) {
+        return asyncStore.createOrUpdateAsync(collection, update);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAndUpdateAsync(Collection<T> collection,
+                                                                        UpdateOp update) {
+        return asyncStore.findAndUpdateAsync(collection, update);
     }
 
     @Override
@@ -25,6 +25,7 @@ import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
 import java.util.Iterator;
 
 import org.apache.jackrabbit.oak.plugins.document.BlobReferenceIterator;
+import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
 import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterator;
@@ -45,9 +46,22 @@ public class MongoBlobReferenceIterator extends BlobReferenceIterator {
         this.documentStore = documentStore;
     }
 
+    public MongoBlobReferenceIterator(DocumentNodeStore nodeStore,
+                                      MongoDocumentStore documentStore,
+                                      String fromId,
+                                      String toId) {
+        super(nodeStore, fromId, toId);
+        this.documentStore = documentStore;
+    }
+
     @Override
     public Iterator<NodeDocument> getIteratorOverDocsWithBinaries() {
         Bson query = Filters.eq(NodeDocument.HAS_BINARY_FLAG, NodeDocument.HAS_BINARY_VAL);
+        if (isRange()) {
+            query = Filters.and(query,
+                    Filters.gt(Document.ID, getFromId()),
+                    Filters.lt(Document.ID, getToId()));
+        }
         // TODO It currently uses the configured read preference. Would that be Ok?
         MongoCursor<BasicDBObject> cursor = documentStore.getDBCollection(NODES)
                 .find(query).iterator();
@@ -188,6 +188,16 @@ public abstract class MongoDocumentNodeStoreBuilderBase<T extends MongoDocumentN
         }
     }
 
+    @Override
+    public Iterable<ReferencedBlob> createReferencedBlobs(DocumentNodeStore ns, String fromId, String toId) {
+        final DocumentStore store = getDocumentStore();
+        if (store instanceof MongoDocumentStore) {
+            return () -> new MongoBlobReferenceIterator(ns, (MongoDocumentStore) store, fromId, toId);
+        } else {
+            return super.createReferencedBlobs(ns, fromId, toId);
+        }
+    }
+
     @Override
     public MissingLastRevSeeker createMissingLastRevSeeker() {
         final DocumentStore store = getDocumentStore();
@@ -33,6 +33,7 @@ import java.util.TreeMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -62,6 +63,7 @@ import org.apache.jackrabbit.guava.common.util.concurrent.UncheckedExecutionExce
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.cache.CacheValue;
 import org.apache.jackrabbit.oak.commons.collections.CollectionUtils;
+import org.apache.jackrabbit.oak.plugins.document.AsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
@@ -83,6 +85,7 @@ import org.apache.jackrabbit.oak.plugins.document.cache.ModificationStamp;
 import org.apache.jackrabbit.oak.plugins.document.cache.NodeDocumentCache;
 import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.locks.StripedNodeDocumentLocks;
+import org.apache.jackrabbit.oak.plugins.document.util.BatchingAsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.Clock;
 import org.apache.jackrabbit.oak.commons.PerfLogger;
@@ -144,7 +147,7 @@ import static org.apache.jackrabbit.oak.plugins.document.util.Utils.isThrottling
 /**
  * A document store that uses MongoDB as the backend.
  */
-public class MongoDocumentStore implements DocumentStore {
+public class MongoDocumentStore implements DocumentStore, AsyncDocumentStore {
 
     private static final Logger LOG = LoggerFactory.getLogger(MongoDocumentStore.class);
     private static final PerfLogger PERFLOG = new PerfLogger(
@@ -282,6 +285,15 @@ public class MongoDocumentStore implements DocumentStore {
     private final int minPrefetch =
             Integer.getInteger("oak.mongo.minPrefetch", 5);
 
+    /**
+     * Executes the {@link AsyncDocumentStore} operations. Point reads of the
+     * nodes collection issued concurrently are coalesced into a single
+     * {@code $in} query.
+     */
+    private final BatchingAsyncDocumentStore asyncStore = new BatchingAsyncDocumentStore(
+            this, this::readDocuments, BatchingAsyncDocumentStore.DEFAULT_THREADS,
+            BatchingAsyncDocumentStore.DEFAULT_BATCH_SIZE);
+
     /**
      * Feature flag for use of MongoDB client sessions.
      */
@@ -1744,10 +1756,16 @@ public class MongoDocumentStore implements DocumentStore {
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <T extends Document> void prefetch(Collection<T> collection,
                                               Iterable<String> keysToPrefetch) {
+        prefetch(collection, keysToPrefetch, minPrefetch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Document> void prefetch(Collection<T> collection,
+                                               Iterable<String> keysToPrefetch,
+                                               int minPrefetch) {
         log("prefetch", keysToPrefetch);
 
         Set<String> keys = new HashSet<>();
@@ -2026,6 +2044,7 @@ public class MongoDocumentStore implements DocumentStore {
 
     @Override
     public void dispose() {
+        asyncStore.close();
         connection.close();
         if (clusterNodesConnection != connection) {
             clusterNodesConnection.close();
@@ -2047,6 +2066,56 @@ public class MongoDocumentStore implements DocumentStore {
         return nodesCache.getCacheStats();
     }
 
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAsync(Collection<T> collection, String key) {
+        return asyncStore.findAsync(collection, key);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<List<T>> queryAsync(Collection<T> collection,
+                                                                      String fromKey,
+                                                                      String toKey,
+                                                                      int limit) {
+        return asyncStore.queryAsync(collection, fromKey, toKey, limit);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> createOrUpdateAsync(Collection<T> collection,
+                                                                         UpdateOp update) {
+        return asyncStore.createOrUpdateAsync(collection, update);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAndUpdateAsync(Collection<T> collection,
+                                                                        UpdateOp update) {
+        return asyncStore.findAndUpdateAsync(collection, update);
+    }
+
+    /**
+     * Reads a batch of documents for the {@link #asyncStore}. Documents of the
+     * nodes collection missing in the cache are first loaded with a single
+     * query and then served from the cache.
+     */
+    @NotNull
+    private <T extends Document> Map<String, T> readDocuments(@NotNull Collection<T> collection,
+                                                              @NotNull Set<String> keys) {
+        if (collection == Collection.NODES && keys.size() > 1) {
+            prefetch(collection, keys, 2);
+        }
+        Map<String, T> documents = new HashMap<>();
+        for (String key : keys) {
+            T doc = find(collection, key);
+            if (doc != null) {
+                documents.put(key, doc);
+            }
+        }
+        return documents;
+    }
+
     @Override
     public Map<String, String> getMetadata() {
         return metadata;
@@ -129,6 +129,39 @@ public class CacheMap<K, V> {
         }
     }
 
+    /**
+     * Apply a batch of changes. If supported by the underlying store, the
+     * changes are written at once.
+     *
+     * @param changes the changes, in order; a {@code null} value removes the
+     *            entry
+     */
+    @SuppressWarnings("unchecked")
+    public void apply(Map<K, V> changes) {
+        for (int i = 0;; i++) {
+            if (closed) {
+                return;
+            }
+            try {
+                Map<K, V> m = map;
+                if (m instanceof LogStore.LogMap) {
+                    ((LogStore.LogMap<K, V>) m).apply(changes);
+                } else {
+                    for (Map.Entry<K, V> e : changes.entrySet()) {
+                        if (e.getValue() == null) {
+                            m.remove(e.getKey());
+                        } else {
+                            m.put(e.getKey(), e.getValue());
+                        }
+                    }
+                }
+                return;
+            } catch (Exception e) {
+                reopen(i, e);
+            }
+        }
+    }
+
     public void clear() {
         for (int i = 0;; i++) {
             if (closed) {
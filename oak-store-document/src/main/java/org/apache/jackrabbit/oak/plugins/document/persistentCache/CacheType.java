@@ -220,8 +220,7 @@ public enum CacheType {
 
         @Override
         public <V> void writeValue(WriteBuffer buffer, V value) {
-            String s = ((NodeDocument) value).asString();
-            StringDataType.INSTANCE.write(buffer, s);
+            buffer.put(((NodeDocument) value).asBytes());
         }
 
         @SuppressWarnings("unchecked")
@@ -229,13 +228,19 @@ public enum CacheType {
         public <V> V readValue(DocumentNodeStore store,
                                DocumentStore docStore,
                                ByteBuffer buffer) {
-            return (V) NodeDocument.fromString(docStore, readString(buffer));
+            return (V) NodeDocument.fromBytes(docStore, buffer);
         }
 
         @Override
         public <K> boolean shouldCache(DocumentNodeStore store, K key) {
             return true;
         }
+
+        @Override
+        public String getMapName() {
+            // v2: binary format instead of JSON
+            return name() + "-v2";
+        }
     },
 
     LOCAL_DIFF {
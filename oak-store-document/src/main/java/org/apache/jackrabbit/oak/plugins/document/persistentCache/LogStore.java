@@ -0,0 +1,1091 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.ObjectDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only, memory mapped key-value store, used as an alternative to
+ * the H2 MVStore for one generation of the persistent cache.
+ * <p>
+ * Entries are appended to a data file, which is mapped in segments of a fixed
+ * size. A fixed size open addressing hash table, kept in a second memory
+ * mapped file, points to the most recent record of each key. The table is
+ * never resized: once it is filled up to its load factor, {@link #isFull()}
+ * returns {@code true} and the persistent cache switches to a new generation,
+ * the same way it does when the data file reaches the maximum size.
+ * <p>
+ * When the store is closed, the hash table is marked as consistent with the
+ * data file, and it is reused as is when the store is opened again. If the
+ * store was not closed properly, the hash table is rebuilt from the data
+ * file. Each record is protected by a checksum, and everything after the last
+ * valid record is discarded. A read-only store never writes to the hash table
+ * file; if it needs to be rebuilt, a temporary file is used instead.
+ * <p>
+ * Reads do not take a lock, and values are deserialized directly from the
+ * mapped data file. Writes are serialized. A batch of changes to a map, see
+ * {@link LogMap#apply(Map)}, is appended with a single copy into the data file
+ * while holding the lock once.
+ */
+final class LogStore {
+
+    static final Logger LOG = LoggerFactory.getLogger(LogStore.class);
+
+    /**
+     * The default size of a data file segment: 64 MB. A single entry must fit
+     * into a segment.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The average entry size in bytes assumed when sizing the hash table.
+     */
+    static final int AVERAGE_ENTRY_SIZE = 256;
+
+    private static final int MIN_CAPACITY_BITS = 10;
+
+    private static final int MAX_CAPACITY_BITS = 34;
+
+    private static final long DATA_MAGIC = 0x4f616b4c6f674461L;
+
+    private static final long INDEX_MAGIC = 0x4f616b4c6f67496eL;
+
+    private static final int VERSION = 1;
+
+    private static final int DATA_HEADER_SIZE = 16;
+
+    /**
+     * Index header layout: magic (8), version (4), capacity bits (4), end of
+     * the indexed data (8), clean flag (4), number of cleared maps (4), number
+     * of entries (8), followed by the table of cleared maps.
+     */
+    private static final int INDEX_HEADER_SIZE = 1024;
+
+    private static final int INDEX_DATA_END = 16;
+
+    private static final int INDEX_CLEAN = 24;
+
+    private static final int INDEX_MAP_COUNT = 28;
+
+    private static final int INDEX_ENTRY_COUNT = 32;
+
+    private static final int INDEX_MAPS = 64;
+
+    private static final int MAX_CLEARED_MAPS = (INDEX_HEADER_SIZE - INDEX_MAPS) / 16;
+
+    /**
+     * Record layout: length (4), checksum (4), map id (4), key length (4),
+     * type (1), followed by the key and the value.
+     */
+    private static final int RECORD_HEADER_SIZE = 17;
+
+    private static final int RECORD_CHECKSUM = 4;
+
+    private static final int RECORD_MAP_ID = 8;
+
+    private static final int RECORD_KEY_LENGTH = 12;
+
+    private static final int RECORD_TYPE = 16;
+
+    private static final byte TYPE_PUT = 1;
+
+    private static final byte TYPE_REMOVE = 2;
+
+    private static final byte TYPE_CLEAR = 3;
+
+    /**
+     * The length of the record that marks the rest of a segment as unused.
+     */
+    private static final int SKIP = -1;
+
+    /**
+     * A hash table slot contains the upper 24 bits of the key hash and the 40
+     * bit position of the record in the data file. Position 0 is never used
+     * by a record, so an empty slot is 0.
+     */
+    private static final int POSITION_BITS = 40;
+
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    private static final int SLOTS_PER_CHUNK_BITS = 27;
+
+    private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final ThreadLocal<WriteBuffer> KEY_BUFFER = ThreadLocal.withInitial(WriteBuffer::new);
+
+    private static final ThreadLocal<WriteBuffer> RECORD_BUFFER = ThreadLocal.withInitial(WriteBuffer::new);
+
+    private final File dataFile;
+
+    private final boolean readOnly;
+
+    private final RandomAccessFile data;
+
+    private final int segmentSize;
+
+    private volatile MappedByteBuffer[] segments;
+
+    private volatile long writePosition;
+
+    private final RandomAccessFile index;
+
+    private final File temporaryIndexFile;
+
+    private final MappedByteBuffer indexHeader;
+
+    private final MappedByteBuffer[] indexChunks;
+
+    private final long capacity;
+
+    private final long maxEntries;
+
+    private volatile long entryCount;
+
+    private final Map<Integer, Long> clearPositions = new ConcurrentHashMap<>();
+
+    private final Map<String, LogMap<?, ?>> maps = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Open or create a store.
+     *
+     * @param dataFile the data file
+     * @param indexFile the hash table file
+     * @param readOnly whether new entries may be written
+     * @param segmentSize the segment size, only used for a new data file
+     * @param capacityBits the binary logarithm of the hash table capacity,
+     *            only used if the hash table needs to be created
+     * @throws IOException if the files could not be opened
+     */
+    LogStore(File dataFile, File indexFile, boolean readOnly, int segmentSize, int capacityBits)
+            throws IOException {
+        this.dataFile = dataFile;
+        this.readOnly = readOnly;
+        boolean newData = !dataFile.exists() || dataFile.length() < DATA_HEADER_SIZE;
+        if (newData && readOnly) {
+            throw new IOException("Missing data file " + dataFile);
+        }
+        this.data = new RandomAccessFile(dataFile, readOnly ? "r" : "rw");
+        RandomAccessFile idx = null;
+        File tempIndexFile = null;
+        try {
+            if (!newData && !hasDataHeader()) {
+                if (readOnly) {
+                    throw new IOException("Not a persistent cache data file: " + dataFile);
+                }
+                LOG.warn("Discarding the corrupt persistent cache file {}", dataFile);
+                data.setLength(0);
+                newData = true;
+            }
+            if (newData) {
+                this.segmentSize = segmentSize;
+                data.setLength(segmentSize);
+            } else {
+                data.seek(8);
+                data.readInt();
+                this.segmentSize = data.readInt();
+                long length = data.length();
+                long segmentCount = (length + this.segmentSize - 1) / this.segmentSize;
+                if (!readOnly && length != segmentCount * this.segmentSize) {
+                    data.setLength(segmentCount * this.segmentSize);
+                }
+            }
+            this.segments = mapSegments();
+            if (newData) {
+                segments[0].putLong(0, DATA_MAGIC);
+                segments[0].putInt(8, VERSION);
+                segments[0].putInt(12, this.segmentSize);
+            }
+
+            boolean reuseIndex = false;
+            if (!newData && indexFile.exists()) {
+                idx = new RandomAccessFile(indexFile, readOnly ? "r" : "rw");
+                reuseIndex = isIndexValid(idx);
+            }
+            if (readOnly && !reuseIndex) {
+                if (idx != null) {
+                    idx.close();
+                }
+                // the hash table file is left alone, as it may be in use
+                tempIndexFile = File.createTempFile(indexFile.getName(), ".tmp",
+                        indexFile.getAbsoluteFile().getParentFile());
+                idx = new RandomAccessFile(tempIndexFile, "rw");
+            } else if (idx == null) {
+                idx = new RandomAccessFile(indexFile, "rw");
+            }
+            if (!reuseIndex) {
+                idx.setLength(0);
+                idx.setLength(INDEX_HEADER_SIZE + (8L << capacityBits));
+            } else {
+                idx.seek(12);
+                capacityBits = idx.readInt();
+            }
+            this.index = idx;
+            this.temporaryIndexFile = tempIndexFile;
+            this.capacity = 1L << capacityBits;
+            this.maxEntries = capacity / 4 * 3;
+            MapMode indexMode = readOnly && reuseIndex ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+            this.indexHeader = map(idx, indexMode, 0, INDEX_HEADER_SIZE);
+            this.indexChunks = mapIndexChunks(indexMode);
+
+            long start = DATA_HEADER_SIZE;
+            if (reuseIndex) {
+                start = indexHeader.getLong(INDEX_DATA_END);
+                entryCount = indexHeader.getLong(INDEX_ENTRY_COUNT);
+                int mapCount = indexHeader.getInt(INDEX_MAP_COUNT);
+                for (int i = 0; i < mapCount; i++) {
+                    clearPositions.put(indexHeader.getInt(INDEX_MAPS + i * 16),
+                            indexHeader.getLong(INDEX_MAPS + i * 16 + 8));
+                }
+            } else {
+                indexHeader.putLong(0, INDEX_MAGIC);
+                indexHeader.putInt(8, VERSION);
+                indexHeader.putInt(12, capacityBits);
+                if (!newData) {
+                    LOG.info("Rebuilding the index of the persistent cache file {}", dataFile);
+                }
+            }
+            if (readOnly && reuseIndex) {
+                // a clean index covers all records
+                writePosition = start;
+            } else {
+                writePosition = scan(start);
+            }
+            if (!readOnly) {
+                if (!reuseIndex && !newData) {
+                    discardAfter(writePosition);
+                }
+                indexHeader.putInt(INDEX_CLEAN, 0);
+                indexHeader.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeFiles(data, idx, tempIndexFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the binary logarithm of the hash table capacity for a store with
+     * the given maximum size.
+     *
+     * @param maxSize the maximum size of the data file, in bytes
+     * @return the capacity bits
+     */
+    static int getCapacityBits(long maxSize) {
+        long slots = maxSize / AVERAGE_ENTRY_SIZE / 3 * 4 + 1;
+        int bits = 64 - Long.numberOfLeadingZeros(slots - 1);
+        return Math.max(MIN_CAPACITY_BITS, Math.min(MAX_CAPACITY_BITS, bits));
+    }
+
+    /**
+     * Open or get the given map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param name the map name
+     * @param keyType the key type, or {@code null} to use the default type
+     * @param valueType the value type, or {@code null} to use the default type
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    <K, V> Map<K, V> openMap(String name, DataType<K> keyType, DataType<V> valueType) {
+        LogMap<?, ?> map = maps.computeIfAbsent(name, n -> {
+            int mapId = n.hashCode();
+            for (LogMap<?, ?> m : maps.values()) {
+                if (m.mapId == mapId) {
+                    throw new IllegalArgumentException("Map " + n + " collides with map " + m.name);
+                }
+            }
+            return new LogMap<>(n, mapId,
+                    keyType == null ? (DataType<K>) new ObjectDataType() : keyType,
+                    valueType == null ? (DataType<V>) new ObjectDataType() : valueType);
+        });
+        return (Map<K, V>) map;
+    }
+
+    /**
+     * Get the size of the data written so far, in bytes.
+     *
+     * @return the size
+     */
+    long getFileSize() {
+        return writePosition;
+    }
+
+    /**
+     * Whether the hash table is full or the data file reached the maximum
+     * addressable size. New entries are not stored anymore in this case.
+     *
+     * @return whether the store is full
+     */
+    boolean isFull() {
+        return entryCount >= maxEntries || writePosition + segmentSize > POSITION_MASK;
+    }
+
+    synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!readOnly) {
+                for (MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+                for (MappedByteBuffer chunk : indexChunks) {
+                    chunk.force();
+                }
+                if (clearPositions.size() <= MAX_CLEARED_MAPS) {
+                    int i = 0;
+                    for (Map.Entry<Integer, Long> e : clearPositions.entrySet()) {
+                        indexHeader.putInt(INDEX_MAPS + i * 16, e.getKey());
+                        indexHeader.putLong(INDEX_MAPS + i * 16 + 8, e.getValue());
+                        i++;
+                    }
+                    indexHeader.putInt(INDEX_MAP_COUNT, i);
+                    indexHeader.putLong(INDEX_DATA_END, writePosition);
+                    indexHeader.putLong(INDEX_ENTRY_COUNT, entryCount);
+                    indexHeader.putInt(INDEX_CLEAN, 1);
+                }
+                indexHeader.force();
+            }
+        } finally {
+            closeFiles(data, index, temporaryIndexFile);
+        }
+    }
+
+    private static void closeFiles(RandomAccessFile data, RandomAccessFile index, File temporaryIndexFile)
+            throws IOException {
+        try {
+            data.close();
+        } finally {
+            try {
+                if (index != null) {
+                    index.close();
+                }
+            } finally {
+                if (temporaryIndexFile != null && !temporaryIndexFile.delete()) {
+                    LOG.warn("Could not delete the temporary index file {}", temporaryIndexFile);
+                }
+            }
+        }
+    }
+
+    //------------------------------------------------------------< opening >
+
+    private boolean hasDataHeader() throws IOException {
+        data.seek(0);
+        if (data.readLong() != DATA_MAGIC || data.readInt() != VERSION) {
+            return false;
+        }
+        return data.readInt() > DATA_HEADER_SIZE + RECORD_HEADER_SIZE;
+    }
+
+    private boolean isIndexValid(RandomAccessFile index) throws IOException {
+        if (index.length() < INDEX_HEADER_SIZE) {
+            return false;
+        }
+        index.seek(0);
+        if (index.readLong() != INDEX_MAGIC || index.readInt() != VERSION) {
+            return false;
+        }
+        int bits = index.readInt();
+        long dataEnd = index.readLong();
+        int clean = index.readInt();
+        return clean == 1 && bits >= MIN_CAPACITY_BITS && bits <= MAX_CAPACITY_BITS
+                && index.length() == INDEX_HEADER_SIZE + (8L << bits)
+                && dataEnd >= DATA_HEADER_SIZE && dataEnd <= data.length();
+    }
+
+    private MappedByteBuffer[] mapSegments() throws IOException {
+        int count = (int) (data.length() / segmentSize);
+        MappedByteBuffer[] list = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            list[i] = map(data, readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE,
+                    (long) i * segmentSize, segmentSize);
+        }
+        return list;
+    }
+
+    private MappedByteBuffer[] mapIndexChunks(MapMode mode) throws IOException {
+        long slotsPerChunk = Math.min(capacity, 1L << SLOTS_PER_CHUNK_BITS);
+        MappedByteBuffer[] list = new MappedByteBuffer[(int) (capacity / slotsPerChunk)];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = map(index, mode, INDEX_HEADER_SIZE + i * slotsPerChunk * 8, slotsPerChunk * 8);
+        }
+        return list;
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file, MapMode mode, long position, long size)
+            throws IOException {
+        // mapping is an interruptible operation, which would close the channel
+        boolean interrupted = Thread.interrupted();
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.map(mode, position, size);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Read the records starting at the given position and add them to the
+     * hash table.
+     *
+     * @param start the position of the first record
+     * @return the position after the last valid record
+     */
+    private long scan(long start) throws IOException {
+        CRC32C crc = new CRC32C();
+        long pos = start;
+        while (true) {
+            int segmentIndex = (int) (pos / segmentSize);
+            if (segmentIndex >= segments.length) {
+                break;
+            }
+            ByteBuffer segment = segments[segmentIndex];
+            int offset = (int) (pos % segmentSize);
+            if (segmentSize - offset < RECORD_HEADER_SIZE) {
+                pos = (long) (segmentIndex + 1) * segmentSize;
+                continue;
+            }
+            int length = segment.getInt(offset);
+            if (length == SKIP) {
+                pos = (long) (segmentIndex + 1) * segmentSize;
+                continue;
+            }
+            if (length < RECORD_HEADER_SIZE || length > segmentSize - offset) {
+                break;
+            }
+            int keyLength = segment.getInt(offset + RECORD_KEY_LENGTH);
+            byte type = segment.get(offset + RECORD_TYPE);
+            if (keyLength < 0 || keyLength > length - RECORD_HEADER_SIZE
+                    || type < TYPE_PUT || type > TYPE_CLEAR) {
+                break;
+            }
+            ByteBuffer record = segment.duplicate();
+            record.limit(offset + length).position(offset + RECORD_MAP_ID);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != segment.getInt(offset + RECORD_CHECKSUM)) {
+                break;
+            }
+            int mapId = segment.getInt(offset + RECORD_MAP_ID);
+            if (type == TYPE_CLEAR) {
+                clearPositions.put(mapId, pos);
+            } else {
+                ByteBuffer key = segment.duplicate();
+                key.limit(offset + RECORD_HEADER_SIZE + keyLength).position(offset + RECORD_HEADER_SIZE);
+                updateSlot(mapId, key, hash(mapId, key), pos, type);
+            }
+            pos += length;
+        }
+        return pos;
+    }
+
+    /**
+     * Discard everything after the last valid record. Records that follow an
+     * invalid record could otherwise be picked up again by a later scan,
+     * after new records were written over the invalid one.
+     */
+    private void discardAfter(long pos) throws IOException {
+        int segmentIndex = (int) (pos / segmentSize);
+        if (segmentIndex >= segments.length) {
+            return;
+        }
+        ByteBuffer segment = segments[segmentIndex];
+        int offset = (int) (pos % segmentSize);
+        int dirty = offset;
+        while (dirty < segmentSize && segment.get(dirty) == 0) {
+            dirty++;
+        }
+        if (dirty < segmentSize || segmentIndex + 1 < segments.length) {
+            LOG.warn("Discarding invalid data after position {} of the persistent cache file {}", pos, dataFile);
+        }
+        for (int i = dirty; i < segmentSize; i++) {
+            segment.put(i, (byte) 0);
+        }
+        if (segmentIndex + 1 < segments.length) {
+            MappedByteBuffer[] list = new MappedByteBuffer[segmentIndex + 1];
+            System.arraycopy(segments, 0, list, 0, list.length);
+            segments = list;
+            data.setLength((long) list.length * segmentSize);
+        }
+    }
+
+    //------------------------------------------------------------< hash table >
+
+    private static long hash(int mapId, ByteBuffer key) {
+        long h = mapId * 0x9e3779b97f4a7c15L;
+        int pos = key.position();
+        int end = key.limit();
+        for (; pos + 8 <= end; pos += 8) {
+            h = (h ^ key.getLong(pos)) * 0xbf58476d1ce4e5b9L;
+            h ^= h >>> 31;
+        }
+        for (; pos < end; pos++) {
+            h = (h ^ key.get(pos)) * 0x94d049bb133111ebL;
+        }
+        h ^= end - key.position();
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private long getSlot(long i) {
+        ByteBuffer chunk = indexChunks[(int) (i >>> SLOTS_PER_CHUNK_BITS)];
+        return (long) SLOT.getAcquire(chunk, (int) (i & ((1 << SLOTS_PER_CHUNK_BITS) - 1)) << 3);
+    }
+
+    private void setSlot(long i, long value) {
+        ByteBuffer chunk = indexChunks[(int) (i >>> SLOTS_PER_CHUNK_BITS)];
+        SLOT.setRelease(chunk, (int) (i & ((1 << SLOTS_PER_CHUNK_BITS) - 1)) << 3, value);
+    }
+
+    /**
+     * Find the slot of the given key, using linear probing.
+     *
+     * @return the index of the slot that contains the key, or of the empty
+     *         slot where it would be inserted
+     */
+    private long probe(int mapId, ByteBuffer key, long hash) {
+        long mask = capacity - 1;
+        long tag = hash >>> POSITION_BITS;
+        long i = hash & mask;
+        while (true) {
+            long slot = getSlot(i);
+            if (slot == 0 || slot >>> POSITION_BITS == tag && matches(slot & POSITION_MASK, mapId, key)) {
+                return i;
+            }
+            // the load factor guarantees that there is an empty slot
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Find the position of the most recent record for the given key.
+     *
+     * @return the position, or 0 if not found
+     */
+    private long find(int mapId, ByteBuffer key, long hash) {
+        return getSlot(probe(mapId, key, hash)) & POSITION_MASK;
+    }
+
+    /**
+     * Let the hash table point to the given record. New keys are not added
+     * once the table is full, and removals are only recorded for existing
+     * keys.
+     *
+     * @return whether the record needs to be kept
+     */
+    private boolean updateSlot(int mapId, ByteBuffer key, long hash, long position, byte type) {
+        long i = probe(mapId, key, hash);
+        boolean exists = getSlot(i) != 0;
+        if (!exists && (type == TYPE_REMOVE || entryCount >= maxEntries)) {
+            return false;
+        }
+        setSlot(i, (hash >>> POSITION_BITS) << POSITION_BITS | position);
+        if (!exists) {
+            entryCount++;
+        }
+        return true;
+    }
+
+    private boolean matches(long position, int mapId, ByteBuffer key) {
+        ByteBuffer segment = segments[(int) (position / segmentSize)];
+        int offset = (int) (position % segmentSize);
+        int keyLength = key.remaining();
+        if (segment.getInt(offset + RECORD_MAP_ID) != mapId
+                || segment.getInt(offset + RECORD_KEY_LENGTH) != keyLength) {
+            return false;
+        }
+        ByteBuffer k = segment.duplicate();
+        k.limit(offset + RECORD_HEADER_SIZE + keyLength).position(offset + RECORD_HEADER_SIZE);
+        return k.equals(key);
+    }
+
+    //------------------------------------------------------------< writing >
+
+    private static WriteBuffer startRecord(int mapId, byte type) {
+        WriteBuffer buff = RECORD_BUFFER.get();
+        buff.clear();
+        addRecordHeader(buff, mapId, type);
+        return buff;
+    }
+
+    private static ByteBuffer finishRecord(WriteBuffer buff, int keyLength) {
+        completeRecord(buff, 0, keyLength, new CRC32C());
+        ByteBuffer record = buff.getBuffer().duplicate();
+        record.flip();
+        return record;
+    }
+
+    private static void addRecordHeader(WriteBuffer buff, int mapId, byte type) {
+        buff.putInt(0).putInt(0).putInt(mapId).putInt(0).put(type);
+    }
+
+    /**
+     * Set the length, the key length and the checksum of the record that
+     * starts at the given position of the buffer and ends at the current
+     * position.
+     */
+    private static void completeRecord(WriteBuffer buff, int start, int keyLength, CRC32C crc) {
+        int end = buff.position();
+        buff.putInt(start, end - start);
+        buff.putInt(start + RECORD_KEY_LENGTH, keyLength);
+        ByteBuffer record = buff.getBuffer().duplicate();
+        record.limit(end).position(start + RECORD_MAP_ID);
+        crc.reset();
+        crc.update(record);
+        buff.putInt(start + RECORD_CHECKSUM, (int) crc.getValue());
+    }
+
+    /**
+     * Append a record and update the hash table.
+     *
+     * @param record the serialized record
+     * @param mapId the map id
+     * @param hash the hash of the key
+     */
+    private synchronized void append(ByteBuffer record, int mapId, long hash) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("This store is closed");
+        }
+        if (readOnly) {
+            throw new UnsupportedOperationException("This store is read-only");
+        }
+        int length = record.remaining();
+        if (length > segmentSize - DATA_HEADER_SIZE || writePosition + segmentSize > POSITION_MASK) {
+            return;
+        }
+        byte type = record.get(RECORD_TYPE);
+        ByteBuffer key = record.duplicate();
+        key.limit(RECORD_HEADER_SIZE + record.getInt(RECORD_KEY_LENGTH)).position(RECORD_HEADER_SIZE);
+        if (type != TYPE_CLEAR) {
+            long slot = getSlot(probe(mapId, key, hash));
+            if (slot == 0 && (type == TYPE_REMOVE || entryCount >= maxEntries)) {
+                return;
+            }
+        }
+        long pos = writePosition;
+        int offset = (int) (pos % segmentSize);
+        if (segmentSize - offset < length) {
+            if (segmentSize - offset >= RECORD_HEADER_SIZE) {
+                segments[(int) (pos / segmentSize)].putInt(offset, SKIP);
+            }
+            pos = (pos / segmentSize + 1) * segmentSize;
+            offset = 0;
+        }
+        int segmentIndex = (int) (pos / segmentSize);
+        if (segmentIndex >= segments.length) {
+            addSegment();
+        }
+        ByteBuffer target = segments[segmentIndex].duplicate();
+        target.position(offset);
+        target.put(record);
+        writePosition = pos + length;
+        if (type == TYPE_CLEAR) {
+            clearPositions.put(mapId, pos);
+        } else {
+            updateSlot(mapId, key, hash, pos, type);
+        }
+    }
+
+    /**
+     * Append a batch of put and remove records of the same map, with distinct
+     * keys, and update the hash table. The records are copied into the data
+     * file at once, unless they need to be split across segments.
+     *
+     * @param records the serialized records, one after the other
+     * @param ends the end position of each record within the buffer
+     * @param hashes the hash of the key of each record
+     * @param mapId the map id
+     */
+    private synchronized void append(ByteBuffer records, int[] ends, long[] hashes, int mapId)
+            throws IOException {
+        if (closed) {
+            throw new IllegalStateException("This store is closed");
+        }
+        if (readOnly) {
+            throw new UnsupportedOperationException("This store is read-only");
+        }
+        if (writePosition + segmentSize > POSITION_MASK) {
+            return;
+        }
+        // the same rules as for a single record; as the keys are distinct,
+        // they can be applied before anything is written
+        boolean[] skip = new boolean[ends.length];
+        long newEntries = 0;
+        for (int i = 0; i < ends.length; i++) {
+            int start = i == 0 ? 0 : ends[i - 1];
+            if (ends[i] - start > segmentSize - DATA_HEADER_SIZE) {
+                skip[i] = true;
+                continue;
+            }
+            ByteBuffer key = records.duplicate();
+            key.limit(start + RECORD_HEADER_SIZE + records.getInt(start + RECORD_KEY_LENGTH))
+                    .position(start + RECORD_HEADER_SIZE);
+            if (getSlot(probe(mapId, key, hashes[i])) == 0) {
+                if (records.get(start + RECORD_TYPE) == TYPE_REMOVE || entryCount + newEntries >= maxEntries) {
+                    skip[i] = true;
+                } else {
+                    newEntries++;
+                }
+            }
+        }
+        long[] positions = new long[ends.length];
+        long pos = writePosition;
+        long runPosition = pos;
+        int runStart = 0;
+        for (int i = 0; i < ends.length; i++) {
+            int start = i == 0 ? 0 : ends[i - 1];
+            if (skip[i]) {
+                copy(records, runStart, start, runPosition);
+                runStart = ends[i];
+                runPosition = pos;
+                continue;
+            }
+            int length = ends[i] - start;
+            int offset = (int) (pos % segmentSize);
+            if (segmentSize - offset < length) {
+                copy(records, runStart, start, runPosition);
+                if (segmentSize - offset >= RECORD_HEADER_SIZE) {
+                    segments[(int) (pos / segmentSize)].putInt(offset, SKIP);
+                }
+                pos = (pos / segmentSize + 1) * segmentSize;
+                runStart = start;
+                runPosition = pos;
+            }
+            positions[i] = pos;
+            pos += length;
+        }
+        copy(records, runStart, ends.length == 0 ? 0 : ends[ends.length - 1], runPosition);
+        writePosition = pos;
+        for (int i = 0; i < ends.length; i++) {
+            if (!skip[i]) {
+                int start = i == 0 ? 0 : ends[i - 1];
+                ByteBuffer key = records.duplicate();
+                key.limit(start + RECORD_HEADER_SIZE + records.getInt(start + RECORD_KEY_LENGTH))
+                        .position(start + RECORD_HEADER_SIZE);
+                updateSlot(mapId, key, hashes[i], positions[i], records.get(start + RECORD_TYPE));
+            }
+        }
+    }
+
+    /**
+     * Copy a range of the given buffer into one segment of the data file.
+     */
+    private void copy(ByteBuffer records, int start, int end, long pos) throws IOException {
+        if (start == end) {
+            return;
+        }
+        int segmentIndex = (int) (pos / segmentSize);
+        if (segmentIndex >= segments.length) {
+            addSegment();
+        }
+        ByteBuffer source = records.duplicate();
+        source.limit(end).position(start);
+        ByteBuffer target = segments[segmentIndex].duplicate();
+        target.position((int) (pos % segmentSize));
+        target.put(source);
+    }
+
+    private void addSegment() throws IOException {
+        MappedByteBuffer[] old = segments;
+        MappedByteBuffer[] list = new MappedByteBuffer[old.length + 1];
+        System.arraycopy(old, 0, list, 0, old.length);
+        long position = (long) old.length * segmentSize;
+        data.setLength(position + segmentSize);
+        list[old.length] = map(data, MapMode.READ_WRITE, position, segmentSize);
+        segments = list;
+    }
+
+    //------------------------------------------------------------< map >
+
+    /**
+     * Get the position of the record the given slot of the hash table points
+     * to, if it is the most recent value of a key of the given map.
+     *
+     * @return the position, or 0 if not
+     */
+    private long getEntryPosition(long i, int mapId) {
+        long pos = getSlot(i) & POSITION_MASK;
+        if (pos == 0) {
+            return 0;
+        }
+        ByteBuffer segment = segments[(int) (pos / segmentSize)];
+        int offset = (int) (pos % segmentSize);
+        if (segment.getInt(offset + RECORD_MAP_ID) != mapId || segment.get(offset + RECORD_TYPE) != TYPE_PUT) {
+            return 0;
+        }
+        Long cleared = clearPositions.get(mapId);
+        if (cleared != null && pos < cleared) {
+            return 0;
+        }
+        return pos;
+    }
+
+    /**
+     * A map within the store. {@link #put(Object, Object)} and
+     * {@link #remove(Object)} always return {@code null}. The size and the
+     * views of the map scan the whole hash table, so they are slow, and they
+     * do not reflect concurrent changes in a consistent way.
+     */
+    final class LogMap<K, V> extends AbstractMap<K, V> {
+
+        private final String name;
+        private final int mapId;
+        private final DataType<K> keyType;
+        private final DataType<V> valueType;
+
+        LogMap(String name, int mapId, DataType<K> keyType, DataType<V> valueType) {
+            this.name = name;
+            this.mapId = mapId;
+            this.keyType = keyType;
+            this.valueType = valueType;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            WriteBuffer buff = startRecord(mapId, TYPE_PUT);
+            keyType.write(buff, key);
+            int keyLength = buff.position() - RECORD_HEADER_SIZE;
+            valueType.write(buff, value);
+            ByteBuffer record = finishRecord(buff, keyLength);
+            write(record, keyLength);
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            WriteBuffer buff = startRecord(mapId, TYPE_REMOVE);
+            keyType.write(buff, (K) key);
+            int keyLength = buff.position() - RECORD_HEADER_SIZE;
+            write(finishRecord(buff, keyLength), keyLength);
+            return null;
+        }
+
+        @Override
+        public void clear() {
+            write(finishRecord(startRecord(mapId, TYPE_CLEAR), 0), 0);
+        }
+
+        /**
+         * Apply a batch of changes. The records are serialized into one
+         * buffer first, and then appended while holding the lock of the
+         * store once.
+         *
+         * @param changes the changes, in order; a {@code null} value removes
+         *            the entry
+         */
+        void apply(Map<K, V> changes) {
+            WriteBuffer buff = RECORD_BUFFER.get();
+            buff.clear();
+            CRC32C crc = new CRC32C();
+            int[] ends = new int[changes.size()];
+            long[] hashes = new long[ends.length];
+            int i = 0;
+            for (Map.Entry<K, V> e : changes.entrySet()) {
+                int start = buff.position();
+                addRecordHeader(buff, mapId, e.getValue() == null ? TYPE_REMOVE : TYPE_PUT);
+                keyType.write(buff, e.getKey());
+                int keyLength = buff.position() - start - RECORD_HEADER_SIZE;
+                ByteBuffer key = buff.getBuffer().duplicate();
+                key.limit(buff.position()).position(start + RECORD_HEADER_SIZE);
+                hashes[i] = hash(mapId, key);
+                if (e.getValue() != null) {
+                    valueType.write(buff, e.getValue());
+                }
+                completeRecord(buff, start, keyLength, crc);
+                ends[i++] = buff.position();
+            }
+            ByteBuffer records = buff.getBuffer().duplicate();
+            records.flip();
+            try {
+                append(records, ends, hashes, mapId);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write to " + dataFile, e);
+            }
+        }
+
+        private void write(ByteBuffer record, int keyLength) {
+            ByteBuffer key = record.duplicate();
+            key.limit(RECORD_HEADER_SIZE + keyLength).position(RECORD_HEADER_SIZE);
+            try {
+                append(record, mapId, hash(mapId, key));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write to " + dataFile, e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            long pos = findRecord((K) key);
+            if (pos == 0) {
+                return null;
+            }
+            ByteBuffer segment = segments[(int) (pos / segmentSize)];
+            int offset = (int) (pos % segmentSize);
+            if (segment.get(offset + RECORD_TYPE) != TYPE_PUT) {
+                return null;
+            }
+            ByteBuffer value = segment.duplicate();
+            value.limit(offset + segment.getInt(offset));
+            value.position(offset + RECORD_HEADER_SIZE + segment.getInt(offset + RECORD_KEY_LENGTH));
+            return (V) valueType.read(value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean containsKey(Object key) {
+            long pos = findRecord((K) key);
+            if (pos == 0) {
+                return false;
+            }
+            return segments[(int) (pos / segmentSize)].get((int) (pos % segmentSize) + RECORD_TYPE) == TYPE_PUT;
+        }
+
+        private long findRecord(K key) {
+            WriteBuffer buff = KEY_BUFFER.get();
+            buff.clear();
+            keyType.write(buff, key);
+            ByteBuffer k = buff.getBuffer().duplicate();
+            k.flip();
+            long pos = find(mapId, k, hash(mapId, k));
+            Long cleared = clearPositions.get(mapId);
+            if (cleared != null && pos < cleared) {
+                return 0;
+            }
+            return pos;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map.Entry<K, V> readEntry(long pos) {
+            ByteBuffer segment = segments[(int) (pos / segmentSize)];
+            int offset = (int) (pos % segmentSize);
+            ByteBuffer buff = segment.duplicate();
+            buff.limit(offset + segment.getInt(offset));
+            buff.position(offset + RECORD_HEADER_SIZE);
+            K key = (K) keyType.read(buff);
+            V value = (V) valueType.read(buff);
+            return new SimpleImmutableEntry<>(key, value);
+        }
+
+        @Override
+        public int size() {
+            long count = 0;
+            for (long i = 0; i < capacity; i++) {
+                if (getEntryPosition(i, mapId) != 0) {
+                    count++;
+                }
+            }
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !entrySet().iterator().hasNext();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new Iterator<Map.Entry<K, V>>() {
+
+                        private long slot;
+                        private long nextPosition;
+                        private Map.Entry<K, V> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            while (nextPosition == 0 && slot < capacity) {
+                                nextPosition = getEntryPosition(slot++, mapId);
+                            }
+                            return nextPosition != 0;
+                        }
+
+                        @Override
+                        public Map.Entry<K, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            last = readEntry(nextPosition);
+                            nextPosition = 0;
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            LogMap.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return LogMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return LogMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    LogMap.this.clear();
+                }
+            };
+        }
+    }
+
+}
@@ -77,4 +77,14 @@ public abstract class MapFactory {
      */
     abstract long getFileSize();
 
+    /**
+     * Whether the store can not accept new entries anymore, independent of
+     * the file size.
+     *
+     * @return whether the store is full
+     */
+    boolean isFull() {
+        return false;
+    }
+
 }
@@ -90,6 +90,21 @@ public class MultiGenerationMap<K, V> implements Map<K, V> {
         return false;
     }
 
+    /**
+     * Apply a batch of changes to the current generation.
+     *
+     * @param changes the changes, in order; a {@code null} value removes the
+     *            entry
+     */
+    public void apply(Map<K, V> changes) {
+        CacheMap<K, V> m = write;
+        if (m == null) {
+            // closed concurrently
+            return;
+        }
+        m.apply(changes);
+    }
+
     @Override
     public V remove(Object key) {
         return write.remove(key);
@@ -56,6 +56,8 @@ public class PersistentCache implements Broadcaster.Listener {
 
     private static final String FILE_PREFIX = "cache-";
     private static final String FILE_SUFFIX = ".data";
+    private static final String LOG_FILE_SUFFIX = ".log";
+    private static final String INDEX_FILE_SUFFIX = ".idx";
     private static final AtomicInteger COUNTER = new AtomicInteger();
 
     private boolean cacheNodes = true;
@@ -67,6 +69,7 @@ public class PersistentCache implements Broadcaster.Listener {
     private boolean compress = true;
     private boolean asyncCache = true;
     private boolean asyncDiffCache = false;
+    private boolean logStore;
     private HashMap<CacheType, GenerationCache> caches = 
             new HashMap<CacheType, GenerationCache>();
 
@@ -145,6 +148,8 @@ public class PersistentCache implements Broadcaster.Listener {
                 asyncCache = false;
             } else if (p.equals("+asyncDiff")) {
                 asyncDiffCache = true;
+            } else if (p.equals("+logStore")) {
+                logStore = true;
             }
         }
         this.directory = dir;
@@ -163,11 +168,22 @@ public class PersistentCache implements Broadcaster.Listener {
         }
         File[] list = dr.listFiles();
         TreeSet<Integer> generations = new TreeSet<Integer>();
+        String suffix = getFileSuffix();
         if (list != null) {
             for (File f : list) {
                 String fn = f.getName();
-                if (fn.startsWith(FILE_PREFIX) && fn.endsWith(FILE_SUFFIX)) {
-                    String g = fn.substring(FILE_PREFIX.length(), fn.indexOf(FILE_SUFFIX));
+                if (isOtherStoreFile(fn)) {
+                    // left over from before the store type was changed
+                    if (!f.canWrite()) {
+                        LOG.info("Ignoring read-only file of another store type " + f.getAbsolutePath());
+                    } else {
+                        LOG.info("Removing file of another store type " + f.getAbsolutePath());
+                        f.delete();
+                    }
+                    continue;
+                }
+                if (fn.startsWith(FILE_PREFIX) && fn.endsWith(suffix)) {
+                    String g = fn.substring(FILE_PREFIX.length(), fn.indexOf(suffix));
                     try {
                         int gen = Integer.parseInt(g);
                         if (gen >= 0) {
@@ -190,7 +206,7 @@ public class PersistentCache implements Broadcaster.Listener {
                 LOG.info("Ignoring old, read-only generation " + oldFile.getAbsolutePath());
             } else {
                 LOG.info("Removing old generation " + oldFile.getAbsolutePath());
-                oldFile.delete();
+                deleteGeneration(oldest);
             }
             generations.remove(oldest);
         }
@@ -240,14 +256,47 @@ public class PersistentCache implements Broadcaster.Listener {
         broadcaster.addListener(this);
     }
     
+    private String getFileSuffix() {
+        return logStore ? LOG_FILE_SUFFIX : FILE_SUFFIX;
+    }
+
+    /**
+     * Whether the given file is a generation of the store type that is not
+     * in use, that is, an MVStore file when the log store is used, or the
+     * other way round.
+     */
+    private boolean isOtherStoreFile(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX)) {
+            return false;
+        }
+        if (logStore) {
+            return fileName.endsWith(FILE_SUFFIX);
+        }
+        return fileName.endsWith(LOG_FILE_SUFFIX) || fileName.endsWith(INDEX_FILE_SUFFIX);
+    }
+
     private String getFileName(int generation) {
         if (directory.length() == 0) {
             return null;
         }
-        return directory + "/" + FILE_PREFIX + generation + FILE_SUFFIX;
+        return directory + "/" + FILE_PREFIX + generation + getFileSuffix();
     }
-    
+
+    private String getIndexFileName(int generation) {
+        return directory + "/" + FILE_PREFIX + generation + INDEX_FILE_SUFFIX;
+    }
+
+    private void deleteGeneration(int generation) {
+        new File(getFileName(generation)).delete();
+        if (logStore) {
+            new File(getIndexFileName(generation)).delete();
+        }
+    }
+
     private MapFactory createMapFactory(final int generation, final boolean readOnly) {
+        if (logStore && directory.length() > 0) {
+            return createLogMapFactory(generation, readOnly);
+        }
         MapFactory f = new MapFactory() {
             
             final String fileName = getFileName(generation);
@@ -365,7 +414,73 @@ public class PersistentCache implements Broadcaster.Listener {
         f.openStore();
         return f;
     }
-    
+
+    private MapFactory createLogMapFactory(final int generation, final boolean readOnly) {
+        MapFactory f = new MapFactory() {
+
+            final File dataFile = new File(getFileName(generation));
+            final File indexFile = new File(getIndexFileName(generation));
+            volatile LogStore store;
+
+            @Override
+            void openStore() {
+                if (store != null) {
+                    return;
+                }
+                try {
+                    store = new LogStore(dataFile, indexFile, readOnly, LogStore.DEFAULT_SEGMENT_SIZE,
+                            LogStore.getCapacityBits(maxSizeMB * 1024L * 1024L));
+                } catch (Exception e) {
+                    exceptionCount++;
+                    LOG.warn("Could not open the store " + dataFile, e);
+                }
+            }
+
+            @Override
+            synchronized void closeStore() {
+                if (store == null) {
+                    return;
+                }
+                try {
+                    store.close();
+                } catch (Exception e) {
+                    exceptionCount++;
+                    LOG.debug("Could not close the store", e);
+                    LOG.warn("Could not close the store: " + e);
+                }
+                store = null;
+            }
+
+            @Override
+            <K, V> Map<K, V> openMap(String name, Builder<K, V> builder) {
+                try {
+                    if (builder == null) {
+                        return store.openMap(name, null, null);
+                    }
+                    return store.openMap(name, builder.getKeyType(), builder.getValueType());
+                } catch (Exception e) {
+                    exceptionCount++;
+                    LOG.warn("Could not open the map", e);
+                    return null;
+                }
+            }
+
+            @Override
+            long getFileSize() {
+                LogStore s = store;
+                return s == null ? 0 : s.getFileSize();
+            }
+
+            @Override
+            boolean isFull() {
+                LogStore s = store;
+                return s != null && s.isFull();
+            }
+        };
+        f.openStore();
+        return f;
+    }
+
     public void close() {
         writeDispatcher.stop();
         try {
@@ -481,12 +596,15 @@ public class PersistentCache implements Broadcaster.Listener {
             }
             if (oldRead != null) {
                 oldRead.closeStore();
-                new File(getFileName(oldReadGeneration)).delete();
+                deleteGeneration(oldReadGeneration);
             }
         }
     }
     
     boolean needSwitch() {
+        if (writeStore.isFull()) {
+            return true;
+        }
         long size = writeStore.getFileSize();
         if (size / 1024 / 1024 <= maxSizeMB) {
             return false;
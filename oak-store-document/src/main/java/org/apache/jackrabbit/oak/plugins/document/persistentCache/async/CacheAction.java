@@ -30,4 +30,15 @@ interface CacheAction {
      * @return the size of the memory in bytes this cache action occupies.
      */
     int getMemory();
+
+    /**
+     * Get the queue this action belongs to. Consecutive actions of the same
+     * queue are executed together by {@link CacheWriteQueue#execute(java.util.List)}.
+     *
+     * @return the queue, or {@code null} if this action is always executed
+     *         on its own
+     */
+    default CacheWriteQueue<?, ?> getQueue() {
+        return null;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.apache.jackrabbit.oak.plugins.document.persistentCache.async;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +44,11 @@ public class CacheActionDispatcher implements Runnable {
      */
     static final int MAX_SIZE = 16 * 1024;
 
+    /**
+     * The maximum number of actions taken from the queue at once.
+     */
+    static final int MAX_BATCH_SIZE = 256;
+
     final BlockingQueue<CacheAction> queue = new ArrayBlockingQueue<>(MAX_SIZE);
 
     /**
@@ -71,14 +78,22 @@ public class CacheActionDispatcher implements Runnable {
 
     @Override
     public void run() {
+        List<CacheAction> batch = new ArrayList<>(MAX_BATCH_SIZE);
         while (isRunning) {
             try {
                 CacheAction action = queue.poll(10, TimeUnit.MILLISECONDS);
                 if (action != null && isRunning) {
+                    batch.add(action);
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    long batchMemory = 0;
+                    for (CacheAction a : batch) {
+                        batchMemory += a.getMemory();
+                    }
                     synchronized (monitor) {
-                        memory -= action.getMemory();
+                        memory -= batchMemory;
                     }
-                    action.execute();
+                    execute(batch);
+                    batch.clear();
                 }
             } catch (InterruptedException e) {
                 LOG.debug("Interrupted the queue.poll()", e);
@@ -86,6 +101,26 @@ public class CacheActionDispatcher implements Runnable {
         }
     }
 
+    /**
+     * Execute the actions, grouping consecutive actions of the same queue.
+     */
+    private void execute(List<CacheAction> batch) {
+        int start = 0;
+        while (start < batch.size() && isRunning) {
+            CacheWriteQueue<?, ?> queue = batch.get(start).getQueue();
+            int end = start + 1;
+            if (queue == null) {
+                batch.get(start).execute();
+            } else {
+                while (end < batch.size() && batch.get(end).getQueue() == queue) {
+                    end++;
+                }
+                queue.execute(batch.subList(start, end));
+            }
+            start = end;
+        }
+    }
+
     /**
      * Stop the processing.
      */
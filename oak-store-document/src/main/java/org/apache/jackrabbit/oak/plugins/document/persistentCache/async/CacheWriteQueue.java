@@ -17,8 +17,11 @@
 package org.apache.jackrabbit.oak.plugins.document.persistentCache.async;
 
 import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.MultiGenerationMap;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCache;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class CacheWriteQueue<K extends CacheValue, V extends CacheValue> {
@@ -43,6 +46,33 @@ public class CacheWriteQueue<K extends CacheValue, V extends CacheValue> {
         return dispatcher.add(new InvalidateCacheAction<K, V>(keys, this));
     }
 
+    /**
+     * Execute the given actions of this queue. If the map supports it, the
+     * changes are collected and written as one batch; a later change of the
+     * same key replaces an earlier one.
+     *
+     * @param actions the actions, in order
+     */
+    @SuppressWarnings("unchecked")
+    void execute(List<CacheAction> actions) {
+        if (actions.size() == 1 || !(map instanceof MultiGenerationMap)) {
+            for (CacheAction a : actions) {
+                a.execute();
+            }
+            return;
+        }
+        Map<K, V> changes = new LinkedHashMap<>();
+        for (CacheAction a : actions) {
+            if (a instanceof PutToCacheAction) {
+                ((PutToCacheAction<K, V>) a).addTo(changes);
+            } else {
+                ((InvalidateCacheAction<K, V>) a).addTo(changes);
+            }
+        }
+        cache.switchGenerationIfNeeded();
+        ((MultiGenerationMap<K, V>) map).apply(changes);
+    }
+
     PersistentCache getCache() {
         return cache;
     }
@@ -32,6 +32,8 @@ import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCach
 class InvalidateCacheAction<K extends CacheValue, V extends CacheValue>
         implements CacheAction {
 
+    private final CacheWriteQueue<K, V> queue;
+
     private final PersistentCache cache;
 
     private final Map<K, V> map;
@@ -42,6 +44,7 @@ class InvalidateCacheAction<K extends CacheValue, V extends CacheValue>
 
     InvalidateCacheAction(Iterable<K> keys, CacheWriteQueue<K, V> queue) {
         this.keys = keys;
+        this.queue = queue;
         this.cache = queue.getCache();
         this.map = queue.getMap();
     }
@@ -56,6 +59,17 @@ class InvalidateCacheAction<K extends CacheValue, V extends CacheValue>
         }
     }
 
+    @Override
+    public CacheWriteQueue<K, V> getQueue() {
+        return queue;
+    }
+
+    void addTo(Map<K, V> changes) {
+        for (K key : keys) {
+            changes.put(key, null);
+        }
+    }
+
     @Override
     public int getMemory() {
         long m = memory;
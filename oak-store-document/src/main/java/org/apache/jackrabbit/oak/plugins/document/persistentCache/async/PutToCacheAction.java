@@ -30,6 +30,8 @@ import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCach
 class PutToCacheAction<K extends CacheValue, V extends CacheValue>
         implements CacheAction {
 
+    private final CacheWriteQueue<K, V> queue;
+
     private final PersistentCache cache;
 
     private final Map<K, V> map;
@@ -41,6 +43,7 @@ class PutToCacheAction<K extends CacheValue, V extends CacheValue>
     PutToCacheAction(K key, V value, CacheWriteQueue<K, V> queue) {
         this.key = key;
         this.value = value;
+        this.queue = queue;
         this.cache = queue.getCache();
         this.map = queue.getMap();
     }
@@ -53,6 +56,15 @@ class PutToCacheAction<K extends CacheValue, V extends CacheValue>
         }
     }
 
+    @Override
+    public CacheWriteQueue<K, V> getQueue() {
+        return queue;
+    }
+
+    void addTo(Map<K, V> changes) {
+        changes.put(key, value);
+    }
+
     @Override
     public int getMemory() {
         long mem = key.getMemory();
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.prefetch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.guava.common.cache.Cache;
+import org.apache.jackrabbit.guava.common.cache.CacheBuilder;
+import org.apache.jackrabbit.guava.common.cache.RemovalCause;
+import org.apache.jackrabbit.oak.commons.properties.SystemPropertySupplier;
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreStatsCollector;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.Path;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Learns how nodes are read and loads the documents that are likely read
+ * next with a single range query into the document cache.
+ * <p>
+ * {@link #beforeRead(Path)} is called before a node document is read from
+ * the store. Only reads of documents that are not cached are considered.
+ * Two patterns are detected, both per parent path:
+ * <ul>
+ *     <li>Sequential child iteration: a number of children of the same
+ *     parent are read in ascending name order. The next siblings are then
+ *     loaded with a query on the key range of the children.</li>
+ *     <li>Descendant walk: the children of a number of siblings are read
+ *     in ascending order of the siblings, as done by a depth first traversal
+ *     or a query cursor. The children of the following siblings are then
+ *     loaded with a query on the key range of the next depth.</li>
+ * </ul>
+ * Once a pattern was detected, the next read of a document beyond the
+ * loaded range immediately triggers another range query.
+ * <p>
+ * Prefetched documents that are read later count as hits. Prefetched
+ * documents that are not read within {@link #TRACKING_SECONDS} or that are
+ * evicted from the tracking set count as wasted.
+ */
+public class AdaptivePrefetcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptivePrefetcher.class);
+
+    /**
+     * The number of reads in ascending order needed to detect a pattern.
+     */
+    static final int THRESHOLD = SystemPropertySupplier.create(
+            "oak.documentstore.adaptivePrefetch.threshold", 3).loggingTo(LOG).get();
+
+    /**
+     * The maximum number of documents loaded by a single range query.
+     */
+    static final int BATCH_SIZE = SystemPropertySupplier.create(
+            "oak.documentstore.adaptivePrefetch.batchSize", 100).loggingTo(LOG).get();
+
+    /**
+     * The time after which a prefetched document that was not read is
+     * considered wasted.
+     */
+    static final int TRACKING_SECONDS = 60;
+
+    private static final int MAX_PATTERNS = 1024;
+
+    private static final int MAX_TRACKED = 16 * 1024;
+
+    private final DocumentStore store;
+
+    private final DocumentNodeStoreStatsCollector stats;
+
+    private final int threshold;
+
+    private final int batchSize;
+
+    /**
+     * Access pattern per parent path.
+     */
+    private final Cache<Path, AccessPattern> patterns = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PATTERNS).build();
+
+    /**
+     * Ids of prefetched documents that were not read yet.
+     */
+    private final Cache<String, Boolean> prefetched;
+
+    public AdaptivePrefetcher(@NotNull DocumentStore store,
+                              @NotNull DocumentNodeStoreStatsCollector stats) {
+        this(store, stats, THRESHOLD, BATCH_SIZE);
+    }
+
+    AdaptivePrefetcher(@NotNull DocumentStore store,
+                       @NotNull DocumentNodeStoreStatsCollector stats,
+                       int threshold,
+                       int batchSize) {
+        this.store = requireNonNull(store);
+        this.stats = requireNonNull(stats);
+        this.threshold = Math.max(1, threshold);
+        this.batchSize = Math.max(1, batchSize);
+        this.prefetched = CacheBuilder.newBuilder()
+                .maximumSize(MAX_TRACKED)
+                .expireAfterWrite(TRACKING_SECONDS, TimeUnit.SECONDS)
+                .<String, Boolean>removalListener(n -> {
+                    if (n.getCause() == RemovalCause.SIZE || n.getCause() == RemovalCause.EXPIRED) {
+                        stats.prefetchWasted(1);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Called before the document of the node at the given path is read from
+     * the store.
+     *
+     * @param path the path of the node about to be read.
+     */
+    public void beforeRead(@NotNull Path path) {
+        Path parent = path.getParent();
+        if (parent == null || Utils.isLongPath(path)) {
+            return;
+        }
+        String id = Utils.getIdFromPath(path);
+        if (prefetched.asMap().remove(id) != null) {
+            stats.prefetchHit();
+            // move the patterns forward, a read beyond the prefetched
+            // range must not load documents again
+            AccessPattern siblings = patterns.getIfPresent(parent);
+            if (siblings != null) {
+                siblings.advanceChild(path.getName());
+            }
+            Path grandParent = parent.getParent();
+            AccessPattern cousins = grandParent != null ? patterns.getIfPresent(grandParent) : null;
+            if (cousins != null) {
+                cousins.advanceDescendant(parent.getName());
+            }
+            return;
+        }
+        if (store.getIfCached(Collection.NODES, id) != null) {
+            return;
+        }
+        AccessPattern siblings = getPattern(parent);
+        String previous = siblings.childRead(path.getName(), threshold);
+        if (previous != null) {
+            // sequential child iteration: load the following siblings,
+            // including the one about to be read
+            prefetch(id, Utils.getIdFromPath(new Path(parent, previous)),
+                    Utils.getKeyUpperLimit(parent));
+            return;
+        }
+        Path grandParent = parent.getParent();
+        if (grandParent == null || Utils.isLongPath(new Path(new Path(grandParent, "z"), "z"))) {
+            return;
+        }
+        AccessPattern cousins = getPattern(grandParent);
+        if (cousins.descendantRead(parent.getName(), threshold)) {
+            // descendant walk: load the children of this and the
+            // following siblings of the parent
+            prefetch(id, Utils.getKeyLowerLimit(parent), getGrandChildrenUpperLimit(grandParent));
+        }
+    }
+
+    private AccessPattern getPattern(Path parent) {
+        try {
+            return patterns.get(parent, AccessPattern::new);
+        } catch (Exception e) {
+            // cannot happen, the loader does not throw
+            return new AccessPattern();
+        }
+    }
+
+    private void prefetch(String readId, String fromKey, String toKey) {
+        List<NodeDocument> docs;
+        try {
+            docs = store.query(Collection.NODES, fromKey, toKey, batchSize);
+        } catch (DocumentStoreException e) {
+            LOG.debug("Prefetch of documents in range ({}, {}) failed", fromKey, toKey, e);
+            return;
+        }
+        LOG.trace("Prefetched {} documents in range ({}, {})", docs.size(), fromKey, toKey);
+        if (docs.isEmpty()) {
+            return;
+        }
+        stats.donePrefetch(docs.size());
+        for (NodeDocument doc : docs) {
+            // the document with readId is about to be read
+            // and does not count as prefetched
+            if (!readId.equals(doc.getId())) {
+                prefetched.put(doc.getId(), Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Returns the upper key limit for the grandchildren of the given path.
+     */
+    private static String getGrandChildrenUpperLimit(Path path) {
+        String to = Utils.getIdFromPath(new Path(new Path(path, "z"), "z"));
+        return to.substring(0, to.length() - 4) + "0";
+    }
+
+    /**
+     * Tracks the reads of uncached children of a parent.
+     */
+    private static final class AccessPattern {
+
+        private String lastChild = "";
+
+        private int sequentialChildren;
+
+        private String lastDescendantParent = "";
+
+        private int sequentialDescendantParents;
+
+        /**
+         * Records a read of the child with the given name.
+         *
+         * @return the name of the previously read child if a sequential
+         *          iteration was detected and the following siblings should
+         *          be loaded, {@code null} otherwise.
+         */
+        synchronized String childRead(String name, int threshold) {
+            String previous = lastChild;
+            if (name.compareTo(previous) > 0) {
+                sequentialChildren++;
+            } else {
+                sequentialChildren = 1;
+            }
+            lastChild = name;
+            if (sequentialChildren >= threshold) {
+                // the pattern is confirmed, the next miss triggers
+                // the next batch right away
+                sequentialChildren = threshold - 1;
+                return previous;
+            }
+            return null;
+        }
+
+        /**
+         * Records a read of the prefetched child with the given name.
+         */
+        synchronized void advanceChild(String name) {
+            if (name.compareTo(lastChild) > 0) {
+                lastChild = name;
+            }
+        }
+
+        /**
+         * Records a read of a prefetched child of the child with the given
+         * name.
+         */
+        synchronized void advanceDescendant(String name) {
+            if (name.compareTo(lastDescendantParent) > 0) {
+                lastDescendantParent = name;
+            }
+        }
+
+        /**
+         * Records a read of a child of the child with the given name.
+         *
+         * @return {@code true} if a descendant walk was detected and the
+         *          children of the following children should be loaded.
+         */
+        synchronized boolean descendantRead(String name, int threshold) {
+            int c = name.compareTo(lastDescendantParent);
+            if (c == 0) {
+                // another uncached read below the same child
+                return false;
+            } else if (c > 0) {
+                sequentialDescendantParents++;
+            } else {
+                sequentialDescendantParents = 1;
+            }
+            lastDescendantParent = name;
+            if (sequentialDescendantParents >= threshold) {
+                sequentialDescendantParents = threshold - 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
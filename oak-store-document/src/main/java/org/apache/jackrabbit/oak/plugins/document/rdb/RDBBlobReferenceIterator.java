@@ -38,13 +38,20 @@ public class RDBBlobReferenceIterator extends BlobReferenceIterator {
         this.documentStore = documentStore;
     }
 
+    public RDBBlobReferenceIterator(DocumentNodeStore nodeStore, RDBDocumentStore documentStore,
+                                    String fromId, String toId) {
+        super(nodeStore, fromId, toId);
+        this.documentStore = documentStore;
+    }
+
     private final static List<QueryCondition> WITH_BINARIES = Collections
             .singletonList(new QueryCondition(NodeDocument.HAS_BINARY_FLAG, "=", NodeDocument.HAS_BINARY_VAL));
 
     @Override
     public Iterator<NodeDocument> getIteratorOverDocsWithBinaries() {
         return this.documentStore
-                .queryAsIterable(Collection.NODES, null, null, Collections.emptyList(), WITH_BINARIES, Integer.MAX_VALUE, null)
+                .queryAsIterable(Collection.NODES, isRange() ? getFromId() : null, isRange() ? getToId() : null,
+                        Collections.emptyList(), WITH_BINARIES, Integer.MAX_VALUE, null)
                 .iterator();
     }
 }
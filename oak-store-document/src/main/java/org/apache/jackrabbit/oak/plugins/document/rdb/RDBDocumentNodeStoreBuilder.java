@@ -115,6 +115,16 @@ public class RDBDocumentNodeStoreBuilder
         }
     }
 
+    @Override
+    public Iterable<ReferencedBlob> createReferencedBlobs(DocumentNodeStore ns, String fromId, String toId) {
+        final DocumentStore store = getDocumentStore();
+        if (store instanceof RDBDocumentStore) {
+            return () -> new RDBBlobReferenceIterator(ns, (RDBDocumentStore) store, fromId, toId);
+        } else {
+            return super.createReferencedBlobs(ns, fromId, toId);
+        }
+    }
+
     public MissingLastRevSeeker createMissingLastRevSeeker() {
         final DocumentStore store = getDocumentStore();
         if (store instanceof RDBDocumentStore) {
@@ -40,6 +40,7 @@ import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocumentCodec;
 import org.apache.jackrabbit.oak.plugins.document.Revision;
 import org.apache.jackrabbit.oak.plugins.document.StableRevisionComparator;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
@@ -97,6 +98,24 @@ public class RDBDocumentSerializer {
         return sb.toString();
     }
 
+    /**
+     * Serializes all non-column properties of the {@link Document} for the
+     * BDATA column. This is the (usually GZIPped) given JSON serialization of
+     * the document, or the binary {@link NodeDocumentCodec} serialization when
+     * enabled with the system property
+     * {@code org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.BINARYBDATA}.
+     */
+    public byte[] asBlobData(@NotNull Document doc, Set<String> columnProperties, @NotNull String data) {
+        if (RDBDocumentStore.BINARYBDATA && doc instanceof NodeDocument) {
+            try {
+                return RDBDocumentStore.asBytes(NodeDocumentCodec.encode(doc, columnProperties));
+            } catch (IllegalArgumentException ex) {
+                LOG.debug("Cannot serialize {} in binary format, using JSON", doc.getId(), ex);
+            }
+        }
+        return RDBDocumentStore.asBytes(data);
+    }
+
     /**
      * Serializes the changes in the {@link UpdateOp} into a JSON array; each
      * entry is another JSON array holding operation, key, revision, and value.
@@ -184,15 +203,19 @@ public class RDBDocumentSerializer {
         // update operations
         try {
             if (bdata != null && bdata.length != 0) {
-                String s = fromBlobData(bdata);
-                json = new JsopTokenizer(s);
-                json.read('{');
-                readDocumentFromJson(json, doc);
-                json.read(JsopReader.END);
+                byte[] bytes = fromBlobData(bdata);
+                if (NodeDocumentCodec.isEncoded(bytes)) {
+                    NodeDocumentCodec.decode(bytes, doc);
+                } else {
+                    json = new JsopTokenizer(new String(bytes, StandardCharsets.UTF_8));
+                    json.read('{');
+                    readDocumentFromJson(json, doc);
+                    json.read(JsopReader.END);
+                }
                 blobInUse = true;
             }
         } catch (Exception ex) {
-            throw asDocumentStoreException(ex, "parsing blob data as JSON");
+            throw asDocumentStoreException(ex, "parsing blob data");
         }
 
         json = new JsopTokenizer(charData);
@@ -342,15 +365,15 @@ public class RDBDocumentSerializer {
 
     private static byte[] GZIPSIG = { 31, -117 };
 
-    private static String fromBlobData(byte[] bdata) {
+    private static byte[] fromBlobData(byte[] bdata) {
         try {
             if (bdata.length >= 2 && bdata[0] == GZIPSIG[0] && bdata[1] == GZIPSIG[1]) {
                 // GZIP
                 try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(bdata), 65536)) {
-                    return IOUtils.toString(gis, StandardCharsets.UTF_8);
+                    return IOUtils.toByteArray(gis);
                 }
             } else {
-                return new String(bdata, StandardCharsets.UTF_8);
+                return bdata;
             }
         } catch (IOException ex) {
             LOG.debug("Unexpected exception while processing blob data", ex);
@@ -51,6 +51,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -64,6 +65,7 @@ import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.cache.CacheValue;
 import org.apache.jackrabbit.oak.commons.collections.CollectionUtils;
 import org.apache.jackrabbit.oak.commons.properties.SystemPropertySupplier;
+import org.apache.jackrabbit.oak.plugins.document.AsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreBuilder;
@@ -82,6 +84,7 @@ import org.apache.jackrabbit.oak.plugins.document.cache.NodeDocumentCache;
 import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.locks.StripedNodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.mongo.MongoDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.BatchingAsyncDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.util.CloseableIterator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -244,7 +247,7 @@ import org.apache.jackrabbit.guava.common.collect.Sets;
  * "deletedOnce", and "_modified". Attempts to use a different indexed property
  * will cause a {@link DocumentStoreException}.
  */
-public class RDBDocumentStore implements DocumentStore {
+public class RDBDocumentStore implements DocumentStore, AsyncDocumentStore {
 
     /**
      * Creates a {@linkplain RDBDocumentStore} instance using the provided
@@ -779,6 +782,8 @@ public class RDBDocumentStore implements DocumentStore {
 
     @Override
     public void dispose() {
+        this.asyncStore.close();
+
         if (!this.tablesToBeDropped.isEmpty()) {
             String dropped = "";
             LOG.debug("attempting to drop: " + this.tablesToBeDropped);
@@ -843,6 +848,41 @@ public class RDBDocumentStore implements DocumentStore {
         return nodesCache.getCacheStats();
     }
 
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAsync(Collection<T> collection, String id) {
+        return asyncStore.findAsync(collection, id);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<List<T>> queryAsync(Collection<T> collection, String fromKey, String toKey,
+            int limit) {
+        return asyncStore.queryAsync(collection, fromKey, toKey, limit);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> createOrUpdateAsync(Collection<T> collection, UpdateOp update) {
+        return asyncStore.createOrUpdateAsync(collection, update);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAndUpdateAsync(Collection<T> collection, UpdateOp update) {
+        return asyncStore.findAndUpdateAsync(collection, update);
+    }
+
+    // batch reader for the asyncStore
+    @NotNull
+    private <T extends Document> Map<String, T> findDocuments(@NotNull Collection<T> collection, @NotNull Set<String> keys) {
+        Map<String, T> documents = readDocumentCached(collection, keys);
+        for (T doc : documents.values()) {
+            doc.seal();
+        }
+        return documents;
+    }
+
     @Override
     public Map<String, String> getMetadata() {
         return metadata;
@@ -948,6 +988,11 @@ public class RDBDocumentStore implements DocumentStore {
     // utility class for performing low-level operations
     private RDBDocumentStoreJDBC db;
 
+    // executes the AsyncDocumentStore operations, batching point reads into IN (...) queries
+    private final BatchingAsyncDocumentStore asyncStore = new BatchingAsyncDocumentStore(
+            this, this::findDocuments, BatchingAsyncDocumentStore.DEFAULT_THREADS,
+            BatchingAsyncDocumentStore.DEFAULT_BATCH_SIZE);
+
     protected static final List<String> EMPTY_KEY_PATTERN = Collections.emptyList();
 
     private Map<String, String> metadata;
@@ -2088,7 +2133,7 @@ public class RDBDocumentStore implements DocumentStore {
                 data = ser.asString(document, tmd.getColumnOnlyProperties());
                 Object m = document.get(MODIFIED);
                 long modified = (m instanceof Long) ? ((Long)m).longValue() : 0;
-                success = db.update(connection, tmd, document.getId(), modified, hasBinary, deletedOnce, modcount, cmodcount,
+                success = db.update(connection, tmd, document, modified, hasBinary, deletedOnce, modcount, cmodcount,
                         oldmodcount, data);
                 connection.commit();
             }
@@ -2191,6 +2236,12 @@ public class RDBDocumentStore implements DocumentStore {
     private static final boolean NOGZIP = SystemPropertySupplier
             .create("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.NOGZIP", Boolean.FALSE).loggingTo(LOG).get();
 
+    // Whether to write the BDATA column in the binary NodeDocumentCodec format
+    // instead of JSON (readers detect the format, but older versions of Oak
+    // can only read JSON)
+    static final boolean BINARYBDATA = SystemPropertySupplier
+            .create("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.BINARYBDATA", Boolean.FALSE).loggingTo(LOG).get();
+
     // Whether to use append operations (string concatenation) in the DATA column
     private static final boolean NOAPPEND = SystemPropertySupplier
             .create("org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.NOAPPEND", Boolean.FALSE).loggingTo(LOG).get();
@@ -2218,8 +2269,10 @@ public class RDBDocumentStore implements DocumentStore {
             }).get();
 
     public static byte[] asBytes(@NotNull String data) {
-        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        return asBytes(data.getBytes(StandardCharsets.UTF_8));
+    }
 
+    public static byte[] asBytes(@NotNull byte[] bytes) {
         if (NOGZIP) {
             return bytes;
         } else {
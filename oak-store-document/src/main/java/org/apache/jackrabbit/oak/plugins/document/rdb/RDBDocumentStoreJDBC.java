@@ -18,7 +18,6 @@ package org.apache.jackrabbit.oak.plugins.document.rdb;
 
 import static org.apache.jackrabbit.guava.common.collect.Iterables.transform;
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.CHAR2OCTETRATIO;
-import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentStore.asBytes;
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.asDocumentStoreException;
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.closeResultSet;
 import static org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.closeStatement;
@@ -284,7 +283,7 @@ public class RDBDocumentStoreJDBC {
                     stmt.setBinaryStream(si++, null, 0);
                 } else {
                     setDataInStatement(tmd, stmt, si++, "\"blob\"");
-                    byte[] bytes = asBytes(data);
+                    byte[] bytes = this.ser.asBlobData(document, tmd.getColumnOnlyProperties(), data);
                     stmt.setBytes(si++, bytes);
                 }
                 stmt.addBatch();
@@ -365,7 +364,7 @@ public class RDBDocumentStoreJDBC {
                     stmt.setBinaryStream(si++, null, 0);
                 } else {
                     setDataInStatement(tmd, stmt, si++, "\"blob\"");
-                    byte[] bytes = asBytes(data);
+                    byte[] bytes = this.ser.asBlobData(document, tmd.getColumnOnlyProperties(), data);
                     stmt.setBytes(si++, bytes);
                 }
 
@@ -909,9 +908,11 @@ public class RDBDocumentStoreJDBC {
         }
     }
 
-    public boolean update(Connection connection, RDBTableMetaData tmd, String id, Long modified, Number hasBinary,
+    public boolean update(Connection connection, RDBTableMetaData tmd, Document document, Long modified, Number hasBinary,
             Boolean deletedOnce, Long modcount, Long cmodcount, Long oldmodcount, String data) throws SQLException {
 
+        String id = document.getId();
+
         StringBuilder t = new StringBuilder();
         t.append("update " + tmd.getName() + " set ");
         t.append("MODIFIED = ?, HASBINARY = ?, DELETEDONCE = ?, MODCOUNT = ?, CMODCOUNT = ?, DSIZE = ?, DATA = ?, "
@@ -935,7 +936,7 @@ public class RDBDocumentStoreJDBC {
                 stmt.setBinaryStream(si++, null, 0);
             } else {
                 setDataInStatement(tmd, stmt, si++, "\"blob\"");
-                byte[] bytes = asBytes(data);
+                byte[] bytes = this.ser.asBlobData(document, tmd.getColumnOnlyProperties(), data);
                 stmt.setBytes(si++, bytes);
             }
 
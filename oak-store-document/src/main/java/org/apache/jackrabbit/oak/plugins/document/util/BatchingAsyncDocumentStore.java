@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.document.AsyncDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
+import org.apache.jackrabbit.oak.plugins.document.UpdateUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link AsyncDocumentStore} executing the operations on a synchronous
+ * {@link DocumentStore}.
+ * <p>
+ * Operations are dispatched to a bounded pool of threads. As long as a thread
+ * is available a point read is executed right away. Reads issued while all
+ * threads are busy are queued and the reads of a collection are then passed
+ * to a single {@link BatchReader} call. Updates are executed one batch at a
+ * time to preserve their order: all updates issued while a batch is in
+ * progress are combined into the next one, which is passed to a single
+ * {@link DocumentStore#createOrUpdate(Collection, List)} or
+ * {@link DocumentStore#findAndUpdate(Collection, List)} call per collection.
+ * Queries are not batched.
+ * <p>
+ * Without a dedicated {@link BatchReader}, the point reads of a batch are
+ * delegated one by one to {@link DocumentStore#find(Collection, String)}. This
+ * makes this class an adapter for any {@code DocumentStore}.
+ */
+public class BatchingAsyncDocumentStore implements AsyncDocumentStore, Closeable {
+
+    /**
+     * The default number of threads executing operations.
+     */
+    public static final int DEFAULT_THREADS =
+            Integer.getInteger("oak.documentstore.async.threads", 4);
+
+    /**
+     * The default maximum number of operations combined into a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE =
+            Integer.getInteger("oak.documentstore.async.batchSize", 100);
+
+    /**
+     * Reads multiple documents of a collection with a single call.
+     */
+    @FunctionalInterface
+    public interface BatchReader {
+
+        /**
+         * Read the documents with the given keys.
+         *
+         * @param <T> the document type
+         * @param collection the collection
+         * @param keys the keys of the documents to read
+         * @return the documents found, by key. Keys of documents that do not
+         *          exist are not contained in the map.
+         * @throws DocumentStoreException if the operation failed.
+         */
+        @NotNull
+        <T extends Document> Map<String, T> read(@NotNull Collection<T> collection,
+                                                 @NotNull Set<String> keys)
+                throws DocumentStoreException;
+    }
+
+    private final DocumentStore store;
+
+    private final BatchReader reader;
+
+    private final int maxBatchSize;
+
+    private final ExecutorService executor;
+
+    private final Batcher<ReadRequest<?>> reads;
+
+    private final Batcher<UpdateRequest<?>> updates;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates an adapter for the given store with the default number of threads
+     * and batch size, reading documents one by one.
+     *
+     * @param store the store to delegate to
+     */
+    public BatchingAsyncDocumentStore(@NotNull DocumentStore store) {
+        this(store, null, DEFAULT_THREADS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param store the store to delegate to
+     * @param reader reads a batch of documents, or {@code null} to read them
+     *               one by one with {@link DocumentStore#find(Collection, String)}
+     * @param threads the number of threads executing point reads and queries.
+     *                Updates are executed by an additional thread.
+     * @param maxBatchSize the maximum number of operations in a batch
+     */
+    public BatchingAsyncDocumentStore(@NotNull DocumentStore store,
+                                      @Nullable BatchReader reader,
+                                      int threads,
+                                      int maxBatchSize) {
+        if (threads < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("threads and maxBatchSize must be positive");
+        }
+        this.store = requireNonNull(store);
+        this.reader = reader != null ? reader : this::readOneByOne;
+        this.maxBatchSize = maxBatchSize;
+        this.reads = new Batcher<>(this::read, threads);
+        this.updates = new Batcher<>(this::update, 1);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads + 1, r -> {
+            Thread t = new Thread(r, "oak-async-document-store-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAsync(Collection<T> collection,
+                                                               String key) {
+        ReadRequest<T> request = new ReadRequest<>(collection, key);
+        reads.submit(request);
+        return request.future;
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<List<T>> queryAsync(Collection<T> collection,
+                                                                      String fromKey,
+                                                                      String toKey,
+                                                                      int limit) {
+        if (closed) {
+            return CompletableFuture.failedFuture(closedException());
+        }
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> store.query(collection, fromKey, toKey, limit), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(closedException());
+        }
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> createOrUpdateAsync(Collection<T> collection,
+                                                                         UpdateOp update) {
+        UpdateUtils.assertUnconditional(update);
+        UpdateRequest<T> request = new UpdateRequest<>(collection, update, true);
+        updates.submit(request);
+        return request.future;
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> CompletableFuture<T> findAndUpdateAsync(Collection<T> collection,
+                                                                        UpdateOp update) {
+        UpdateRequest<T> request = new UpdateRequest<>(collection, update, false);
+        updates.submit(request);
+        return request.future;
+    }
+
+    /**
+     * Stops accepting new operations and waits for the executing ones to
+     * complete. Queued operations are completed exceptionally.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        new ExecutorCloser(executor).close();
+        reads.failPending();
+        updates.failPending();
+    }
+
+    //------------------------------------------------------------< internal >
+
+    private void read(List<ReadRequest<?>> batch) {
+        Map<Collection<?>, List<ReadRequest<?>>> byCollection = new LinkedHashMap<>();
+        for (ReadRequest<?> r : batch) {
+            byCollection.computeIfAbsent(r.collection, c -> new ArrayList<>()).add(r);
+        }
+        for (List<ReadRequest<?>> requests : byCollection.values()) {
+            read(requests.get(0).collection, requests);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Document> void read(Collection<T> collection,
+                                           List<ReadRequest<?>> requests) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (ReadRequest<?> r : requests) {
+            keys.add(r.key);
+        }
+        Map<String, T> documents;
+        try {
+            documents = reader.read(collection, keys);
+        } catch (Throwable t) {
+            requests.forEach(r -> r.future.completeExceptionally(t));
+            return;
+        }
+        for (ReadRequest<?> r : requests) {
+            ((ReadRequest<T>) r).future.complete(documents.get(r.key));
+        }
+    }
+
+    @NotNull
+    private <T extends Document> Map<String, T> readOneByOne(@NotNull Collection<T> collection,
+                                                             @NotNull Set<String> keys) {
+        Map<String, T> documents = new HashMap<>();
+        for (String key : keys) {
+            T doc = store.find(collection, key);
+            if (doc != null) {
+                documents.put(key, doc);
+            }
+        }
+        return documents;
+    }
+
+    private void update(List<UpdateRequest<?>> batch) {
+        // group by collection and kind of update. The groups are flushed
+        // early when a document is updated a second time, which keeps the
+        // updates of a document in order and the keys of a group unique
+        Map<String, List<UpdateRequest<?>>> groups = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
+        for (UpdateRequest<?> r : batch) {
+            if (!keys.add(r.collection + "/" + r.update.getId())) {
+                update(groups);
+                keys.clear();
+                keys.add(r.collection + "/" + r.update.getId());
+            }
+            groups.computeIfAbsent(r.collection + "/" + r.upsert,
+                    k -> new ArrayList<>()).add(r);
+        }
+        update(groups);
+    }
+
+    private void update(Map<String, List<UpdateRequest<?>>> groups) {
+        for (List<UpdateRequest<?>> requests : groups.values()) {
+            UpdateRequest<?> first = requests.get(0);
+            update(first.collection, requests, first.upsert);
+        }
+        groups.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Document> void update(Collection<T> collection,
+                                             List<UpdateRequest<?>> requests,
+                                             boolean upsert) {
+        List<UpdateOp> ops = new ArrayList<>(requests.size());
+        for (UpdateRequest<?> r : requests) {
+            ops.add(r.update);
+        }
+        List<T> oldDocs;
+        try {
+            oldDocs = upsert
+                    ? store.createOrUpdate(collection, ops)
+                    : store.findAndUpdate(collection, ops);
+        } catch (Throwable t) {
+            requests.forEach(r -> r.future.completeExceptionally(t));
+            return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            ((UpdateRequest<T>) requests.get(i)).future.complete(oldDocs.get(i));
+        }
+    }
+
+    private static DocumentStoreException closedException() {
+        return new DocumentStoreException("AsyncDocumentStore is closed");
+    }
+
+    private static class Request<T extends Document> {
+
+        final Collection<T> collection;
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Request(Collection<T> collection) {
+            this.collection = requireNonNull(collection);
+        }
+    }
+
+    private static final class ReadRequest<T extends Document> extends Request<T> {
+
+        final String key;
+
+        ReadRequest(Collection<T> collection, String key) {
+            super(collection);
+            this.key = requireNonNull(key);
+        }
+    }
+
+    private static final class UpdateRequest<T extends Document> extends Request<T> {
+
+        final UpdateOp update;
+
+        final boolean upsert;
+
+        UpdateRequest(Collection<T> collection, UpdateOp update, boolean upsert) {
+            super(collection);
+            this.update = requireNonNull(update);
+            this.upsert = upsert;
+        }
+    }
+
+    /**
+     * Queues requests and processes them in batches with at most
+     * {@code parallelism} batches in progress at the same time.
+     */
+    private final class Batcher<R extends Request<?>> {
+
+        private final Queue<R> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final Consumer<List<R>> processor;
+
+        private final int parallelism;
+
+        Batcher(Consumer<List<R>> processor, int parallelism) {
+            this.processor = processor;
+            this.parallelism = parallelism;
+        }
+
+        void submit(R request) {
+            if (closed) {
+                request.future.completeExceptionally(closedException());
+                return;
+            }
+            queue.add(request);
+            dispatch();
+        }
+
+        private void dispatch() {
+            int n;
+            do {
+                n = active.get();
+                if (n >= parallelism) {
+                    // one of the running batches will pick up the request
+                    return;
+                }
+            } while (!active.compareAndSet(n, n + 1));
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                active.decrementAndGet();
+                failPending();
+            }
+        }
+
+        private void drain() {
+            try {
+                List<R> batch = new ArrayList<>();
+                for (;;) {
+                    R r;
+                    while (batch.size() < maxBatchSize && (r = queue.poll()) != null) {
+                        batch.add(r);
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    processor.accept(batch);
+                    batch = new ArrayList<>();
+                }
+            } finally {
+                active.decrementAndGet();
+                // a request may have been added after the queue was
+                // found empty and before the counter was decremented
+                if (!queue.isEmpty()) {
+                    dispatch();
+                }
+            }
+        }
+
+        void failPending() {
+            R r;
+            while ((r = queue.poll()) != null) {
+                r.future.completeExceptionally(closedException());
+            }
+        }
+    }
+}
@@ -802,7 +802,7 @@ public class Utils {
             DocumentStore store, String indexedProperty, long startValue,
             @NotNull final Set<String> includePaths, @NotNull final Set<String> excludePaths) {
         return internalGetSelectedDocuments(store, indexedProperty, startValue,
-                MIN_ID_VALUE, includePaths, excludePaths, DEFAULT_BATCH_SIZE);
+                MIN_ID_VALUE, NodeDocument.MAX_ID_VALUE, includePaths, excludePaths, DEFAULT_BATCH_SIZE);
     }
 
     /**
@@ -822,7 +822,19 @@ public class Utils {
             DocumentStore store, String indexedProperty, long startValue, String fromId,
             @NotNull final Set<String> includePaths, @NotNull final Set<String> excludePaths) {
         return internalGetSelectedDocuments(store, indexedProperty, startValue, fromId,
-                includePaths, excludePaths, DEFAULT_BATCH_SIZE);
+                NodeDocument.MAX_ID_VALUE, includePaths, excludePaths, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Like {@link #getSelectedDocuments(DocumentStore, String, long, int)},
+     * but only returns documents with an id in the range from {@code fromId}
+     * to {@code toId} (both exclusive).
+     */
+    public static Iterable<NodeDocument> getSelectedDocuments(
+            DocumentStore store, String indexedProperty, long startValue,
+            String fromId, String toId, int batchSize) {
+        return internalGetSelectedDocuments(store, indexedProperty, startValue, fromId, toId,
+                Collections.emptySet(), Collections.emptySet(), batchSize);
     }
 
     /**
@@ -881,12 +893,12 @@ public class Utils {
             final long startValue, String fromId,
             final int batchSize) {
         return internalGetSelectedDocuments(store, indexedProperty, startValue, fromId,
-                Collections.emptySet(), Collections.emptySet(), batchSize);
+                NodeDocument.MAX_ID_VALUE, Collections.emptySet(), Collections.emptySet(), batchSize);
     }
 
     private static Iterable<NodeDocument> internalGetSelectedDocuments(
             final DocumentStore store, final String indexedProperty,
-            final long startValue, String fromId,
+            final long startValue, String fromId, String toId,
             @NotNull final Set<String> includePaths,
             @NotNull final Set<String> excludePaths,
             final int batchSize) {
@@ -945,8 +957,8 @@ public class Utils {
 
                     private Iterator<NodeDocument> nextBatch() {
                         List<NodeDocument> result = indexedProperty == null ? store.query(Collection.NODES, startId,
-                                NodeDocument.MAX_ID_VALUE, batchSize) : store.query(Collection.NODES, startId,
-                                NodeDocument.MAX_ID_VALUE, indexedProperty, startValue, batchSize);
+                                toId, batchSize) : store.query(Collection.NODES, startId,
+                                toId, indexedProperty, startValue, batchSize);
                         return result.iterator();
                     }
                 };
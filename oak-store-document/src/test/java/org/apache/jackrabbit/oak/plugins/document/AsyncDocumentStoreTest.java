@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncDocumentStoreTest extends AbstractDocumentStoreTest {
+
+    private AsyncDocumentStore store;
+
+    public AsyncDocumentStoreTest(DocumentStoreFixture dsf) {
+        super(dsf);
+    }
+
+    @Before
+    public void before() {
+        assumeTrue(ds instanceof AsyncDocumentStore);
+        store = (AsyncDocumentStore) ds;
+    }
+
+    @Test
+    public void findAsync() {
+        String prefix = this.getClass().getName() + ".findAsync";
+        List<UpdateOp> ops = new ArrayList<>();
+        for (int i = 0; i < 20; i += 2) {
+            UpdateOp op = new UpdateOp(prefix + i, true);
+            op.set("value", i);
+            ops.add(op);
+            removeMe.add(op.getId());
+        }
+        ds.createOrUpdate(Collection.NODES, ops);
+
+        List<CompletableFuture<NodeDocument>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(store.findAsync(Collection.NODES, prefix + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            NodeDocument doc = futures.get(i).join();
+            if (i % 2 == 0) {
+                assertNotNull(doc);
+                assertEquals((long) i, doc.get("value"));
+            } else {
+                assertNull(doc);
+            }
+        }
+    }
+
+    @Test
+    public void createOrUpdateAsyncKeepsOrder() {
+        String id = this.getClass().getName() + ".createOrUpdateAsyncKeepsOrder";
+        removeMe.add(id);
+        List<CompletableFuture<NodeDocument>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UpdateOp op = new UpdateOp(id, true);
+            op.set("value", i);
+            futures.add(store.createOrUpdateAsync(Collection.NODES, op));
+        }
+        assertNull(futures.get(0).join());
+        for (int i = 1; i < 20; i++) {
+            assertEquals((long) (i - 1), futures.get(i).join().get("value"));
+        }
+        NodeDocument doc = store.findAsync(Collection.NODES, id).join();
+        assertNotNull(doc);
+        assertEquals(19L, doc.get("value"));
+    }
+
+    @Test
+    public void findAndUpdateAsync() {
+        String id = this.getClass().getName() + ".findAndUpdateAsync";
+        removeMe.add(id);
+        UpdateOp create = new UpdateOp(id, true);
+        create.set("value", 1);
+        assertNull(store.createOrUpdateAsync(Collection.NODES, create).join());
+
+        UpdateOp notMatching = new UpdateOp(id, false);
+        notMatching.equals("value", 2L);
+        notMatching.set("value", 3);
+        UpdateOp matching = new UpdateOp(id, false);
+        matching.equals("value", 1L);
+        matching.set("value", 4);
+        CompletableFuture<NodeDocument> f1 = store.findAndUpdateAsync(Collection.NODES, notMatching);
+        CompletableFuture<NodeDocument> f2 = store.findAndUpdateAsync(Collection.NODES, matching);
+        assertNull(f1.join());
+        assertEquals(1L, f2.join().get("value"));
+        assertEquals(4L, ds.find(Collection.NODES, id).get("value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createOrUpdateAsyncConditional() {
+        UpdateOp op = new UpdateOp(this.getClass().getName() + ".createOrUpdateAsyncConditional", false);
+        op.equals("value", 1L);
+        store.createOrUpdateAsync(Collection.NODES, op);
+    }
+
+    @Test
+    public void queryAsync() {
+        String base = "0:/" + this.getClass().getName() + ".queryAsync";
+        ds.create(Collection.NODES, List.of(new UpdateOp(base + "/a", true), new UpdateOp(base + "/b", true)));
+        removeMe.add(base + "/a");
+        removeMe.add(base + "/b");
+        List<NodeDocument> docs = store.queryAsync(Collection.NODES, base + "/", base + "0", 10).join();
+        assertEquals(2, docs.size());
+    }
+}
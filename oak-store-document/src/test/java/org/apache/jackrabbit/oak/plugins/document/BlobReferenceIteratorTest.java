@@ -22,12 +22,14 @@ package org.apache.jackrabbit.oak.plugins.document;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jackrabbit.guava.common.collect.ImmutableList;
 import com.mongodb.ReadPreference;
 
 import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.plugins.blob.BlobReferenceRetriever;
 import org.apache.jackrabbit.oak.plugins.blob.ReferencedBlob;
 import org.apache.jackrabbit.oak.plugins.document.VersionGarbageCollector.VersionGCStats;
 import org.apache.jackrabbit.oak.plugins.document.mongo.MongoTestUtils;
@@ -138,6 +140,37 @@ public class BlobReferenceIteratorTest {
         assertEquals(new HashSet<>(blobs), new HashSet<>(collectedBlobs));
     }
 
+    @Test
+    public void partitions() throws Exception {
+        List<String> blobIds = new ArrayList<>();
+        NodeBuilder builder = store.getRoot().builder();
+        NodeBuilder node = builder;
+        for (int i = 0; i < 12; i++) {
+            node = node.child("n" + i);
+            Blob b = store.createBlob(randomStream(i, 4096));
+            node.setProperty("b", b);
+            blobIds.add(b.getContentIdentity());
+        }
+        merge(store, builder);
+
+        DocumentBlobReferenceRetriever retriever = new DocumentBlobReferenceRetriever(store);
+        Map<String, BlobReferenceRetriever> partitions = retriever.getPartitions();
+        assertEquals(new ArrayList<>(partitions.keySet()), new ArrayList<>(retriever.getPartitions().keySet()));
+        List<String> collected = new ArrayList<>();
+        int nonEmpty = 0;
+        for (BlobReferenceRetriever partition : partitions.values()) {
+            int size = collected.size();
+            partition.collectReferences((reference, nodeId) -> collected.add(reference));
+            if (collected.size() > size) {
+                nonEmpty++;
+            }
+        }
+        assertEquals(new HashSet<>(blobIds), new HashSet<>(collected));
+        assertEquals(blobIds.size(), collected.size());
+        // one partition per depth
+        assertEquals(blobIds.size(), nonEmpty);
+    }
+
     @Test
     public void recreateNodeAfterRevisionGC() throws Exception {
         assumeTrue(fixture.hasSinglePersistence());
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.StableRevisionComparator.REVERSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NodeDocumentCodecTest {
+
+    private final DocumentStore store = new MemoryDocumentStore();
+
+    @Test
+    public void roundTrip() {
+        NodeDocument doc = createDocument();
+        NodeDocument copy = NodeDocument.fromBytes(store, ByteBuffer.wrap(doc.asBytes()));
+        assertTrue(copy.isSealed());
+        assertEquals(doc.asString(), copy.asString());
+        assertEquals(doc.getLocalRevisions(), copy.getLocalRevisions());
+        assertEquals(REVERSE, ((SortedMap<?, ?>) copy.get(NodeDocument.REVISIONS)).comparator());
+    }
+
+    @Test
+    public void sameAsJson() {
+        NodeDocument doc = createDocument();
+        NodeDocument fromJson = NodeDocument.fromString(store, doc.asString());
+        NodeDocument fromBytes = NodeDocument.fromBytes(store, ByteBuffer.wrap(doc.asBytes()));
+        assertEquals(fromJson.keySet(), fromBytes.keySet());
+        for (String key : fromJson.keySet()) {
+            assertEquals(key, fromJson.get(key), fromBytes.get(key));
+        }
+    }
+
+    @Test
+    public void smallerThanJson() {
+        NodeDocument doc = createDocument();
+        byte[] json = doc.asString().getBytes(StandardCharsets.UTF_8);
+        assertTrue(doc.asBytes().length < json.length);
+    }
+
+    @Test
+    public void values() {
+        NodeDocument doc = new NodeDocument(store);
+        doc.put("null", null);
+        doc.put("int", 42);
+        doc.put("negative", -7L);
+        doc.put("max", Long.MAX_VALUE);
+        doc.put("min", Long.MIN_VALUE);
+        doc.put("double", 0.5d);
+        doc.put("empty", "");
+        doc.put("unicode", "ä中😀");
+        doc.put("revision", Revision.fromString("r1-0-1"));
+        NodeDocument copy = NodeDocumentCodec.decode(NodeDocumentCodec.encode(doc), new NodeDocument(store));
+        assertTrue(copy.keySet().contains("null"));
+        assertNull(copy.get("null"));
+        assertEquals(42L, copy.get("int"));
+        assertEquals(-7L, copy.get("negative"));
+        assertEquals(Long.MAX_VALUE, copy.get("max"));
+        assertEquals(Long.MIN_VALUE, copy.get("min"));
+        assertEquals(0.5d, copy.get("double"));
+        assertEquals("", copy.get("empty"));
+        assertEquals("ä中😀", copy.get("unicode"));
+        assertEquals("r1-0-1", copy.get("revision"));
+    }
+
+    @Test
+    public void excluded() {
+        NodeDocument doc = createDocument();
+        byte[] data = NodeDocumentCodec.encode(doc, Collections.singleton(NodeDocument.MODIFIED_IN_SECS));
+        NodeDocument copy = NodeDocumentCodec.decode(data, new NodeDocument(store));
+        assertNull(copy.get(NodeDocument.MODIFIED_IN_SECS));
+        assertEquals(doc.getId(), copy.getId());
+    }
+
+    @Test
+    public void isEncoded() {
+        assertTrue(NodeDocumentCodec.isEncoded(createDocument().asBytes()));
+        assertFalse(NodeDocumentCodec.isEncoded(createDocument().asString().getBytes(StandardCharsets.UTF_8)));
+        assertFalse(NodeDocumentCodec.isEncoded(new byte[0]));
+    }
+
+    @Test
+    public void unsupported() {
+        NodeDocument doc = new NodeDocument(store);
+        doc.put("map", Collections.singletonMap("foo", "bar"));
+        try {
+            NodeDocumentCodec.encode(doc);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void corrupt() {
+        byte[] data = createDocument().asBytes();
+        for (byte[] corrupt : new byte[][] {
+                Arrays.copyOf(data, data.length / 2),
+                "{}".getBytes(StandardCharsets.UTF_8) }) {
+            try {
+                NodeDocumentCodec.decode(corrupt, new NodeDocument(store));
+                fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private NodeDocument createDocument() {
+        NodeDocument doc = new NodeDocument(store);
+        doc.put(Document.ID, "2:/foo/bar");
+        doc.put(NodeDocument.MODIFIED_IN_SECS, 1700000000L);
+        doc.put(Document.MOD_COUNT, 3L);
+        TreeMap<Revision, Object> revisions = new TreeMap<>(REVERSE);
+        TreeMap<Revision, Object> deleted = new TreeMap<>(REVERSE);
+        TreeMap<Revision, Object> prop = new TreeMap<>(REVERSE);
+        long time = 1700000000000L;
+        for (int i = 0; i < 20; i++) {
+            Revision r = new Revision(time + i * 1000, i % 3, 1 + i % 2);
+            revisions.put(r, "c");
+            deleted.put(r, i % 2 == 0 ? "false" : "true");
+            prop.put(r, "\"value-" + i + "\"");
+        }
+        doc.put(NodeDocument.REVISIONS, revisions);
+        doc.put(NodeDocument.DELETED, deleted);
+        doc.put("prop", prop);
+        return doc;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.persistentCache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.jackrabbit.guava.common.cache.Cache;
+import org.apache.jackrabbit.oak.cache.CacheLIRS;
+import org.apache.jackrabbit.oak.plugins.document.MemoryDiffCache;
+import org.apache.jackrabbit.oak.plugins.document.Path;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private LogStore open(boolean readOnly) throws Exception {
+        return open(readOnly, 12);
+    }
+
+    private LogStore open(boolean readOnly, int capacityBits) throws Exception {
+        return new LogStore(new File(folder.getRoot(), "cache-0.log"),
+                new File(folder.getRoot(), "cache-0.idx"), readOnly, SEGMENT_SIZE, capacityBits);
+    }
+
+    @Test
+    public void putGetRemove() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> m1 = store.openMap("m1", null, null);
+        Map<String, String> m2 = store.openMap("m2", null, null);
+        m1.put("a", "1");
+        m2.put("a", "2");
+        assertEquals("1", m1.get("a"));
+        assertEquals("2", m2.get("a"));
+        assertNull(m1.get("b"));
+
+        m1.put("a", "3");
+        assertEquals("3", m1.get("a"));
+        m1.remove("a");
+        assertNull(m1.get("a"));
+        assertFalse(m1.containsKey("a"));
+        assertTrue(m2.containsKey("a"));
+
+        m2.clear();
+        assertNull(m2.get("a"));
+        m2.put("a", "4");
+        assertEquals("4", m2.get("a"));
+        store.close();
+    }
+
+    @Test
+    public void views() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> m1 = store.openMap("m1", null, null);
+        Map<String, String> m2 = store.openMap("m2", null, null);
+        assertTrue(m1.isEmpty());
+        assertEquals(0, m1.size());
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            expected.put("key" + i, "value" + i);
+        }
+        m1.putAll(expected);
+        m1.put("key0", "value0");
+        m1.put("removed", "x");
+        m1.remove("removed");
+        m2.put("other", "y");
+
+        assertFalse(m1.isEmpty());
+        assertEquals(100, m1.size());
+        assertEquals(expected, new HashMap<>(m1));
+        assertEquals(expected.keySet(), m1.keySet());
+        assertTrue(m1.containsValue("value1"));
+        assertFalse(m1.containsValue("y"));
+
+        Iterator<String> it = m1.keySet().iterator();
+        String key = it.next();
+        it.remove();
+        assertNull(m1.get(key));
+        assertEquals(99, m1.values().size());
+
+        m1.clear();
+        assertTrue(m1.isEmpty());
+        assertTrue(m1.entrySet().isEmpty());
+        assertEquals(1, m2.size());
+        store.close();
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        Map<String, String> cleared = store.openMap("cleared", null, null);
+        for (int i = 0; i < 500; i++) {
+            map.put("key" + i, "value" + i);
+            cleared.put("key" + i, "value" + i);
+        }
+        cleared.clear();
+        long size = store.getFileSize();
+        assertTrue(size > SEGMENT_SIZE);
+        store.close();
+
+        store = open(true);
+        assertEquals(size, store.getFileSize());
+        map = store.openMap("map", null, null);
+        cleared = store.openMap("cleared", null, null);
+        for (int i = 0; i < 500; i++) {
+            assertEquals("value" + i, map.get("key" + i));
+            assertNull(cleared.get("key" + i));
+        }
+        store.close();
+    }
+
+    @Test
+    public void rebuildIndexAfterCrash() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        Map<String, String> cleared = store.openMap("cleared", null, null);
+        for (int i = 0; i < 500; i++) {
+            map.put("key" + i, "value" + i);
+            cleared.put("key" + i, "value" + i);
+        }
+        map.remove("key0");
+        cleared.clear();
+        long size = store.getFileSize();
+        // not closed: the index is not marked as clean
+
+        // garbage after the last record
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder.getRoot(), "cache-0.log"), "rw")) {
+            file.seek(size);
+            file.writeInt(100);
+            file.writeInt(42);
+        }
+
+        store = open(false);
+        assertEquals(size, store.getFileSize());
+        map = store.openMap("map", null, null);
+        cleared = store.openMap("cleared", null, null);
+        assertNull(map.get("key0"));
+        for (int i = 1; i < 500; i++) {
+            assertEquals("value" + i, map.get("key" + i));
+            assertNull(cleared.get("key" + i));
+        }
+        map.put("new", "value");
+        store.close();
+
+        store = open(true);
+        assertEquals("value", store.openMap("map", null, null).get("new"));
+        store.close();
+    }
+
+    @Test
+    public void batch() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        map.put("removed", "x");
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            changes.put("key" + i, "value" + i);
+        }
+        changes.put("removed", null);
+        changes.put("missing", null);
+        changes.put("large", new String(new char[SEGMENT_SIZE]));
+        changes.put("last", "value");
+        ((LogStore.LogMap<String, String>) map).apply(changes);
+        assertTrue(store.getFileSize() > 3 * SEGMENT_SIZE);
+        for (int i = 0; i < 500; i++) {
+            assertEquals("value" + i, map.get("key" + i));
+        }
+        assertNull(map.get("removed"));
+        assertNull(map.get("large"));
+        assertEquals("value", map.get("last"));
+        assertEquals(501, map.size());
+        long size = store.getFileSize();
+        // not closed: the index is rebuilt from the records
+        store = open(false);
+        assertEquals(size, store.getFileSize());
+        map = store.openMap("map", null, null);
+        for (int i = 0; i < 500; i++) {
+            assertEquals("value" + i, map.get("key" + i));
+        }
+        assertNull(map.get("removed"));
+        assertEquals("value", map.get("last"));
+        store.close();
+    }
+
+    @Test
+    public void readOnlyDoesNotWriteIndex() throws Exception {
+        File indexFile = new File(folder.getRoot(), "cache-0.idx");
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        map.put("a", "1");
+        store.close();
+        byte[] index = Files.readAllBytes(indexFile.toPath());
+
+        store = open(true);
+        assertEquals("1", store.openMap("map", null, null).get("a"));
+        store.close();
+        assertArrayEquals(index, Files.readAllBytes(indexFile.toPath()));
+
+        store = open(false);
+        store.openMap("map", null, null).put("b", "2");
+        // not closed: the index needs to be rebuilt
+        index = Files.readAllBytes(indexFile.toPath());
+        store = open(true);
+        map = store.openMap("map", null, null);
+        assertEquals("1", map.get("a"));
+        assertEquals("2", map.get("b"));
+        store.close();
+        assertArrayEquals(index, Files.readAllBytes(indexFile.toPath()));
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void corruptDataFile() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "cache-0.log"))) {
+            out.write("corrupt data file".getBytes());
+        }
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        map.put("a", "1");
+        assertEquals("1", map.get("a"));
+        store.close();
+    }
+
+    @Test
+    public void full() throws Exception {
+        LogStore store = open(false, 10);
+        Map<String, String> map = store.openMap("map", null, null);
+        int i = 0;
+        while (!store.isFull()) {
+            map.put("key" + i, "value" + i);
+            i++;
+        }
+        assertEquals(768, i);
+        map.put("other", "value");
+        assertNull(map.get("other"));
+        // existing entries can still be updated and removed
+        map.put("key1", "updated");
+        assertEquals("updated", map.get("key1"));
+        map.remove("key2");
+        assertNull(map.get("key2"));
+        store.close();
+    }
+
+    @Test
+    public void tooLarge() throws Exception {
+        LogStore store = open(false);
+        Map<String, String> map = store.openMap("map", null, null);
+        map.put("large", new String(new char[SEGMENT_SIZE]));
+        assertNull(map.get("large"));
+        store.close();
+    }
+
+    @Test
+    public void persistentCache() throws Exception {
+        String dir = folder.newFolder("cache").getAbsolutePath();
+        PersistentCache pCache = new PersistentCache(dir + ",+logStore,-async");
+        CacheLIRS<MemoryDiffCache.Key, StringValue> base = new CacheLIRS.Builder<MemoryDiffCache.Key, StringValue>().
+                maximumSize(1).build();
+        Cache<MemoryDiffCache.Key, StringValue> cache = pCache.wrap(null, null, base, CacheType.DIFF);
+        RevisionVector from = new RevisionVector(new Revision(0, 0, 1));
+        RevisionVector to = new RevisionVector(new Revision(1, 0, 1));
+        MemoryDiffCache.Key k1 = new MemoryDiffCache.Key(Path.fromString("/a"), from, to);
+        MemoryDiffCache.Key k2 = new MemoryDiffCache.Key(Path.fromString("/b"), from, to);
+        cache.put(k1, new StringValue("v1"));
+        cache.put(k2, new StringValue("v2"));
+        pCache.close();
+
+        assertTrue(new File(dir, "cache-0.log").exists());
+        assertTrue(new File(dir, "cache-0.idx").exists());
+
+        pCache = new PersistentCache(dir + ",+logStore,-async");
+        base = new CacheLIRS.Builder<MemoryDiffCache.Key, StringValue>().maximumSize(1).build();
+        cache = pCache.wrap(null, null, base, CacheType.DIFF);
+        assertEquals("v1", cache.getIfPresent(k1).toString());
+        assertEquals("v2", cache.getIfPresent(k2).toString());
+        assertEquals(0, pCache.getExceptionCount());
+        pCache.close();
+    }
+
+    @Test
+    public void switchStoreType() throws Exception {
+        String dir = folder.newFolder("cache").getAbsolutePath();
+        PersistentCache pCache = new PersistentCache(dir + ",-async");
+        pCache.close();
+        assertTrue(new File(dir, "cache-0.data").exists());
+
+        pCache = new PersistentCache(dir + ",+logStore,-async");
+        pCache.close();
+        assertFalse(new File(dir, "cache-0.data").exists());
+        assertTrue(new File(dir, "cache-0.log").exists());
+
+        pCache = new PersistentCache(dir + ",-async");
+        pCache.close();
+        assertFalse(new File(dir, "cache-0.log").exists());
+        assertFalse(new File(dir, "cache-0.idx").exists());
+        assertTrue(new File(dir, "cache-0.data").exists());
+    }
+}
@@ -24,15 +24,18 @@ import static java.lang.Thread.sleep;
 import static org.apache.jackrabbit.oak.plugins.document.persistentCache.async.CacheActionDispatcher.MAX_SIZE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
 import org.apache.jackrabbit.oak.commons.StringUtils;
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
 import org.junit.Test;
 
 public class CacheActionDispatcherTest {
@@ -149,6 +152,53 @@ public class CacheActionDispatcherTest {
         assertFalse(dispatcher.add(big));
     }
 
+    @Test
+    public void batchPerQueue() throws Exception {
+        CacheActionDispatcher dispatcher = new CacheActionDispatcher();
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        RecordingQueue q1 = new RecordingQueue(dispatcher, batches);
+        RecordingQueue q2 = new RecordingQueue(dispatcher, batches);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(q1.addPut(new StringValue("k" + i), new StringValue("v" + i)));
+        }
+        DummyCacheWriteAction single = new DummyCacheWriteAction("single", 0);
+        assertTrue(dispatcher.add(single));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(q2.addInvalidate(Collections.singleton(new StringValue("k" + i))));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(q1.addPut(new StringValue("k" + i), new StringValue("v" + i)));
+        }
+
+        Thread t = new Thread(dispatcher);
+        t.start();
+        for (int i = 0; i < 100 && batches.size() < 3; i++) {
+            Thread.sleep(20);
+        }
+        dispatcher.stop();
+        t.join();
+        assertEquals(List.of(10, 5, 3), batches);
+        assertTrue(single.finished);
+    }
+
+    private static class RecordingQueue extends CacheWriteQueue<StringValue, StringValue> {
+
+        private final List<Integer> batches;
+
+        RecordingQueue(CacheActionDispatcher dispatcher, List<Integer> batches) {
+            super(dispatcher, null, null);
+            this.batches = batches;
+        }
+
+        @Override
+        void execute(List<CacheAction> actions) {
+            for (CacheAction a : actions) {
+                assertSame(this, a.getQueue());
+            }
+            batches.add(actions.size());
+        }
+    }
+
     private DummyCacheWriteAction createWriteAction(String id) {
         return new DummyCacheWriteAction(id);
     }
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.prefetch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreStatsCollector;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStoreWrapper;
+import org.apache.jackrabbit.oak.plugins.document.Path;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AdaptivePrefetcherTest {
+
+    private static final int THRESHOLD = 3;
+
+    private static final int BATCH_SIZE = 10;
+
+    private CachingStore store;
+
+    private DocumentNodeStoreStatsCollector stats;
+
+    private AdaptivePrefetcher prefetcher;
+
+    @Before
+    public void before() {
+        store = new CachingStore(new MemoryDocumentStore());
+        stats = mock(DocumentNodeStoreStatsCollector.class);
+        prefetcher = new AdaptivePrefetcher(store, stats, THRESHOLD, BATCH_SIZE);
+    }
+
+    @Test
+    public void sequentialChildren() {
+        Path parent = Path.fromString("/p");
+        List<Path> children = createChildren(parent, "c", 30);
+
+        // the first reads do not trigger a prefetch
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            read(children.get(i));
+        }
+        assertEquals(0, store.numQueries);
+
+        // the next read does
+        read(children.get(THRESHOLD - 1));
+        assertEquals(1, store.numQueries);
+        verify(stats).donePrefetch(BATCH_SIZE);
+
+        // the prefetched siblings are now cached
+        int next = THRESHOLD - 1 + BATCH_SIZE;
+        for (int i = THRESHOLD; i < next; i++) {
+            read(children.get(i));
+        }
+        assertEquals(1, store.numQueries);
+        verify(stats, times(BATCH_SIZE - 1)).prefetchHit();
+
+        // the first read beyond the prefetched range immediately
+        // loads the next batch
+        read(children.get(next));
+        assertEquals(2, store.numQueries);
+        assertTrue(store.isCached(children.get(next + 1)));
+    }
+
+    @Test
+    public void randomChildren() {
+        Path parent = Path.fromString("/p");
+        List<Path> children = createChildren(parent, "c", 30);
+        for (int i : new int[]{5, 2, 9, 1, 7, 3, 8, 0}) {
+            read(children.get(i));
+        }
+        assertEquals(0, store.numQueries);
+        verify(stats, never()).donePrefetch(anyInt());
+    }
+
+    @Test
+    public void cachedReadsIgnored() {
+        Path parent = Path.fromString("/p");
+        List<Path> children = createChildren(parent, "c", 30);
+        for (Path p : children) {
+            store.cache(p);
+        }
+        for (Path p : children) {
+            read(p);
+        }
+        assertEquals(0, store.numQueries);
+    }
+
+    @Test
+    public void descendantWalk() {
+        Path root = Path.fromString("/r");
+        List<Path> children = createChildren(root, "a", 10);
+        for (Path p : children) {
+            createChildren(p, "x", 2);
+        }
+        for (int i = 0; i < THRESHOLD; i++) {
+            read(new Path(children.get(i), "x00"));
+        }
+        assertEquals(1, store.numQueries);
+
+        // the children of the following siblings are prefetched
+        Path last = children.get(THRESHOLD - 1);
+        assertTrue(store.isCached(new Path(last, "x01")));
+        assertTrue(store.isCached(new Path(children.get(THRESHOLD), "x00")));
+        assertTrue(store.isCached(new Path(children.get(THRESHOLD), "x01")));
+
+        read(new Path(last, "x01"));
+        verify(stats).prefetchHit();
+    }
+
+    private void read(Path path) {
+        prefetcher.beforeRead(path);
+        store.find(NODES, Utils.getIdFromPath(path));
+    }
+
+    private List<Path> createChildren(Path parent, String prefix, int num) {
+        List<UpdateOp> ops = new ArrayList<>();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            Path p = new Path(parent, String.format("%s%02d", prefix, i));
+            paths.add(p);
+            ops.add(new UpdateOp(Utils.getIdFromPath(p), true));
+        }
+        assertTrue(store.create(NODES, ops));
+        return paths;
+    }
+
+    /**
+     * Simulates a document cache populated by queries and reads.
+     */
+    private static final class CachingStore extends DocumentStoreWrapper {
+
+        private final Set<String> cached = new HashSet<>();
+
+        private int numQueries;
+
+        CachingStore(DocumentStore store) {
+            super(store);
+        }
+
+        void cache(Path path) {
+            cached.add(Utils.getIdFromPath(path));
+        }
+
+        boolean isCached(Path path) {
+            return cached.contains(Utils.getIdFromPath(path));
+        }
+
+        @Override
+        public <T extends Document> T find(Collection<T> collection, String key) {
+            T doc = super.find(collection, key);
+            if (doc != null) {
+                cached.add(key);
+            }
+            return doc;
+        }
+
+        @NotNull
+        @Override
+        public <T extends Document> List<T> query(Collection<T> collection,
+                                                  String fromKey,
+                                                  String toKey,
+                                                  int limit) {
+            numQueries++;
+            List<T> docs = super.query(collection, fromKey, toKey, limit);
+            docs.forEach(d -> cached.add(d.getId()));
+            return docs;
+        }
+
+        @Override
+        public <T extends Document> T getIfCached(Collection<T> collection, String key) {
+            return cached.contains(key) ? super.find(collection, key) : null;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.jackrabbit.oak.plugins.document.Collection;
@@ -35,6 +36,9 @@ import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreFixture;
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocumentCodec;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.StableRevisionComparator;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -113,6 +117,32 @@ public class RDBDocumentSerializerTest {
         assertEquals(1L, doc.get("i"));
     }
 
+    @Test
+    public void testBinaryBlob() throws IOException {
+        NodeDocument source = Collection.NODES.newDocument(store);
+        source.put("s", "string");
+        source.put("b", true);
+        source.put("i", 1L);
+        Map<Revision, Object> revisions = new TreeMap<>(StableRevisionComparator.REVERSE);
+        revisions.put(Revision.fromString("r1-0-1"), "c");
+        source.put("_revisions", revisions);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GZIPOutputStream gos = new GZIPOutputStream(bos);
+        gos.write(NodeDocumentCodec.encode(source));
+        gos.close();
+        for (byte[] bdata : new byte[][] { NodeDocumentCodec.encode(source), bos.toByteArray() }) {
+            RDBRow row = new RDBRow("_foo", 0L, false, 1l, 2l, 3l, 0L, 0L, 0L,
+                    "\"blob\",[[\"=\",\"s\",\"changed\"]]", bdata);
+            NodeDocument doc = this.ser.fromRow(Collection.NODES, row);
+            assertEquals("_foo", doc.getId());
+            assertEquals(2L, doc.getModCount().longValue());
+            assertEquals("changed", doc.get("s"));
+            assertEquals(Boolean.TRUE, doc.get("b"));
+            assertEquals(1L, doc.get("i"));
+            assertEquals(revisions, doc.get("_revisions"));
+        }
+    }
+
     @Test
     public void testSimpleBoth() {
         try {
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchingAsyncDocumentStoreTest {
+
+    private final MemoryDocumentStore store = new MemoryDocumentStore();
+
+    private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch reading = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BatchingAsyncDocumentStore async;
+
+    @After
+    public void after() {
+        release.countDown();
+        if (async != null) {
+            async.close();
+        }
+        store.dispose();
+    }
+
+    @Test
+    public void coalesceReads() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            store.create(Collection.NODES, List.of(new UpdateOp("1:/n" + i, true)));
+        }
+        async = new BatchingAsyncDocumentStore(store, new BlockingReader(), 1, 100);
+
+        // the first read blocks the only thread, all further reads are queued
+        CompletableFuture<NodeDocument> first = async.findAsync(Collection.NODES, "1:/n0");
+        reading.await();
+        List<CompletableFuture<NodeDocument>> queued = new ArrayList<>();
+        for (int i = 1; i < 10; i++) {
+            queued.add(async.findAsync(Collection.NODES, "1:/n" + i));
+        }
+        CompletableFuture<NodeDocument> missing = async.findAsync(Collection.NODES, "1:/missing");
+        release.countDown();
+
+        assertNotNull(first.join());
+        for (CompletableFuture<NodeDocument> f : queued) {
+            assertNotNull(f.join());
+        }
+        assertNull(missing.join());
+        assertEquals(2, batches.size());
+        assertEquals(10, batches.get(1).size());
+    }
+
+    @Test
+    public void maxBatchSize() throws Exception {
+        async = new BatchingAsyncDocumentStore(store, new BlockingReader(), 1, 4);
+        async.findAsync(Collection.NODES, "1:/a");
+        reading.await();
+        List<CompletableFuture<NodeDocument>> queued = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            queued.add(async.findAsync(Collection.NODES, "1:/n" + i));
+        }
+        release.countDown();
+        CompletableFuture.allOf(queued.toArray(new CompletableFuture[0])).join();
+        assertEquals(4, batches.size());
+        for (Set<String> batch : batches) {
+            assertTrue(batch.size() <= 4);
+        }
+    }
+
+    @Test
+    public void readFailure() {
+        async = new BatchingAsyncDocumentStore(store, new BatchingAsyncDocumentStore.BatchReader() {
+            @NotNull
+            @Override
+            public <T extends Document> Map<String, T> read(@NotNull Collection<T> collection,
+                                                            @NotNull Set<String> keys) {
+                throw new DocumentStoreException("failed");
+            }
+        }, 1, 100);
+        try {
+            async.findAsync(Collection.NODES, "1:/a").join();
+            fail("must fail with DocumentStoreException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof DocumentStoreException);
+        }
+    }
+
+    @Test
+    public void pipelineUpdates() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoryDocumentStore counting = new MemoryDocumentStore() {
+            @Override
+            public <T extends Document> List<T> createOrUpdate(Collection<T> collection,
+                                                               List<UpdateOp> updateOps) {
+                calls.incrementAndGet();
+                return super.createOrUpdate(collection, updateOps);
+            }
+        };
+        async = new BatchingAsyncDocumentStore(counting);
+        List<CompletableFuture<NodeDocument>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UpdateOp op = new UpdateOp("1:/n" + (i % 10), true);
+            op.set("value", i);
+            futures.add(async.createOrUpdateAsync(Collection.NODES, op));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(90L + i, counting.find(Collection.NODES, "1:/n" + i).get("value"));
+        }
+        for (int i = 10; i < 100; i++) {
+            assertEquals((long) (i - 10), futures.get(i).join().get("value"));
+        }
+        assertTrue(calls.get() <= 100);
+    }
+
+    @Test
+    public void closed() {
+        async = new BatchingAsyncDocumentStore(store);
+        async.close();
+        try {
+            async.findAsync(Collection.NODES, "1:/a").join();
+            fail("must fail with DocumentStoreException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof DocumentStoreException);
+        }
+    }
+
+    private class BlockingReader implements BatchingAsyncDocumentStore.BatchReader {
+
+        @NotNull
+        @Override
+        public <T extends Document> Map<String, T> read(@NotNull Collection<T> collection,
+                                                        @NotNull Set<String> keys) {
+            batches.add(keys);
+            reading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, T> documents = new HashMap<>();
+            for (String key : keys) {
+                T doc = store.find(collection, key);
+                if (doc != null) {
+                    documents.put(key, doc);
+                }
+            }
+            return documents;
+        }
+    }
+}
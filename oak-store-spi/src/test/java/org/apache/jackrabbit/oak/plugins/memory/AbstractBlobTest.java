@@ -20,6 +20,8 @@
 package org.apache.jackrabbit.oak.plugins.memory;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.apache.jackrabbit.oak.api.Blob;
@@ -27,6 +29,8 @@ import org.apache.jackrabbit.oak.commons.conditions.Validate;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -54,6 +58,25 @@ public class AbstractBlobTest {
         assertFalse("Blob comparison should not fallback on content if lengths not same", AbstractBlob.equal(a, b));
     }
 
+    @Test
+    public void positionedRead() throws Exception {
+        byte[] data = bytes(100);
+        Blob blob = new TestBlob(data, null, true);
+
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        assertEquals(20, blob.read(10, buffer));
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 30), buffer.array());
+
+        buffer.clear();
+        assertEquals(5, blob.read(95, buffer));
+        assertEquals(5, buffer.position());
+        assertArrayEquals(Arrays.copyOfRange(data, 95, 100), Arrays.copyOf(buffer.array(), 5));
+
+        buffer.clear();
+        assertEquals(-1, blob.read(100, buffer));
+        assertEquals(-1, blob.read(200, buffer));
+    }
+
     private byte[] bytes(int size) {
         byte[] data = new byte[size];
         rnd.nextBytes(data);